@@ -0,0 +1,258 @@
+/*
+ * Copyright 2012 Alexander Shabanov - http://alexshabanov.com.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alexshabanov.cards.model;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable set of cards, backed by the 52-bit mask: the bit number N is set if the card with code N
+ * (see {@link DefaultCard#valueOf(int)}) is in the set.
+ * <p>
+ * The static methods operate on the raw long masks, so that the hot code might avoid creating the objects.
+ * Cards of the raw mask might be iterated as follows:
+ * {@code for (long m = mask; m != 0; m &= m - 1) { final int code = Long.numberOfTrailingZeros(m); ... }}
+ * </p>
+ */
+public final class CardMask implements Iterable<Card>, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Mask of all the cards of the deck.
+     */
+    public static final long DECK_MASK = (1L << DefaultCard.MAX_CARD_CODE) - 1;
+
+    public static final CardMask EMPTY = new CardMask(0L);
+    public static final CardMask DECK = new CardMask(DECK_MASK);
+
+    private final long mask;
+
+    private CardMask(long mask) {
+        this.mask = mask;
+    }
+
+    //
+    // Raw mask operations
+    //
+
+    /**
+     * @param code Card code, see {@link DefaultCard#valueOf(int)}.
+     * @return Mask that contains the single card with the given code.
+     */
+    public static long maskOf(int code) {
+        if (code < 0 || code >= DefaultCard.MAX_CARD_CODE) {
+            throw new IllegalArgumentException("Illegal card code: " + code);
+        }
+        return 1L << code;
+    }
+
+    public static long maskOf(int[] codes) {
+        long result = 0;
+        for (final int code : codes) {
+            result |= maskOf(code);
+        }
+        return result;
+    }
+
+    public static long maskOf(Collection<? extends Card> cards) {
+        long result = 0;
+        for (final Card card : cards) {
+            result |= 1L << card.getCode();
+        }
+        return result;
+    }
+
+    /**
+     * @param mask Card mask.
+     * @return Count of cards in the given mask.
+     */
+    public static int size(long mask) {
+        return Long.bitCount(mask);
+    }
+
+    public static boolean contains(long mask, int code) {
+        return (mask & maskOf(code)) != 0;
+    }
+
+    /**
+     * @param mask Card mask.
+     * @return Lowest card code in the given mask or -1 if the mask is empty.
+     */
+    public static int lowestCode(long mask) {
+        return mask == 0 ? -1 : Long.numberOfTrailingZeros(mask);
+    }
+
+    /**
+     * @param mask Card mask.
+     * @return Ascending card codes of the given mask.
+     */
+    public static int[] toCodes(long mask) {
+        final int[] codes = new int[Long.bitCount(mask)];
+        for (int i = 0; mask != 0; ++i, mask &= mask - 1) {
+            codes[i] = Long.numberOfTrailingZeros(mask);
+        }
+        return codes;
+    }
+
+    /**
+     * @param mask Card mask.
+     * @return Unmodifiable list of the cards of the given mask, ordered by card code.
+     */
+    public static List<Card> toCards(long mask) {
+        final int[] codes = toCodes(mask);
+        return new AbstractList<Card>() {
+            @Override
+            public Card get(int index) {
+                return DefaultCard.valueOf(codes[index]);
+            }
+
+            @Override
+            public int size() {
+                return codes.length;
+            }
+        };
+    }
+
+    //
+    // Card set
+    //
+
+    /**
+     * @param mask Card mask, only the lower {@link DefaultCard#MAX_CARD_CODE} bits might be set.
+     * @return Card set for the given mask.
+     */
+    public static CardMask valueOf(long mask) {
+        if ((mask & ~DECK_MASK) != 0) {
+            throw new IllegalArgumentException("Illegal card mask: " + Long.toHexString(mask));
+        }
+        return mask == 0 ? EMPTY : new CardMask(mask);
+    }
+
+    public static CardMask of(int... codes) {
+        return valueOf(maskOf(codes));
+    }
+
+    public static CardMask of(Collection<? extends Card> cards) {
+        return valueOf(maskOf(cards));
+    }
+
+    /**
+     * @return Raw card mask.
+     */
+    public long toLong() {
+        return mask;
+    }
+
+    public CardMask union(CardMask other) {
+        return valueOf(mask | other.mask);
+    }
+
+    public CardMask intersection(CardMask other) {
+        return valueOf(mask & other.mask);
+    }
+
+    public CardMask without(CardMask other) {
+        return valueOf(mask & ~other.mask);
+    }
+
+    public CardMask with(Card card) {
+        return valueOf(mask | (1L << card.getCode()));
+    }
+
+    public CardMask without(Card card) {
+        return valueOf(mask & ~(1L << card.getCode()));
+    }
+
+    public boolean contains(Card card) {
+        return (mask & (1L << card.getCode())) != 0;
+    }
+
+    public boolean containsAll(CardMask other) {
+        return (other.mask & ~mask) == 0;
+    }
+
+    public boolean isEmpty() {
+        return mask == 0;
+    }
+
+    public int size() {
+        return Long.bitCount(mask);
+    }
+
+    public int[] toCodes() {
+        return toCodes(mask);
+    }
+
+    public List<Card> toCards() {
+        return toCards(mask);
+    }
+
+    /**
+     * @return Iterator over the cards, ordered by card code.
+     */
+    @Override
+    public Iterator<Card> iterator() {
+        return new Iterator<Card>() {
+            private long rest = mask;
+
+            @Override
+            public boolean hasNext() {
+                return rest != 0;
+            }
+
+            @Override
+            public Card next() {
+                if (rest == 0) {
+                    throw new NoSuchElementException();
+                }
+
+                final int code = Long.numberOfTrailingZeros(rest);
+                rest &= rest - 1;
+                return DefaultCard.valueOf(code);
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException("Card mask is immutable");
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        return mask == ((CardMask) o).mask;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (mask ^ (mask >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return toCards().toString();
+    }
+}
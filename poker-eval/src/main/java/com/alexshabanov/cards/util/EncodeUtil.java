@@ -19,6 +19,7 @@ import com.alexshabanov.cards.model.DefaultCard;
 import com.alexshabanov.cards.model.Rank;
 import com.alexshabanov.cards.model.Suit;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -45,4 +46,34 @@ public final class EncodeUtil {
         }
         return result;
     }
+
+    /**
+     * @param codes Card codes.
+     * @return Unmodifiable list of cards backed by the given array of codes, no cards are copied.
+     */
+    public static List<Card> asCards(final int[] codes) {
+        for (final int code : codes) {
+            DefaultCard.valueOf(code); // validates the code
+        }
+
+        return new AbstractList<Card>() {
+            @Override
+            public Card get(int index) {
+                return DefaultCard.valueOf(codes[index]);
+            }
+
+            @Override
+            public int size() {
+                return codes.length;
+            }
+        };
+    }
+
+    public static int[] toCodeArray(List<Card> cards) {
+        final int[] result = new int[cards.size()];
+        for (int i = 0; i < result.length; ++i) {
+            result[i] = cards.get(i).getCode();
+        }
+        return result;
+    }
 }
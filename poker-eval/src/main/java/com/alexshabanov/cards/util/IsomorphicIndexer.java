@@ -0,0 +1,526 @@
+/*
+ * Copyright 2012 Alexander Shabanov - http://alexshabanov.com.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alexshabanov.cards.util;
+
+import com.alexshabanov.cards.model.Card;
+import com.alexshabanov.cards.model.DefaultCard;
+import com.alexshabanov.cards.model.Rank;
+import com.alexshabanov.cards.model.Suit;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Maps the cards, dealt in rounds (e.g. hole cards and board cards), to the dense index of their class
+ * of suit isomorphism and back.
+ * <p>
+ * Two sets of cards are isomorphic if one turns into the other by relabeling the suits, e.g. AsKs on 2h3h4d
+ * and AhKh on 2s3s4d. Order of the cards within a round does not matter, but the cards of different rounds
+ * are never mixed, so that the hole cards are told from the board ones. Indexes are dense: each of the numbers
+ * from 0 to {@link #getSize()} - 1 is the index of exactly one class, so the index might be used as the key
+ * of the tables and caches instead of the cards.
+ * </p>
+ * <p>
+ * Each suit is described by the sequence of its rank sets, one per round, packed into the single long value
+ * (13 bits per round, the first round takes the lowest bits). Suits are ordered by the counts of
+ * their cards in each round first, then by the index of the rank set sequence. The classes are enumerated by
+ * the suit configuration (the sorted counts of cards of each suit in each round) first, then by the
+ * multisets of the rank set sequence indexes of the suits that have the same counts.
+ * </p>
+ * <p>
+ * Instances are immutable and might be shared by any count of threads.
+ * </p>
+ */
+public final class IsomorphicIndexer {
+
+    /**
+     * Max count of rounds the indexer supports.
+     */
+    public static final int MAX_ROUNDS = 4;
+
+    private static final int RANKS = Rank.values().length;
+    private static final int SUITS = Suit.values().length;
+    private static final int COUNT_BITS = 4;
+    private static final int COUNT_MASK = (1 << COUNT_BITS) - 1;
+    private static final int SHAPE_BITS = COUNT_BITS * MAX_ROUNDS;
+    private static final long SHAPE_MASK = (1L << SHAPE_BITS) - 1;
+    private static final int ALL_RANKS_MASK = (1 << RANKS) - 1;
+
+    /**
+     * Per-suit values of {@link #indexOf(int[])}: the rank sets of the suit and then its key,
+     * the indexer is shared, so the array is reused by each thread.
+     */
+    private static final ThreadLocal<long[]> SUIT_KEYS = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            return new long[SUITS];
+        }
+    };
+
+    /**
+     * Binomial coefficients C(n, k) for n, k up to the count of ranks.
+     */
+    private static final int[][] RANK_BINOMIALS = new int[RANKS + 1][RANKS + 1];
+
+    static {
+        for (int n = 0; n <= RANKS; ++n) {
+            RANK_BINOMIALS[n][0] = 1;
+            for (int k = 1; k <= n; ++k) {
+                RANK_BINOMIALS[n][k] = RANK_BINOMIALS[n - 1][k - 1] + RANK_BINOMIALS[n - 1][k];
+            }
+        }
+    }
+
+    /**
+     * Indexers of the Texas Hold'em streets: the hole cards are the first round, the board cards are the second one,
+     * since the order, in which the board cards are dealt, does not matter to the showdown.
+     * Built after the binomials above.
+     */
+    public static final IsomorphicIndexer PREFLOP = new IsomorphicIndexer(2);
+    public static final IsomorphicIndexer FLOP = new IsomorphicIndexer(2, 3);
+    public static final IsomorphicIndexer TURN = new IsomorphicIndexer(2, 4);
+    public static final IsomorphicIndexer RIVER = new IsomorphicIndexer(2, 5);
+
+    private final int[] roundSizes;
+    private final int cardCount;
+
+    /**
+     * Suit configurations, each one has four shapes, i.e. counts of cards of the suit in each round,
+     * sorted in the descending order and packed by {@link #SHAPE_BITS} bits, the first shape takes the highest bits.
+     * Configurations are sorted in the ascending order, offsets are the indexes of the first class of each one.
+     */
+    private final long[] configurations;
+    private final int[] configurationOffsets;
+    private final int size;
+
+    /**
+     * @param roundSizes Count of cards dealt in each round, e.g. 2, 5 for the river of Texas Hold'em.
+     */
+    public IsomorphicIndexer(int... roundSizes) {
+        if (roundSizes.length == 0 || roundSizes.length > MAX_ROUNDS) {
+            throw new IllegalArgumentException("Count of rounds should be from 1 to " + MAX_ROUNDS);
+        }
+        int total = 0;
+        for (final int roundSize : roundSizes) {
+            if (roundSize <= 0) {
+                throw new IllegalArgumentException("Count of cards in each round should be positive");
+            }
+            total += roundSize;
+        }
+        if (total > DefaultCard.MAX_CARD_CODE) {
+            throw new IllegalArgumentException("Count of cards " + total + " exceeds the size of the deck");
+        }
+
+        this.roundSizes = roundSizes.clone();
+        this.cardCount = total;
+
+        final long[] found = new long[countConfigurations(new int[roundSizes.length], new long[SUITS], 0, null, 0)];
+        countConfigurations(new int[roundSizes.length], new long[SUITS], 0, found, 0);
+        Arrays.sort(found);
+        configurations = found;
+        configurationOffsets = new int[found.length];
+
+        long offset = 0;
+        for (int i = 0; i < found.length; ++i) {
+            configurationOffsets[i] = (int) offset;
+            offset += configurationSize(found[i]);
+            if (offset > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Count of classes does not fit the int index");
+            }
+        }
+        size = (int) offset;
+    }
+
+    /**
+     * @return Count of the isomorphism classes, i.e. the upper bound of the indexes, exclusive.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return Count of cards the indexer accepts.
+     */
+    public int getCardCount() {
+        return cardCount;
+    }
+
+    public int getRoundCount() {
+        return roundSizes.length;
+    }
+
+    public int getRoundSize(int round) {
+        return roundSizes[round];
+    }
+
+    public int indexOf(List<Card> cards) {
+        return indexOf(EncodeUtil.toCodeArray(cards));
+    }
+
+    /**
+     * @param codes Distinct card codes, the cards of the first round go first, then the cards of the second one etc.
+     * @return Index of the isomorphism class of the given cards.
+     */
+    public int indexOf(int[] codes) {
+        final long[] keys = SUIT_KEYS.get();
+        fillRankSets(codes, keys);
+
+        // rank sets of each suit are replaced by the shape and the index of the rank set sequence
+        for (int suit = 0; suit < SUITS; ++suit) {
+            keys[suit] = (shapeOf(keys[suit]) << Integer.SIZE) | suitIndexOf(keys[suit]);
+        }
+        Arrays.sort(keys);
+
+        long configuration = 0;
+        for (int i = SUITS - 1; i >= 0; --i) {
+            configuration = (configuration << SHAPE_BITS) | (keys[i] >>> Integer.SIZE);
+        }
+        final int configurationIndex = Arrays.binarySearch(configurations, configuration);
+
+        // suits with the same shape form a multiset, multisets are combined in the mixed radix
+        long index = 0;
+        for (int start = SUITS - 1; start >= 0; ) {
+            final long shape = keys[start] >>> Integer.SIZE;
+            int end = start;
+            while (end > 0 && (keys[end - 1] >>> Integer.SIZE) == shape) {
+                --end;
+            }
+
+            final int groupSize = start - end + 1;
+            long multisetRank = 0;
+            for (int i = 0; i < groupSize; ++i) {
+                // ascending suit indexes a[i] map to the strictly ascending a[i] + i
+                multisetRank += binomial((keys[end + i] & 0xFFFFFFFFL) + i, i + 1);
+            }
+            index = index * binomial(suitCount(shape) + groupSize - 1, groupSize) + multisetRank;
+            start = end - 1;
+        }
+
+        return configurationOffsets[configurationIndex] + (int) index;
+    }
+
+    /**
+     * Writes the canonical representative of the class, i.e. the cards that have the given index.
+     *
+     * @param index Index of the isomorphism class.
+     * @param codes Target card codes, at least {@link #getCardCount()} elements, the cards of each round are written
+     *              in the ascending order of the codes.
+     */
+    public void unindex(int index, int[] codes) {
+        if (index < 0 || index >= size) {
+            throw new IllegalArgumentException("Index " + index + " is out of [0, " + size + ")");
+        }
+        if (codes.length < cardCount) {
+            throw new IllegalArgumentException("Expected at least " + cardCount + " elements in the target array");
+        }
+
+        int configurationIndex = Arrays.binarySearch(configurationOffsets, index);
+        if (configurationIndex < 0) {
+            configurationIndex = -configurationIndex - 2;
+        }
+        final long configuration = configurations[configurationIndex];
+        long remainder = index - configurationOffsets[configurationIndex];
+
+        // the last group of suits takes the lowest digit of the mixed radix
+        final long[] rankSets = new long[SUITS];
+        for (int end = SUITS - 1; end >= 0; ) {
+            final long shape = shapeAt(configuration, end);
+            int start = end;
+            while (start > 0 && shapeAt(configuration, start - 1) == shape) {
+                --start;
+            }
+
+            final int groupSize = end - start + 1;
+            final long suitCount = suitCount(shape);
+            final long radix = binomial(suitCount + groupSize - 1, groupSize);
+            long multisetRank = remainder % radix;
+            remainder /= radix;
+
+            for (int i = groupSize - 1; i >= 0; --i) {
+                // find the largest b, such that C(b, i + 1) <= multisetRank
+                long low = i;
+                long high = suitCount + i - 1;
+                while (low < high) {
+                    final long middle = (low + high + 1) >>> 1;
+                    if (binomial(middle, i + 1) <= multisetRank) {
+                        low = middle;
+                    } else {
+                        high = middle - 1;
+                    }
+                }
+                multisetRank -= binomial(low, i + 1);
+                rankSets[start + i] = suitRankSets(shape, low - i);
+            }
+            end = start - 1;
+        }
+
+        int offset = 0;
+        for (int round = 0; round < roundSizes.length; ++round) {
+            final int roundStart = offset;
+            for (int suit = 0; suit < SUITS; ++suit) {
+                for (int rankSet = rankSetOf(rankSets[suit], round); rankSet != 0; rankSet &= rankSet - 1) {
+                    codes[offset++] = suit * RANKS + Integer.numberOfTrailingZeros(rankSet);
+                }
+            }
+            Arrays.sort(codes, roundStart, offset);
+        }
+    }
+
+    /**
+     * @param codes Distinct card codes, the cards of the first round go first, then the cards of the second one etc.
+     * @return Canonical representative of the isomorphism class of the given cards, see {@link #unindex(int, int[])}.
+     */
+    public int[] canonize(int[] codes) {
+        final int[] result = new int[cardCount];
+        unindex(indexOf(codes), result);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "IsomorphicIndexer{rounds=" + Arrays.toString(roundSizes) + ", size=" + size + '}';
+    }
+
+    //
+    // Private
+    //
+
+    /**
+     * Writes the rank sets of the cards of each suit, rank ordinal is the bit number within the round's bits.
+     *
+     * @param codes  Card codes.
+     * @param target Target rank sets, indexed by suit.
+     */
+    private void fillRankSets(int[] codes, long[] target) {
+        if (codes.length != cardCount) {
+            throw new IllegalArgumentException("Expected " + cardCount + " card codes, got " + codes.length);
+        }
+
+        Arrays.fill(target, 0L);
+        long used = 0;
+        int offset = 0;
+        for (int round = 0; round < roundSizes.length; ++round) {
+            for (int i = 0; i < roundSizes[round]; ++i) {
+                final int code = codes[offset++];
+                if (code < 0 || code >= DefaultCard.MAX_CARD_CODE) {
+                    throw new IllegalArgumentException("Invalid card code " + code);
+                }
+                if ((used & (1L << code)) != 0) {
+                    throw new IllegalArgumentException("Duplicate card code " + code);
+                }
+                used |= 1L << code;
+                target[code / RANKS] |= 1L << (round * RANKS + code % RANKS);
+            }
+        }
+    }
+
+    private static int rankSetOf(long rankSets, int round) {
+        return (int) (rankSets >>> (round * RANKS)) & ALL_RANKS_MASK;
+    }
+
+    /**
+     * @return Counts of cards of the suit in each round, the count of the first round takes the highest bits.
+     */
+    private static long shapeOf(long rankSets) {
+        long result = 0;
+        for (int round = 0; round < MAX_ROUNDS; ++round) {
+            result = (result << COUNT_BITS) | Integer.bitCount(rankSetOf(rankSets, round));
+        }
+        return result;
+    }
+
+    private static int roundCount(long shape, int round) {
+        return (int) (shape >>> (COUNT_BITS * (MAX_ROUNDS - 1 - round))) & COUNT_MASK;
+    }
+
+    private static long shapeAt(long configuration, int suit) {
+        return (configuration >>> (SHAPE_BITS * (SUITS - 1 - suit))) & SHAPE_MASK;
+    }
+
+    /**
+     * @return Count of the rank set sequences of the suit of the given shape.
+     */
+    private long suitCount(long shape) {
+        long result = 1;
+        int left = RANKS;
+        for (int round = 0; round < roundSizes.length; ++round) {
+            final int count = roundCount(shape, round);
+            result *= RANK_BINOMIALS[left][count];
+            left -= count;
+        }
+        return result;
+    }
+
+    /**
+     * Ranks the rank set of each round among the ranks that are not taken by the previous rounds,
+     * the ranks are combined in the mixed radix, the first round takes the highest digit.
+     */
+    private int suitIndexOf(long rankSets) {
+        int result = 0;
+        int used = 0;
+        for (int round = 0; round < roundSizes.length; ++round) {
+            final int rankSet = rankSetOf(rankSets, round);
+            final int count = Integer.bitCount(rankSet);
+
+            int rank = 0;
+            int position = 0;
+            int element = 0;
+            for (int bit = 0; bit < RANKS; ++bit) {
+                if ((used & (1 << bit)) != 0) {
+                    continue;
+                }
+                if ((rankSet & (1 << bit)) != 0) {
+                    rank += RANK_BINOMIALS[position][++element];
+                }
+                ++position;
+            }
+
+            result = result * RANK_BINOMIALS[RANKS - Integer.bitCount(used)][count] + rank;
+            used |= rankSet;
+        }
+        return result;
+    }
+
+    /**
+     * Inverse of {@link #suitIndexOf(long)}.
+     */
+    private long suitRankSets(long shape, long suitIndex) {
+        final int rounds = roundSizes.length;
+        final int[] digits = new int[rounds];
+        final int[] lefts = new int[rounds];
+        int left = RANKS;
+        for (int round = 0; round < rounds; ++round) {
+            lefts[round] = left;
+            left -= roundCount(shape, round);
+        }
+        for (int round = rounds - 1; round >= 0; --round) {
+            final int radix = RANK_BINOMIALS[lefts[round]][roundCount(shape, round)];
+            digits[round] = (int) (suitIndex % radix);
+            suitIndex /= radix;
+        }
+
+        long result = 0;
+        int used = 0;
+        for (int round = 0; round < rounds; ++round) {
+            // colex unranking of the combination of the free positions
+            int rank = digits[round];
+            int positions = 0;
+            for (int element = roundCount(shape, round); element > 0; --element) {
+                int position = element - 1;
+                while (RANK_BINOMIALS[position + 1][element] <= rank) {
+                    ++position;
+                }
+                rank -= RANK_BINOMIALS[position][element];
+                positions |= 1 << position;
+            }
+
+            int rankSet = 0;
+            int position = 0;
+            for (int bit = 0; bit < RANKS; ++bit) {
+                if ((used & (1 << bit)) != 0) {
+                    continue;
+                }
+                if ((positions & (1 << position)) != 0) {
+                    rankSet |= 1 << bit;
+                }
+                ++position;
+            }
+            result |= (long) rankSet << (round * RANKS);
+            used |= rankSet;
+        }
+        return result;
+    }
+
+    private long configurationSize(long configuration) {
+        long result = 1;
+        for (int start = 0; start < SUITS; ) {
+            final long shape = shapeAt(configuration, start);
+            int end = start;
+            while (end < SUITS - 1 && shapeAt(configuration, end + 1) == shape) {
+                ++end;
+            }
+            final int groupSize = end - start + 1;
+            result *= binomial(suitCount(shape) + groupSize - 1, groupSize);
+            start = end + 1;
+        }
+        return result;
+    }
+
+    /**
+     * Enumerates the suit configurations: the shapes of the suits in the descending order, such that
+     * each round gets exactly the count of cards it deals and each suit has at most {@link #RANKS} cards.
+     *
+     * @return Count of the configurations found.
+     */
+    private int countConfigurations(int[] roundCounts, long[] shapes, int suit, long[] target, int found) {
+        if (suit == SUITS) {
+            for (int round = 0; round < roundSizes.length; ++round) {
+                if (roundCounts[round] != roundSizes[round]) {
+                    return found;
+                }
+            }
+            if (target != null) {
+                long configuration = 0;
+                for (final long shape : shapes) {
+                    configuration = (configuration << SHAPE_BITS) | shape;
+                }
+                target[found] = configuration;
+            }
+            return found + 1;
+        }
+
+        final long maxShape = suit == 0 ? SHAPE_MASK : shapes[suit - 1];
+        return countShapes(roundCounts, shapes, suit, 0, 0, 0, maxShape, target, found);
+    }
+
+    private int countShapes(int[] roundCounts, long[] shapes, int suit, int round, long shape, int suitCards,
+                            long maxShape, long[] target, int found) {
+        if (round == MAX_ROUNDS) {
+            if (shape > maxShape) {
+                return found;
+            }
+            shapes[suit] = shape;
+            return countConfigurations(roundCounts, shapes, suit + 1, target, found);
+        }
+        if (round >= roundSizes.length) {
+            return countShapes(roundCounts, shapes, suit, round + 1, shape << COUNT_BITS, suitCards, maxShape,
+                    target, found);
+        }
+
+        int result = found;
+        final int maxCount = Math.min(roundSizes[round] - roundCounts[round], RANKS - suitCards);
+        for (int count = 0; count <= maxCount; ++count) {
+            roundCounts[round] += count;
+            result = countShapes(roundCounts, shapes, suit, round + 1, (shape << COUNT_BITS) | count,
+                    suitCards + count, maxShape, target, result);
+            roundCounts[round] -= count;
+        }
+        return result;
+    }
+
+    /**
+     * @return Binomial coefficient C(n, k) for the small k, n might be large.
+     */
+    private static long binomial(long n, int k) {
+        if (k > n) {
+            return 0;
+        }
+        long result = 1;
+        for (int i = 0; i < k; ++i) {
+            result = result * (n - i) / (i + 1);
+        }
+        return result;
+    }
+}
@@ -15,6 +15,7 @@
 package com.alexshabanov.cards.util;
 
 import com.alexshabanov.cards.model.Card;
+import com.alexshabanov.cards.model.CardMask;
 import com.alexshabanov.cards.model.DefaultCard;
 import com.alexshabanov.cards.model.Rank;
 import com.alexshabanov.cards.model.Suit;
@@ -65,4 +66,21 @@ public final class ReaderUtil {
         }
         return result;
     }
+
+    public static int[] codesFromLatin1(String cards) {
+        final String[] cardCodes = cards.split("\\s");
+        final int[] result = new int[cardCodes.length];
+        for (int i = 0; i < cardCodes.length; ++i) {
+            result[i] = cardFromLatin1(cardCodes[i]).getCode();
+        }
+        return result;
+    }
+
+    /**
+     * @param cards Cards, e.g. "Ac Td".
+     * @return Card mask, see {@link CardMask}.
+     */
+    public static long maskFromLatin1(String cards) {
+        return CardMask.maskOf(codesFromLatin1(cards));
+    }
 }
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2012 Alexander Shabanov - http://alexshabanov.com.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alexshabanov.poker.model;
+
+/**
+ * Outcome of the equity calculation: counts of the won, tied and lost runouts of each player.
+ * Tied runouts are shared equally between the tied players, see {@link #getEquity(int)}.
+ * <p>
+ * Runouts might be weighted, e.g. by the importance sampling, then the fractions and the equities are the shares
+ * of the total weight rather than of the runout count. Runouts of the unweighted result weigh one each.
+ * </p>
+ * Instances are immutable.
+ */
+public final class EquityResult {
+
+    private final long runoutCount;
+    private final long[] wins;
+    private final long[] ties;
+    private final long[] losses;
+    private final double totalWeight;
+    private final double[] winWeights;
+    private final double[] tieWeights;
+    private final double[] tieShares;
+
+    /**
+     * @param runoutCount Count of the evaluated runouts.
+     * @param wins        Count of the won runouts of each player.
+     * @param ties        Count of the tied runouts of each player.
+     * @param losses      Count of the lost runouts of each player.
+     * @param tieShares   Sum of the pot shares of the tied runouts of each player, e.g. a half for each two-way tie.
+     */
+    public EquityResult(long runoutCount, long[] wins, long[] ties, long[] losses, double[] tieShares) {
+        this(runoutCount, wins, ties, losses, runoutCount, toDoubles(wins), toDoubles(ties), tieShares);
+    }
+
+    /**
+     * @param runoutCount Count of the evaluated runouts.
+     * @param wins        Count of the won runouts of each player.
+     * @param ties        Count of the tied runouts of each player.
+     * @param losses      Count of the lost runouts of each player.
+     * @param totalWeight Sum of the weights of the runouts.
+     * @param winWeights  Sum of the weights of the won runouts of each player.
+     * @param tieWeights  Sum of the weights of the tied runouts of each player.
+     * @param tieShares   Sum of the weighted pot shares of the tied runouts of each player.
+     */
+    public EquityResult(long runoutCount, long[] wins, long[] ties, long[] losses, double totalWeight,
+                        double[] winWeights, double[] tieWeights, double[] tieShares) {
+        if (ties.length != wins.length || losses.length != wins.length || tieShares.length != wins.length ||
+                winWeights.length != wins.length || tieWeights.length != wins.length) {
+            throw new IllegalArgumentException("Counters are given for the different counts of players");
+        }
+
+        this.runoutCount = runoutCount;
+        this.wins = wins.clone();
+        this.ties = ties.clone();
+        this.losses = losses.clone();
+        this.totalWeight = totalWeight;
+        this.winWeights = winWeights.clone();
+        this.tieWeights = tieWeights.clone();
+        this.tieShares = tieShares.clone();
+    }
+
+    private static double[] toDoubles(long[] values) {
+        final double[] result = new double[values.length];
+        for (int i = 0; i < values.length; ++i) {
+            result[i] = values[i];
+        }
+        return result;
+    }
+
+    public int getPlayerCount() {
+        return wins.length;
+    }
+
+    public long getRunoutCount() {
+        return runoutCount;
+    }
+
+    /**
+     * @return Sum of the weights of the runouts, the runout count for the unweighted result.
+     */
+    public double getTotalWeight() {
+        return totalWeight;
+    }
+
+    public long getWins(int player) {
+        return wins[player];
+    }
+
+    public long getTies(int player) {
+        return ties[player];
+    }
+
+    public long getLosses(int player) {
+        return losses[player];
+    }
+
+    public double getWinFraction(int player) {
+        return totalWeight == 0.0 ? 0.0 : winWeights[player] / totalWeight;
+    }
+
+    public double getTieFraction(int player) {
+        return totalWeight == 0.0 ? 0.0 : tieWeights[player] / totalWeight;
+    }
+
+    /**
+     * @param player Player index.
+     * @return Expected share of the pot: won runouts plus the shares of the tied ones, divided by the total weight.
+     */
+    public double getEquity(int player) {
+        return totalWeight == 0.0 ? 0.0 : (winWeights[player] + tieShares[player]) / totalWeight;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder("EquityResult{runoutCount=").append(runoutCount);
+        for (int player = 0; player < wins.length; ++player) {
+            builder.append(", #").append(player).append(": equity=").append(String.format("%.4f", getEquity(player)))
+                    .append(" win=").append(wins[player]).append(" tie=").append(ties[player])
+                    .append(" loss=").append(losses[player]);
+        }
+        return builder.append('}').toString();
+    }
+}
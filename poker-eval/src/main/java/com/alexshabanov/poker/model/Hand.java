@@ -42,4 +42,13 @@ public interface Hand {
      * @return Non-negative number.
      */
     int getRating();
+
+    /**
+     * Returns the hand strength, that takes into account both the combination rank and all the kickers.
+     * Unlike the rating, strengths of any two hands are comparable: the stronger hand has the greater strength,
+     * equally strong hands have equal strengths.
+     *
+     * @return Non-negative number, the combination rank is kept in the highest bits.
+     */
+    int getStrength();
 }
@@ -0,0 +1,509 @@
+/*
+ * Copyright 2012 Alexander Shabanov - http://alexshabanov.com.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alexshabanov.poker.model;
+
+import com.alexshabanov.cards.model.CardMask;
+import com.alexshabanov.cards.model.DefaultCard;
+import com.alexshabanov.cards.model.Rank;
+import com.alexshabanov.cards.model.Suit;
+import com.alexshabanov.cards.util.PrintUtil;
+import com.alexshabanov.cards.util.ReaderUtil;
+
+import java.util.Arrays;
+
+/**
+ * Weighted range of the Texas Hold'em hole-card combos: weight of each of the {@link #COMBO_COUNT} combos is kept
+ * in the dense array indexed by {@link #comboIndex(int, int)}, zero weight means the combo is not in the range.
+ * <p>
+ * Ranges are parsed from the standard notation, see {@link #parse(String)}.
+ * Set operations modify this range in place and allocate nothing, so that they might be used in the tight loops.
+ * Instances are not thread safe.
+ * </p>
+ */
+public final class HandRange {
+
+    /**
+     * Count of the distinct hole-card combos, C(52, 2).
+     */
+    public static final int COMBO_COUNT = DefaultCard.MAX_CARD_CODE * (DefaultCard.MAX_CARD_CODE - 1) / 2;
+
+    private static final int RANKS = Rank.values().length;
+    private static final int SUITS = Suit.values().length;
+
+    /**
+     * Card masks of the combos, indexed by combo index.
+     */
+    private static final long[] COMBO_MASKS = new long[COMBO_COUNT];
+
+    /**
+     * Indexes of the combos that contain the card, indexed by card code.
+     */
+    private static final int[][] CARD_COMBOS = new int[DefaultCard.MAX_CARD_CODE][DefaultCard.MAX_CARD_CODE - 1];
+
+    /**
+     * Rating index of the rank (TWO is zero, ACE is the highest one) or -1, indexed by rank char.
+     */
+    private static final int[] CHAR_RATINGS = new int[128];
+
+    /**
+     * Rank ordinals, indexed by rating index.
+     */
+    private static final int[] RATING_ORDINALS = new int[RANKS];
+
+    static {
+        final int[] cardComboCounts = new int[DefaultCard.MAX_CARD_CODE];
+        for (int high = 1; high < DefaultCard.MAX_CARD_CODE; ++high) {
+            for (int low = 0; low < high; ++low) {
+                final int index = comboIndex(low, high);
+                COMBO_MASKS[index] = (1L << low) | (1L << high);
+                CARD_COMBOS[low][cardComboCounts[low]++] = index;
+                CARD_COMBOS[high][cardComboCounts[high]++] = index;
+            }
+        }
+
+        Arrays.fill(CHAR_RATINGS, -1);
+        for (final Rank rank : Rank.values()) {
+            final int rating = (rank.ordinal() + RANKS - 1) % RANKS;
+            CHAR_RATINGS[PrintUtil.asChar(rank)] = rating;
+            RATING_ORDINALS[rating] = rank.ordinal();
+        }
+    }
+
+    private final double[] weights = new double[COMBO_COUNT];
+
+    /**
+     * Creates the empty range.
+     */
+    public HandRange() {
+    }
+
+    public HandRange(HandRange other) {
+        set(other);
+    }
+
+    //
+    // Combo indexes
+    //
+
+    /**
+     * @param lowCode  Lower card code.
+     * @param highCode Higher card code.
+     * @return Dense index of the combo, less than {@link #COMBO_COUNT}.
+     */
+    public static int comboIndex(int lowCode, int highCode) {
+        return highCode * (highCode - 1) / 2 + lowCode;
+    }
+
+    /**
+     * @param comboMask Card mask of exactly two cards.
+     * @return Dense index of the combo.
+     */
+    public static int comboIndex(long comboMask) {
+        if (Long.bitCount(comboMask) != Constants.CARDS_PER_PLAYER || (comboMask & ~CardMask.DECK_MASK) != 0) {
+            throw new IllegalArgumentException("Combo should have " + Constants.CARDS_PER_PLAYER + " cards, got " +
+                    Long.toHexString(comboMask));
+        }
+        return comboIndex(Long.numberOfTrailingZeros(comboMask), Long.SIZE - 1 - Long.numberOfLeadingZeros(comboMask));
+    }
+
+    /**
+     * @param comboIndex Combo index.
+     * @return Card mask of the combo.
+     */
+    public static long comboMask(int comboIndex) {
+        return COMBO_MASKS[comboIndex];
+    }
+
+    //
+    // Weights
+    //
+
+    public double getWeight(int comboIndex) {
+        return weights[comboIndex];
+    }
+
+    public void setWeight(int comboIndex, double weight) {
+        if (!(weight >= 0.0) || Double.isInfinite(weight)) {
+            throw new IllegalArgumentException("Weight should be finite and non-negative, got " + weight);
+        }
+        weights[comboIndex] = weight;
+    }
+
+    /**
+     * @return Count of the combos with the non-zero weights.
+     */
+    public int getComboCount() {
+        int count = 0;
+        for (final double weight : weights) {
+            if (weight != 0.0) {
+                ++count;
+            }
+        }
+        return count;
+    }
+
+    public double getTotalWeight() {
+        double total = 0.0;
+        for (final double weight : weights) {
+            total += weight;
+        }
+        return total;
+    }
+
+    public boolean isEmpty() {
+        for (final double weight : weights) {
+            if (weight != 0.0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //
+    // In-place operations
+    //
+
+    /**
+     * Replaces the weights of this range with the weights of the given one.
+     *
+     * @param other Source range.
+     * @return This range.
+     */
+    public HandRange set(HandRange other) {
+        System.arraycopy(other.weights, 0, weights, 0, COMBO_COUNT);
+        return this;
+    }
+
+    public HandRange clear() {
+        Arrays.fill(weights, 0.0);
+        return this;
+    }
+
+    /**
+     * Keeps the greater weight of each combo.
+     *
+     * @param other Range to add.
+     * @return This range.
+     */
+    public HandRange union(HandRange other) {
+        final double[] otherWeights = other.weights;
+        for (int i = 0; i < COMBO_COUNT; ++i) {
+            weights[i] = Math.max(weights[i], otherWeights[i]);
+        }
+        return this;
+    }
+
+    /**
+     * Keeps the lesser weight of each combo.
+     *
+     * @param other Range to intersect with.
+     * @return This range.
+     */
+    public HandRange intersection(HandRange other) {
+        final double[] otherWeights = other.weights;
+        for (int i = 0; i < COMBO_COUNT; ++i) {
+            weights[i] = Math.min(weights[i], otherWeights[i]);
+        }
+        return this;
+    }
+
+    /**
+     * Removes the combos that contain any of the given cards, e.g. the board or the own hole cards.
+     * Costs the count of the cards times the count of the combos of each card rather than the size of the range.
+     *
+     * @param cardMask Card mask of the blocking cards.
+     * @return This range.
+     */
+    public HandRange removeBlocked(long cardMask) {
+        for (long m = cardMask & CardMask.DECK_MASK; m != 0; m &= m - 1) {
+            for (final int index : CARD_COMBOS[Long.numberOfTrailingZeros(m)]) {
+                weights[index] = 0.0;
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Scales the weights so that they sum up to one, the empty range is left as is.
+     *
+     * @return This range.
+     */
+    public HandRange normalize() {
+        final double total = getTotalWeight();
+        if (total > 0.0) {
+            final double scale = 1.0 / total;
+            for (int i = 0; i < COMBO_COUNT; ++i) {
+                weights[i] *= scale;
+            }
+        }
+        return this;
+    }
+
+    //
+    // Notation
+    //
+
+    /**
+     * Parses the range in the standard notation, in a single pass and without the intermediate strings.
+     * Comma-separated items are:
+     * <ul>
+     *     <li>pairs: {@code TT}, {@code TT+} (tens or better), {@code TT-66};</li>
+     *     <li>suited, offsuit or both: {@code AKs}, {@code KJo}, {@code AK};</li>
+     *     <li>kicker ranges: {@code AQs+} (the kicker up to the king), {@code K9o-K6o};</li>
+     *     <li>connected ranges, both ranks step together: {@code 76s-54s};</li>
+     *     <li>exact combos: {@code AhKd}.</li>
+     * </ul>
+     * Any item might be followed by the weight, e.g. {@code AKs:0.5}, the default weight is one,
+     * the later items override the weights of the earlier ones.
+     *
+     * @param notation Range notation, e.g. "TT+, AQs+, KJo, 76s-54s".
+     * @return Parsed range.
+     * @throws IllegalArgumentException If the notation is malformed.
+     */
+    public static HandRange parse(String notation) {
+        final HandRange range = new HandRange();
+        new Parser(notation, range).parse();
+        return range;
+    }
+
+    /**
+     * Sets the weight of each combo of the pair.
+     */
+    private void setPair(int rating, double weight) {
+        final int ordinal = RATING_ORDINALS[rating];
+        for (int s1 = 0; s1 < SUITS; ++s1) {
+            for (int s2 = s1 + 1; s2 < SUITS; ++s2) {
+                weights[comboIndex(s1 * RANKS + ordinal, s2 * RANKS + ordinal)] = weight;
+            }
+        }
+    }
+
+    /**
+     * Sets the weight of each suited, offsuit or both combos of the two distinct ranks.
+     */
+    private void setNonPair(int rating1, int rating2, boolean suited, boolean offsuit, double weight) {
+        final int ordinal1 = RATING_ORDINALS[rating1];
+        final int ordinal2 = RATING_ORDINALS[rating2];
+        for (int s1 = 0; s1 < SUITS; ++s1) {
+            for (int s2 = 0; s2 < SUITS; ++s2) {
+                if (s1 == s2 ? suited : offsuit) {
+                    final int code1 = s1 * RANKS + ordinal1;
+                    final int code2 = s2 * RANKS + ordinal2;
+                    weights[comboIndex(Math.min(code1, code2), Math.max(code1, code2))] = weight;
+                }
+            }
+        }
+    }
+
+    /**
+     * Single-pass parser of the range notation, see {@link #parse(String)}.
+     */
+    private static final class Parser {
+        /**
+         * Weights are accumulated as the integer of at most this many digits, which the double holds exactly,
+         * and divided by the power of ten, which is exact as well, so the result is the same as the one
+         * of {@link Double#parseDouble(String)}.
+         */
+        private static final int MAX_WEIGHT_DIGITS = 15;
+        private static final double[] POWERS_OF_TEN = new double[MAX_WEIGHT_DIGITS + 1];
+
+        static {
+            POWERS_OF_TEN[0] = 1.0;
+            for (int i = 1; i < POWERS_OF_TEN.length; ++i) {
+                POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+            }
+        }
+
+        private final String notation;
+        private final HandRange range;
+        private int pos;
+
+        Parser(String notation, HandRange range) {
+            this.notation = notation;
+            this.range = range;
+        }
+
+        void parse() {
+            skipSpaces();
+            if (pos == notation.length()) {
+                return;
+            }
+
+            for (;;) {
+                parseItem();
+                skipSpaces();
+                if (pos == notation.length()) {
+                    return;
+                }
+                expect(',');
+                skipSpaces();
+            }
+        }
+
+        private void parseItem() {
+            final int start = pos;
+            final int rating1 = rating();
+            if (pos < notation.length() && ratingOf(notation.charAt(pos)) < 0) {
+                // exact combo, e.g. AhKd
+                --pos;
+                final int code1 = card();
+                final int code2 = card();
+                if (code1 == code2) {
+                    throw error("Combo has the same card twice", start);
+                }
+                range.weights[comboIndex(Math.min(code1, code2), Math.max(code1, code2))] = weight();
+                return;
+            }
+
+            final int rating2 = rating();
+            final char kind = kind();
+            if (rating1 == rating2 && kind != 0) {
+                throw error("Pair can not be suited or offsuit", start);
+            }
+            final int high = Math.max(rating1, rating2);
+            final int low = Math.min(rating1, rating2);
+
+            int lastHigh = high;
+            int lastLow = low;
+            if (pos < notation.length() && notation.charAt(pos) == '+') {
+                ++pos;
+                if (high == low) {
+                    lastHigh = lastLow = RANKS - 1;
+                } else {
+                    lastLow = high - 1;
+                }
+            } else if (pos < notation.length() && notation.charAt(pos) == '-') {
+                ++pos;
+                final int endRating1 = rating();
+                final int endRating2 = rating();
+                lastHigh = Math.max(endRating1, endRating2);
+                lastLow = Math.min(endRating1, endRating2);
+                if (kind() != kind || (lastHigh == lastLow) != (high == low) ||
+                        (high != low && lastHigh != high && lastHigh - high != lastLow - low)) {
+                    throw error("Range ends do not match", start);
+                }
+            }
+
+            final double weight = weight();
+            final int steps = Math.abs(lastHigh == high ? lastLow - low : lastHigh - high);
+            final int highStep = lastHigh == high ? 0 : Integer.signum(lastHigh - high);
+            final int lowStep = Integer.signum(lastLow - low);
+            for (int i = 0; i <= steps; ++i) {
+                final int h = high + i * highStep;
+                final int l = low + i * lowStep;
+                if (h == l) {
+                    range.setPair(h, weight);
+                } else {
+                    range.setNonPair(h, l, kind != 'o', kind != 's', weight);
+                }
+            }
+        }
+
+        private int rating() {
+            if (pos == notation.length()) {
+                throw error("Rank expected", pos);
+            }
+            final int rating = ratingOf(notation.charAt(pos));
+            if (rating < 0) {
+                throw error("Rank expected", pos);
+            }
+            ++pos;
+            return rating;
+        }
+
+        private static int ratingOf(char ch) {
+            return ch < CHAR_RATINGS.length ? CHAR_RATINGS[ch] : -1;
+        }
+
+        private int card() {
+            final int rating = rating();
+            if (pos == notation.length()) {
+                throw error("Suit expected", pos);
+            }
+            try {
+                final Suit suit = ReaderUtil.suitFromLatin1Char(notation.charAt(pos++));
+                return suit.ordinal() * RANKS + RATING_ORDINALS[rating];
+            } catch (IllegalArgumentException e) {
+                throw error("Suit expected", pos - 1);
+            }
+        }
+
+        /**
+         * @return 's' for suited, 'o' for offsuit or zero for both.
+         */
+        private char kind() {
+            if (pos < notation.length() && (notation.charAt(pos) == 's' || notation.charAt(pos) == 'o')) {
+                return notation.charAt(pos++);
+            }
+            return 0;
+        }
+
+        private double weight() {
+            if (pos == notation.length() || notation.charAt(pos) != ':') {
+                return 1.0;
+            }
+
+            // digits are accumulated in place, e.g. "0.25" is 25 divided by 10^2
+            final int start = ++pos;
+            long digits = 0;
+            int digitCount = 0;
+            int fractionDigits = -1;
+            for (; pos < notation.length(); ++pos) {
+                final char ch = notation.charAt(pos);
+                if (ch == '.' && fractionDigits < 0) {
+                    fractionDigits = 0;
+                } else if (ch >= '0' && ch <= '9') {
+                    digits = digits * 10 + (ch - '0');
+                    ++digitCount;
+                    if (fractionDigits >= 0) {
+                        ++fractionDigits;
+                    }
+                } else {
+                    break;
+                }
+            }
+
+            if (digitCount == 0) {
+                throw error("Weight expected", start);
+            }
+            if (digitCount > MAX_WEIGHT_DIGITS) {
+                throw error("Weight has more than " + MAX_WEIGHT_DIGITS + " digits", start);
+            }
+            return fractionDigits > 0 ? digits / POWERS_OF_TEN[fractionDigits] : digits;
+        }
+
+        private void skipSpaces() {
+            while (pos < notation.length() && Character.isWhitespace(notation.charAt(pos))) {
+                ++pos;
+            }
+        }
+
+        private void expect(char ch) {
+            if (notation.charAt(pos) != ch) {
+                throw error("'" + ch + "' expected", pos);
+            }
+            ++pos;
+        }
+
+        private IllegalArgumentException error(String message, int position) {
+            return new IllegalArgumentException(message + " at " + position + " in \"" + notation + "\"");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "HandRange{combos=" + getComboCount() + ", totalWeight=" + getTotalWeight() + '}';
+    }
+}
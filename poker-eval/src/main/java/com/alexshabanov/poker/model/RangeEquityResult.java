@@ -0,0 +1,133 @@
+/*
+ * Copyright 2012 Alexander Shabanov - http://alexshabanov.com.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alexshabanov.poker.model;
+
+/**
+ * Outcome of the range versus range equity calculation: equity of each hole-card combo of both ranges against
+ * the opponent's range and the weighted equity of each range.
+ * <p>
+ * Ranges are indexed by 0 (the first range) and 1 (the opponent's range), combos are indexed in the order
+ * they were given. Equity of the combo is averaged over the opponent's combos and the runouts that share no cards
+ * with it, the opponent's combos contribute in proportion to their weights.
+ * Instances are immutable.
+ * </p>
+ */
+public final class RangeEquityResult {
+
+    /**
+     * Count of the ranges, a range is matched against the other one.
+     */
+    public static final int RANGE_COUNT = 2;
+
+    private final long runoutCount;
+    private final double[][] weights;
+    private final double[][] equityWeights;
+    private final double[][] matchupWeights;
+
+    /**
+     * @param runoutCount    Count of the evaluated runouts.
+     * @param weights        Weights of the combos of each range.
+     * @param equityWeights  Sum of the weights of the won opponent's combos plus the shares of the tied ones
+     *                       over all the runouts, for each combo of each range.
+     * @param matchupWeights Sum of the weights of the opponent's combos met over all the runouts,
+     *                       for each combo of each range.
+     */
+    public RangeEquityResult(long runoutCount, double[][] weights, double[][] equityWeights,
+                             double[][] matchupWeights) {
+        if (weights.length != RANGE_COUNT || equityWeights.length != RANGE_COUNT ||
+                matchupWeights.length != RANGE_COUNT) {
+            throw new IllegalArgumentException("Exactly " + RANGE_COUNT + " ranges expected");
+        }
+
+        this.runoutCount = runoutCount;
+        this.weights = new double[RANGE_COUNT][];
+        this.equityWeights = new double[RANGE_COUNT][];
+        this.matchupWeights = new double[RANGE_COUNT][];
+        for (int range = 0; range < RANGE_COUNT; ++range) {
+            if (equityWeights[range].length != weights[range].length ||
+                    matchupWeights[range].length != weights[range].length) {
+                throw new IllegalArgumentException("Counters are given for the different counts of combos");
+            }
+            this.weights[range] = weights[range].clone();
+            this.equityWeights[range] = equityWeights[range].clone();
+            this.matchupWeights[range] = matchupWeights[range].clone();
+        }
+    }
+
+    public long getRunoutCount() {
+        return runoutCount;
+    }
+
+    public int getComboCount(int range) {
+        return weights[range].length;
+    }
+
+    /**
+     * @param range Range index.
+     * @param combo Combo index.
+     * @return Sum of the weights of the opponent's combos met over all the runouts, zero if the combo is blocked.
+     */
+    public double getMatchupWeight(int range, int combo) {
+        return matchupWeights[range][combo];
+    }
+
+    /**
+     * @param range Range index.
+     * @param combo Combo index.
+     * @return Expected share of the pot of the given combo against the opponent's range, zero if it is blocked.
+     */
+    public double getComboEquity(int range, int combo) {
+        final double matchupWeight = matchupWeights[range][combo];
+        return matchupWeight == 0.0 ? 0.0 : equityWeights[range][combo] / matchupWeight;
+    }
+
+    /**
+     * @param range Range index.
+     * @return Equities of the combos of the given range, see {@link #getComboEquity(int, int)}.
+     */
+    public double[] getComboEquities(int range) {
+        final double[] result = new double[weights[range].length];
+        for (int combo = 0; combo < result.length; ++combo) {
+            result[combo] = getComboEquity(range, combo);
+        }
+        return result;
+    }
+
+    /**
+     * @param range Range index.
+     * @return Expected share of the pot of the given range, each matchup of the combos counts in proportion to
+     * the product of their weights.
+     */
+    public double getEquity(int range) {
+        final double[] w = weights[range];
+        double equityWeight = 0.0;
+        double matchupWeight = 0.0;
+        for (int combo = 0; combo < w.length; ++combo) {
+            equityWeight += w[combo] * equityWeights[range][combo];
+            matchupWeight += w[combo] * matchupWeights[range][combo];
+        }
+        return matchupWeight == 0.0 ? 0.0 : equityWeight / matchupWeight;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder("RangeEquityResult{runoutCount=").append(runoutCount);
+        for (int range = 0; range < RANGE_COUNT; ++range) {
+            builder.append(", #").append(range).append(": equity=").append(String.format("%.4f", getEquity(range)))
+                    .append(" combos=").append(weights[range].length);
+        }
+        return builder.append('}').toString();
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2012 Alexander Shabanov - http://alexshabanov.com.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alexshabanov.poker.model.util;
+
+import com.alexshabanov.cards.model.CardMask;
+import com.alexshabanov.poker.model.HandRank;
+
+/**
+ * Evaluates the hands in bulk: hands are given as the primitive array of card masks or card codes,
+ * results are written to the caller-supplied arrays of strengths and hand ranks.
+ * <p>
+ * No objects are created per hand. Each hand summary is computed from the card mask with a few bitwise operations,
+ * see {@link HandSummary#reset(long)}. Strengths are the same as {@link HandEvaluator#getStrength(long)} returns.
+ * </p>
+ */
+public final class BatchHandEvaluator {
+    private BatchHandEvaluator() {}
+
+    public static void evaluate(long[] cardMasks, int[] strengths) {
+        evaluate(cardMasks, strengths, null, 0, cardMasks.length);
+    }
+
+    public static void evaluate(long[] cardMasks, int[] strengths, byte[] ranks) {
+        evaluate(cardMasks, strengths, ranks, 0, cardMasks.length);
+    }
+
+    /**
+     * Evaluates the range of the hands, the result of the hand number N is written to the element number N
+     * of the result arrays.
+     *
+     * @param cardMasks Card masks of the hands, see {@link CardMask}.
+     * @param strengths Target strengths, see {@link HandEvaluator#getStrength(java.util.List)}.
+     * @param ranks     Target {@link HandRank} ordinals, might be null if ranks are not needed.
+     * @param fromIndex Index of the first hand, inclusive.
+     * @param toIndex   Index of the last hand, exclusive.
+     */
+    public static void evaluate(long[] cardMasks, int[] strengths, byte[] ranks, int fromIndex, int toIndex) {
+        checkRange(cardMasks.length, strengths, ranks, fromIndex, toIndex);
+
+        new ScalarStrengthKernel().evaluate(cardMasks, strengths, fromIndex, toIndex);
+
+        if (ranks != null) {
+            fillRanks(strengths, ranks, fromIndex, toIndex);
+        }
+    }
+
+    /**
+     * Evaluates the hands, given as the card codes, each hand takes the given count of the subsequent codes.
+     *
+     * @param codes     Card codes of the hands, the hand number N takes the codes from {@code N * handSize}
+     *                  inclusive to {@code (N + 1) * handSize} exclusive.
+     * @param handSize  Count of cards in each hand.
+     * @param strengths Target strengths, see {@link HandEvaluator#getStrength(java.util.List)}.
+     * @param ranks     Target {@link HandRank} ordinals, might be null if ranks are not needed.
+     * @throws IllegalArgumentException If any hand has duplicate card codes.
+     */
+    public static void evaluate(int[] codes, int handSize, int[] strengths, byte[] ranks) {
+        if (handSize <= 0 || codes.length % handSize != 0) {
+            throw new IllegalArgumentException("Count of codes " + codes.length + " is not a multiple of the hand size " +
+                    handSize);
+        }
+        final int count = codes.length / handSize;
+        checkRange(count, strengths, ranks, 0, count);
+
+        final HandSummary summary = new HandSummary();
+        for (int i = 0, offset = 0; i < count; ++i) {
+            long cardMask = 0;
+            for (final int end = offset + handSize; offset < end; ++offset) {
+                cardMask |= CardMask.maskOf(codes[offset]);
+            }
+            if (Long.bitCount(cardMask) != handSize) {
+                throw new IllegalArgumentException("Hand #" + i + " has duplicate card codes");
+            }
+
+            summary.reset(cardMask);
+            strengths[i] = HandEvaluator.strengthOf(summary);
+        }
+
+        if (ranks != null) {
+            fillRanks(strengths, ranks, 0, count);
+        }
+    }
+
+    public static void classify(long[] cardMasks, byte[] ranks) {
+        classify(cardMasks, ranks, 0, cardMasks.length);
+    }
+
+    /**
+     * Finds the combination ranks of the range of the hands, see {@link HandEvaluator#classify(long)}.
+     *
+     * @param cardMasks Card masks of the hands, see {@link CardMask}.
+     * @param ranks     Target {@link HandRank} ordinals.
+     * @param fromIndex Index of the first hand, inclusive.
+     * @param toIndex   Index of the last hand, exclusive.
+     */
+    public static void classify(long[] cardMasks, byte[] ranks, int fromIndex, int toIndex) {
+        if (fromIndex < 0 || fromIndex > toIndex || toIndex > cardMasks.length) {
+            throw new IllegalArgumentException("Hand range [" + fromIndex + ", " + toIndex + ") is out of [0, " +
+                    cardMasks.length + ")");
+        }
+        if (ranks.length < toIndex) {
+            throw new IllegalArgumentException("Result array is shorter than the count of hands");
+        }
+
+        for (int i = fromIndex; i < toIndex; ++i) {
+            ranks[i] = (byte) HandEvaluator.classify(cardMasks[i]).ordinal();
+        }
+    }
+
+    /**
+     * Counts the hands of each combination rank, e.g. for the frequency reports.
+     *
+     * @param cardMasks Card masks of the hands, see {@link CardMask}.
+     * @return Count of hands, indexed by {@link HandRank} ordinal.
+     */
+    public static long[] countRanks(long[] cardMasks) {
+        final long[] result = new long[HandRank.values().length];
+        for (final long cardMask : cardMasks) {
+            ++result[HandEvaluator.classify(cardMask).ordinal()];
+        }
+        return result;
+    }
+
+    static void fillRanks(int[] strengths, byte[] ranks, int fromIndex, int toIndex) {
+        for (int i = fromIndex; i < toIndex; ++i) {
+            ranks[i] = (byte) HandEvaluator.getStrengthRank(strengths[i]).ordinal();
+        }
+    }
+
+    static void checkRange(int count, int[] strengths, byte[] ranks, int fromIndex, int toIndex) {
+        if (fromIndex < 0 || fromIndex > toIndex || toIndex > count) {
+            throw new IllegalArgumentException("Hand range [" + fromIndex + ", " + toIndex + ") is out of [0, " +
+                    count + ")");
+        }
+        if (strengths.length < toIndex || (ranks != null && ranks.length < toIndex)) {
+            throw new IllegalArgumentException("Result arrays are shorter than the count of hands");
+        }
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2012 Alexander Shabanov - http://alexshabanov.com.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alexshabanov.poker.model.util;
+
+import com.alexshabanov.cards.model.Card;
+import com.alexshabanov.cards.model.DefaultCard;
+import com.alexshabanov.cards.util.EncodeUtil;
+import com.alexshabanov.poker.model.Hand;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Community cards, summarized once to evaluate the hands of the many players against the same board.
+ * <p>
+ * Rank histogram and suit masks of the board are computed in the constructor, together with the only suit
+ * the player's cards might complete the flush in. So {@link #getStrength(int, int)} adds the two cards to the rank
+ * masks of the board and to the flush suit in a few bitwise operations and allocates nothing,
+ * while {@link #evaluate(Card, Card)} adds them to the copy of the board summary reused by the current thread.
+ * The results are identical to the ones of {@link HandEvaluator} for the player's cards followed by the board cards.
+ * Instances are immutable and might be shared between threads.
+ * </p>
+ */
+public final class BoardContext {
+
+    /**
+     * Summary the player's cards are added to, evaluations do not keep it, so it is reused by each thread.
+     */
+    private static final ThreadLocal<HandSummary> PLAYER_SUMMARY = new ThreadLocal<HandSummary>() {
+        @Override
+        protected HandSummary initialValue() {
+            return new HandSummary();
+        }
+    };
+
+    private final List<Card> boardCards;
+    private final HandSummary summary;
+
+    /**
+     * Suit of the board cards, that the player's cards might complete the flush in, or -1 if there is none.
+     * Boards of more than five cards might have several such suits, these are evaluated through the summary.
+     */
+    private final int flushSuit;
+    private final boolean summaryNeeded;
+
+    /**
+     * Masks of the board summary, copied to be read without the indirection.
+     */
+    private final int flushSuitMask;
+    private final int rankMask;
+    private final int pairMask;
+    private final int tripsMask;
+    private final int quadsMask;
+
+    public BoardContext(List<Card> boardCards) {
+        this.boardCards = Collections.unmodifiableList(new ArrayList<Card>(boardCards));
+        this.summary = HandSummary.of(this.boardCards);
+
+        int suit = -1;
+        int suitCount = 0;
+        for (int i = 0; i < HandSummary.SUITS; ++i) {
+            if (Integer.bitCount(summary.suitMasks[i]) >= HandEvaluator.FLUSH_HAND_SIZE - 2) {
+                suit = i;
+                ++suitCount;
+            }
+        }
+        this.flushSuit = suit;
+        this.summaryNeeded = suitCount > 1;
+
+        this.flushSuitMask = suit >= 0 ? summary.suitMasks[suit] : 0;
+        this.rankMask = summary.rankMask;
+        this.pairMask = summary.pairMask;
+        this.tripsMask = summary.tripsMask;
+        this.quadsMask = summary.quadsMask;
+    }
+
+    public BoardContext(int[] boardCodes) {
+        this(EncodeUtil.asCards(boardCodes));
+    }
+
+    /**
+     * @return Unmodifiable community cards.
+     */
+    public List<Card> getBoardCards() {
+        return boardCards;
+    }
+
+    /**
+     * Evaluates the best hand of the player.
+     *
+     * @param card0 Player's card.
+     * @param card1 Player's card.
+     * @return Best hand, the same as {@link HandEvaluator#evaluate(List)} returns for the player's cards
+     *         followed by the board cards.
+     */
+    public Hand evaluate(Card card0, Card card1) {
+        final HandSummary playerSummary = PLAYER_SUMMARY.get();
+        playerSummary.set(summary);
+        playerSummary.add(card0.getRank(), card0.getSuit());
+        playerSummary.add(card1.getRank(), card1.getSuit());
+        return HandEvaluator.evaluate(new PlayerCardList(card0, card1, boardCards), playerSummary);
+    }
+
+    public Hand evaluate(int code0, int code1) {
+        return evaluate(DefaultCard.valueOf(code0), DefaultCard.valueOf(code1));
+    }
+
+    /**
+     * Calculates the strength of the player's best hand.
+     *
+     * @param code0 Player's card code.
+     * @param code1 Player's card code.
+     * @return Hand strength, see {@link HandEvaluator#getStrength(List)}.
+     */
+    public int getStrength(int code0, int code1) {
+        if (summaryNeeded) {
+            final HandSummary playerSummary = PLAYER_SUMMARY.get();
+            playerSummary.set(summary);
+            playerSummary.add(code0);
+            playerSummary.add(code1);
+            return HandEvaluator.strengthOf(playerSummary);
+        }
+
+        final int flag0 = HandSummary.cardFlag(code0);
+        final int flag1 = HandSummary.cardFlag(code1);
+
+        int straightFlushTop = -1;
+        int flushMask = 0;
+        if (flushSuit >= 0) {
+            final int suitMask = flushSuitMask |
+                    (HandSummary.cardSuit(code0) == flushSuit ? flag0 : 0) |
+                    (HandSummary.cardSuit(code1) == flushSuit ? flag1 : 0);
+            if (Integer.bitCount(suitMask) >= HandEvaluator.FLUSH_HAND_SIZE) {
+                straightFlushTop = HandSummary.straightTop(suitMask);
+                flushMask = HandSummary.highestBits(suitMask, HandEvaluator.FLUSH_HAND_SIZE);
+            }
+        }
+
+        // each card moves its rank up to the next count, the higher counts are updated first
+        return HandEvaluator.strengthOf(rankMask | flag0 | flag1,
+                pairMask | (rankMask & flag0) | ((rankMask | flag0) & flag1),
+                tripsMask | (pairMask & flag0) | ((pairMask | (rankMask & flag0)) & flag1),
+                quadsMask | (tripsMask & flag0) | ((tripsMask | (pairMask & flag0)) & flag1),
+                straightFlushTop, flushMask);
+    }
+
+    public int getStrength(Card card0, Card card1) {
+        return getStrength(card0.getCode(), card1.getCode());
+    }
+
+    /**
+     * Player's cards followed by the board cards, without copying the board cards.
+     */
+    private static final class PlayerCardList extends AbstractList<Card> {
+        private final Card card0;
+        private final Card card1;
+        private final List<Card> boardCards;
+
+        PlayerCardList(Card card0, Card card1, List<Card> boardCards) {
+            this.card0 = card0;
+            this.card1 = card1;
+            this.boardCards = boardCards;
+        }
+
+        @Override
+        public Card get(int index) {
+            switch (index) {
+                case 0:
+                    return card0;
+                case 1:
+                    return card1;
+                default:
+                    return boardCards.get(index - 2);
+            }
+        }
+
+        @Override
+        public int size() {
+            return boardCards.size() + 2;
+        }
+    }
+}
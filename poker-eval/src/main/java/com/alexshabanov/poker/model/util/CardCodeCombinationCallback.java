@@ -0,0 +1,31 @@
+/*
+ * Copyright 2012 Alexander Shabanov - http://alexshabanov.com.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alexshabanov.poker.model.util;
+
+/**
+ * User defined callback used in the iterate method over the card codes.
+ */
+public interface CardCodeCombinationCallback {
+
+    /**
+     * Processes combination of card codes.
+     * The given array is reused by the caller party for the subsequent combinations, so the processing function
+     * SHALL NOT change it or keep the reference to it once the function returns.
+     *
+     * @param codes Combination of card codes, in the order of the source card codes.
+     * @return True, if the execution shall stop, false otherwise.
+     */
+    boolean process(int[] codes);
+}
@@ -18,9 +18,15 @@ import com.alexshabanov.cards.model.Card;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Spliterator;
 
 /**
  * Provides the prospective clients with the iteration capabilities over the possible card combination space.
+ * <p>
+ * Besides the card lists, combinations of the card codes and of the card masks might be iterated.
+ * These methods walk the combinations iteratively and do not allocate anything per combination,
+ * any range of the combination indexes might be iterated, see {@link CombinationUtil}.
+ * </p>
  */
 public final class CardCombinator {
 
@@ -65,9 +71,149 @@ public final class CardCombinator {
      * @param cards             Cards collection (e.g. player's cards + river cards).
      * @param callback          Callback that accepts each combination {@link CardCombinationCallback}.
      * @param handCardsLength   Size of the checked combination.
-     * @return True, if the iteration was interferred from the user's callback, true otherwise.
+     * @return True, if the iteration was interferred from the user's callback, false otherwise.
      */
     public static boolean iterate(List<Card> cards, CardCombinationCallback callback, int handCardsLength) {
         return new CardCombinator(callback, cards, handCardsLength).iterateInternal(0, 0);
     }
+
+    /**
+     * Iterates over the possible combinations of hand cards length in the given card codes.
+     * The combination array passed to the callback is reused, see {@link CardCodeCombinationCallback}.
+     *
+     * @param codes             Card codes (e.g. player's cards + river cards).
+     * @param callback          Callback that accepts each combination.
+     * @param handCardsLength   Size of the checked combination.
+     * @return True, if the iteration was interrupted from the user's callback, false otherwise.
+     */
+    public static boolean iterate(int[] codes, CardCodeCombinationCallback callback, int handCardsLength) {
+        return iterate(codes, callback, handCardsLength, 0, CombinationUtil.binomial(codes.length, handCardsLength));
+    }
+
+    /**
+     * Iterates over the range of the combinations of hand cards length in the given card codes.
+     * Combinations are visited in the order of their indexes, see {@link CombinationUtil}, index of the combination
+     * is the index of the positions of its cards in the given card codes.
+     * Disjoint ranges might be iterated independently, e.g. in parallel.
+     *
+     * @param codes             Card codes (e.g. player's cards + river cards).
+     * @param callback          Callback that accepts each combination.
+     * @param handCardsLength   Size of the checked combination.
+     * @param fromIndex         Index of the first combination, inclusive.
+     * @param toIndex           Index of the last combination, exclusive.
+     * @return True, if the iteration was interrupted from the user's callback, false otherwise.
+     */
+    public static boolean iterate(int[] codes, CardCodeCombinationCallback callback, int handCardsLength,
+                                  long fromIndex, long toIndex) {
+        checkRange(codes.length, handCardsLength, fromIndex, toIndex);
+        if (fromIndex == toIndex) {
+            return false;
+        }
+
+        final int[] positions = new int[handCardsLength];
+        final int[] combination = new int[handCardsLength];
+        CombinationUtil.unrank(fromIndex, positions);
+        for (int i = 0; i < handCardsLength; ++i) {
+            combination[i] = codes[positions[i]];
+        }
+
+        for (long index = fromIndex;;) {
+            if (callback.process(combination)) {
+                return true;
+            }
+
+            if (++index == toIndex) {
+                return false;
+            }
+
+            // advance the lowest position that does not run into the next one, reset the preceding positions
+            int i = 0;
+            while (i < handCardsLength - 1 && positions[i] + 1 == positions[i + 1]) {
+                ++i;
+            }
+
+            ++positions[i];
+            combination[i] = codes[positions[i]];
+            for (int j = 0; j < i; ++j) {
+                positions[j] = j;
+                combination[j] = codes[j];
+            }
+        }
+    }
+
+    /**
+     * Iterates over the possible combinations of hand cards length in the given card mask.
+     *
+     * @param cardMask          Card mask, the bit number N is set if the card with code N is in the set.
+     * @param callback          Callback that accepts each combination.
+     * @param handCardsLength   Size of the checked combination.
+     * @return True, if the iteration was interrupted from the user's callback, false otherwise.
+     */
+    public static boolean iterate(long cardMask, CardMaskCombinationCallback callback, int handCardsLength) {
+        return iterate(cardMask, callback, handCardsLength, 0,
+                CombinationUtil.binomial(Long.bitCount(cardMask), handCardsLength));
+    }
+
+    /**
+     * Iterates over the range of the combinations of hand cards length in the given card mask.
+     * Combinations are visited in the order of their indexes, see {@link CombinationUtil}, index of the combination
+     * is the index of the positions of its cards among the cards of the given mask.
+     * Disjoint ranges might be iterated independently, e.g. in parallel.
+     *
+     * @param cardMask          Card mask, the bit number N is set if the card with code N is in the set.
+     * @param callback          Callback that accepts each combination.
+     * @param handCardsLength   Size of the checked combination.
+     * @param fromIndex         Index of the first combination, inclusive.
+     * @param toIndex           Index of the last combination, exclusive.
+     * @return True, if the iteration was interrupted from the user's callback, false otherwise.
+     */
+    public static boolean iterate(long cardMask, CardMaskCombinationCallback callback, int handCardsLength,
+                                  long fromIndex, long toIndex) {
+        checkRange(Long.bitCount(cardMask), handCardsLength, fromIndex, toIndex);
+
+        long positionMask = CombinationUtil.unrank(fromIndex, handCardsLength);
+        if ((cardMask & (cardMask + 1)) == 0) {
+            // the lowest cards, positions are the cards themselves
+            for (long index = fromIndex; index < toIndex; ++index) {
+                if (callback.process(positionMask)) {
+                    return true;
+                }
+                positionMask = CombinationUtil.next(positionMask);
+            }
+            return false;
+        }
+
+        final long[] cards = CombinationUtil.elementsOf(cardMask);
+        for (long index = fromIndex; index < toIndex; ++index) {
+            if (callback.process(CombinationUtil.expand(positionMask, cards))) {
+                return true;
+            }
+            positionMask = CombinationUtil.next(positionMask);
+        }
+        return false;
+    }
+
+    /**
+     * Creates the spliterator over the combinations of hand cards length in the given card mask, so that
+     * the combinations might be processed in parallel, e.g.
+     * {@code StreamSupport.longStream(CardCombinator.spliterator(deckMask, 5), true)}.
+     * The combination space is split into the ranges of the combination indexes of equal sizes.
+     *
+     * @param cardMask          Card mask, the bit number N is set if the card with code N is in the set.
+     * @param handCardsLength   Size of the combination.
+     * @return Spliterator over the combination masks, ordered by the combination index.
+     */
+    public static Spliterator.OfLong spliterator(long cardMask, int handCardsLength) {
+        final long size = CombinationUtil.binomial(Long.bitCount(cardMask), handCardsLength);
+        checkRange(Long.bitCount(cardMask), handCardsLength, 0, size);
+        return new CardMaskSpliterator(cardMask, handCardsLength, 0, size);
+    }
+
+    private static void checkRange(int cardCount, int handCardsLength, long fromIndex, long toIndex) {
+        final long size = CombinationUtil.binomial(cardCount, handCardsLength);
+        if (fromIndex < 0 || fromIndex > toIndex || toIndex > size) {
+            throw new IllegalArgumentException("Combination range [" + fromIndex + ", " + toIndex +
+                    ") is out of [0, " + size + ")");
+        }
+    }
 }
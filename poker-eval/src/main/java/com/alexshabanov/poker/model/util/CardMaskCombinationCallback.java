@@ -0,0 +1,29 @@
+/*
+ * Copyright 2012 Alexander Shabanov - http://alexshabanov.com.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alexshabanov.poker.model.util;
+
+/**
+ * User defined callback used in the iterate method over the card mask.
+ */
+public interface CardMaskCombinationCallback {
+
+    /**
+     * Processes combination of cards.
+     *
+     * @param cardMask Combination of cards, the bit number N is set if the card with code N is in the combination.
+     * @return True, if the execution shall stop, false otherwise.
+     */
+    boolean process(long cardMask);
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2012 Alexander Shabanov - http://alexshabanov.com.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alexshabanov.poker.model.util;
+
+import java.util.Spliterator;
+import java.util.function.LongConsumer;
+
+/**
+ * Spliterator over the range of the combination indexes of the cards of the given mask.
+ * Splits the range into two halves.
+ */
+final class CardMaskSpliterator implements Spliterator.OfLong {
+
+    /**
+     * Min count of the combinations in the range, that might be split.
+     */
+    private static final long MIN_SPLIT_SIZE = 1024;
+
+    private final long cardMask;
+    private final int handCardsLength;
+    private final long[] cards;
+    private long index;
+    private final long toIndex;
+    private long positionMask;
+
+    CardMaskSpliterator(long cardMask, int handCardsLength, long fromIndex, long toIndex) {
+        this.cardMask = cardMask;
+        this.handCardsLength = handCardsLength;
+        this.cards = CombinationUtil.elementsOf(cardMask);
+        this.index = fromIndex;
+        this.toIndex = toIndex;
+        this.positionMask = fromIndex < toIndex ? CombinationUtil.unrank(fromIndex, handCardsLength) : 0;
+    }
+
+    @Override
+    public boolean tryAdvance(LongConsumer action) {
+        if (index >= toIndex) {
+            return false;
+        }
+
+        action.accept(CombinationUtil.expand(positionMask, cards));
+        positionMask = CombinationUtil.next(positionMask);
+        ++index;
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(LongConsumer action) {
+        long mask = positionMask;
+        for (long i = index; i < toIndex; ++i) {
+            action.accept(CombinationUtil.expand(mask, cards));
+            mask = CombinationUtil.next(mask);
+        }
+        index = toIndex;
+    }
+
+    @Override
+    public Spliterator.OfLong trySplit() {
+        final long size = toIndex - index;
+        if (size < MIN_SPLIT_SIZE) {
+            return null;
+        }
+
+        final long middle = index + size / 2;
+        final Spliterator.OfLong prefix = new CardMaskSpliterator(cardMask, handCardsLength, index, middle);
+        index = middle;
+        positionMask = CombinationUtil.unrank(middle, handCardsLength);
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return toIndex - index;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | DISTINCT | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+    }
+}
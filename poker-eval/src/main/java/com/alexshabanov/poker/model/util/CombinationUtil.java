@@ -0,0 +1,185 @@
+/*
+ * Copyright 2012 Alexander Shabanov - http://alexshabanov.com.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alexshabanov.poker.model.util;
+
+/**
+ * Combinatorial number system utility: maps the k-combinations of n elements to the dense indexes
+ * from 0 to C(n, k) - 1 and back.
+ * <p>
+ * Combinations are represented as the masks of the element positions, the position number N is in the combination
+ * if the bit number N is set. The combination {c1 &lt; c2 &lt; ... &lt; ck} has the index
+ * C(c1, 1) + C(c2, 2) + ... + C(ck, k), so that the indexes follow the ascending order of the masks,
+ * which is the order in which {@link CardCombinator} visits the combinations.
+ * </p>
+ */
+public final class CombinationUtil {
+    private CombinationUtil() {}
+
+    /**
+     * Max count of elements, i.e. the count of bits in the combination mask.
+     */
+    public static final int MAX_ELEMENTS = Long.SIZE;
+
+    /**
+     * Binomial coefficients, C(n, k) = BINOMIALS[n][k], all the coefficients with n up to 64 fit into a long.
+     */
+    private static final long[][] BINOMIALS = new long[MAX_ELEMENTS + 1][MAX_ELEMENTS + 1];
+
+    static {
+        for (int n = 0; n <= MAX_ELEMENTS; ++n) {
+            BINOMIALS[n][0] = 1;
+            for (int k = 1; k <= n; ++k) {
+                BINOMIALS[n][k] = BINOMIALS[n - 1][k - 1] + BINOMIALS[n - 1][k];
+            }
+        }
+    }
+
+    /**
+     * @param n Count of elements, from 0 to {@link #MAX_ELEMENTS}.
+     * @param k Count of the chosen elements.
+     * @return Count of k-combinations of n elements or zero if k is out of the [0, n] range.
+     */
+    public static long binomial(int n, int k) {
+        if (k < 0 || k > n) {
+            return 0;
+        }
+        return BINOMIALS[n][k];
+    }
+
+    /**
+     * @param positionMask Combination, the bit number N is set if the position N is in the combination.
+     * @return Index of the combination among the combinations of the same size.
+     */
+    public static long rank(long positionMask) {
+        long index = 0;
+        for (int k = 1; positionMask != 0; ++k) {
+            index += BINOMIALS[Long.numberOfTrailingZeros(positionMask)][k];
+            positionMask &= positionMask - 1;
+        }
+        return index;
+    }
+
+    /**
+     * @param positions Combination, ascending positions of the elements.
+     * @return Index of the combination among the combinations of the same size.
+     */
+    public static long rank(int[] positions) {
+        long index = 0;
+        for (int i = 0; i < positions.length; ++i) {
+            if (i > 0 && positions[i] <= positions[i - 1]) {
+                throw new IllegalArgumentException("Positions are expected to be ascending");
+            }
+            index += BINOMIALS[positions[i]][i + 1];
+        }
+        return index;
+    }
+
+    /**
+     * @param index Combination index, from 0 to C(n, k) - 1.
+     * @param k     Count of the elements in the combination.
+     * @return Combination mask with the given index, the bit number N is set if the position N is in the combination.
+     */
+    public static long unrank(long index, int k) {
+        checkIndex(index, k);
+
+        long positionMask = 0;
+        for (; k > 0; --k) {
+            final int position = maxPosition(index, k);
+            positionMask |= 1L << position;
+            index -= BINOMIALS[position][k];
+        }
+        return positionMask;
+    }
+
+    /**
+     * Fills the given array with the ascending positions of the combination that has the given index.
+     *
+     * @param index     Combination index, from 0 to C(n, k) - 1, where k is the length of the given array.
+     * @param positions Target array of the positions.
+     */
+    public static void unrank(long index, int[] positions) {
+        checkIndex(index, positions.length);
+
+        for (int k = positions.length; k > 0; --k) {
+            final int position = maxPosition(index, k);
+            positions[k - 1] = position;
+            index -= BINOMIALS[position][k];
+        }
+    }
+
+    /**
+     * Gosper's hack: returns the next greater number with the same count of bits, i.e. the combination
+     * that has the next index.
+     *
+     * @param positionMask Non-empty combination mask.
+     * @return Combination mask that follows the given one.
+     */
+    public static long next(long positionMask) {
+        final long lowestBit = positionMask & -positionMask;
+        final long ripple = positionMask + lowestBit;
+        return ripple | (((ripple ^ positionMask) >>> 2) >>> Long.numberOfTrailingZeros(lowestBit));
+    }
+
+    /**
+     * @param elementMask Set of the elements.
+     * @return Elements of the given set, ascending, each one is the mask with a single bit set.
+     */
+    static long[] elementsOf(long elementMask) {
+        final long[] elements = new long[Long.bitCount(elementMask)];
+        for (int i = 0; i < elements.length; ++i) {
+            elements[i] = Long.lowestOneBit(elementMask);
+            elementMask &= ~elements[i];
+        }
+        return elements;
+    }
+
+    /**
+     * Maps the positions of the combination to the elements, position N is mapped to the N-th element.
+     *
+     * @param positionMask Combination of the positions.
+     * @param elements     Elements as returned by {@link #elementsOf(long)}.
+     * @return Combination of the elements.
+     */
+    static long expand(long positionMask, long[] elements) {
+        long result = 0;
+        for (; positionMask != 0; positionMask &= positionMask - 1) {
+            result |= elements[Long.numberOfTrailingZeros(positionMask)];
+        }
+        return result;
+    }
+
+    private static void checkIndex(long index, int k) {
+        if (k < 0 || k > MAX_ELEMENTS || index < 0 || index >= BINOMIALS[MAX_ELEMENTS][k]) {
+            throw new IllegalArgumentException("Combination index " + index + " is out of range for k=" + k);
+        }
+    }
+
+    /**
+     * @return Max position p, such that C(p, k) does not exceed the given index.
+     */
+    private static int maxPosition(long index, int k) {
+        int low = k - 1;
+        int high = MAX_ELEMENTS - 1;
+        while (low < high) {
+            final int middle = (low + high + 1) >>> 1;
+            if (BINOMIALS[middle][k] <= index) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+}
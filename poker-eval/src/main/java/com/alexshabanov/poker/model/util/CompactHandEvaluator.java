@@ -0,0 +1,294 @@
+/*
+ * Copyright 2012 Alexander Shabanov - http://alexshabanov.com.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alexshabanov.poker.model.util;
+
+import com.alexshabanov.cards.model.Card;
+import com.alexshabanov.cards.model.DefaultCard;
+import com.alexshabanov.cards.model.Rank;
+import com.alexshabanov.cards.model.Suit;
+
+/**
+ * Compact table-driven 7-card hand evaluator, whose tables fit into the CPU cache.
+ * <p>
+ * Ranks of the cards are folded into the quinary number (count of cards of each rank is a digit), which is
+ * mapped to the dense index of the rank multiset by the minimal perfect hash.
+ * Hands that form a flush are resolved by the separate table indexed by the 13-bit rank mask of the flush suit.
+ * Both tables hold 12-bit indexes of the distinct hand values rather than the values themselves, two indexes
+ * are packed into three bytes. See {@link #getMemoryFootprint()} for the total size of the tables, which is ~94 KB.
+ * </p>
+ * <p>
+ * The tables are generated at build time and loaded on the first use of this class, see {@link CompactTables}.
+ * The first use takes ~25 ms in the cold JVM, see {@link #getLoadNanos()}.
+ * </p>
+ * <p>
+ * Results are packed in the {@link LookupHandEvaluator} format and are identical to the ones returned by
+ * {@link LookupHandEvaluator#evaluate(int, int, int, int, int, int, int)}.
+ * </p>
+ */
+public final class CompactHandEvaluator {
+    private CompactHandEvaluator() {}
+
+    /**
+     * Start of the class initialization, declared first to be initialized first.
+     */
+    private static final long INIT_START = System.nanoTime();
+
+    /**
+     * Count of cards this evaluator accepts.
+     */
+    public static final int HAND_SIZE = LookupHandEvaluator.HAND_SIZE;
+
+    private static final int RANKS = Rank.values().length;
+    private static final int SUITS = Suit.values().length;
+    private static final int MAX_RANK_COUNT = SUITS;
+
+    private static final int DIGIT_BITS = 3;
+    private static final int DIGIT_MASK = (1 << DIGIT_BITS) - 1;
+
+    /**
+     * Suit counters take four bits each, adding this value sets the highest bit of the counter that reaches five.
+     */
+    private static final int FLUSH_CHECK_ADDEND = 0x3333;
+    private static final int FLUSH_CHECK_MASK = 0x8888;
+    private static final int SUIT_COUNTER_BITS = 4;
+
+    /**
+     * Quinary digits of the card ranks, indexed by card code.
+     */
+    private static final long[] CARD_DIGITS = new long[DefaultCard.MAX_CARD_CODE];
+
+    /**
+     * Suit counter increments, indexed by card code.
+     */
+    private static final int[] CARD_SUIT_COUNTERS = new int[DefaultCard.MAX_CARD_CODE];
+
+    /**
+     * Contribution of the quinary digit to the perfect hash.
+     * Indexed by {@code (rank * (HAND_SIZE + 1) + cardsLeft) * (MAX_RANK_COUNT + 1) + digit}.
+     */
+    private static final char[] HASH_OFFSETS = new char[RANKS * (HAND_SIZE + 1) * (MAX_RANK_COUNT + 1)];
+
+    /**
+     * Class indexes take 12 bits, see {@link #packClasses(short[])}.
+     */
+    private static final int CLASS_BITS = 12;
+    private static final int CLASS_MASK = (1 << CLASS_BITS) - 1;
+
+    private static final byte[] RANK_CLASSES;
+    private static final byte[] FLUSH_CLASSES;
+    private static final int[] CLASS_VALUES;
+
+    private static final long LOAD_NANOS;
+
+    static {
+        for (int code = 0; code < DefaultCard.MAX_CARD_CODE; ++code) {
+            final Card card = DefaultCard.valueOf(code);
+            CARD_DIGITS[code] = 1L << (card.getRank().ordinal() * DIGIT_BITS);
+            CARD_SUIT_COUNTERS[code] = 1 << (card.getSuit().ordinal() * SUIT_COUNTER_BITS);
+        }
+
+        // multisetCounts[r][k] - count of ways to put k cards into r ranks, at most four cards in each rank
+        final int[][] multisetCounts = new int[RANKS + 1][HAND_SIZE + 1];
+        multisetCounts[0][0] = 1;
+        for (int r = 1; r <= RANKS; ++r) {
+            for (int k = 0; k <= HAND_SIZE; ++k) {
+                for (int digit = 0; digit <= Math.min(k, MAX_RANK_COUNT); ++digit) {
+                    multisetCounts[r][k] += multisetCounts[r - 1][k - digit];
+                }
+            }
+        }
+
+        // multisets are ranked in the lexicographic order of their digits
+        for (int rank = 0; rank < RANKS; ++rank) {
+            for (int cardsLeft = 0; cardsLeft <= HAND_SIZE; ++cardsLeft) {
+                int offset = 0;
+                for (int digit = 0; digit <= Math.min(cardsLeft, MAX_RANK_COUNT); ++digit) {
+                    HASH_OFFSETS[(rank * (HAND_SIZE + 1) + cardsLeft) * (MAX_RANK_COUNT + 1) + digit] = (char) offset;
+                    offset += multisetCounts[RANKS - rank - 1][cardsLeft - digit];
+                }
+            }
+        }
+
+        // the tables are not shared with the lookup evaluator, so that the unpacked ones are not kept
+        final CompactTables tables = CompactTables.load();
+        RANK_CLASSES = packClasses(tables.rankClasses);
+        FLUSH_CLASSES = packClasses(tables.flushClasses);
+        CLASS_VALUES = tables.classValues;
+        if (CLASS_VALUES.length > CLASS_MASK + 1) {
+            throw new IllegalStateException("Too many hand classes to pack: " + CLASS_VALUES.length);
+        }
+
+        LOAD_NANOS = System.nanoTime() - INIT_START;
+    }
+
+    /**
+     * @return Time in nanoseconds the initialization of this class took, that is the cost of its first use
+     *         including the load of the {@link CompactTables} (unless they were loaded by another evaluator).
+     */
+    public static long getLoadNanos() {
+        return LOAD_NANOS;
+    }
+
+    /**
+     * @return Total size of the lookup tables in bytes.
+     *         The strength tables used by {@link #getStrength(long)} take ~135 KB more once initialized,
+     *         since there are too many distinct strengths to pack them into 12 bits.
+     */
+    public static int getMemoryFootprint() {
+        return CARD_DIGITS.length * 8 + CARD_SUIT_COUNTERS.length * 4 + HASH_OFFSETS.length * 2 +
+                RANK_CLASSES.length + FLUSH_CLASSES.length + CLASS_VALUES.length * 4;
+    }
+
+    /**
+     * Evaluates the best hand for the seven given cards.
+     * First two cards are considered to be the player's cards.
+     *
+     * @param c0 Card code.
+     * @param c1 Card code.
+     * @param c2 Card code.
+     * @param c3 Card code.
+     * @param c4 Card code.
+     * @param c5 Card code.
+     * @param c6 Card code.
+     * @return Packed hand value in the {@link LookupHandEvaluator} format.
+     */
+    public static int evaluate(int c0, int c1, int c2, int c3, int c4, int c5, int c6) {
+        final int[] counters = CARD_SUIT_COUNTERS;
+        final int suitCounters = counters[c0] + counters[c1] + counters[c2] + counters[c3] +
+                counters[c4] + counters[c5] + counters[c6];
+
+        final int flushCheck = (suitCounters + FLUSH_CHECK_ADDEND) & FLUSH_CHECK_MASK;
+        if (flushCheck != 0) {
+            final int flushCounter = flushCheck >>> (SUIT_COUNTER_BITS - 1);
+            final int[] flags = LookupHandEvaluator.CARD_RATING_FLAGS;
+            int mask = 0;
+            if (counters[c0] == flushCounter) { mask |= flags[c0]; }
+            if (counters[c1] == flushCounter) { mask |= flags[c1]; }
+            if (counters[c2] == flushCounter) { mask |= flags[c2]; }
+            if (counters[c3] == flushCounter) { mask |= flags[c3]; }
+            if (counters[c4] == flushCounter) { mask |= flags[c4]; }
+            if (counters[c5] == flushCounter) { mask |= flags[c5]; }
+            if (counters[c6] == flushCounter) { mask |= flags[c6]; }
+            return CLASS_VALUES[classOf(FLUSH_CLASSES, mask)];
+        }
+
+        final long[] digits = CARD_DIGITS;
+        final long quinary = digits[c0] + digits[c1] + digits[c2] + digits[c3] + digits[c4] + digits[c5] + digits[c6];
+        final int value = CLASS_VALUES[classOf(RANK_CLASSES, hashQuinary(quinary, HAND_SIZE))];
+        return LookupHandEvaluator.withPlayerCards(value, c0, c1);
+    }
+
+    /**
+     * Evaluates the strength of the given cards by the strength tables, which are separate from the value ones.
+     *
+     * @param cardMask Card mask, see {@link com.alexshabanov.cards.model.CardMask}, the hands other than
+     *                 of {@link #HAND_SIZE} cards are evaluated by {@link HandEvaluator#getStrength(long)}.
+     * @return Hand strength, the same as {@link HandEvaluator#getStrength(long)} returns.
+     */
+    public static int getStrength(long cardMask) {
+        if (Long.bitCount(cardMask) != HAND_SIZE) {
+            return HandEvaluator.getStrength(cardMask);
+        }
+
+        final long[] digits = CARD_DIGITS;
+        final int[] counters = CARD_SUIT_COUNTERS;
+        long quinary = 0;
+        int suitCounters = 0;
+        for (long mask = cardMask; mask != 0; mask &= mask - 1) {
+            final int code = Long.numberOfTrailingZeros(mask);
+            quinary += digits[code];
+            suitCounters += counters[code];
+        }
+
+        final int flushCheck = (suitCounters + FLUSH_CHECK_ADDEND) & FLUSH_CHECK_MASK;
+        if (flushCheck != 0) {
+            final int flushSuit = Integer.numberOfTrailingZeros(flushCheck) / SUIT_COUNTER_BITS;
+            final int ratingMask = LookupHandEvaluator.ratingMaskOf(cardMask, flushSuit);
+            return StrengthTables.CLASS_STRENGTHS[StrengthTables.FLUSH_CLASSES[ratingMask]];
+        }
+        return StrengthTables.CLASS_STRENGTHS[StrengthTables.RANK_CLASSES[hashQuinary(quinary, HAND_SIZE)]];
+    }
+
+    /**
+     * Evaluates the best hand for the given cards.
+     *
+     * @param codes Card codes, exactly {@link #HAND_SIZE} elements, first two are the player's cards.
+     * @return Packed hand value in the {@link LookupHandEvaluator} format.
+     * @see #evaluate(int, int, int, int, int, int, int)
+     */
+    public static int evaluate(int[] codes) {
+        if (codes.length != HAND_SIZE) {
+            throw new IllegalArgumentException("Expected " + HAND_SIZE + " card codes, got " + codes.length);
+        }
+
+        return evaluate(codes[0], codes[1], codes[2], codes[3], codes[4], codes[5], codes[6]);
+    }
+
+    private static int hashQuinary(long quinary, int cardsLeft) {
+        final char[] offsets = HASH_OFFSETS;
+        int hash = 0;
+        for (int rank = 0; cardsLeft > 0; ++rank) {
+            final int digit = (int) (quinary >>> (rank * DIGIT_BITS)) & DIGIT_MASK;
+            hash += offsets[(rank * (HAND_SIZE + 1) + cardsLeft) * (MAX_RANK_COUNT + 1) + digit];
+            cardsLeft -= digit;
+        }
+        return hash;
+    }
+
+    /**
+     * Packs the class indexes, each pair of them takes three bytes: the lower one takes the first byte and the low
+     * half of the second one, the upper one takes the high half of the second byte and the third one.
+     *
+     * @param classes Class indexes, less than {@code 2^12}.
+     * @return Packed class indexes, see {@link #classOf(byte[], int)}.
+     */
+    private static byte[] packClasses(short[] classes) {
+        final byte[] result = new byte[(classes.length + 1) / 2 * 3];
+        for (int i = 0; i < classes.length; ++i) {
+            final int offset = i + (i >>> 1);
+            final int shifted = classes[i] << ((i & 1) * (CLASS_BITS - Byte.SIZE));
+            result[offset] |= (byte) shifted;
+            result[offset + 1] |= (byte) (shifted >>> Byte.SIZE);
+        }
+        return result;
+    }
+
+    /**
+     * @param classes Packed class indexes, see {@link #packClasses(short[])}.
+     * @param index   Index of the class index.
+     * @return Class index.
+     */
+    private static int classOf(byte[] classes, int index) {
+        final int offset = index + (index >>> 1);
+        final int bits = (classes[offset] & 0xFF) | ((classes[offset + 1] & 0xFF) << Byte.SIZE);
+        return (bits >>> ((index & 1) * (CLASS_BITS - Byte.SIZE))) & CLASS_MASK;
+    }
+
+    /**
+     * Lazily loaded strength tables, laid out as the value ones.
+     */
+    private static final class StrengthTables {
+        static final short[] RANK_CLASSES;
+        static final short[] FLUSH_CLASSES;
+        static final int[] CLASS_STRENGTHS;
+
+        static {
+            final CompactTables tables = CompactTables.getStrengths();
+            RANK_CLASSES = tables.rankClasses;
+            FLUSH_CLASSES = tables.flushClasses;
+            CLASS_STRENGTHS = tables.classValues;
+        }
+    }
+}
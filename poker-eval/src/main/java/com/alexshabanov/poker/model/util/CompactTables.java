@@ -0,0 +1,435 @@
+/*
+ * Copyright 2012 Alexander Shabanov - http://alexshabanov.com.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alexshabanov.poker.model.util;
+
+import com.alexshabanov.cards.model.Rank;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Lookup tables of the {@link CompactHandEvaluator}, also expanded into the direct tables of
+ * the {@link LookupHandEvaluator}.
+ * <p>
+ * There are two kinds of tables of the same format: the ones that hold packed values in the
+ * {@link LookupHandEvaluator} format and the ones that hold the strengths
+ * (see {@link HandEvaluator#getStrength(java.util.List)}), each kind is loaded only if it is used.
+ * </p>
+ * <p>
+ * Tables are generated at build time by {@link #main(String[])} into the {@link #RESOURCE_NAME} and
+ * {@link #STRENGTH_RESOURCE_NAME} resources, each of which has the version and the checksum of the tables
+ * in its header.
+ * At runtime the resource is read at once instead of evaluating tens of thousands of hands, tables are built
+ * in memory only if the resource is missing or invalid. The resource is not memory mapped: the tables take
+ * ~120 KB and are copied into the arrays anyway, while the classes of the mapping alone take ~15 ms to load
+ * in the cold JVM. The successful load is not logged, so that the first evaluation does not initialize
+ * the logging, see {@link CompactHandEvaluator#getLoadNanos()} for the cost of the first use.
+ * </p>
+ */
+public final class CompactTables {
+
+    /**
+     * Name of the table resource, relative to this class.
+     */
+    static final String RESOURCE_NAME = "compact-tables.bin";
+
+    /**
+     * Name of the strength table resource, relative to this class.
+     */
+    static final String STRENGTH_RESOURCE_NAME = "compact-strength-tables.bin";
+
+    static final int MAGIC = 0x54434b50; // "PKCT"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 24;
+    private static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    private static final int RANKS = Rank.values().length;
+    private static final int HAND_SIZE = LookupHandEvaluator.HAND_SIZE;
+    private static final int MAX_RANK_COUNT = 4;
+    private static final int FLUSH_HAND_SIZE = HandEvaluator.FLUSH_HAND_SIZE;
+
+    /**
+     * Count of the rank multisets of seven cards, i.e. the size of the rank table.
+     */
+    static final int RANK_TABLE_SIZE = multisetCount(RANKS, HAND_SIZE);
+
+    /**
+     * Class indexes of the rank multisets, in the lexicographic order of the count of cards of each rank.
+     */
+    final short[] rankClasses;
+
+    /**
+     * Class indexes of the flushes, indexed by 13-bit rating mask of the flush suit.
+     */
+    final short[] flushClasses;
+
+    /**
+     * Packed hand values in the {@link LookupHandEvaluator} format or hand strengths, indexed by class index.
+     */
+    final int[] classValues;
+
+    CompactTables(short[] rankClasses, short[] flushClasses, int[] classValues) {
+        this.rankClasses = rankClasses;
+        this.flushClasses = flushClasses;
+        this.classValues = classValues;
+    }
+
+    /**
+     * @return Strength tables, loaded on the first call and shared by the evaluators.
+     */
+    static CompactTables getStrengths() {
+        return StrengthHolder.TABLES;
+    }
+
+    /**
+     * Generates the value and the strength tables into the given files.
+     *
+     * @param args Paths to the target files of the value and the strength tables, e.g. in the build output directory.
+     * @throws IOException On I/O error.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            throw new IllegalArgumentException("Usage: CompactTables <value tables file> <strength tables file>");
+        }
+
+        write(build(), new File(args[0]));
+        write(buildStrengths(), new File(args[1]));
+    }
+
+    private static void write(CompactTables tables, File file) throws IOException {
+        final File dir = file.getParentFile();
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Can't create directory " + dir);
+        }
+        tables.write(file);
+    }
+
+    /**
+     * Loads the value tables from the {@link #RESOURCE_NAME} resource, falls back to {@link #build()} on failure,
+     * which is logged as a warning.
+     *
+     * @return Tables.
+     */
+    static CompactTables load() {
+        return load(RESOURCE_NAME, false);
+    }
+
+    /**
+     * Loads the strength tables from the {@link #STRENGTH_RESOURCE_NAME} resource, falls back to
+     * {@link #buildStrengths()} on failure, which is logged as a warning.
+     *
+     * @return Tables.
+     */
+    static CompactTables loadStrengths() {
+        return load(STRENGTH_RESOURCE_NAME, true);
+    }
+
+    private static CompactTables load(String resourceName, boolean strengths) {
+        CompactTables result;
+        try {
+            final URL url = CompactTables.class.getResource(resourceName);
+            if (url == null) {
+                throw new IOException("Resource " + resourceName + " is not found");
+            }
+
+            result = read(readResource(url));
+        } catch (IOException e) {
+            Logger.getLogger(CompactTables.class.getName()).log(Level.WARNING,
+                    "Failed to load compact evaluator tables, building them instead", e);
+            result = build(strengths);
+        }
+
+        return result;
+    }
+
+    /**
+     * Builds the value tables by evaluating the representative hands.
+     *
+     * @return Tables.
+     */
+    static CompactTables build() {
+        return build(false);
+    }
+
+    /**
+     * Builds the strength tables by evaluating the representative hands.
+     *
+     * @return Tables.
+     */
+    static CompactTables buildStrengths() {
+        return build(true);
+    }
+
+    private static CompactTables build(boolean strengths) {
+        final ClassBuilder classBuilder = new ClassBuilder();
+        final RankClassesBuilder rankClassesBuilder = new RankClassesBuilder(classBuilder, strengths);
+        rankClassesBuilder.fill(new int[RANKS], 0, HAND_SIZE);
+
+        final short[] flushClasses = new short[1 << RANKS];
+        for (int mask = 0; mask < flushClasses.length; ++mask) {
+            if (Integer.bitCount(mask) >= FLUSH_HAND_SIZE) {
+                flushClasses[mask] = classBuilder.classOf(strengths ?
+                        EvaluatorTableUtil.flushStrength(mask) : EvaluatorTableUtil.flushValue(mask));
+            }
+        }
+
+        return new CompactTables(rankClassesBuilder.toClasses(), flushClasses, classBuilder.toValues());
+    }
+
+    /**
+     * Reads the tables, previously written by {@link #write(File)}.
+     *
+     * @param buffer Buffer, that holds the tables starting at its current position.
+     * @return Tables.
+     * @throws IOException If the buffer does not contain the valid tables of the current version.
+     */
+    static CompactTables read(ByteBuffer buffer) throws IOException {
+        buffer = buffer.slice().order(BYTE_ORDER);
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Buffer does not contain the compact evaluator tables");
+        }
+
+        final int version = buffer.getInt(4);
+        if (version != VERSION) {
+            throw new IOException("Unsupported compact table version " + version + ", expected " + VERSION);
+        }
+
+        final int rankTableSize = buffer.getInt(8);
+        final int flushTableSize = buffer.getInt(12);
+        final int classCount = buffer.getInt(16);
+        final int checksum = buffer.getInt(20);
+        final long size = HEADER_SIZE + 2L * rankTableSize + 2L * flushTableSize + 4L * classCount;
+        if (rankTableSize != RANK_TABLE_SIZE || flushTableSize != 1 << RANKS || classCount < 0 ||
+                buffer.capacity() != size) {
+            throw new IOException("Compact tables are truncated or have unexpected size");
+        }
+
+        buffer.position(HEADER_SIZE);
+        if (checksumOf(buffer.slice()) != checksum) {
+            throw new IOException("Compact tables checksum mismatch");
+        }
+
+        final short[] rankClasses = new short[rankTableSize];
+        final short[] flushClasses = new short[flushTableSize];
+        final int[] classValues = new int[classCount];
+        buffer.asShortBuffer().get(rankClasses);
+        buffer.position(buffer.position() + rankClasses.length * 2);
+        buffer.asShortBuffer().get(flushClasses);
+        buffer.position(buffer.position() + flushClasses.length * 2);
+        buffer.asIntBuffer().get(classValues);
+
+        // the loops run interpreted on the first use, so only the greatest class is checked (as unsigned)
+        int maxClass = 0;
+        for (final short c : rankClasses) {
+            if ((c & 0xFFFF) > maxClass) {
+                maxClass = c & 0xFFFF;
+            }
+        }
+        for (final short c : flushClasses) {
+            if ((c & 0xFFFF) > maxClass) {
+                maxClass = c & 0xFFFF;
+            }
+        }
+        checkClass(maxClass, classCount);
+
+        return new CompactTables(rankClasses, flushClasses, classValues);
+    }
+
+    /**
+     * Writes the tables along with the header to the given file.
+     *
+     * @param file Target file, overwritten if exists.
+     * @throws IOException On I/O error.
+     */
+    void write(File file) throws IOException {
+        final int payloadSize = rankClasses.length * 2 + flushClasses.length * 2 + classValues.length * 4;
+        final ByteBuffer payload = ByteBuffer.allocate(payloadSize).order(BYTE_ORDER);
+        payload.asShortBuffer().put(rankClasses);
+        payload.position(rankClasses.length * 2);
+        payload.asShortBuffer().put(flushClasses);
+        payload.position(payload.position() + flushClasses.length * 2);
+        payload.asIntBuffer().put(classValues);
+        payload.position(0);
+
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(BYTE_ORDER);
+        header.putInt(MAGIC);
+        header.putInt(VERSION);
+        header.putInt(rankClasses.length);
+        header.putInt(flushClasses.length);
+        header.putInt(classValues.length);
+        header.putInt(checksumOf(payload.duplicate()));
+        header.flip();
+
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            randomAccessFile.setLength(0);
+            final FileChannel channel = randomAccessFile.getChannel();
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            while (payload.hasRemaining()) {
+                channel.write(payload);
+            }
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    /**
+     * Reads the whole resource, the tables are small enough to be read at once.
+     */
+    private static ByteBuffer readResource(URL url) throws IOException {
+        final InputStream stream = url.openStream();
+        try {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final byte[] chunk = new byte[8192];
+            for (int count = stream.read(chunk); count >= 0; count = stream.read(chunk)) {
+                bytes.write(chunk, 0, count);
+            }
+            return ByteBuffer.wrap(bytes.toByteArray());
+        } finally {
+            stream.close();
+        }
+    }
+
+    /**
+     * @param ranks Count of ranks.
+     * @param cards Count of cards.
+     * @return Count of ways to put the given count of cards into the given count of ranks, at most four cards each.
+     */
+    static int multisetCount(int ranks, int cards) {
+        // counts[k] - count of ways to put k cards into the ranks seen so far
+        int[] counts = new int[cards + 1];
+        counts[0] = 1;
+        for (int r = 0; r < ranks; ++r) {
+            final int[] next = new int[cards + 1];
+            for (int k = 0; k <= cards; ++k) {
+                for (int count = 0; count <= Math.min(k, MAX_RANK_COUNT); ++count) {
+                    next[k] += counts[k - count];
+                }
+            }
+            counts = next;
+        }
+        return counts[cards];
+    }
+
+    private static int checksumOf(ByteBuffer buffer) {
+        final CRC32 crc = new CRC32();
+        final byte[] chunk = new byte[8192];
+        while (buffer.hasRemaining()) {
+            final int count = Math.min(chunk.length, buffer.remaining());
+            buffer.get(chunk, 0, count);
+            crc.update(chunk, 0, count);
+        }
+        return (int) crc.getValue();
+    }
+
+    private static void checkClass(int classIndex, int classCount) throws IOException {
+        if (classIndex < 0 || classIndex >= classCount) {
+            throw new IOException("Compact tables refer to the missing hand class " + classIndex);
+        }
+    }
+
+    /**
+     * Lazily loaded shared strength tables.
+     */
+    private static final class StrengthHolder {
+        static final CompactTables TABLES = loadStrengths();
+    }
+
+    /**
+     * Collects the class indexes of the rank multisets of seven cards in the lexicographic order
+     * of the count of cards of each rank, which is the order {@link CompactHandEvaluator} hashes them to.
+     */
+    private static final class RankClassesBuilder {
+        final ClassBuilder classBuilder;
+        final boolean strengths;
+        short[] classes = new short[1024];
+        int size;
+
+        RankClassesBuilder(ClassBuilder classBuilder, boolean strengths) {
+            this.classBuilder = classBuilder;
+            this.strengths = strengths;
+        }
+
+        void fill(int[] rankCounts, int rank, int cardsLeft) {
+            if (rank == RANKS) {
+                if (cardsLeft > 0) {
+                    return;
+                }
+
+                if (size == classes.length) {
+                    final short[] newClasses = new short[size * 2];
+                    System.arraycopy(classes, 0, newClasses, 0, size);
+                    classes = newClasses;
+                }
+                classes[size++] = classBuilder.classOf(strengths ? EvaluatorTableUtil.rankCountsStrength(rankCounts) :
+                        EvaluatorTableUtil.rankCountsValue(rankCounts));
+                return;
+            }
+
+            for (int count = 0; count <= Math.min(cardsLeft, MAX_RANK_COUNT); ++count) {
+                rankCounts[rank] = count;
+                fill(rankCounts, rank + 1, cardsLeft - count);
+            }
+            rankCounts[rank] = 0;
+        }
+
+        short[] toClasses() {
+            final short[] result = new short[size];
+            System.arraycopy(classes, 0, result, 0, size);
+            return result;
+        }
+    }
+
+    /**
+     * Assigns short indexes to the distinct hand values.
+     */
+    private static final class ClassBuilder {
+        final Map<Integer, Integer> classes = new HashMap<Integer, Integer>();
+
+        short classOf(int value) {
+            Integer classIndex = classes.get(value);
+            if (classIndex == null) {
+                classIndex = classes.size();
+                if (classIndex > Short.MAX_VALUE) {
+                    throw new IllegalStateException("Too many distinct hand values");
+                }
+                classes.put(value, classIndex);
+            }
+            return classIndex.shortValue();
+        }
+
+        int[] toValues() {
+            final int[] values = new int[classes.size()];
+            for (final Map.Entry<Integer, Integer> entry : classes.entrySet()) {
+                values[entry.getValue()] = entry.getKey();
+            }
+            return values;
+        }
+    }
+}
@@ -29,9 +29,22 @@ public final class DefaultHand implements Hand {
     private final List<Card> cards;
     private final HandRank rank;
     private final int rating;
+    private final int strength;
 
+    /**
+     * Creates the hand, whose strength is calculated from the given cards only, see
+     * {@link HandEvaluator#getStrength(List)}, so that the kickers out of the given cards are not taken into account.
+     *
+     * @deprecated Use {@link #DefaultHand(int, HandRank, List, int)} with the strength found by the evaluator.
+     */
+    @Deprecated
     public DefaultHand(int rating, HandRank rank, List<Card> cards) {
+        this(rating, rank, cards, HandEvaluator.getStrength(cards));
+    }
+
+    public DefaultHand(int rating, HandRank rank, List<Card> cards, int strength) {
         this.rating = rating;
+        this.strength = strength;
         this.rank = rank;
         this.cards = Collections.unmodifiableList(new ArrayList<Card>(cards));
     }
@@ -51,6 +64,11 @@ public final class DefaultHand implements Hand {
         return rating;
     }
 
+    @Override
+    public int getStrength() {
+        return strength;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -58,7 +76,7 @@ public final class DefaultHand implements Hand {
 
         DefaultHand hand = (DefaultHand) o;
 
-        return rating == hand.rating && !(cards != null ? !cards.equals(hand.cards) : hand.cards != null) && rank == hand.rank;
+        return rating == hand.rating && strength == hand.strength && !(cards != null ? !cards.equals(hand.cards) : hand.cards != null) && rank == hand.rank;
 
     }
 
@@ -67,6 +85,7 @@ public final class DefaultHand implements Hand {
         int result = cards != null ? cards.hashCode() : 0;
         result = 31 * result + (rank != null ? rank.hashCode() : 0);
         result = 31 * result + rating;
+        result = 31 * result + strength;
         return result;
     }
 
@@ -75,6 +94,7 @@ public final class DefaultHand implements Hand {
         return "{cards=" + cards +
                 ", rank=" + rank +
                 ", rating=" + rating +
+                ", strength=" + strength +
                 '}';
     }
 }
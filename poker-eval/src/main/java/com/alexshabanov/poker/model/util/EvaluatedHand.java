@@ -0,0 +1,100 @@
+/*
+ * Copyright 2012 Alexander Shabanov - http://alexshabanov.com.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alexshabanov.poker.model.util;
+
+import com.alexshabanov.cards.model.Card;
+import com.alexshabanov.poker.model.Hand;
+import com.alexshabanov.poker.model.HandRank;
+
+import java.util.List;
+
+/**
+ * Hand, returned by {@link HandEvaluator#evaluate(List)}: keeps the interned {@link HandValue} and the rating,
+ * the cards of the combination are picked from the source cards only when they are asked for.
+ * <p>
+ * Source cards are expected to be immutable.
+ * </p>
+ */
+final class EvaluatedHand implements Hand {
+    private final HandValue value;
+    private final int rating;
+    private final List<Card> sourceCards;
+
+    private volatile List<Card> cards;
+
+    EvaluatedHand(HandValue value, int rating, List<Card> sourceCards) {
+        this.value = value;
+        this.rating = rating;
+        this.sourceCards = sourceCards;
+    }
+
+    HandValue getValue() {
+        return value;
+    }
+
+    @Override
+    public List<Card> getCards() {
+        List<Card> result = cards;
+        if (result == null) {
+            // racy initialization is fine: the cards are always the same
+            result = HandEvaluator.cardsOf(value.getRank(), sourceCards);
+            cards = result;
+        }
+        return result;
+    }
+
+    @Override
+    public HandRank getRank() {
+        return value.getRank();
+    }
+
+    @Override
+    public int getRating() {
+        return rating;
+    }
+
+    @Override
+    public int getStrength() {
+        return value.getStrength();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        EvaluatedHand hand = (EvaluatedHand) o;
+
+        return rating == hand.rating && value.equals(hand.value) && getCards().equals(hand.getCards());
+    }
+
+    @Override
+    public int hashCode() {
+        int result = getCards().hashCode();
+        result = 31 * result + getRank().hashCode();
+        result = 31 * result + rating;
+        result = 31 * result + getStrength();
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "{cards=" + getCards() +
+                ", rank=" + getRank() +
+                ", rating=" + rating +
+                ", strength=" + getStrength() +
+                '}';
+    }
+}
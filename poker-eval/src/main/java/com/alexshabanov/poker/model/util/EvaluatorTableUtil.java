@@ -0,0 +1,100 @@
+/*
+ * Copyright 2012 Alexander Shabanov - http://alexshabanov.com.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alexshabanov.poker.model.util;
+
+import com.alexshabanov.cards.model.Card;
+import com.alexshabanov.cards.model.DefaultCard;
+import com.alexshabanov.cards.model.Rank;
+import com.alexshabanov.cards.model.Suit;
+import com.alexshabanov.poker.model.Hand;
+import com.alexshabanov.poker.model.HandRank;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds the values for the evaluator lookup tables by evaluating representative hands with {@link HandEvaluator},
+ * so that table-driven evaluators give the same results by construction.
+ */
+final class EvaluatorTableUtil {
+    private EvaluatorTableUtil() {}
+
+    /**
+     * Evaluates the hand that consists of the cards of a single suit.
+     *
+     * @param ratingMask 13-bit mask of rating flags (TWO is the lowest bit, ACE is the highest one), five bits or more.
+     * @return Packed value in the {@link LookupHandEvaluator} format.
+     */
+    static int flushValue(int ratingMask) {
+        final Hand hand = HandEvaluator.evaluate(flushCards(ratingMask));
+        return LookupHandEvaluator.valueOf(hand.getRank(), hand.getRating());
+    }
+
+    /**
+     * @param ratingMask 13-bit mask of rating flags (TWO is the lowest bit, ACE is the highest one), five bits or more.
+     * @return Strength of the hand that consists of the cards of a single suit,
+     *         see {@link HandEvaluator#getStrength(List)}.
+     */
+    static int flushStrength(int ratingMask) {
+        return HandEvaluator.getStrength(flushCards(ratingMask));
+    }
+
+    /**
+     * Evaluates the hand that has the given ranks and does not form a flush.
+     *
+     * @param rankCounts Count of cards of each rank, indexed by rank ordinal, at most seven cards in total.
+     * @return Packed value in the {@link LookupHandEvaluator} format, high card value has no rating
+     *         since it depends on the player's cards.
+     */
+    static int rankCountsValue(int[] rankCounts) {
+        final Hand hand = HandEvaluator.evaluate(rankCountsCards(rankCounts));
+        return LookupHandEvaluator.valueOf(hand.getRank(),
+                hand.getRank() == HandRank.HIGH_CARD ? 0 : hand.getRating());
+    }
+
+    /**
+     * @param rankCounts Count of cards of each rank, indexed by rank ordinal, at most seven cards in total.
+     * @return Strength of the hand that has the given ranks and does not form a flush,
+     *         see {@link HandEvaluator#getStrength(List)}.
+     */
+    static int rankCountsStrength(int[] rankCounts) {
+        return HandEvaluator.getStrength(rankCountsCards(rankCounts));
+    }
+
+    private static List<Card> flushCards(int ratingMask) {
+        final Rank[] ranks = Rank.values();
+        final List<Card> cards = new ArrayList<Card>(ranks.length);
+        for (final Rank rank : ranks) {
+            final int code = DefaultCard.valueOf(Suit.SPADES, rank).getCode();
+            if ((ratingMask & LookupHandEvaluator.CARD_RATING_FLAGS[code]) != 0) {
+                cards.add(DefaultCard.valueOf(code));
+            }
+        }
+        return cards;
+    }
+
+    private static List<Card> rankCountsCards(int[] rankCounts) {
+        // suits are assigned in turn, so that each suit gets at most two cards and no flush is possible
+        final Rank[] ranks = Rank.values();
+        final Suit[] suits = Suit.values();
+        final List<Card> cards = new ArrayList<Card>();
+        for (int i = 0; i < rankCounts.length; ++i) {
+            for (int j = 0; j < rankCounts[i]; ++j) {
+                cards.add(DefaultCard.valueOf(suits[cards.size() % suits.length], ranks[i]));
+            }
+        }
+        return cards;
+    }
+}
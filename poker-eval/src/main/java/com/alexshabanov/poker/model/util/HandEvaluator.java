@@ -15,17 +15,37 @@
 package com.alexshabanov.poker.model.util;
 
 import com.alexshabanov.cards.model.Card;
+import com.alexshabanov.cards.model.CardMask;
 import com.alexshabanov.cards.model.Rank;
-import com.alexshabanov.cards.model.Suit;
+import com.alexshabanov.cards.util.EncodeUtil;
 import com.alexshabanov.poker.model.Hand;
 import com.alexshabanov.poker.model.HandRank;
 
-import javax.xml.ws.Holder;
-import java.util.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * Hand ranking evaluation utility.
  * Rules are given here: http://www.pagat.com/poker/rules/ranking.html
+ * <p>
+ * Each method makes a single pass over the source cards to build the rank histogram and the rank mask of each suit
+ * (see {@link HandSummary}) and then finds the combination with the bit operations on these masks.
+ * The cards of the found combination are picked from the source cards, if there are several equally rated
+ * combinations, the one that uses the earliest source cards wins.
+ * So the cost is linear in the count of the source cards, which might be anything up to the full deck,
+ * see {@link #getBestCards(List)} for the best five cards of the large card pools.
+ * </p>
+ * <p>
+ * Besides the rank and the rating, each hand gets the strength value that orders all the hands,
+ * see {@link #getStrength(List)}. The strength and rank of the best hand are also available as the interned
+ * {@link HandValue}, that takes no allocation to get.
+ * </p>
+ * <p>
+ * Methods that accept the card codes do not copy them into the card list. There are no card mask overloads
+ * of the methods that return the hand, since the hand depends on the order of the cards (the first two cards
+ * are the player's cards), see {@link #getStrength(long)} instead.
+ * </p>
  */
 public final class HandEvaluator {
     private HandEvaluator() {}
@@ -39,29 +59,52 @@ public final class HandEvaluator {
     public static final int TWO_PAIRS_HAND_SIZE = 4;
     public static final int PAIR_HAND_SIZE = 2;
 
-    private static final Map<Rank, Integer> RATING_FLAG_MAP = new HashMap<Rank, Integer>();
+    private static final int FULL_HOUSE_THREE_CARD_WEIGHT = 0x1000;
+
+    /**
+     * Strength is made of the category and five 4-bit card values (kickers), see {@link #getStrength(List)}.
+     */
+    static final int STRENGTH_KICKERS = 5;
+    static final int STRENGTH_KICKER_BITS = 4;
+    static final int STRENGTH_CATEGORY_SHIFT = STRENGTH_KICKERS * STRENGTH_KICKER_BITS;
+
+    /**
+     * Value of the TWO in the strength kickers, the other card values follow it up to 14 for the ACE.
+     */
+    static final int STRENGTH_TWO_VALUE = 2;
+
+    private static final HandRank[] HAND_RANKS = HandRank.values();
+
+    /**
+     * Kickers of the five highest ranks of the rank mask, indexed by the rank mask,
+     * see {@link #highestKickers(int)}.
+     */
+    private static final int[] HIGHEST_KICKERS = new int[HandSummary.ALL_RANKS_MASK + 1];
+
     static {
-        RATING_FLAG_MAP.put(Rank.TWO, 0x00000001);
-        RATING_FLAG_MAP.put(Rank.THREE, 0x00000002);
-        RATING_FLAG_MAP.put(Rank.FOUR, 0x00000004);
-        RATING_FLAG_MAP.put(Rank.FIVE, 0x00000008);
-        RATING_FLAG_MAP.put(Rank.SIX, 0x00000010);
-        RATING_FLAG_MAP.put(Rank.SEVEN, 0x00000020);
-        RATING_FLAG_MAP.put(Rank.EIGHT, 0x00000040);
-        RATING_FLAG_MAP.put(Rank.NINE, 0x00000080);
-        RATING_FLAG_MAP.put(Rank.TEN, 0x00000100);
-        RATING_FLAG_MAP.put(Rank.JACK, 0x00000200);
-        RATING_FLAG_MAP.put(Rank.QUEEN, 0x00000400);
-        RATING_FLAG_MAP.put(Rank.KING, 0x00000800);
-        RATING_FLAG_MAP.put(Rank.ACE, 0x00001000);
-    }
-
-    private static boolean provideBestHand(Holder<Hand> handHolder, HandCombinationSink handCombinationSink) {
-        if (handHolder.value == null) {
+        for (int mask = 0; mask < HIGHEST_KICKERS.length; ++mask) {
+            int kickers = 0;
+            int rest = mask;
+            for (int i = 0; i < STRENGTH_KICKERS; ++i) {
+                final int flag = Integer.highestOneBit(rest);
+                kickers = (kickers << STRENGTH_KICKER_BITS) | (flag != 0 ? kickerOf(flag) : 0);
+                rest &= ~flag;
+            }
+            HIGHEST_KICKERS[mask] = kickers;
+        }
+    }
+
+    /**
+     * Bits per card position in the packed list of positions, see {@link #positionsOf(List, int, int)}.
+     */
+    private static final int POSITION_BITS = 6;
+
+    private static boolean provideBestHand(Hand hand, HandCombinationSink handCombinationSink) {
+        if (hand == null) {
             return false;
         }
 
-        handCombinationSink.setBestHand(handHolder.value);
+        handCombinationSink.setBestHand(hand);
         return true;
     }
 
@@ -75,381 +118,783 @@ public final class HandEvaluator {
      * @return True, if the straight flush combination has been found in the given cards.
      */
     public static boolean maybeStraightFlush(List<Card> sourceCards, HandCombinationSink handCombinationSink) {
-        final Holder<Hand> bestHandHolder = new Holder<Hand>();
-
-        CardCombinator.iterate(sourceCards, new CardCombinationCallback() {
-            @Override
-            public boolean process(List<Card> cards) {
-                Collections.sort(cards);
-
-                Suit currentSuit = null;
-                int prevRankOrdinal = -1;
-                boolean royalFlush = false; // Identifies whether ACE follows KING or Royal Flush flag
-                for (final Card card : cards) {
-                    final int newRankOrdinal = card.getRank().ordinal();
-
-                    if (currentSuit == null) {
-                        currentSuit = card.getSuit();
-                    } else {
-                        if (card.getSuit() != currentSuit) {
-                            // suit mismatch
-                            return false;
-                        }
-
-                        if ((prevRankOrdinal + 1) != newRankOrdinal) {
-                            // test for combination where ACE follows KING, if so -
-                            // current card (which is second one) should be TEN, last card should be KING
-                            if (prevRankOrdinal != Rank.ACE.ordinal() || card.getRank() != Rank.TEN) {
-                                return false;
-                            }
-
-                            royalFlush = true;
-                        }
-                    }
+        return provideBestHand(findStraightFlush(sourceCards, HandSummary.of(sourceCards)), handCombinationSink);
+    }
 
-                    prevRankOrdinal = newRankOrdinal;
-                }
+    public static boolean maybeFourOfAKind(List<Card> sourceCards, HandCombinationSink handCombinationSink) {
+        return provideBestHand(findFourOfAKind(sourceCards, HandSummary.of(sourceCards)), handCombinationSink);
+    }
 
-                // ok, this is the straight flush
-                int rating = 0;
-                for (final Card card : cards) {
-                    rating |= RATING_FLAG_MAP.get(card.getRank());
-                }
+    public static boolean maybeFullHouse(List<Card> sourceCards, HandCombinationSink handCombinationSink) {
+        return provideBestHand(findFullHouse(sourceCards, HandSummary.of(sourceCards)), handCombinationSink);
+    }
 
-                if (royalFlush) {
-                    // Whoa, lucky bastard! Royal flush is on the table! :)
-                    // restructure the outcoming cards array so that the ACE will be the last one
-                    final Card ace = cards.get(0);
-                    cards.remove(0);
-                    cards.add(ace);
-                } else {
-                    // wheel combination
-                    // the ACE rating considered as lowest one (zero) for straight flush when ACE is a leading card
-                    rating &= ~RATING_FLAG_MAP.get(Rank.ACE);
-                }
+    public static boolean maybeFlush(List<Card> sourceCards, HandCombinationSink handCombinationSink) {
+        return provideBestHand(findFlush(sourceCards, HandSummary.of(sourceCards)), handCombinationSink);
+    }
 
-                if (bestHandHolder.value == null || bestHandHolder.value.getRating() < rating) {
-                    bestHandHolder.value = new DefaultHand(rating, HandRank.STRAIGHT_FLUSH, cards);
-                }
+    public static boolean maybeStraight(List<Card> sourceCards, HandCombinationSink handCombinationSink) {
+        return provideBestHand(findStraight(sourceCards, HandSummary.of(sourceCards)), handCombinationSink);
+    }
 
-                return false; // search should continue as there might be multiple flushes per hand
-            }
-        }, STRAIGHT_FLUSH_HAND_SIZE);
+    public static boolean maybeThreeOfAKind(List<Card> sourceCards, HandCombinationSink handCombinationSink) {
+        return provideBestHand(findThreeOfAKind(sourceCards, HandSummary.of(sourceCards)), handCombinationSink);
+    }
 
-        return provideBestHand(bestHandHolder, handCombinationSink);
+    public static boolean maybeTwoPairs(List<Card> sourceCards, HandCombinationSink handCombinationSink) {
+        return provideBestHand(findTwoPairs(sourceCards, HandSummary.of(sourceCards)), handCombinationSink);
     }
 
-    public static boolean maybeFourOfAKind(List<Card> sourceCards, final HandCombinationSink handCombinationSink) {
-        return CardCombinator.iterate(sourceCards, new CardCombinationCallback() {
-            @Override
-            public boolean process(List<Card> cards) {
-                Rank rank = null;
-                for (final Card card : cards) {
-                    if (rank == null) {
-                        rank = card.getRank();
-                    } else if (rank != card.getRank()) {
-                        return false;
-                    }
-                }
-                assert rank != null;
+    public static boolean maybePair(List<Card> sourceCards, HandCombinationSink handCombinationSink) {
+        return provideBestHand(findPair(sourceCards, HandSummary.of(sourceCards)), handCombinationSink);
+    }
 
-                // of, this is the four of a kind
-                handCombinationSink.setBestHand(new DefaultHand(RATING_FLAG_MAP.get(rank), HandRank.FOUR_OF_A_KIND, cards));
+    public static boolean maybeStraightFlush(int[] codes, HandCombinationSink handCombinationSink) {
+        return maybeStraightFlush(EncodeUtil.asCards(codes), handCombinationSink);
+    }
 
-                return true; // the followup search does not make any sense, since only one four-of-a-kind may occur.
-            }
-        }, FOUR_OF_A_KIND_HAND_SIZE);
+    public static boolean maybeFourOfAKind(int[] codes, HandCombinationSink handCombinationSink) {
+        return maybeFourOfAKind(EncodeUtil.asCards(codes), handCombinationSink);
     }
 
-    public static boolean maybeFullHouse(List<Card> sourceCards, HandCombinationSink handCombinationSink) {
-        final Holder<Hand> bestHandHolder = new Holder<Hand>();
+    public static boolean maybeFullHouse(int[] codes, HandCombinationSink handCombinationSink) {
+        return maybeFullHouse(EncodeUtil.asCards(codes), handCombinationSink);
+    }
 
-        CardCombinator.iterate(sourceCards, new CardCombinationCallback() {
-            @Override
-            public boolean process(List<Card> cards) {
-                Collections.sort(cards, new RankComparator());
+    public static boolean maybeFlush(int[] codes, HandCombinationSink handCombinationSink) {
+        return maybeFlush(EncodeUtil.asCards(codes), handCombinationSink);
+    }
 
-                // first two and last two cards must be identical
-                Rank firstRank = cards.get(0).getRank();
-                if (firstRank != cards.get(1).getRank()) {
-                    return false;
-                }
+    public static boolean maybeStraight(int[] codes, HandCombinationSink handCombinationSink) {
+        return maybeStraight(EncodeUtil.asCards(codes), handCombinationSink);
+    }
 
-                Rank lastRank = cards.get(4).getRank();
-                if (lastRank != cards.get(3).getRank()) {
-                    return false;
-                }
+    public static boolean maybeThreeOfAKind(int[] codes, HandCombinationSink handCombinationSink) {
+        return maybeThreeOfAKind(EncodeUtil.asCards(codes), handCombinationSink);
+    }
 
-                Rank midRank = cards.get(2).getRank();
-                final int threeCardRankRating;
-                final int twoCardRankRating;
-                if (midRank == firstRank) {
-                    // leading three
-                    threeCardRankRating = RATING_FLAG_MAP.get(firstRank);
-                    twoCardRankRating = RATING_FLAG_MAP.get(lastRank);
-                } else if (midRank == lastRank) {
-                    // tailing three
-                    threeCardRankRating = RATING_FLAG_MAP.get(lastRank);
-                    twoCardRankRating = RATING_FLAG_MAP.get(firstRank);
-                } else {
-                    return false;
-                }
+    public static boolean maybeTwoPairs(int[] codes, HandCombinationSink handCombinationSink) {
+        return maybeTwoPairs(EncodeUtil.asCards(codes), handCombinationSink);
+    }
 
-                final int rating = threeCardRankRating * FULL_HOUSE_THREE_CARD_WEIGHT + twoCardRankRating;
-                if (bestHandHolder.value == null || bestHandHolder.value.getRating() < rating) {
-                    bestHandHolder.value = new DefaultHand(rating, HandRank.FULL_HOUSE, cards);
-                }
+    public static boolean maybePair(int[] codes, HandCombinationSink handCombinationSink) {
+        return maybePair(EncodeUtil.asCards(codes), handCombinationSink);
+    }
 
-                return false; // there might be multiple full houses
-            }
-        }, FULL_HOUSE_HAND_SIZE);
+    public static int getPlayerCardsRating(List<Card> sourceCards) {
+        assert sourceCards.size() >= 2;
+
+        // player's card
+        final Card card0 = sourceCards.get(0);
+        final Card card1 = sourceCards.get(1);
 
-        return provideBestHand(bestHandHolder, handCombinationSink);
+        return HandSummary.ratingFlag(card0.getRank()) | HandSummary.ratingFlag(card1.getRank());
     }
 
-    private static final int FULL_HOUSE_THREE_CARD_WEIGHT = 0x1000;
+    public static void highCard(List<Card> sourceCards, HandCombinationSink handCombinationSink) {
+        handCombinationSink.setBestHand(findHighCard(sourceCards, HandSummary.of(sourceCards)));
+    }
 
     /**
-     * Card comparator, that takes into an account only the card ranks.
+     * Calculates the strength of the best hand in the given cards without picking the cards of the combination.
+     * <p>
+     * Strength holds the category in the bits 20-23 (0 is the high card, 8 is the straight flush) and
+     * the values of up to five kickers in the lower 4-bit groups, from the most significant one: two (2) to ace (14),
+     * zero means there is no kicker. Kickers are the ranks of the combination followed by the remaining cards,
+     * e.g. full house is described by the rank of three cards and the rank of the pair,
+     * straight and straight flush - by the rank of the top card (five for the wheel).
+     * So the stronger hand always has the greater strength and equal hands have equal strengths.
+     * </p>
+     *
+     * @param sourceCards Source cards, at least two.
+     * @return Hand strength, the same as {@link Hand#getStrength()} of the hand returned by {@link #evaluate(List)}.
      */
-    private static final class RankComparator implements Comparator<Card> {
+    public static int getStrength(List<Card> sourceCards) {
+        return strengthOf(HandSummary.of(sourceCards));
+    }
 
-        @Override
-        public int compare(Card lhs, Card rhs) {
-            return lhs.getRank().ordinal() - rhs.getRank().ordinal();
+    /**
+     * @param codes Card codes, at least two.
+     * @return Hand strength, see {@link #getStrength(List)}.
+     */
+    public static int getStrength(int[] codes) {
+        return strengthOf(HandSummary.of(codes));
+    }
+
+    /**
+     * @param cardMask Card mask, at least two cards, see {@link com.alexshabanov.cards.model.CardMask}.
+     * @return Hand strength, see {@link #getStrength(List)}.
+     */
+    public static int getStrength(long cardMask) {
+        return strengthOf(HandSummary.of(cardMask));
+    }
+
+    static int strengthOf(HandSummary summary) {
+        int straightFlushTop = -1;
+        int flushMask = 0;
+        for (final int suitMask : summary.suitMasks) {
+            if (Integer.bitCount(suitMask) >= FLUSH_HAND_SIZE) {
+                straightFlushTop = Math.max(straightFlushTop, HandSummary.straightTop(suitMask));
+                flushMask = Math.max(flushMask, HandSummary.highestBits(suitMask, FLUSH_HAND_SIZE));
+            }
         }
+
+        return strengthOf(summary.rankMask, summary.pairMask, summary.tripsMask, summary.quadsMask,
+                straightFlushTop, flushMask);
     }
 
-    public static boolean maybeFlush(List<Card> sourceCards, HandCombinationSink handCombinationSink) {
-        final Holder<Hand> bestHandHolder = new Holder<Hand>();
-
-        CardCombinator.iterate(sourceCards, new CardCombinationCallback() {
-            @Override
-            public boolean process(List<Card> cards) {
-                Suit suit = null;
-                int rating = 0;
-                for (final Card card : cards) {
-                    if (suit == null) {
-                        suit = card.getSuit();
-                    } else if (card.getSuit() != suit) {
-                        return false;
-                    }
+    /**
+     * Calculates the strength of the summarized cards, whose flushes are already found.
+     *
+     * @param rankMask          Ranks with at least one card, see {@link HandSummary}.
+     * @param pairMask          Ranks with at least two cards.
+     * @param tripsMask         Ranks with at least three cards.
+     * @param quadsMask         Ranks with four cards.
+     * @param straightFlushTop  Rating index of the top card of the highest straight flush or -1 if there is none.
+     * @param flushMask         Ranks of the best flush (five or more) or zero if there is none.
+     * @return Hand strength, see {@link #getStrength(List)}.
+     */
+    static int strengthOf(int rankMask, int pairMask, int tripsMask, int quadsMask, int straightFlushTop,
+                          int flushMask) {
+        if (straightFlushTop >= 0) {
+            return straightStrength(HandRank.STRAIGHT_FLUSH, straightFlushTop);
+        }
 
-                    rating = rating | RATING_FLAG_MAP.get(card.getRank());
-                }
-                assert suit != null;
+        if (quadsMask != 0) {
+            return fourOfAKindStrength(rankMask, quadsMask);
+        }
 
-                if (bestHandHolder.value == null || bestHandHolder.value.getRating() < rating) {
-                    bestHandHolder.value = new DefaultHand(rating, HandRank.FLUSH, cards);
-                }
+        final int threeCardFlag = Integer.highestOneBit(tripsMask);
+        final int twoCardFlag = Integer.highestOneBit(pairMask & ~threeCardFlag);
+        if (threeCardFlag != 0 && twoCardFlag != 0) {
+            return fullHouseStrength(threeCardFlag, twoCardFlag);
+        }
 
-                return false; // there might be multiple flushes
-            }
-        }, FLUSH_HAND_SIZE);
+        if (flushMask != 0) {
+            return flushStrength(flushMask);
+        }
+
+        final int straightTop = HandSummary.straightTop(rankMask);
+        if (straightTop >= 0) {
+            return straightStrength(HandRank.STRAIGHT, straightTop);
+        }
+
+        if (threeCardFlag != 0) {
+            return threeOfAKindStrength(rankMask, threeCardFlag);
+        }
+
+        final int highPairFlag = Integer.highestOneBit(pairMask);
+        final int lowPairFlag = Integer.highestOneBit(pairMask & ~highPairFlag);
+        if (lowPairFlag != 0) {
+            return twoPairsStrength(rankMask, highPairFlag, lowPairFlag);
+        }
+
+        if (highPairFlag != 0) {
+            return pairStrength(rankMask, highPairFlag);
+        }
 
-        return provideBestHand(bestHandHolder, handCombinationSink);
+        return highCardStrength(rankMask);
     }
 
-    public static boolean maybeStraight(List<Card> sourceCards, HandCombinationSink handCombinationSink) {
-        final Holder<Hand> bestHandHolder = new Holder<Hand>();
-
-        CardCombinator.iterate(sourceCards, new CardCombinationCallback() {
-            @Override
-            public boolean process(List<Card> cards) {
-                Collections.sort(cards, new RankComparator());
-
-                int prevRankOrdinal = -1;
-                boolean aceFollowsKing = false;
-                for (final Card card : cards) {
-                    final int newRankOrdinal = card.getRank().ordinal();
-
-                    if (prevRankOrdinal >= 0 && (prevRankOrdinal + 1) != newRankOrdinal) {
-                        // test for combination where ACE follows KING, if so -
-                        // current card (which is second one) should be TEN, last card should be KING
-                        if (prevRankOrdinal != Rank.ACE.ordinal() || card.getRank() != Rank.TEN) {
-                            return false;
-                        }
-
-                        aceFollowsKing = true;
-                    }
+    /**
+     * Finds the combination rank of the best hand without the ratings, kickers and cards: only the counts of cards
+     * of each rank and each suit are checked, so it is several times cheaper than the strength.
+     *
+     * @param cardMask Card mask, see {@link com.alexshabanov.cards.model.CardMask}.
+     * @return Combination rank of the best hand, the same as {@link #getStrengthRank(int)} of the strength gives.
+     */
+    public static HandRank classify(long cardMask) {
+        final int a = (int) cardMask & HandSummary.ALL_RANKS_MASK;
+        final int b = (int) (cardMask >>> HandSummary.RANKS) & HandSummary.ALL_RANKS_MASK;
+        final int c = (int) (cardMask >>> (2 * HandSummary.RANKS)) & HandSummary.ALL_RANKS_MASK;
+        final int d = (int) (cardMask >>> (3 * HandSummary.RANKS)) & HandSummary.ALL_RANKS_MASK;
+
+        final int flush = Math.max(Math.max(flushOf(a), flushOf(b)), Math.max(flushOf(c), flushOf(d)));
+        if (flush == STRAIGHT_FLUSH_FOUND) {
+            return HandRank.STRAIGHT_FLUSH;
+        }
 
-                    prevRankOrdinal = newRankOrdinal;
-                }
+        if ((a & b & c & d) != 0) {
+            return HandRank.FOUR_OF_A_KIND;
+        }
 
-                // ok, this is the straight
-                int rating = 0;
-                for (final Card card : cards) {
-                    rating |= RATING_FLAG_MAP.get(card.getRank());
-                }
+        final int pairMask = (a & (b | c | d)) | (b & (c | d)) | (c & d);
+        final int tripsMask = (a & b & (c | d)) | (c & d & (a | b));
+        final int pairCount = Integer.bitCount(pairMask);
+        if (tripsMask != 0 && pairCount >= 2) {
+            return HandRank.FULL_HOUSE;
+        }
+        if (flush == FLUSH_FOUND) {
+            return HandRank.FLUSH;
+        }
+        if (hasStraight(a | b | c | d)) {
+            return HandRank.STRAIGHT;
+        }
+        if (tripsMask != 0) {
+            return HandRank.THREE_OF_A_KIND;
+        }
+        if (pairCount >= 2) {
+            return HandRank.TWO_PAIRS;
+        }
+        return pairCount == 1 ? HandRank.PAIR : HandRank.HIGH_CARD;
+    }
 
-                if (aceFollowsKing) {
-                    final Card ace = cards.get(0);
-                    cards.remove(0);
-                    cards.add(ace);
-                } else {
-                    // wheel combination
-                    // the ACE rating considered as lowest one (zero) for straight flush when ACE is a leading card
-                    rating &= ~RATING_FLAG_MAP.get(Rank.ACE);
-                }
+    public static HandRank classify(int[] codes) {
+        return classify(CardMask.maskOf(codes));
+    }
 
-                if (bestHandHolder.value == null || bestHandHolder.value.getRating() < rating) {
-                    bestHandHolder.value = new DefaultHand(rating, HandRank.STRAIGHT, cards);
-                }
+    public static HandRank classify(List<Card> sourceCards) {
+        return classify(CardMask.maskOf(sourceCards));
+    }
 
-                return false;
-            }
-        }, STRAIGHT_HAND_SIZE);
+    private static final int FLUSH_FOUND = 1;
+    private static final int STRAIGHT_FLUSH_FOUND = 2;
 
-        return provideBestHand(bestHandHolder, handCombinationSink);
+    /**
+     * @param ordinalMask Rank mask of the cards of the suit in the rank ordinal order.
+     * @return {@link #STRAIGHT_FLUSH_FOUND}, {@link #FLUSH_FOUND} or zero if there is neither.
+     */
+    private static int flushOf(int ordinalMask) {
+        if (Integer.bitCount(ordinalMask) < FLUSH_HAND_SIZE) {
+            return 0;
+        }
+        return hasStraight(ordinalMask) ? STRAIGHT_FLUSH_FOUND : FLUSH_FOUND;
     }
 
-    public static boolean maybeThreeOfAKind(List<Card> sourceCards, HandCombinationSink handCombinationSink) {
-        final Holder<Hand> bestHandHolder = new Holder<Hand>();
-
-        CardCombinator.iterate(sourceCards, new CardCombinationCallback() {
-            @Override
-            public boolean process(List<Card> cards) {
-                Rank rank = null;
-                for (final Card card : cards) {
-                    if (rank == null) {
-                        rank = card.getRank();
-                    }
+    /**
+     * @param ordinalMask Rank mask in the rank ordinal order: ACE is the lowest bit, KING is the highest one.
+     * @return True, if there are five consecutive ranks, ACE might either precede TWO or follow KING.
+     */
+    private static boolean hasStraight(int ordinalMask) {
+        final int x = ordinalMask | ((ordinalMask & 1) << HandSummary.RANKS);
+        return (x & (x >>> 1) & (x >>> 2) & (x >>> 3) & (x >>> 4)) != 0;
+    }
 
-                    if (card.getRank() != rank) {
-                        return false;
-                    }
-                }
-                assert rank != null;
+    /**
+     * @param strength Hand strength, see {@link #getStrength(List)}.
+     * @return Combination rank, encoded in the given strength.
+     */
+    public static HandRank getStrengthRank(int strength) {
+        return HAND_RANKS[HAND_RANKS.length - 1 - (strength >>> STRENGTH_CATEGORY_SHIFT)];
+    }
 
-                final int rating = RATING_FLAG_MAP.get(rank);
-                if (bestHandHolder.value == null || bestHandHolder.value.getRating() < rating) {
-                    bestHandHolder.value = new DefaultHand(rating, HandRank.THREE_OF_A_KIND, cards);
-                }
+    /**
+     * @param sourceCards Source cards, at least two.
+     * @return Interned value of the best hand, see {@link HandValue}, no objects are created.
+     */
+    public static HandValue getValue(List<Card> sourceCards) {
+        return HandValue.valueOf(getStrength(sourceCards));
+    }
 
-                return false;
-            }
-        }, THREE_OF_A_KIND_HAND_SIZE);
+    public static HandValue getValue(int[] codes) {
+        return HandValue.valueOf(getStrength(codes));
+    }
 
-        return provideBestHand(bestHandHolder, handCombinationSink);
+    public static HandValue getValue(long cardMask) {
+        return HandValue.valueOf(getStrength(cardMask));
     }
 
-    public static boolean maybeTwoPairs(List<Card> sourceCards, HandCombinationSink handCombinationSink) {
-        final Holder<Hand> bestHandHolder = new Holder<Hand>();
+    /**
+     * @param codes Card codes, first two are the player's cards.
+     * @return Best hand, see {@link #evaluate(List)}.
+     */
+    public static Hand evaluate(int[] codes) {
+        final List<Card> sourceCards = EncodeUtil.asCards(codes.clone());
+        return evaluate(sourceCards, HandSummary.of(sourceCards));
+    }
 
-        CardCombinator.iterate(sourceCards, new CardCombinationCallback() {
-            @Override
-            public boolean process(List<Card> cards) {
-                Collections.sort(cards, new RankComparator());
+    /**
+     * Evaluates the best hand. The rank, rating and strength of the hand are found at once,
+     * the cards of the combination are picked from the source cards when {@link Hand#getCards()} is called.
+     *
+     * @param sourceCards Source cards, first two are the player's cards, the hand keeps the copy of them.
+     * @return Best hand.
+     */
+    public static Hand evaluate(List<Card> sourceCards) {
+        final List<Card> cards = Arrays.asList(sourceCards.toArray(new Card[sourceCards.size()]));
+        return evaluate(cards, HandSummary.of(cards));
+    }
 
-                final Rank rank0 = cards.get(0).getRank();
-                if (rank0 != cards.get(1).getRank()) {
-                    return false;
-                }
+    /**
+     * @param sourceCards Source cards, the hand keeps the reference to them, so they should not be modified.
+     * @param summary     Summary of the source cards.
+     * @return Best hand.
+     */
+    static Hand evaluate(List<Card> sourceCards, HandSummary summary) {
+        final HandValue value = HandValue.valueOf(strengthOf(summary));
+        return new EvaluatedHand(value, ratingOf(value.getRank(), sourceCards, summary), sourceCards);
+    }
 
-                final Rank rank1 = cards.get(2).getRank();
-                if (rank1 != cards.get(3).getRank()) {
-                    return false;
+    /**
+     * @return Rating of the best hand of the given rank, the same as the combination search finds.
+     */
+    private static int ratingOf(HandRank rank, List<Card> sourceCards, HandSummary summary) {
+        switch (rank) {
+            case STRAIGHT_FLUSH:
+                int top = -1;
+                for (final int suitMask : summary.suitMasks) {
+                    top = Math.max(top, HandSummary.straightTop(suitMask));
                 }
+                return straightRating(top);
+
+            case FOUR_OF_A_KIND:
+                return firstFlagOf(sourceCards, summary.quadsMask);
 
-                final int rating = RATING_FLAG_MAP.get(rank0) | RATING_FLAG_MAP.get(rank1);
-                if (bestHandHolder.value == null || bestHandHolder.value.getRating() < rating) {
-                    bestHandHolder.value = new DefaultHand(rating, HandRank.TWO_PAIRS, cards);
+            case FULL_HOUSE:
+                final int threeCardFlag = Integer.highestOneBit(summary.tripsMask);
+                return threeCardFlag * FULL_HOUSE_THREE_CARD_WEIGHT +
+                        Integer.highestOneBit(summary.pairMask & ~threeCardFlag);
+
+            case FLUSH:
+                int flushMask = 0;
+                for (final int suitMask : summary.suitMasks) {
+                    if (Integer.bitCount(suitMask) >= FLUSH_HAND_SIZE) {
+                        flushMask = Math.max(flushMask, HandSummary.highestBits(suitMask, FLUSH_HAND_SIZE));
+                    }
                 }
+                return flushMask;
 
-                return false;
-            }
-        }, TWO_PAIRS_HAND_SIZE);
+            case STRAIGHT:
+                return straightRating(HandSummary.straightTop(summary.rankMask));
+
+            case THREE_OF_A_KIND:
+                return Integer.highestOneBit(summary.tripsMask);
+
+            case TWO_PAIRS:
+                return HandSummary.highestBits(summary.pairMask, 2);
 
-        return provideBestHand(bestHandHolder, handCombinationSink);
+            case PAIR:
+                return Integer.highestOneBit(summary.pairMask);
+
+            default:
+                return getPlayerCardsRating(sourceCards);
+        }
     }
 
-    public static boolean maybePair(List<Card> sourceCards, HandCombinationSink handCombinationSink) {
-        final Holder<Hand> bestHandHolder = new Holder<Hand>();
-
-        CardCombinator.iterate(sourceCards, new CardCombinationCallback() {
-            @Override
-            public boolean process(List<Card> cards) {
-                final Rank rank = cards.get(0).getRank();
-                if (rank != cards.get(1).getRank()) {
-                    return false;
-                }
+    /**
+     * Picks the best five cards out of any number of cards: the cards of the combination, the same as
+     * {@link Hand#getCards()} of the hand returned by {@link #evaluate(List)} gives, followed by the kickers,
+     * the highest one first. Unlike the hand, the high card combination is made of the five highest cards
+     * rather than the player's cards.
+     * <p>
+     * No subsets of the cards are enumerated, the cost is linear in the count of the source cards.
+     * </p>
+     *
+     * @param sourceCards Source cards, up to the full deck.
+     * @return Best five cards or all the source cards if there are less than five of them, the strength of these
+     *         cards is the same as the strength of the source cards.
+     */
+    public static List<Card> getBestCards(List<Card> sourceCards) {
+        final HandSummary summary = HandSummary.of(sourceCards);
+        final HandRank rank = getStrengthRank(strengthOf(summary));
+        final List<Card> cards = new ArrayList<Card>(STRENGTH_KICKERS);
+        if (rank == HandRank.FOUR_OF_A_KIND) {
+            // unlike the hand, the highest four of a kind is taken, as the strength does
+            addCardsOfRank(sourceCards, Integer.highestOneBit(summary.quadsMask), FOUR_OF_A_KIND_HAND_SIZE, cards);
+        } else if (rank != HandRank.HIGH_CARD) {
+            cards.addAll(cardsOf(rank, sourceCards, summary));
+        }
 
-                final int rating = RATING_FLAG_MAP.get(rank);
-                if (bestHandHolder.value == null || bestHandHolder.value.getRating() < rating) {
-                    bestHandHolder.value = new DefaultHand(rating, HandRank.PAIR, cards);
-                }
+        int usedRanks = 0;
+        for (final Card card : cards) {
+            usedRanks |= HandSummary.ratingFlag(card.getRank());
+        }
 
-                return false;
-            }
-        }, PAIR_HAND_SIZE);
+        // the same kickers as the strength has
+        int kickers = HandSummary.highestBits(summary.rankMask & ~usedRanks, STRENGTH_KICKERS - cards.size());
+        while (kickers != 0) {
+            final int flag = Integer.highestOneBit(kickers);
+            cards.add(firstCard(sourceCards, -1, HandSummary.rankOf(HandSummary.indexOf(flag))));
+            kickers &= ~flag;
+        }
+        return cards;
+    }
 
-        return provideBestHand(bestHandHolder, handCombinationSink);
+    /**
+     * @param codes Card codes, up to the full deck.
+     * @return Codes of the best five cards, see {@link #getBestCards(List)}.
+     */
+    public static int[] getBestCards(int[] codes) {
+        return EncodeUtil.toCodeArray(getBestCards(EncodeUtil.asCards(codes)));
     }
 
-    public static int getPlayerCardsRating(List<Card> sourceCards) {
-        assert sourceCards.size() >= 2;
+    /**
+     * @param cardMask Card mask, up to the full deck, see {@link com.alexshabanov.cards.model.CardMask}.
+     * @return Mask of the best five cards, see {@link #getBestCards(List)}, cards are taken in the card code order.
+     */
+    public static long getBestCards(long cardMask) {
+        return CardMask.maskOf(getBestCards(CardMask.toCards(cardMask)));
+    }
 
-        // player's card
-        final Card card0 = sourceCards.get(0);
-        final Card card1 = sourceCards.get(1);
+    /**
+     * Picks the cards of the best hand of the given rank.
+     *
+     * @param rank        Rank of the best hand in the source cards.
+     * @param sourceCards Source cards.
+     * @return Unmodifiable list of the cards of the combination.
+     */
+    static List<Card> cardsOf(HandRank rank, List<Card> sourceCards) {
+        return cardsOf(rank, sourceCards, HandSummary.of(sourceCards));
+    }
+
+    private static List<Card> cardsOf(HandRank rank, List<Card> sourceCards, HandSummary summary) {
+        final Hand hand;
+        switch (rank) {
+            case STRAIGHT_FLUSH:
+                hand = findStraightFlush(sourceCards, summary);
+                break;
+            case FOUR_OF_A_KIND:
+                hand = findFourOfAKind(sourceCards, summary);
+                break;
+            case FULL_HOUSE:
+                hand = findFullHouse(sourceCards, summary);
+                break;
+            case FLUSH:
+                hand = findFlush(sourceCards, summary);
+                break;
+            case STRAIGHT:
+                hand = findStraight(sourceCards, summary);
+                break;
+            case THREE_OF_A_KIND:
+                hand = findThreeOfAKind(sourceCards, summary);
+                break;
+            case TWO_PAIRS:
+                hand = findTwoPairs(sourceCards, summary);
+                break;
+            case PAIR:
+                hand = findPair(sourceCards, summary);
+                break;
+            default:
+                hand = findHighCard(sourceCards, summary);
+        }
+        return hand.getCards();
+    }
+
+    //
+    // Combination search, each method returns null if the combination is not found
+    //
+
+    private static Hand findStraightFlush(List<Card> sourceCards, HandSummary summary) {
+        int bestSuit = -1;
+        int bestTop = -1;
+        long bestPositions = 0;
+        for (int suit = 0; suit < HandSummary.SUITS; ++suit) {
+            final int top = HandSummary.straightTop(summary.suitMasks[suit]);
+            if (top < 0 || top < bestTop) {
+                continue;
+            }
+
+            // equally rated straight flushes are possible in more than nine cards
+            final long positions = positionsOf(sourceCards, suit, HandSummary.straightMask(top));
+            if (top > bestTop || positions < bestPositions) {
+                bestSuit = suit;
+                bestTop = top;
+                bestPositions = positions;
+            }
+        }
+
+        if (bestSuit < 0) {
+            return null;
+        }
 
-        return RATING_FLAG_MAP.get(card0.getRank()) | RATING_FLAG_MAP.get(card1.getRank());
+        return new DefaultHand(straightRating(bestTop), HandRank.STRAIGHT_FLUSH,
+                straightCards(sourceCards, bestSuit, bestTop), straightStrength(HandRank.STRAIGHT_FLUSH, bestTop));
     }
 
-    public static void highCard(List<Card> sourceCards, HandCombinationSink handCombinationSink) {
-        handCombinationSink.setBestHand(new DefaultHand(
-                getPlayerCardsRating(sourceCards),
-                HandRank.HIGH_CARD,
-                sourceCards.subList(0, 2)));
+    private static Hand findFourOfAKind(List<Card> sourceCards, HandSummary summary) {
+        if (summary.quadsMask == 0) {
+            return null;
+        }
+
+        // the first found four of a kind is taken
+        final int flag = firstFlagOf(sourceCards, summary.quadsMask);
+        final List<Card> cards = new ArrayList<Card>(FOUR_OF_A_KIND_HAND_SIZE);
+        addCardsOfRank(sourceCards, flag, FOUR_OF_A_KIND_HAND_SIZE, cards);
+        return new DefaultHand(flag, HandRank.FOUR_OF_A_KIND, cards, fourOfAKindStrength(summary.rankMask, summary.quadsMask));
     }
 
-    public static Hand evaluate(List<Card> sourceCards) {
-        final Holder<Hand> handHolder = new Holder<Hand>();
-        final HandCombinationSink handCombinationSink = new HandCombinationSink() {
-            @Override
-            public void setBestHand(Hand hand) {
-                assert handHolder.value == null;
-                handHolder.value = hand;
+    private static Hand findFullHouse(List<Card> sourceCards, HandSummary summary) {
+        final int threeCardFlag = Integer.highestOneBit(summary.tripsMask);
+        final int twoCardFlag = Integer.highestOneBit(summary.pairMask & ~threeCardFlag);
+        if (threeCardFlag == 0 || twoCardFlag == 0) {
+            return null;
+        }
+
+        final int rating = threeCardFlag * FULL_HOUSE_THREE_CARD_WEIGHT + twoCardFlag;
+        return new DefaultHand(rating, HandRank.FULL_HOUSE,
+                groupedCards(sourceCards, threeCardFlag, THREE_OF_A_KIND_HAND_SIZE, twoCardFlag, PAIR_HAND_SIZE),
+                fullHouseStrength(threeCardFlag, twoCardFlag));
+    }
+
+    private static Hand findFlush(List<Card> sourceCards, HandSummary summary) {
+        int bestSuit = -1;
+        int bestMask = 0;
+        long bestPositions = 0;
+        for (int suit = 0; suit < HandSummary.SUITS; ++suit) {
+            final int suitMask = summary.suitMasks[suit];
+            if (Integer.bitCount(suitMask) < FLUSH_HAND_SIZE) {
+                continue;
             }
-        };
 
-        do {
-            if (maybeStraightFlush(sourceCards, handCombinationSink)) {
-                break;
+            final int mask = HandSummary.highestBits(suitMask, FLUSH_HAND_SIZE);
+            if (mask < bestMask) {
+                continue;
             }
 
-            if (maybeFourOfAKind(sourceCards, handCombinationSink)) {
-                break;
+            // equally rated flushes are possible in more than nine cards
+            final long positions = positionsOf(sourceCards, suit, mask);
+            if (mask > bestMask || positions < bestPositions) {
+                bestSuit = suit;
+                bestMask = mask;
+                bestPositions = positions;
             }
+        }
 
-            if (maybeFullHouse(sourceCards, handCombinationSink)) {
-                break;
+        if (bestSuit < 0) {
+            return null;
+        }
+
+        final List<Card> cards = new ArrayList<Card>(FLUSH_HAND_SIZE);
+        for (final Card card : sourceCards) {
+            if (card.getSuit().ordinal() == bestSuit && (HandSummary.ratingFlag(card.getRank()) & bestMask) != 0) {
+                cards.add(card);
             }
+        }
 
-            if (maybeFlush(sourceCards, handCombinationSink)) {
-                break;
+        // rating flags of the different ranks do not overlap, so the mask is the sum of the flags
+        return new DefaultHand(bestMask, HandRank.FLUSH, cards, flushStrength(bestMask));
+    }
+
+    private static Hand findStraight(List<Card> sourceCards, HandSummary summary) {
+        final int top = HandSummary.straightTop(summary.rankMask);
+        if (top < 0) {
+            return null;
+        }
+
+        return new DefaultHand(straightRating(top), HandRank.STRAIGHT, straightCards(sourceCards, -1, top),
+                straightStrength(HandRank.STRAIGHT, top));
+    }
+
+    private static Hand findThreeOfAKind(List<Card> sourceCards, HandSummary summary) {
+        final int flag = Integer.highestOneBit(summary.tripsMask);
+        if (flag == 0) {
+            return null;
+        }
+
+        final List<Card> cards = new ArrayList<Card>(THREE_OF_A_KIND_HAND_SIZE);
+        addCardsOfRank(sourceCards, flag, THREE_OF_A_KIND_HAND_SIZE, cards);
+        return new DefaultHand(flag, HandRank.THREE_OF_A_KIND, cards, threeOfAKindStrength(summary.rankMask, flag));
+    }
+
+    private static Hand findTwoPairs(List<Card> sourceCards, HandSummary summary) {
+        final int highFlag = Integer.highestOneBit(summary.pairMask);
+        final int lowFlag = Integer.highestOneBit(summary.pairMask & ~highFlag);
+        if (lowFlag != 0) {
+            return new DefaultHand(highFlag | lowFlag, HandRank.TWO_PAIRS,
+                    groupedCards(sourceCards, highFlag, PAIR_HAND_SIZE, lowFlag, PAIR_HAND_SIZE),
+                    twoPairsStrength(summary.rankMask, highFlag, lowFlag));
+        }
+
+        if (summary.quadsMask != 0) {
+            // both pairs are formed by the cards of the same rank
+            final List<Card> cards = new ArrayList<Card>(TWO_PAIRS_HAND_SIZE);
+            addCardsOfRank(sourceCards, summary.quadsMask, TWO_PAIRS_HAND_SIZE, cards);
+            return new DefaultHand(summary.quadsMask, HandRank.TWO_PAIRS, cards,
+                    twoPairsStrength(summary.rankMask, summary.quadsMask, summary.quadsMask));
+        }
+
+        return null;
+    }
+
+    private static Hand findPair(List<Card> sourceCards, HandSummary summary) {
+        final int flag = Integer.highestOneBit(summary.pairMask);
+        if (flag == 0) {
+            return null;
+        }
+
+        final List<Card> cards = new ArrayList<Card>(PAIR_HAND_SIZE);
+        addCardsOfRank(sourceCards, flag, PAIR_HAND_SIZE, cards);
+        return new DefaultHand(flag, HandRank.PAIR, cards, pairStrength(summary.rankMask, flag));
+    }
+
+    private static Hand findHighCard(List<Card> sourceCards, HandSummary summary) {
+        return new DefaultHand(getPlayerCardsRating(sourceCards), HandRank.HIGH_CARD, sourceCards.subList(0, 2),
+                highCardStrength(summary.rankMask));
+    }
+
+    //
+    // Strength of the combinations, see getStrength
+    //
+
+    private static int straightStrength(HandRank rank, int top) {
+        return strengthOf(rank, top + STRENGTH_TWO_VALUE, 1);
+    }
+
+    private static int fourOfAKindStrength(int rankMask, int quadsMask) {
+        // unlike the cards, the strength takes the highest four of a kind if there are several ones
+        final int flag = Integer.highestOneBit(quadsMask);
+        return strengthOf(HandRank.FOUR_OF_A_KIND, withKickers(kickerOf(flag), rankMask & ~flag, 1), 2);
+    }
+
+    private static int fullHouseStrength(int threeCardFlag, int twoCardFlag) {
+        final int kickers = (kickerOf(threeCardFlag) << STRENGTH_KICKER_BITS) | kickerOf(twoCardFlag);
+        return strengthOf(HandRank.FULL_HOUSE, kickers, 2);
+    }
+
+    private static int flushStrength(int mask) {
+        return strengthOf(HandRank.FLUSH, withKickers(0, mask, FLUSH_HAND_SIZE), FLUSH_HAND_SIZE);
+    }
+
+    private static int threeOfAKindStrength(int rankMask, int flag) {
+        return strengthOf(HandRank.THREE_OF_A_KIND, withKickers(kickerOf(flag), rankMask & ~flag, 2), 3);
+    }
+
+    private static int twoPairsStrength(int rankMask, int highFlag, int lowFlag) {
+        final int pairs = (kickerOf(highFlag) << STRENGTH_KICKER_BITS) | kickerOf(lowFlag);
+        return strengthOf(HandRank.TWO_PAIRS, withKickers(pairs, rankMask & ~(highFlag | lowFlag), 1), 3);
+    }
+
+    private static int pairStrength(int rankMask, int flag) {
+        return strengthOf(HandRank.PAIR, withKickers(kickerOf(flag), rankMask & ~flag, 3), 4);
+    }
+
+    /**
+     * @param mask Rank mask.
+     * @return Kickers of the five highest ranks of the given mask, as they are packed into the strength.
+     */
+    static int highestKickers(int mask) {
+        return HIGHEST_KICKERS[mask];
+    }
+
+    /**
+     * @return Category of the given rank, as it is packed into the strength.
+     */
+    static int categoryOf(HandRank rank) {
+        return HAND_RANKS.length - 1 - rank.ordinal();
+    }
+
+    private static int highCardStrength(int rankMask) {
+        return strengthOf(HandRank.HIGH_CARD, withKickers(0, rankMask, STRENGTH_KICKERS), STRENGTH_KICKERS);
+    }
+
+    private static int kickerOf(int flag) {
+        return HandSummary.indexOf(flag) + STRENGTH_TWO_VALUE;
+    }
+
+    /**
+     * Appends the given count of kickers taken from the highest ranks of the given mask,
+     * missing kickers are appended as zeros.
+     */
+    private static int withKickers(int kickers, int mask, int count) {
+        return (kickers << (count * STRENGTH_KICKER_BITS)) |
+                (HIGHEST_KICKERS[mask] >>> ((STRENGTH_KICKERS - count) * STRENGTH_KICKER_BITS));
+    }
+
+    private static int strengthOf(HandRank rank, int kickers, int kickerCount) {
+        return (categoryOf(rank) << STRENGTH_CATEGORY_SHIFT) |
+                (kickers << ((STRENGTH_KICKERS - kickerCount) * STRENGTH_KICKER_BITS));
+    }
+
+    //
+    // Helpers
+    //
+
+    /**
+     * @param top Rating index of the top card of the straight.
+     * @return Straight rating, ACE is the lowest card (with zero rating) in the wheel.
+     */
+    private static int straightRating(int top) {
+        return HandSummary.straightMask(top) & ~(top == HandSummary.WHEEL_TOP ? 1 << HandSummary.ACE_INDEX : 0);
+    }
+
+    /**
+     * @return Rating flag of the first source card, whose rank is in the given mask.
+     */
+    private static int firstFlagOf(List<Card> sourceCards, int mask) {
+        for (final Card card : sourceCards) {
+            final int flag = HandSummary.ratingFlag(card.getRank()) & mask;
+            if (flag != 0) {
+                return flag;
             }
+        }
+        return 0;
+    }
 
-            if (maybeStraight(sourceCards, handCombinationSink)) {
-                break;
+    /**
+     * Picks the cards of the straight, one card of each rank.
+     * Cards are ordered by rank, so that ACE is the first card in the wheel and the last card otherwise.
+     *
+     * @param sourceCards Source cards.
+     * @param suit        Suit ordinal of the cards or -1 if cards of any suit might be picked.
+     * @param top         Rating index of the top card of the straight.
+     * @return Straight cards.
+     */
+    private static List<Card> straightCards(List<Card> sourceCards, int suit, int top) {
+        final List<Card> cards = new ArrayList<Card>(STRAIGHT_HAND_SIZE);
+        if (top == HandSummary.WHEEL_TOP) {
+            cards.add(firstCard(sourceCards, suit, Rank.ACE));
+        }
+
+        for (int index = top - STRAIGHT_HAND_SIZE + 1; index <= top; ++index) {
+            if (index >= 0) {
+                cards.add(firstCard(sourceCards, suit, HandSummary.rankOf(index)));
             }
+        }
 
-            if (maybeThreeOfAKind(sourceCards, handCombinationSink)) {
-                break;
+        return cards;
+    }
+
+    private static Card firstCard(List<Card> sourceCards, int suit, Rank rank) {
+        for (final Card card : sourceCards) {
+            if (card.getRank() == rank && (suit < 0 || card.getSuit().ordinal() == suit)) {
+                return card;
             }
+        }
+
+        throw new IllegalStateException("No card of rank " + rank + " in " + sourceCards);
+    }
 
-            if (maybeTwoPairs(sourceCards, handCombinationSink)) {
+    private static void addCardsOfRank(List<Card> sourceCards, int flag, int count, List<Card> target) {
+        for (final Card card : sourceCards) {
+            if (count == 0) {
                 break;
             }
 
-            if (maybePair(sourceCards, handCombinationSink)) {
-                break;
+            if (HandSummary.ratingFlag(card.getRank()) == flag) {
+                target.add(card);
+                --count;
             }
+        }
+    }
 
-            highCard(sourceCards, handCombinationSink);
-        } while (false);
+    /**
+     * Picks two groups of cards of the same rank, groups are ordered by rank (ACE is the lowest one).
+     */
+    private static List<Card> groupedCards(List<Card> sourceCards, int flag1, int count1, int flag2, int count2) {
+        final List<Card> cards = new ArrayList<Card>(count1 + count2);
+        if (HandSummary.rankOf(HandSummary.indexOf(flag1)).ordinal() <
+                HandSummary.rankOf(HandSummary.indexOf(flag2)).ordinal()) {
+            addCardsOfRank(sourceCards, flag1, count1, cards);
+            addCardsOfRank(sourceCards, flag2, count2, cards);
+        } else {
+            addCardsOfRank(sourceCards, flag2, count2, cards);
+            addCardsOfRank(sourceCards, flag1, count1, cards);
+        }
+        return cards;
+    }
 
-        assert handHolder.value != null;
-        return handHolder.value;
+    /**
+     * Packs the positions of the cards of the given suit and ranks in the source cards, so that the packed
+     * positions compare in the same way as the lists of positions do.
+     */
+    private static long positionsOf(List<Card> sourceCards, int suit, int mask) {
+        long positions = 0;
+        for (int i = 0; i < sourceCards.size(); ++i) {
+            final Card card = sourceCards.get(i);
+            if (card.getSuit().ordinal() == suit && (HandSummary.ratingFlag(card.getRank()) & mask) != 0) {
+                positions = (positions << POSITION_BITS) | i;
+            }
+        }
+        return positions;
     }
 }
@@ -0,0 +1,302 @@
+/*
+ * Copyright 2012 Alexander Shabanov - http://alexshabanov.com.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alexshabanov.poker.model.util;
+
+import com.alexshabanov.cards.model.Card;
+import com.alexshabanov.cards.model.CardMask;
+import com.alexshabanov.poker.model.HandRank;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Bounded cache of the hand strengths keyed by the card mask, that might be shared by any count of threads.
+ * <p>
+ * Entries are kept in the primitive arrays, no objects are created per entry. The cache is set-associative:
+ * each card mask hashes to the bucket of {@link #WAYS} entries, the buckets are split between the stripes,
+ * each stripe is guarded by its own lock. When the bucket is full, the entry to evict is chosen by the CLOCK policy:
+ * the clock hand of the bucket skips (and clears the reference bit of) the entries that were hit since
+ * the last pass. New entries are not referenced, so the entries that are seen once are evicted first.
+ * </p>
+ * <p>
+ * Strengths are computed by {@link HandEvaluator#getStrength(long)} outside the lock, so two threads might compute
+ * the strength of the same missing hand at once.
+ * </p>
+ */
+public final class HandStrengthCache {
+
+    /**
+     * Count of entries in each bucket.
+     */
+    public static final int WAYS = 8;
+
+    private static final int FULL_BUCKET = (1 << WAYS) - 1;
+
+    private final Stripe[] stripes;
+    private final int stripeMask;
+    private final int stripeShift;
+    private final int bucketMask;
+
+    /**
+     * Creates the cache with the count of stripes, proportional to the count of the available processors.
+     *
+     * @param capacity Max count of entries, rounded up to the power of two, at least {@link #WAYS}.
+     */
+    public HandStrengthCache(int capacity) {
+        this(capacity, 4 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param capacity         Max count of entries, rounded up to the power of two, at least {@link #WAYS}.
+     * @param concurrencyLevel Expected count of the threads, that use the cache at once, i.e. the count of stripes,
+     *                         rounded up to the power of two, at most the count of buckets.
+     */
+    public HandStrengthCache(int capacity, int concurrencyLevel) {
+        if (capacity <= 0 || concurrencyLevel <= 0) {
+            throw new IllegalArgumentException("Capacity and concurrency level should be positive");
+        }
+        if (capacity > (1 << 30)) {
+            throw new IllegalArgumentException("Capacity " + capacity + " is too big");
+        }
+
+        final int bucketCount = ceilingPowerOfTwo(Math.max(1, (capacity + WAYS - 1) / WAYS));
+        final int stripeCount = Math.min(ceilingPowerOfTwo(concurrencyLevel), bucketCount);
+        stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; ++i) {
+            stripes[i] = new Stripe(bucketCount / stripeCount);
+        }
+
+        stripeMask = stripeCount - 1;
+        stripeShift = Integer.numberOfTrailingZeros(stripeCount);
+        bucketMask = bucketCount / stripeCount - 1;
+    }
+
+    /**
+     * @param cardMask Card mask, see {@link CardMask}.
+     * @return Strength of the hand, the same as {@link HandEvaluator#getStrength(long)} returns.
+     */
+    public int getStrength(long cardMask) {
+        final int hash = hashOf(cardMask);
+        final Stripe stripe = stripes[hash & stripeMask];
+        final int bucket = (hash >>> stripeShift) & bucketMask;
+
+        synchronized (stripe) {
+            final int entry = stripe.find(bucket, cardMask);
+            if (entry >= 0) {
+                ++stripe.hitCount;
+                return stripe.strengths[entry];
+            }
+            ++stripe.missCount;
+        }
+
+        final int strength = HandEvaluator.getStrength(cardMask);
+        synchronized (stripe) {
+            if (stripe.find(bucket, cardMask) < 0) {
+                stripe.put(bucket, cardMask, strength);
+            }
+        }
+        return strength;
+    }
+
+    public int getStrength(List<Card> cards) {
+        return getStrength(CardMask.maskOf(cards));
+    }
+
+    public int getStrength(int[] codes) {
+        return getStrength(CardMask.maskOf(codes));
+    }
+
+    public HandRank getRank(long cardMask) {
+        return HandEvaluator.getStrengthRank(getStrength(cardMask));
+    }
+
+    /**
+     * @return Max count of entries.
+     */
+    public int getCapacity() {
+        return stripes.length * stripes[0].keys.length;
+    }
+
+    /**
+     * @return Count of entries, the cache holds now.
+     */
+    public int getSize() {
+        int result = 0;
+        for (final Stripe stripe : stripes) {
+            synchronized (stripe) {
+                result += stripe.size;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return Count of the lookups, that found the strength in the cache.
+     */
+    public long getHitCount() {
+        long result = 0;
+        for (final Stripe stripe : stripes) {
+            synchronized (stripe) {
+                result += stripe.hitCount;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return Count of the lookups, that computed the strength.
+     */
+    public long getMissCount() {
+        long result = 0;
+        for (final Stripe stripe : stripes) {
+            synchronized (stripe) {
+                result += stripe.missCount;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return Count of the entries, that were evicted to free the space for the new ones.
+     */
+    public long getEvictionCount() {
+        long result = 0;
+        for (final Stripe stripe : stripes) {
+            synchronized (stripe) {
+                result += stripe.evictionCount;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Removes all the entries, counters are kept.
+     */
+    public void clear() {
+        for (final Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.clear();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "HandStrengthCache{capacity=" + getCapacity() + ", size=" + getSize() + ", hits=" + getHitCount() +
+                ", misses=" + getMissCount() + ", evictions=" + getEvictionCount() + '}';
+    }
+
+    private static int hashOf(long cardMask) {
+        // finalizer of the 64-bit MurmurHash3, card masks differ in a few bits only
+        long h = cardMask;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+    private static int ceilingPowerOfTwo(int value) {
+        return value <= 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
+    }
+
+    /**
+     * Buckets of the stripe, entry number W of the bucket number B is kept in the element number {@code B * WAYS + W}
+     * of the arrays. The fields are guarded by the stripe itself.
+     */
+    private static final class Stripe {
+        final long[] keys;
+        final int[] strengths;
+
+        /**
+         * Flags of the entries in use, reference flags and clock hands, indexed by bucket.
+         */
+        final byte[] usedFlags;
+        final byte[] referencedFlags;
+        final byte[] hands;
+
+        int size;
+        long hitCount;
+        long missCount;
+        long evictionCount;
+
+        Stripe(int bucketCount) {
+            keys = new long[bucketCount * WAYS];
+            strengths = new int[bucketCount * WAYS];
+            usedFlags = new byte[bucketCount];
+            referencedFlags = new byte[bucketCount];
+            hands = new byte[bucketCount];
+        }
+
+        /**
+         * Finds the entry and marks it as referenced.
+         *
+         * @return Index of the entry or -1 if there is no such entry.
+         */
+        int find(int bucket, long key) {
+            final int used = usedFlags[bucket] & FULL_BUCKET;
+            final int offset = bucket * WAYS;
+            for (int way = 0; way < WAYS; ++way) {
+                if ((used & (1 << way)) != 0 && keys[offset + way] == key) {
+                    referencedFlags[bucket] |= 1 << way;
+                    return offset + way;
+                }
+            }
+            return -1;
+        }
+
+        void put(int bucket, long key, int strength) {
+            final int used = usedFlags[bucket] & FULL_BUCKET;
+            final int way;
+            if (used != FULL_BUCKET) {
+                way = Integer.numberOfTrailingZeros(~used);
+                usedFlags[bucket] = (byte) (used | (1 << way));
+                ++size;
+            } else {
+                way = evict(bucket);
+                ++evictionCount;
+            }
+
+            keys[bucket * WAYS + way] = key;
+            strengths[bucket * WAYS + way] = strength;
+        }
+
+        /**
+         * Advances the clock hand of the full bucket to the first entry, that is not referenced.
+         *
+         * @return Way of the evicted entry.
+         */
+        private int evict(int bucket) {
+            int referenced = referencedFlags[bucket] & FULL_BUCKET;
+            int hand = hands[bucket];
+            while ((referenced & (1 << hand)) != 0) {
+                referenced &= ~(1 << hand);
+                hand = (hand + 1) % WAYS;
+            }
+
+            referencedFlags[bucket] = (byte) referenced;
+            hands[bucket] = (byte) ((hand + 1) % WAYS);
+            return hand;
+        }
+
+        void clear() {
+            Arrays.fill(usedFlags, (byte) 0);
+            Arrays.fill(referencedFlags, (byte) 0);
+            Arrays.fill(hands, (byte) 0);
+            size = 0;
+        }
+    }
+}
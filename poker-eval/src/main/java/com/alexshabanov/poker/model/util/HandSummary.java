@@ -0,0 +1,240 @@
+/*
+ * Copyright 2012 Alexander Shabanov - http://alexshabanov.com.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alexshabanov.poker.model.util;
+
+import com.alexshabanov.cards.model.Card;
+import com.alexshabanov.cards.model.DefaultCard;
+import com.alexshabanov.cards.model.Rank;
+import com.alexshabanov.cards.model.Suit;
+
+import java.util.List;
+
+/**
+ * Summary of the cards, built in a single pass: 13-bit rank masks of the ranks that have at least one, two, three
+ * and four cards and 13-bit rank mask of each suit.
+ * <p>
+ * Rank masks are made of the rating flags: TWO is the lowest bit, ACE is the highest one.
+ * Cards are expected to be distinct.
+ * </p>
+ */
+final class HandSummary {
+
+    static final int RANKS = Rank.values().length;
+    static final int SUITS = Suit.values().length;
+    static final int ACE_INDEX = RANKS - 1;
+    static final int ALL_RANKS_MASK = (1 << RANKS) - 1;
+
+    /**
+     * Rating index of the top card of the wheel (ACE to FIVE) straight.
+     */
+    static final int WHEEL_TOP = 3;
+
+    /**
+     * Rating flag index, indexed by rank ordinal.
+     */
+    private static final int[] RATING_INDEXES = new int[RANKS];
+
+    /**
+     * Ranks, indexed by rating flag index.
+     */
+    private static final Rank[] RATING_RANKS = new Rank[RANKS];
+
+    /**
+     * Rating flag index and suit ordinal, indexed by card code.
+     */
+    private static final int[] CARD_RATING_INDEXES = new int[DefaultCard.MAX_CARD_CODE];
+    private static final int[] CARD_SUITS = new int[DefaultCard.MAX_CARD_CODE];
+
+    static {
+        for (final Rank rank : Rank.values()) {
+            final int index = (rank.ordinal() + RANKS - 1) % RANKS;
+            RATING_INDEXES[rank.ordinal()] = index;
+            RATING_RANKS[index] = rank;
+        }
+
+        for (int code = 0; code < DefaultCard.MAX_CARD_CODE; ++code) {
+            final Card card = DefaultCard.valueOf(code);
+            CARD_RATING_INDEXES[code] = RATING_INDEXES[card.getRank().ordinal()];
+            CARD_SUITS[code] = card.getSuit().ordinal();
+        }
+    }
+
+    /**
+     * Rank masks of the cards of each suit, indexed by suit ordinal.
+     */
+    final int[] suitMasks = new int[SUITS];
+
+    /**
+     * Rank masks of the ranks with at least one, two, three and four cards.
+     */
+    int rankMask;
+    int pairMask;
+    int tripsMask;
+    int quadsMask;
+
+    static HandSummary of(List<Card> cards) {
+        final HandSummary summary = new HandSummary();
+        for (final Card card : cards) {
+            summary.add(card.getRank(), card.getSuit());
+        }
+        return summary;
+    }
+
+    static HandSummary of(int[] codes) {
+        final HandSummary summary = new HandSummary();
+        for (final int code : codes) {
+            summary.add(code);
+        }
+        return summary;
+    }
+
+    static HandSummary of(long cardMask) {
+        final HandSummary summary = new HandSummary();
+        summary.reset(cardMask);
+        return summary;
+    }
+
+    /**
+     * Replaces the summary with the summary of the given cards without iterating over the cards:
+     * the rank masks of the suits are taken from the card mask directly and the count of cards of each rank
+     * is found by the bitwise operations on these masks.
+     *
+     * @param cardMask Card mask, see {@link com.alexshabanov.cards.model.CardMask}.
+     */
+    void reset(long cardMask) {
+        final int[] masks = suitMasks;
+        for (int suit = 0; suit < SUITS; ++suit) {
+            // ordinal order puts the ACE to the lowest bit, move it to the highest one
+            final int ordinalMask = (int) (cardMask >>> (suit * RANKS)) & ALL_RANKS_MASK;
+            masks[suit] = (ordinalMask >>> 1) | ((ordinalMask & 1) << ACE_INDEX);
+        }
+
+        final int a = masks[0];
+        final int b = masks[1];
+        final int c = masks[2];
+        final int d = masks[3];
+        rankMask = a | b | c | d;
+        pairMask = (a & (b | c | d)) | (b & (c | d)) | (c & d);
+        tripsMask = (a & b & (c | d)) | (c & d & (a | b));
+        quadsMask = a & b & c & d;
+    }
+
+    /**
+     * Replaces this summary with the given one, e.g. to add more cards to the reused summary.
+     *
+     * @param other Source summary.
+     */
+    void set(HandSummary other) {
+        System.arraycopy(other.suitMasks, 0, suitMasks, 0, SUITS);
+        rankMask = other.rankMask;
+        pairMask = other.pairMask;
+        tripsMask = other.tripsMask;
+        quadsMask = other.quadsMask;
+    }
+
+    void add(Rank rank, Suit suit) {
+        add(RATING_INDEXES[rank.ordinal()], suit.ordinal());
+    }
+
+    void add(int code) {
+        add(CARD_RATING_INDEXES[code], CARD_SUITS[code]);
+    }
+
+    private void add(int index, int suit) {
+        final int flag = 1 << index;
+        if ((rankMask & flag) == 0) {
+            rankMask |= flag;
+        } else if ((pairMask & flag) == 0) {
+            pairMask |= flag;
+        } else if ((tripsMask & flag) == 0) {
+            tripsMask |= flag;
+        } else {
+            quadsMask |= flag;
+        }
+
+        suitMasks[suit] |= flag;
+    }
+
+    static int cardFlag(int code) {
+        return 1 << CARD_RATING_INDEXES[code];
+    }
+
+    static int cardSuit(int code) {
+        return CARD_SUITS[code];
+    }
+
+    static int ratingIndex(Rank rank) {
+        return RATING_INDEXES[rank.ordinal()];
+    }
+
+    static int ratingFlag(Rank rank) {
+        return 1 << RATING_INDEXES[rank.ordinal()];
+    }
+
+    static Rank rankOf(int ratingIndex) {
+        return RATING_RANKS[ratingIndex];
+    }
+
+    /**
+     * @param flag Rating flag, exactly one bit.
+     * @return Rating index of the given flag.
+     */
+    static int indexOf(int flag) {
+        return Integer.numberOfTrailingZeros(flag);
+    }
+
+    /**
+     * Finds the highest straight in the given rank mask, ACE might either follow KING or precede TWO.
+     *
+     * @param mask Rank mask.
+     * @return Rating index of the top card of the straight (FIVE for the wheel) or -1 if there is no straight.
+     */
+    static int straightTop(int mask) {
+        // shift the ranks by one to put the ACE below TWO as well
+        final int x = (mask << 1) | (mask >>> ACE_INDEX);
+        final int starts = x & (x >>> 1) & (x >>> 2) & (x >>> 3) & (x >>> 4);
+        if (starts == 0) {
+            return -1;
+        }
+
+        return 31 - Integer.numberOfLeadingZeros(starts) + WHEEL_TOP;
+    }
+
+    /**
+     * @param top Rating index of the top card of the straight.
+     * @return Ranks that form the straight.
+     */
+    static int straightMask(int top) {
+        if (top == WHEEL_TOP) {
+            return 0xF | (1 << ACE_INDEX);
+        }
+        return 0x1F << (top - 4);
+    }
+
+    /**
+     * @param mask Rank mask.
+     * @param count Count of bits to keep.
+     * @return Rank mask, that keeps only the given count of the highest bits of the given mask.
+     */
+    static int highestBits(int mask, int count) {
+        int result = 0;
+        for (int i = 0; i < count && mask != 0; ++i) {
+            final int flag = Integer.highestOneBit(mask);
+            result |= flag;
+            mask &= ~flag;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2012 Alexander Shabanov - http://alexshabanov.com.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alexshabanov.poker.model.util;
+
+import com.alexshabanov.cards.model.CardMask;
+import com.alexshabanov.cards.model.Rank;
+import com.alexshabanov.cards.model.Suit;
+import com.alexshabanov.poker.model.HandRank;
+
+import java.util.Arrays;
+
+/**
+ * Immutable value of the hand: the combination rank and the strength, that orders all the hands,
+ * see {@link HandEvaluator#getStrength(java.util.List)}.
+ * <p>
+ * Hands of five cards or more fall into {@link #CLASS_COUNT} equivalence classes, each class has the single
+ * interned instance, so that the values are obtained without allocation and might be compared by reference.
+ * Classes are numbered in the ascending order of their strengths, see {@link #getClassIndex()}.
+ * Hands of fewer than five cards might have the strengths, that are not the strengths of any class,
+ * such values are created on demand and have no class index.
+ * </p>
+ */
+public final class HandValue implements Comparable<HandValue> {
+
+    /**
+     * Count of the distinct values of the hands of five cards or more.
+     */
+    public static final int CLASS_COUNT = 7462;
+
+    private static final int RANKS = Rank.values().length;
+    private static final int SUITS = Suit.values().length;
+
+    private static final HandValue[] CLASS_VALUES = new HandValue[CLASS_COUNT];
+
+    /**
+     * Open addressing hash table of the class values keyed by strength, at most half full.
+     */
+    private static final int TABLE_BITS = 14;
+    private static final int TABLE_MASK = (1 << TABLE_BITS) - 1;
+    private static final HandValue[] TABLE = new HandValue[1 << TABLE_BITS];
+
+    static {
+        final int[] strengths = new int[CLASS_COUNT];
+        final int count = addClassStrengths(strengths, 0, new int[RANKS], 0, HandEvaluator.FLUSH_HAND_SIZE);
+        if (count != CLASS_COUNT) {
+            throw new IllegalStateException("Expected " + CLASS_COUNT + " hand classes, found " + count);
+        }
+
+        Arrays.sort(strengths);
+        for (int i = 0; i < CLASS_COUNT; ++i) {
+            final HandValue value = new HandValue(strengths[i], i);
+            CLASS_VALUES[i] = value;
+
+            int slot = slotOf(value.strength);
+            while (TABLE[slot] != null) {
+                slot = (slot + 1) & TABLE_MASK;
+            }
+            TABLE[slot] = value;
+        }
+    }
+
+    /**
+     * Adds the strengths of the five card hands, that have the given counts of cards of each rank:
+     * the cards are spread over the suits, five distinct ranks are also added as the flush.
+     *
+     * @return Count of the strengths after adding.
+     */
+    private static int addClassStrengths(int[] strengths, int count, int[] rankCounts, int rank, int cardsLeft) {
+        if (rank == RANKS) {
+            if (cardsLeft > 0) {
+                return count;
+            }
+
+            long cardMask = 0;
+            long flushMask = 0;
+            int suit = 0;
+            for (int i = 0; i < RANKS; ++i) {
+                for (int j = 0; j < rankCounts[i]; ++j) {
+                    cardMask |= CardMask.maskOf((suit++ % SUITS) * RANKS + i);
+                }
+                flushMask |= rankCounts[i] == 1 ? CardMask.maskOf(i) : 0;
+            }
+
+            strengths[count++] = HandEvaluator.getStrength(cardMask);
+            if (Long.bitCount(flushMask) == HandEvaluator.FLUSH_HAND_SIZE) {
+                strengths[count++] = HandEvaluator.getStrength(flushMask);
+            }
+            return count;
+        }
+
+        for (int rankCount = 0; rankCount <= Math.min(cardsLeft, SUITS); ++rankCount) {
+            rankCounts[rank] = rankCount;
+            count = addClassStrengths(strengths, count, rankCounts, rank + 1, cardsLeft - rankCount);
+        }
+        rankCounts[rank] = 0;
+        return count;
+    }
+
+    private final int strength;
+    private final int classIndex;
+    private final HandRank rank;
+
+    private HandValue(int strength, int classIndex) {
+        this.strength = strength;
+        this.classIndex = classIndex;
+        this.rank = HandEvaluator.getStrengthRank(strength);
+    }
+
+    /**
+     * @param strength Hand strength, see {@link HandEvaluator#getStrength(java.util.List)}.
+     * @return Interned value of the given strength or the new value if the strength is not the one of the classes.
+     */
+    public static HandValue valueOf(int strength) {
+        for (int slot = slotOf(strength); TABLE[slot] != null; slot = (slot + 1) & TABLE_MASK) {
+            if (TABLE[slot].strength == strength) {
+                return TABLE[slot];
+            }
+        }
+        if (strength < 0) {
+            throw new IllegalArgumentException("Strength should be non-negative");
+        }
+        return new HandValue(strength, -1);
+    }
+
+    private static int slotOf(int strength) {
+        return (strength * 0x9E3779B9) >>> (Integer.SIZE - TABLE_BITS);
+    }
+
+    /**
+     * @param classIndex Index of the class, from 0 (the weakest hand) to {@link #CLASS_COUNT} - 1 (the royal flush).
+     * @return Interned value of the class.
+     */
+    public static HandValue ofClass(int classIndex) {
+        if (classIndex < 0 || classIndex >= CLASS_COUNT) {
+            throw new IllegalArgumentException("Class index " + classIndex + " is out of [0, " + CLASS_COUNT + ")");
+        }
+        return CLASS_VALUES[classIndex];
+    }
+
+    public HandRank getRank() {
+        return rank;
+    }
+
+    public int getStrength() {
+        return strength;
+    }
+
+    /**
+     * @return Dense index of the equivalence class, the stronger hand has the greater index,
+     *         -1 for the values of the hands of fewer than five cards, that have no class.
+     */
+    public int getClassIndex() {
+        return classIndex;
+    }
+
+    @Override
+    public int compareTo(HandValue other) {
+        return strength < other.strength ? -1 : (strength == other.strength ? 0 : 1);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        return strength == ((HandValue) o).strength;
+    }
+
+    @Override
+    public int hashCode() {
+        return strength;
+    }
+
+    @Override
+    public String toString() {
+        return "{rank=" + rank + ", strength=" + strength + ", class=" + classIndex + '}';
+    }
+}
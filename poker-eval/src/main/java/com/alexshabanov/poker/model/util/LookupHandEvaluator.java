@@ -0,0 +1,405 @@
+/*
+ * Copyright 2012 Alexander Shabanov - http://alexshabanov.com.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alexshabanov.poker.model.util;
+
+import com.alexshabanov.cards.model.Card;
+import com.alexshabanov.cards.model.DefaultCard;
+import com.alexshabanov.cards.model.Rank;
+import com.alexshabanov.cards.model.Suit;
+import com.alexshabanov.poker.model.Hand;
+import com.alexshabanov.poker.model.HandRank;
+
+import java.util.Arrays;
+
+/**
+ * Table-driven 7-card hand evaluator.
+ * <p>
+ * Each card code is mapped to a key that holds a rank key in the high bits and a suit key in the low bits.
+ * Rank keys are chosen so that the sum of any seven of them is unique for each rank multiset and suit keys
+ * are chosen so that the sum of any seven of them tells which suit (if any) has five or more cards.
+ * The sum of seven card keys is then resolved either by the flush table, indexed by the 13-bit rank mask of
+ * the flush suit, or by the rank table, indexed by the rank key sum.
+ * </p>
+ * <p>
+ * The rank table is indexed directly, so the tables take ~41 MB of heap, see {@link #getMemoryFootprint()}.
+ * They are expanded from the {@link CompactTables} on the first evaluation, which takes ~0.1 s
+ * (see {@link #getLoadNanos()}), so this evaluator does not start fast, use the {@link CompactHandEvaluator}
+ * where the memory or the start up time matters more than the throughput.
+ * </p>
+ * <p>
+ * Results are packed into the integer value, see {@link #getRank(int)} and {@link #getRating(int)}.
+ * Rank and rating are identical to the ones returned by {@link HandEvaluator#evaluate(java.util.List)}
+ * for the same cards given in the same order.
+ * </p>
+ */
+public final class LookupHandEvaluator {
+    private LookupHandEvaluator() {}
+
+    /**
+     * Count of cards this evaluator accepts.
+     */
+    public static final int HAND_SIZE = 7;
+
+    /**
+     * Rank keys, the sum of any seven keys (where each key is used at most four times) is unique.
+     */
+    private static final int[] RANK_KEYS = {
+            0, 1, 5, 22, 98, 453, 2031, 8698, 22854, 83661, 262349, 636345, 1479181
+    };
+
+    /**
+     * Suit keys, the sum of any seven keys identifies the suit that has five or more cards.
+     */
+    private static final int[] SUIT_KEYS = { 0, 1, 8, 57 };
+
+    private static final int SUIT_KEY_BITS = 9;
+    private static final int SUIT_KEY_MASK = (1 << SUIT_KEY_BITS) - 1;
+
+    private static final int RANK_SHIFT = 28;
+    private static final int RATING_MASK = (1 << RANK_SHIFT) - 1;
+
+    private static final int HIGH_CARD_VALUE = HandRank.HIGH_CARD.ordinal() << RANK_SHIFT;
+
+    private static final int FLUSH_HAND_SIZE = HandEvaluator.FLUSH_HAND_SIZE;
+
+    private static final int RANKS = Rank.values().length;
+    private static final int RANK_MASK = (1 << RANKS) - 1;
+
+    /**
+     * Combined rank and suit keys, indexed by card code.
+     */
+    static final int[] CARD_KEYS = new int[DefaultCard.MAX_CARD_CODE];
+
+    /**
+     * Card suit ordinals, indexed by card code.
+     */
+    static final int[] CARD_SUITS = new int[DefaultCard.MAX_CARD_CODE];
+
+    /**
+     * Rating flags (as in {@link HandEvaluator}, ACE is the highest one), indexed by card code.
+     */
+    static final int[] CARD_RATING_FLAGS = new int[DefaultCard.MAX_CARD_CODE];
+
+    /**
+     * Flush suit ordinals or -1 if there is no flush, indexed by the suit key sum.
+     */
+    private static final int[] FLUSH_SUITS = new int[HAND_SIZE * SUIT_KEYS[SUIT_KEYS.length - 1] + 1];
+
+    private static final long INIT_NANOS;
+
+    static {
+        final long start = System.nanoTime();
+
+        for (int code = 0; code < DefaultCard.MAX_CARD_CODE; ++code) {
+            final Card card = DefaultCard.valueOf(code);
+            final int rank = card.getRank().ordinal();
+            final int suit = card.getSuit().ordinal();
+
+            CARD_KEYS[code] = (RANK_KEYS[rank] << SUIT_KEY_BITS) | SUIT_KEYS[suit];
+            CARD_SUITS[code] = suit;
+            CARD_RATING_FLAGS[code] = 1 << ((rank + RANKS - 1) % RANKS);
+        }
+
+        Arrays.fill(FLUSH_SUITS, -1);
+        fillFlushSuits(new int[SUIT_KEYS.length], 0, HAND_SIZE);
+
+        INIT_NANOS = System.nanoTime() - start;
+    }
+
+    /**
+     * Packs the given rank and rating into the single value.
+     *
+     * @param rank      Hand rank.
+     * @param rating    Hand rating as returned by {@link Hand#getRating()}.
+     * @return Packed value.
+     */
+    public static int valueOf(HandRank rank, int rating) {
+        return (rank.ordinal() << RANK_SHIFT) | rating;
+    }
+
+    /**
+     * @param value Value returned by one of the evaluate methods.
+     * @return Hand rank, encoded in the given value.
+     */
+    public static HandRank getRank(int value) {
+        return HandRank.values()[value >>> RANK_SHIFT];
+    }
+
+    /**
+     * @param value Value returned by one of the evaluate methods.
+     * @return Hand rating, encoded in the given value, see also {@link Hand#getRating()}.
+     */
+    public static int getRating(int value) {
+        return value & RATING_MASK;
+    }
+
+    /**
+     * @return Total size of the lookup tables in bytes, the tables are initialized if they were not yet.
+     *         The strength tables used by {@link #getStrength(long)} take about as much once initialized.
+     */
+    public static int getMemoryFootprint() {
+        return CARD_KEYS.length * 4 + CARD_SUITS.length * 4 + CARD_RATING_FLAGS.length * 4 +
+                FLUSH_SUITS.length * 4 + Tables.FLUSH_VALUES.length * 4 + Tables.RANK_VALUES.length * 4;
+    }
+
+    /**
+     * @return Time in nanoseconds the first use of this evaluator took, that is the initialization of this class
+     *         and the expansion of the lookup tables, which are initialized if they were not yet.
+     */
+    public static long getLoadNanos() {
+        return INIT_NANOS + Tables.LOAD_NANOS;
+    }
+
+    /**
+     * Evaluates the best hand for the seven given cards.
+     * First two cards are considered to be the player's cards.
+     *
+     * @param c0 Card code.
+     * @param c1 Card code.
+     * @param c2 Card code.
+     * @param c3 Card code.
+     * @param c4 Card code.
+     * @param c5 Card code.
+     * @param c6 Card code.
+     * @return Packed hand value.
+     */
+    public static int evaluate(int c0, int c1, int c2, int c3, int c4, int c5, int c6) {
+        final int[] cardKeys = CARD_KEYS;
+        final int key = cardKeys[c0] + cardKeys[c1] + cardKeys[c2] + cardKeys[c3] +
+                cardKeys[c4] + cardKeys[c5] + cardKeys[c6];
+
+        final int flushSuit = FLUSH_SUITS[key & SUIT_KEY_MASK];
+        if (flushSuit >= 0) {
+            final int[] suits = CARD_SUITS;
+            final int[] flags = CARD_RATING_FLAGS;
+            int mask = 0;
+            if (suits[c0] == flushSuit) { mask |= flags[c0]; }
+            if (suits[c1] == flushSuit) { mask |= flags[c1]; }
+            if (suits[c2] == flushSuit) { mask |= flags[c2]; }
+            if (suits[c3] == flushSuit) { mask |= flags[c3]; }
+            if (suits[c4] == flushSuit) { mask |= flags[c4]; }
+            if (suits[c5] == flushSuit) { mask |= flags[c5]; }
+            if (suits[c6] == flushSuit) { mask |= flags[c6]; }
+            return Tables.FLUSH_VALUES[mask];
+        }
+
+        return withPlayerCards(Tables.RANK_VALUES[key >>> SUIT_KEY_BITS], c0, c1);
+    }
+
+    /**
+     * Evaluates the strength of the given cards by the strength tables, which are separate from the value ones
+     * and are as large, see {@link #getMemoryFootprint()}.
+     *
+     * @param cardMask Card mask, see {@link com.alexshabanov.cards.model.CardMask}, the hands other than
+     *                 of {@link #HAND_SIZE} cards are evaluated by {@link HandEvaluator#getStrength(long)}.
+     * @return Hand strength, the same as {@link HandEvaluator#getStrength(long)} returns.
+     */
+    public static int getStrength(long cardMask) {
+        if (Long.bitCount(cardMask) != HAND_SIZE) {
+            return HandEvaluator.getStrength(cardMask);
+        }
+
+        final int[] cardKeys = CARD_KEYS;
+        int key = 0;
+        for (long mask = cardMask; mask != 0; mask &= mask - 1) {
+            key += cardKeys[Long.numberOfTrailingZeros(mask)];
+        }
+
+        final int flushSuit = FLUSH_SUITS[key & SUIT_KEY_MASK];
+        if (flushSuit >= 0) {
+            return StrengthTables.FLUSH_STRENGTHS[ratingMaskOf(cardMask, flushSuit)];
+        }
+        return StrengthTables.RANK_STRENGTHS[key >>> SUIT_KEY_BITS];
+    }
+
+    /**
+     * @param cardMask Card mask.
+     * @param suit     Suit ordinal.
+     * @return 13-bit mask of the rating flags of the cards of the given suit.
+     */
+    static int ratingMaskOf(long cardMask, int suit) {
+        final int ranks = (int) (cardMask >>> (suit * RANKS)) & RANK_MASK;
+        // ACE is the lowest rank of the card code, but the highest rating flag
+        return (ranks >>> 1) | ((ranks & 1) << (RANKS - 1));
+    }
+
+    /**
+     * Evaluates the best hand for the given cards.
+     *
+     * @param codes Card codes, exactly {@link #HAND_SIZE} elements, first two are the player's cards.
+     * @return Packed hand value.
+     * @see #evaluate(int, int, int, int, int, int, int)
+     */
+    public static int evaluate(int[] codes) {
+        if (codes.length != HAND_SIZE) {
+            throw new IllegalArgumentException("Expected " + HAND_SIZE + " card codes, got " + codes.length);
+        }
+
+        return evaluate(codes[0], codes[1], codes[2], codes[3], codes[4], codes[5], codes[6]);
+    }
+
+    /**
+     * Completes the high card value with the rating formed by the player's cards, as {@link HandEvaluator} does.
+     * Values of the other hand ranks are returned as is.
+     *
+     * @param value Packed hand value, high card value may have no rating.
+     * @param c0    Code of the first player's card.
+     * @param c1    Code of the second player's card.
+     * @return Packed hand value.
+     */
+    public static int withPlayerCards(int value, int c0, int c1) {
+        if (value == HIGH_CARD_VALUE) {
+            // high card rating is formed by the player's cards only
+            return value | CARD_RATING_FLAGS[c0] | CARD_RATING_FLAGS[c1];
+        }
+        return value;
+    }
+
+    /**
+     * @param rankOrdinal Rank ordinal.
+     * @return Rank key, the rank key sum of seven cards is accepted by {@link #rankValue(int)}.
+     */
+    static int rankKey(int rankOrdinal) {
+        return RANK_KEYS[rankOrdinal];
+    }
+
+    /**
+     * @param rankKeySum Sum of the rank keys of seven cards that do not form a flush.
+     * @return Packed hand value, high card value has no rating.
+     */
+    static int rankValue(int rankKeySum) {
+        return Tables.RANK_VALUES[rankKeySum];
+    }
+
+    /**
+     * @param ratingMask 13-bit mask of the flush suit rating flags (five cards or more).
+     * @return Packed hand value.
+     */
+    static int flushValue(int ratingMask) {
+        return Tables.FLUSH_VALUES[ratingMask];
+    }
+
+    private static void fillFlushSuits(int[] suitCounts, int suit, int cardsLeft) {
+        if (suit == suitCounts.length - 1) {
+            suitCounts[suit] = cardsLeft;
+
+            int key = 0;
+            int flushSuit = -1;
+            for (int i = 0; i < suitCounts.length; ++i) {
+                key += suitCounts[i] * SUIT_KEYS[i];
+                if (suitCounts[i] >= FLUSH_HAND_SIZE) {
+                    flushSuit = i;
+                }
+            }
+
+            FLUSH_SUITS[key] = flushSuit;
+            return;
+        }
+
+        for (int count = 0; count <= cardsLeft; ++count) {
+            suitCounts[suit] = count;
+            fillFlushSuits(suitCounts, suit + 1, cardsLeft - count);
+        }
+    }
+
+    /**
+     * @param compactTables Compact tables.
+     * @return Flush table, indexed by 13-bit rating mask.
+     */
+    private static int[] expandFlushValues(CompactTables compactTables) {
+        final int[] result = new int[1 << RANKS];
+        for (int mask = 0; mask < result.length; ++mask) {
+            if (Integer.bitCount(mask) >= FLUSH_HAND_SIZE) {
+                result[mask] = compactTables.classValues[compactTables.flushClasses[mask]];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param compactTables Compact tables.
+     * @return Rank table, indexed by the rank key sum.
+     */
+    private static int[] expandRankValues(CompactTables compactTables) {
+        int maxRankKey = 0;
+        for (final int rankKey : RANK_KEYS) {
+            maxRankKey = Math.max(maxRankKey, rankKey);
+        }
+
+        final int[] result = new int[HAND_SIZE * maxRankKey + 1];
+        final int count = fillRankValues(compactTables, result, 0, 0, HAND_SIZE, 0);
+        if (count != compactTables.rankClasses.length) {
+            throw new IllegalStateException("Expected " + compactTables.rankClasses.length +
+                    " rank multisets, got " + count);
+        }
+        return result;
+    }
+
+    /**
+     * Visits the rank multisets in the same lexicographic order {@link CompactTables} lists them in.
+     *
+     * @return Index of the next multiset.
+     */
+    private static int fillRankValues(CompactTables compactTables, int[] rankValues, int rank, int key,
+                                      int cardsLeft, int index) {
+        if (rank == RANKS) {
+            if (cardsLeft > 0) {
+                return index;
+            }
+
+            rankValues[key] = compactTables.classValues[compactTables.rankClasses[index]];
+            return index + 1;
+        }
+
+        final int maxCount = Math.min(cardsLeft, Suit.values().length);
+        for (int count = 0; count <= maxCount; ++count) {
+            index = fillRankValues(compactTables, rankValues, rank + 1, key + count * RANK_KEYS[rank],
+                    cardsLeft - count, index);
+        }
+        return index;
+    }
+
+    /**
+     * Lazily initialized lookup tables, expanded from the {@link CompactTables}: the flush table of 8192 entries
+     * is indexed by the rating mask and the rank table of ~10.4 million entries (~41 MB) by the rank key sum.
+     */
+    private static final class Tables {
+        static final int[] FLUSH_VALUES;
+        static final int[] RANK_VALUES;
+        static final long LOAD_NANOS;
+
+        static {
+            final long start = System.nanoTime();
+            final CompactTables compactTables = CompactTables.load();
+            FLUSH_VALUES = expandFlushValues(compactTables);
+            RANK_VALUES = expandRankValues(compactTables);
+            LOAD_NANOS = System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * Lazily initialized strength tables, laid out as the {@link Tables}.
+     */
+    private static final class StrengthTables {
+        static final int[] FLUSH_STRENGTHS;
+        static final int[] RANK_STRENGTHS;
+
+        static {
+            final CompactTables compactTables = CompactTables.getStrengths();
+            FLUSH_STRENGTHS = expandFlushValues(compactTables);
+            RANK_STRENGTHS = expandRankValues(compactTables);
+        }
+    }
+}
@@ -0,0 +1,326 @@
+/*
+ * Copyright 2012 Alexander Shabanov - http://alexshabanov.com.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alexshabanov.poker.model.util;
+
+import com.alexshabanov.cards.model.CardMask;
+import com.alexshabanov.cards.model.DefaultCard;
+import com.alexshabanov.cards.model.Rank;
+import com.alexshabanov.cards.model.Suit;
+import com.alexshabanov.poker.model.HandRank;
+
+/**
+ * Low hand evaluation utility: ace-to-five low (with or without the eight-or-better qualifier) and
+ * deuce-to-seven low.
+ * <p>
+ * Results are the low strengths: the better low hand has the greater low strength, {@link #NO_LOW} means there is
+ * no qualifying low hand, so the low hands compare in the same way as the high hand strengths do.
+ * </p>
+ * <p>
+ * Ace-to-five low: ACE is the lowest card, straights and flushes do not count.
+ * Lows without pairs are resolved by the table indexed by the 13-bit rank mask in the rank ordinal order
+ * (ACE is the lowest bit), which is taken from the card mask directly, since the card code is
+ * {@code suit * 13 + rank ordinal}. The eight-or-better low takes five distinct ranks from ACE to EIGHT,
+ * so it needs the lowest 8 bits of the rank mask only.
+ * </p>
+ * <p>
+ * Deuce-to-seven low: the worst high hand of five cards, ACE is always the highest card, so
+ * {@code A-2-3-4-5} is not a straight.
+ * </p>
+ */
+public final class LowHandEvaluator {
+    private LowHandEvaluator() {}
+
+    /**
+     * Low strength of the hand that does not qualify for the low.
+     */
+    public static final int NO_LOW = 0;
+
+    /**
+     * Count of cards in the low hand.
+     */
+    public static final int LOW_HAND_SIZE = 5;
+
+    /**
+     * Values of the low hands are made like the high hand strengths (the category and the 4-bit kickers),
+     * the low strength is the value subtracted from this limit.
+     */
+    private static final int LOW_STRENGTH_LIMIT = 1 << 24;
+
+    private static final int RANKS = Rank.values().length;
+    private static final int ALL_RANKS_MASK = (1 << RANKS) - 1;
+
+    /**
+     * Ranks from ACE to EIGHT in the rank ordinal order.
+     */
+    static final int EIGHT_OR_BETTER_MASK = (1 << (Rank.EIGHT.ordinal() + 1)) - 1;
+
+    /**
+     * Categories of the ace-to-five low values.
+     */
+    private static final int NO_PAIR = 0;
+    private static final int ONE_PAIR = 1;
+    private static final int TWO_PAIRS = 2;
+    private static final int THREE_OF_A_KIND = 3;
+    private static final int FULL_HOUSE = 4;
+    private static final int FOUR_OF_A_KIND = 5;
+
+    private static final int KICKER_BITS = HandEvaluator.STRENGTH_KICKER_BITS;
+    private static final int CATEGORY_SHIFT = HandEvaluator.STRENGTH_CATEGORY_SHIFT;
+
+    /**
+     * Ace-to-five low strengths of the five lowest ranks, indexed by rank mask in the rank ordinal order,
+     * {@link #NO_LOW} for the masks of less than five ranks.
+     */
+    private static final int[] ACE_TO_FIVE_LOWS = new int[1 << RANKS];
+
+    /**
+     * Deuce-to-seven low strengths of five distinct ranks, indexed by rating mask (ACE is the highest bit),
+     * the second half of the table is for the flushes.
+     */
+    private static final int[] DEUCE_TO_SEVEN_LOWS = new int[2 << RANKS];
+
+    static {
+        for (int mask = 0; mask < ACE_TO_FIVE_LOWS.length; ++mask) {
+            if (Integer.bitCount(mask) >= LOW_HAND_SIZE) {
+                ACE_TO_FIVE_LOWS[mask] = aceToFiveStrength(NO_PAIR, 0, lowestBits(mask, LOW_HAND_SIZE));
+            }
+        }
+
+        for (int mask = 0; mask < (1 << RANKS); ++mask) {
+            if (Integer.bitCount(mask) == LOW_HAND_SIZE) {
+                DEUCE_TO_SEVEN_LOWS[mask] = LOW_STRENGTH_LIMIT - deuceToSevenValue(mask, false);
+                DEUCE_TO_SEVEN_LOWS[(1 << RANKS) | mask] = LOW_STRENGTH_LIMIT - deuceToSevenValue(mask, true);
+            }
+        }
+    }
+
+    /**
+     * Finds the best ace-to-five low hand of five cards, pairs are allowed (e.g. in razz).
+     *
+     * @param cardMask Card mask, see {@link CardMask}.
+     * @return Low strength or {@link #NO_LOW} if there are less than five cards.
+     */
+    public static int getAceToFiveLow(long cardMask) {
+        final int a = (int) cardMask & ALL_RANKS_MASK;
+        final int b = (int) (cardMask >>> RANKS) & ALL_RANKS_MASK;
+        final int c = (int) (cardMask >>> (2 * RANKS)) & ALL_RANKS_MASK;
+        final int d = (int) (cardMask >>> (3 * RANKS)) & ALL_RANKS_MASK;
+        final int rankMask = a | b | c | d;
+        final int low = ACE_TO_FIVE_LOWS[rankMask];
+        if (low != NO_LOW || Long.bitCount(cardMask) < LOW_HAND_SIZE) {
+            return low;
+        }
+
+        final int pairMask = (a & (b | c | d)) | (b & (c | d)) | (c & d);
+        final int tripsMask = (a & b & (c | d)) | (c & d & (a | b));
+        return pairedAceToFiveLow(rankMask, pairMask, tripsMask);
+    }
+
+    public static int getAceToFiveLow(int[] codes) {
+        return getAceToFiveLow(CardMask.maskOf(codes));
+    }
+
+    /**
+     * Finds the best ace-to-five low hand of five distinct ranks from ACE to EIGHT, e.g. for the low half of
+     * the Hi/Lo split pot.
+     *
+     * @param cardMask Card mask, see {@link CardMask}.
+     * @return Low strength or {@link #NO_LOW} if the cards do not qualify.
+     */
+    public static int getEightOrBetterLow(long cardMask) {
+        return eightOrBetterLow(ordinalRankMask(cardMask));
+    }
+
+    public static int getEightOrBetterLow(int[] codes) {
+        return getEightOrBetterLow(CardMask.maskOf(codes));
+    }
+
+    /**
+     * Finds the deuce-to-seven low strength of five cards.
+     *
+     * @param cardMask Card mask of exactly five cards, see {@link CardMask}.
+     * @return Low strength, never {@link #NO_LOW}.
+     */
+    public static int getDeuceToSevenLow(long cardMask) {
+        if (Long.bitCount(cardMask) != LOW_HAND_SIZE) {
+            throw new IllegalArgumentException("Expected " + LOW_HAND_SIZE + " cards, got " +
+                    Long.bitCount(cardMask));
+        }
+
+        final HandSummary summary = HandSummary.of(cardMask);
+        if (Integer.bitCount(summary.rankMask) < LOW_HAND_SIZE) {
+            // paired hands make neither straight nor flush, so the value is the high hand strength
+            return LOW_STRENGTH_LIMIT - HandEvaluator.strengthOf(summary);
+        }
+
+        int flush = 0;
+        for (final int suitMask : summary.suitMasks) {
+            if (suitMask == summary.rankMask) {
+                flush = 1 << RANKS;
+            }
+        }
+        return DEUCE_TO_SEVEN_LOWS[flush | summary.rankMask];
+    }
+
+    public static int getDeuceToSevenLow(int[] codes) {
+        return getDeuceToSevenLow(CardMask.maskOf(codes));
+    }
+
+    /**
+     * Finds both the high hand strength and the eight-or-better low strength of the cards, summarizing the cards
+     * only once.
+     *
+     * @param cardMask Card mask, see {@link CardMask}.
+     * @return Packed high and low strengths, see {@link #getHigh(long)} and {@link #getLow(long)}.
+     */
+    public static long getHiLo(long cardMask) {
+        final HandSummary summary = HandSummary.of(cardMask);
+        // rating mask is rotated back to the rank ordinal order, ACE to the lowest bit
+        final int ordinalMask = ((summary.rankMask << 1) | (summary.rankMask >>> HandSummary.ACE_INDEX)) &
+                ALL_RANKS_MASK;
+        return hiLo(HandEvaluator.strengthOf(summary), eightOrBetterLow(ordinalMask));
+    }
+
+    public static long getHiLo(int[] codes) {
+        return getHiLo(CardMask.maskOf(codes));
+    }
+
+    /**
+     * @param hiLo Packed high and low strengths.
+     * @return High hand strength, see {@link HandEvaluator#getStrength(long)}.
+     */
+    public static int getHigh(long hiLo) {
+        return (int) (hiLo >>> Integer.SIZE);
+    }
+
+    /**
+     * @param hiLo Packed high and low strengths.
+     * @return Low strength, {@link #NO_LOW} if there is no qualifying low.
+     */
+    public static int getLow(long hiLo) {
+        return (int) hiLo;
+    }
+
+    static long hiLo(int high, int low) {
+        return ((long) high << Integer.SIZE) | (low & 0xFFFFFFFFL);
+    }
+
+    /**
+     * @param ordinalMask Rank mask in the rank ordinal order, only the ranks from ACE to EIGHT are taken.
+     * @return Eight-or-better low strength.
+     */
+    static int eightOrBetterLow(int ordinalMask) {
+        return ACE_TO_FIVE_LOWS[ordinalMask & EIGHT_OR_BETTER_MASK];
+    }
+
+    private static int ordinalRankMask(long cardMask) {
+        return (int) (cardMask | (cardMask >>> RANKS) | (cardMask >>> (2 * RANKS)) | (cardMask >>> (3 * RANKS))) &
+                ALL_RANKS_MASK;
+    }
+
+    /**
+     * Picks the best low hand of the cards that have less than five distinct ranks, but at least five cards.
+     * All the masks are in the rank ordinal order.
+     */
+    private static int pairedAceToFiveLow(int rankMask, int pairMask, int tripsMask) {
+        switch (Integer.bitCount(rankMask)) {
+            case 4:
+                final int pair = Integer.lowestOneBit(pairMask);
+                return aceToFiveStrength(ONE_PAIR, kickersOf(0, pair), rankMask & ~pair);
+
+            case 3:
+                if (Integer.bitCount(pairMask) >= 2) {
+                    final int pairs = lowestBits(pairMask, 2);
+                    return aceToFiveStrength(TWO_PAIRS, kickersOf(0, pairs), rankMask & ~pairs);
+                }
+                final int trips = Integer.lowestOneBit(tripsMask);
+                return aceToFiveStrength(THREE_OF_A_KIND, kickersOf(0, trips), rankMask & ~trips);
+
+            default:
+                // two ranks: the full house with the lowest possible trips, otherwise four of a kind and a kicker
+                final int low = Integer.lowestOneBit(rankMask);
+                final int high = rankMask & ~low;
+                if ((tripsMask & low) != 0 && (pairMask & high) != 0) {
+                    return aceToFiveStrength(FULL_HOUSE, kickersOf(0, low), high);
+                }
+                if ((tripsMask & high) != 0 && (pairMask & low) != 0) {
+                    return aceToFiveStrength(FULL_HOUSE, kickersOf(0, high), low);
+                }
+                final int quads = (tripsMask & low) != 0 ? low : high;
+                return aceToFiveStrength(FOUR_OF_A_KIND, kickersOf(0, quads), rankMask & ~quads);
+        }
+    }
+
+    /**
+     * @param category Category of the low value, the lower the better.
+     * @param kickers  Kickers of the combination.
+     * @param mask     Rank mask of the remaining cards in the rank ordinal order.
+     * @return Low strength.
+     */
+    private static int aceToFiveStrength(int category, int kickers, int mask) {
+        kickers = kickersOf(kickers, mask);
+        // kickers are aligned to the most significant group, like in the high hand strength
+        while (kickers != 0 && (kickers >>> (CATEGORY_SHIFT - KICKER_BITS)) == 0) {
+            kickers <<= KICKER_BITS;
+        }
+        return LOW_STRENGTH_LIMIT - ((category << CATEGORY_SHIFT) | kickers);
+    }
+
+    /**
+     * Appends the ranks of the given mask to the kickers, the highest one first.
+     * ACE is the lowest kicker with the value of one.
+     */
+    private static int kickersOf(int kickers, int mask) {
+        while (mask != 0) {
+            final int flag = Integer.highestOneBit(mask);
+            kickers = (kickers << KICKER_BITS) | (Integer.numberOfTrailingZeros(flag) + 1);
+            mask &= ~flag;
+        }
+        return kickers;
+    }
+
+    private static int lowestBits(int mask, int count) {
+        int result = 0;
+        for (int i = 0; i < count && mask != 0; ++i) {
+            final int flag = Integer.lowestOneBit(mask);
+            result |= flag;
+            mask &= ~flag;
+        }
+        return result;
+    }
+
+    /**
+     * @param ratingMask Five distinct ranks, TWO is the lowest bit and ACE is the highest one.
+     * @param flush      Whether the cards are suited.
+     * @return Deuce-to-seven value: the high hand strength with the ace-to-five straight counted as the ace high.
+     */
+    private static int deuceToSevenValue(int ratingMask, boolean flush) {
+        if (HandSummary.straightTop(ratingMask) == HandSummary.WHEEL_TOP) {
+            final HandRank rank = flush ? HandRank.FLUSH : HandRank.HIGH_CARD;
+            return (HandEvaluator.categoryOf(rank) << CATEGORY_SHIFT) | HandEvaluator.highestKickers(ratingMask);
+        }
+
+        final Suit[] suits = Suit.values();
+        long cardMask = 0;
+        int i = 0;
+        for (int index = 0; index < RANKS; ++index) {
+            if ((ratingMask & (1 << index)) != 0) {
+                final Suit suit = flush ? Suit.SPADES : suits[i++ % suits.length];
+                cardMask |= CardMask.maskOf(DefaultCard.valueOf(suit, HandSummary.rankOf(index)).getCode());
+            }
+        }
+        return HandEvaluator.getStrength(cardMask);
+    }
+}
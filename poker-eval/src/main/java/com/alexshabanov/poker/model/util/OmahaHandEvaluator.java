@@ -0,0 +1,356 @@
+/*
+ * Copyright 2012 Alexander Shabanov - http://alexshabanov.com.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alexshabanov.poker.model.util;
+
+import com.alexshabanov.cards.model.Card;
+import com.alexshabanov.cards.model.CardMask;
+import com.alexshabanov.cards.model.DefaultCard;
+import com.alexshabanov.cards.model.Rank;
+import com.alexshabanov.cards.model.Suit;
+import com.alexshabanov.cards.util.EncodeUtil;
+
+import java.util.List;
+
+/**
+ * Omaha high hand evaluator: the hand is made of exactly two of the hole cards and exactly three of the board cards.
+ * <p>
+ * Like {@link BoardContext}, the instance is made for the board: each three-card subset of the board is summarized
+ * once into the index of its rank multiset and its suit (if all three cards are suited).
+ * Each pair of the hole cards is then checked against the board subsets by a single lookup in the rank table,
+ * indexed by the rank multisets of the pair and the board subset, or in the flush table for the suited pair
+ * and the board subset of the same suit, so no five-card hand is evaluated.
+ * Four, five and six hole cards (Omaha, 5-card and 6-card Omaha) are supported,
+ * the board might have three to five cards.
+ * </p>
+ * <p>
+ * Results are the strengths, identical to {@link HandEvaluator#getStrength(int[])} of the best of the five-card hands.
+ * Omaha Hi/Lo is supported by {@link #getHiLo(int[])}, that finds the eight-or-better low hand along with
+ * the high one.
+ * Instances are immutable and might be shared between threads.
+ * </p>
+ */
+public final class OmahaHandEvaluator {
+
+    /**
+     * Count of the hole cards used in the hand.
+     */
+    public static final int HOLE_HAND_SIZE = 2;
+
+    /**
+     * Count of the board cards used in the hand.
+     */
+    public static final int BOARD_HAND_SIZE = 3;
+
+    public static final int MIN_HOLE_CARDS = 4;
+    public static final int MAX_HOLE_CARDS = 6;
+    public static final int MIN_BOARD_CARDS = 3;
+    public static final int MAX_BOARD_CARDS = 5;
+
+    private static final int RANKS = Rank.values().length;
+    private static final int MAX_RANK_COUNT = Suit.values().length;
+
+    /**
+     * Count of the rank multisets of two and three cards.
+     */
+    private static final int PAIR_CLASSES = RANKS * (RANKS + 1) / 2;
+    private static final int TRIPLE_CLASSES = RANKS * (RANKS + 1) * (RANKS + 2) / 6;
+
+    /**
+     * Rating index (TWO is zero, ACE is twelve), suit ordinal and rating flag, indexed by card code.
+     */
+    private static final int[] CARD_RATING_INDEXES = new int[DefaultCard.MAX_CARD_CODE];
+    private static final int[] CARD_SUITS = new int[DefaultCard.MAX_CARD_CODE];
+    private static final int[] CARD_RATING_FLAGS = new int[DefaultCard.MAX_CARD_CODE];
+
+    /**
+     * Rank flags in the rank ordinal order (ACE is the lowest bit) of the cards from ACE to EIGHT, zero for
+     * the other cards, indexed by card code.
+     */
+    private static final int[] CARD_LOW_FLAGS = new int[DefaultCard.MAX_CARD_CODE];
+
+    /**
+     * Strengths of the hands that do not form a flush, indexed by {@code tripleClass * PAIR_CLASSES + pairClass}.
+     */
+    private static final int[] RANK_STRENGTHS = new int[TRIPLE_CLASSES * PAIR_CLASSES];
+
+    /**
+     * Strengths of the flushes and straight flushes, indexed by 13-bit rating mask of the five cards.
+     */
+    private static final int[] FLUSH_STRENGTHS = new int[1 << RANKS];
+
+    static {
+        for (int code = 0; code < DefaultCard.MAX_CARD_CODE; ++code) {
+            final Card card = DefaultCard.valueOf(code);
+            CARD_RATING_INDEXES[code] = HandSummary.ratingIndex(card.getRank());
+            CARD_SUITS[code] = card.getSuit().ordinal();
+            CARD_RATING_FLAGS[code] = HandSummary.ratingFlag(card.getRank());
+            CARD_LOW_FLAGS[code] = (1 << card.getRank().ordinal()) & LowHandEvaluator.EIGHT_OR_BETTER_MASK;
+        }
+
+        final int[] ranks = new int[HOLE_HAND_SIZE + BOARD_HAND_SIZE];
+        for (int t2 = 0; t2 < RANKS; ++t2) {
+            for (int t1 = 0; t1 <= t2; ++t1) {
+                for (int t0 = 0; t0 <= t1; ++t0) {
+                    for (int p1 = 0; p1 < RANKS; ++p1) {
+                        for (int p0 = 0; p0 <= p1; ++p0) {
+                            ranks[0] = t0;
+                            ranks[1] = t1;
+                            ranks[2] = t2;
+                            ranks[3] = p0;
+                            ranks[4] = p1;
+                            RANK_STRENGTHS[tripleClassOf(t0, t1, t2) * PAIR_CLASSES + pairClassOf(p0, p1)] =
+                                    rankStrengthOf(ranks);
+                        }
+                    }
+                }
+            }
+        }
+
+        for (int mask = 0; mask < FLUSH_STRENGTHS.length; ++mask) {
+            if (Integer.bitCount(mask) == HOLE_HAND_SIZE + BOARD_HAND_SIZE) {
+                FLUSH_STRENGTHS[mask] = HandEvaluator.getStrength(suitedMaskOf(mask));
+            }
+        }
+    }
+
+    private final int[] boardCodes;
+
+    /**
+     * Rank table offset, suit ordinal (-1 if the cards are not suited), rating mask and low rank mask
+     * (-1 if the cards do not make three distinct ranks from ACE to EIGHT) of each three-card subset of the board.
+     */
+    private final int[] tripleOffsets;
+    private final int[] tripleSuits;
+    private final int[] tripleFlags;
+    private final int[] tripleLows;
+
+    public OmahaHandEvaluator(int[] boardCodes) {
+        if (boardCodes.length < MIN_BOARD_CARDS || boardCodes.length > MAX_BOARD_CARDS) {
+            throw new IllegalArgumentException("Expected " + MIN_BOARD_CARDS + " to " + MAX_BOARD_CARDS +
+                    " board cards, got " + boardCodes.length);
+        }
+
+        this.boardCodes = boardCodes.clone();
+        final int tripleCount = (int) CombinationUtil.binomial(boardCodes.length, BOARD_HAND_SIZE);
+        this.tripleOffsets = new int[tripleCount];
+        this.tripleSuits = new int[tripleCount];
+        this.tripleFlags = new int[tripleCount];
+        this.tripleLows = new int[tripleCount];
+
+        int triple = 0;
+        for (int i = 0; i < boardCodes.length; ++i) {
+            for (int j = i + 1; j < boardCodes.length; ++j) {
+                for (int k = j + 1; k < boardCodes.length; ++k) {
+                    final int a = boardCodes[i];
+                    final int b = boardCodes[j];
+                    final int c = boardCodes[k];
+                    tripleOffsets[triple] = tripleClassOf(CARD_RATING_INDEXES[a], CARD_RATING_INDEXES[b],
+                            CARD_RATING_INDEXES[c]) * PAIR_CLASSES;
+                    tripleSuits[triple] = CARD_SUITS[a] == CARD_SUITS[b] && CARD_SUITS[b] == CARD_SUITS[c] ?
+                            CARD_SUITS[a] : -1;
+                    tripleFlags[triple] = CARD_RATING_FLAGS[a] | CARD_RATING_FLAGS[b] | CARD_RATING_FLAGS[c];
+                    tripleLows[triple] = lowMaskOf(CARD_LOW_FLAGS[a] | CARD_LOW_FLAGS[b] | CARD_LOW_FLAGS[c],
+                            BOARD_HAND_SIZE);
+                    ++triple;
+                }
+            }
+        }
+    }
+
+    public OmahaHandEvaluator(List<Card> boardCards) {
+        this(EncodeUtil.toCodeArray(boardCards));
+    }
+
+    /**
+     * @return Copy of the board card codes.
+     */
+    public int[] getBoardCodes() {
+        return boardCodes.clone();
+    }
+
+    /**
+     * Calculates the strength of the best hand made of two hole cards and three board cards.
+     *
+     * @param holeCodes Hole card codes, {@link #MIN_HOLE_CARDS} to {@link #MAX_HOLE_CARDS} cards.
+     * @return Hand strength, see {@link HandEvaluator#getStrength(List)}.
+     */
+    public int getStrength(int[] holeCodes) {
+        checkHoleCards(holeCodes);
+
+        final int[] offsets = tripleOffsets;
+        final int[] suits = tripleSuits;
+        final int[] flags = tripleFlags;
+        int best = 0;
+        for (int i = 0; i < holeCodes.length; ++i) {
+            for (int j = i + 1; j < holeCodes.length; ++j) {
+                final int a = holeCodes[i];
+                final int b = holeCodes[j];
+                final int pairClass = pairClassOf(CARD_RATING_INDEXES[a], CARD_RATING_INDEXES[b]);
+                final int suit = CARD_SUITS[a] == CARD_SUITS[b] ? CARD_SUITS[a] : -1;
+                final int pairFlags = CARD_RATING_FLAGS[a] | CARD_RATING_FLAGS[b];
+
+                for (int t = 0; t < offsets.length; ++t) {
+                    // five suited cards have distinct ranks, so the flush is never weaker than the rank value
+                    final int strength = suit >= 0 && suits[t] == suit ?
+                            FLUSH_STRENGTHS[pairFlags | flags[t]] : RANK_STRENGTHS[offsets[t] + pairClass];
+                    best = Math.max(best, strength);
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Finds both the high hand and the eight-or-better low hand in a single pass over the hole pairs and
+     * the board subsets, see {@link LowHandEvaluator#getHiLo(long)} for the result format.
+     * Both hands follow the two-plus-three rule independently.
+     *
+     * @param holeCodes Hole card codes, {@link #MIN_HOLE_CARDS} to {@link #MAX_HOLE_CARDS} cards.
+     * @return Packed high and low strengths, see {@link LowHandEvaluator#getHigh(long)} and
+     *         {@link LowHandEvaluator#getLow(long)}.
+     */
+    public long getHiLo(int[] holeCodes) {
+        checkHoleCards(holeCodes);
+
+        final int[] offsets = tripleOffsets;
+        final int[] suits = tripleSuits;
+        final int[] flags = tripleFlags;
+        final int[] lows = tripleLows;
+        int best = 0;
+        int bestLow = LowHandEvaluator.NO_LOW;
+        for (int i = 0; i < holeCodes.length; ++i) {
+            for (int j = i + 1; j < holeCodes.length; ++j) {
+                final int a = holeCodes[i];
+                final int b = holeCodes[j];
+                final int pairClass = pairClassOf(CARD_RATING_INDEXES[a], CARD_RATING_INDEXES[b]);
+                final int suit = CARD_SUITS[a] == CARD_SUITS[b] ? CARD_SUITS[a] : -1;
+                final int pairFlags = CARD_RATING_FLAGS[a] | CARD_RATING_FLAGS[b];
+                final int pairLow = lowMaskOf(CARD_LOW_FLAGS[a] | CARD_LOW_FLAGS[b], HOLE_HAND_SIZE);
+
+                for (int t = 0; t < offsets.length; ++t) {
+                    final int strength = suit >= 0 && suits[t] == suit ?
+                            FLUSH_STRENGTHS[pairFlags | flags[t]] : RANK_STRENGTHS[offsets[t] + pairClass];
+                    best = Math.max(best, strength);
+                }
+
+                if (pairLow < 0) {
+                    continue;
+                }
+                for (int t = 0; t < lows.length; ++t) {
+                    // board subset makes the low and has no common ranks with the pair
+                    if (lows[t] >= 0 && (pairLow & lows[t]) == 0) {
+                        bestLow = Math.max(bestLow, LowHandEvaluator.eightOrBetterLow(pairLow | lows[t]));
+                    }
+                }
+            }
+        }
+        return LowHandEvaluator.hiLo(best, bestLow);
+    }
+
+    public int getStrength(List<Card> holeCards) {
+        return getStrength(EncodeUtil.toCodeArray(holeCards));
+    }
+
+    /**
+     * @param holeCodes Hole card codes.
+     * @return Interned value of the best hand, see {@link #getStrength(int[])}.
+     */
+    public HandValue getValue(int[] holeCodes) {
+        return HandValue.valueOf(getStrength(holeCodes));
+    }
+
+    /**
+     * Evaluates the hand without keeping the board summary, see {@link #getStrength(int[])}.
+     *
+     * @param holeCodes  Hole card codes.
+     * @param boardCodes Board card codes.
+     * @return Hand strength.
+     */
+    public static int getStrength(int[] holeCodes, int[] boardCodes) {
+        return new OmahaHandEvaluator(boardCodes).getStrength(holeCodes);
+    }
+
+    private static void checkHoleCards(int[] holeCodes) {
+        if (holeCodes.length < MIN_HOLE_CARDS || holeCodes.length > MAX_HOLE_CARDS) {
+            throw new IllegalArgumentException("Expected " + MIN_HOLE_CARDS + " to " + MAX_HOLE_CARDS +
+                    " hole cards, got " + holeCodes.length);
+        }
+    }
+
+    /**
+     * @param mask  Low flags of the cards.
+     * @param count Count of the cards.
+     * @return Given mask if the cards have distinct low ranks, -1 otherwise.
+     */
+    private static int lowMaskOf(int mask, int count) {
+        return Integer.bitCount(mask) == count ? mask : -1;
+    }
+
+    /**
+     * @return Dense index of the rank multiset of two cards, ranks are given by rating indexes.
+     */
+    private static int pairClassOf(int r0, int r1) {
+        final int low = Math.min(r0, r1);
+        final int high = Math.max(r0, r1);
+        return high * (high + 1) / 2 + low;
+    }
+
+    /**
+     * @return Dense index of the rank multiset of three cards, ranks are given by rating indexes.
+     */
+    private static int tripleClassOf(int r0, int r1, int r2) {
+        final int low = Math.min(r0, Math.min(r1, r2));
+        final int high = Math.max(r0, Math.max(r1, r2));
+        final int middle = r0 + r1 + r2 - low - high;
+        return high * (high + 1) * (high + 2) / 6 + middle * (middle + 1) / 2 + low;
+    }
+
+    /**
+     * @param ranks Rating indexes of five cards.
+     * @return Strength of the cards of the given ranks that do not form a flush, zero if there are five cards
+     *         of the same rank.
+     */
+    private static int rankStrengthOf(int[] ranks) {
+        int rankMask = 0;
+        for (final int rank : ranks) {
+            rankMask |= 1 << rank;
+        }
+        final boolean distinct = Integer.bitCount(rankMask) == ranks.length;
+
+        // the cards of the same rank get the different suits, the cards of the distinct ranks take the suits in turn
+        final Suit[] suits = Suit.values();
+        final int[] rankCounts = new int[RANKS];
+        long mask = 0;
+        for (int i = 0; i < ranks.length; ++i) {
+            final int count = rankCounts[ranks[i]]++;
+            if (count == MAX_RANK_COUNT) {
+                return 0;
+            }
+            final Suit suit = suits[distinct ? i % MAX_RANK_COUNT : count];
+            mask |= CardMask.maskOf(DefaultCard.valueOf(suit, HandSummary.rankOf(ranks[i])).getCode());
+        }
+        return HandEvaluator.getStrength(mask);
+    }
+
+    private static long suitedMaskOf(int ratingMask) {
+        long mask = 0;
+        for (int index = 0; index < RANKS; ++index) {
+            if ((ratingMask & (1 << index)) != 0) {
+                mask |= CardMask.maskOf(DefaultCard.valueOf(Suit.SPADES, HandSummary.rankOf(index)).getCode());
+            }
+        }
+        return mask;
+    }
+}
@@ -0,0 +1,263 @@
+/*
+ * Copyright 2012 Alexander Shabanov - http://alexshabanov.com.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alexshabanov.poker.model.util;
+
+import com.alexshabanov.cards.model.DefaultCard;
+import com.alexshabanov.poker.model.HandRange;
+
+import java.util.SplittableRandom;
+
+/**
+ * Draws the non-conflicting hole-card combos of several players from their weighted ranges.
+ * <p>
+ * Combos are drawn player by player, each from its range without the combos that share cards with the preceding
+ * players' ones. The players with the fewer combos are drawn first, as they are the most likely to be blocked.
+ * Each range has the alias table of its live combos, so a draw takes constant time, a drawn combo
+ * that hits the dealt cards is redrawn for this player only rather than the whole deal. Once the dealt cards block
+ * most of the range weight, the combo is picked by the linear scan of the range instead.
+ * </p>
+ * <p>
+ * The weight that remains live is found incrementally from the weights of the range summed per card:
+ * the weights of the dealt cards are subtracted and the weights of the combos made of two dealt cards are added back.
+ * Drawing player by player favors the combos that leave more room for the following players, so each deal is
+ * returned with its importance weight, the product of the shares of the range weights that remain live.
+ * Outcomes weighted with it give the unbiased estimates for the joint distribution of the combos,
+ * see {@link com.alexshabanov.poker.model.EquityResult}.
+ * </p>
+ * <p>
+ * Instances are immutable and might be shared by any count of threads, {@link #sample(SplittableRandom, long[])}
+ * allocates nothing.
+ * </p>
+ */
+public final class RangeSampler {
+
+    /**
+     * Alias draws are rejected while the live share of the range weight is at least this one, so that
+     * the expected count of draws is at most its reciprocal.
+     */
+    private static final double MIN_ALIAS_SHARE = 0.25;
+
+    /**
+     * Live weight, that is less than this share of the range weight, is the rounding error of the empty range.
+     */
+    private static final double ROUNDING_SHARE = 1e-12;
+
+    private final long[][] comboMasks;
+    private final double[][] comboWeights;
+    private final double[][] probabilities;
+    private final int[][] aliases;
+
+    /**
+     * Weights of the ranges: indexed by combo index, summed per card and total.
+     */
+    private final double[][] denseWeights;
+    private final double[][] cardWeights;
+    private final double[] totalWeights;
+
+    /**
+     * Players in the order their combos are drawn.
+     */
+    private final int[] order;
+
+    /**
+     * @param ranges   Ranges of the players.
+     * @param deadMask Cards that are known to be out of the ranges, e.g. the board and the dead cards.
+     * @throws IllegalArgumentException If any range has no combos without the dead cards.
+     */
+    public RangeSampler(HandRange[] ranges, long deadMask) {
+        final int playerCount = ranges.length;
+        this.comboMasks = new long[playerCount][];
+        this.comboWeights = new double[playerCount][];
+        this.probabilities = new double[playerCount][];
+        this.aliases = new int[playerCount][];
+        this.denseWeights = new double[playerCount][];
+        this.cardWeights = new double[playerCount][DefaultCard.MAX_CARD_CODE];
+        this.totalWeights = new double[playerCount];
+
+        for (int player = 0; player < playerCount; ++player) {
+            final HandRange live = new HandRange(ranges[player]).removeBlocked(deadMask);
+            final int count = live.getComboCount();
+            if (count == 0) {
+                throw new IllegalArgumentException("Range #" + player + " has no combos without the dead cards");
+            }
+
+            final long[] masks = new long[count];
+            final double[] weights = new double[count];
+            final double[] dense = new double[HandRange.COMBO_COUNT];
+            double total = 0.0;
+            for (int index = 0, i = 0; index < HandRange.COMBO_COUNT; ++index) {
+                final double weight = live.getWeight(index);
+                if (weight == 0.0) {
+                    continue;
+                }
+
+                masks[i] = HandRange.comboMask(index);
+                weights[i++] = weight;
+                dense[index] = weight;
+                for (long m = HandRange.comboMask(index); m != 0; m &= m - 1) {
+                    cardWeights[player][Long.numberOfTrailingZeros(m)] += weight;
+                }
+                total += weight;
+            }
+
+            comboMasks[player] = masks;
+            comboWeights[player] = weights;
+            denseWeights[player] = dense;
+            totalWeights[player] = total;
+            probabilities[player] = new double[count];
+            aliases[player] = new int[count];
+            buildAliasTable(weights, total, probabilities[player], aliases[player]);
+        }
+
+        // insertion sort by the count of the combos keeps the order of the equal ranges
+        this.order = new int[playerCount];
+        for (int player = 0; player < playerCount; ++player) {
+            int i = player;
+            for (; i > 0 && comboMasks[order[i - 1]].length > comboMasks[player].length; --i) {
+                order[i] = order[i - 1];
+            }
+            order[i] = player;
+        }
+    }
+
+    public int getPlayerCount() {
+        return comboMasks.length;
+    }
+
+    /**
+     * Draws the combos of all the players.
+     *
+     * @param random     Source of randomness.
+     * @param holeMasks  Target card masks of the combos, indexed by player.
+     * @return Importance weight of the deal, in (0, 1], or zero if the players drawn before block the whole range
+     * of some player, then not all the combos are written.
+     */
+    public double sample(SplittableRandom random, long[] holeMasks) {
+        long dealtMask = 0;
+        double weight = 1.0;
+        for (final int player : order) {
+            final double total = totalWeights[player];
+            final double liveWeight = liveWeight(player, dealtMask);
+            if (liveWeight <= total * ROUNDING_SHARE) {
+                return 0.0;
+            }
+
+            long comboMask;
+            if (liveWeight >= total * MIN_ALIAS_SHARE) {
+                do {
+                    comboMask = drawAlias(player, random);
+                } while ((comboMask & dealtMask) != 0);
+            } else {
+                comboMask = drawLive(player, random, dealtMask, liveWeight);
+                if (comboMask == 0) {
+                    return 0.0;
+                }
+            }
+
+            holeMasks[player] = comboMask;
+            dealtMask |= comboMask;
+            weight *= liveWeight / total;
+        }
+        return weight;
+    }
+
+    /**
+     * @return Weight of the combos of the given player, that share no cards with the given mask.
+     */
+    private double liveWeight(int player, long dealtMask) {
+        final double[] cards = cardWeights[player];
+        final double[] dense = denseWeights[player];
+        double weight = totalWeights[player];
+        for (long m = dealtMask; m != 0; m &= m - 1) {
+            final int low = Long.numberOfTrailingZeros(m);
+            weight -= cards[low];
+            // the combos of two dealt cards are subtracted twice
+            for (long n = m & (m - 1); n != 0; n &= n - 1) {
+                weight += dense[HandRange.comboIndex(low, Long.numberOfTrailingZeros(n))];
+            }
+        }
+        return weight;
+    }
+
+    private long drawAlias(int player, SplittableRandom random) {
+        final int i = random.nextInt(comboMasks[player].length);
+        return random.nextDouble() < probabilities[player][i] ? comboMasks[player][i] :
+                comboMasks[player][aliases[player][i]];
+    }
+
+    /**
+     * Picks the live combo in proportion to its weight by the linear scan of the range.
+     *
+     * @return Combo mask or zero if there are no live combos.
+     */
+    private long drawLive(int player, SplittableRandom random, long dealtMask, double liveWeight) {
+        final long[] masks = comboMasks[player];
+        final double[] weights = comboWeights[player];
+        double threshold = random.nextDouble() * liveWeight;
+        long lastMask = 0;
+        for (int i = 0; i < masks.length; ++i) {
+            if ((masks[i] & dealtMask) == 0) {
+                lastMask = masks[i];
+                threshold -= weights[i];
+                if (threshold < 0.0) {
+                    return lastMask;
+                }
+            }
+        }
+        // rounding error, the last live combo covers it
+        return lastMask;
+    }
+
+    /**
+     * Builds the alias table by Vose's method: each column holds the probability of its own combo and the alias
+     * combo, that takes the rest of the column.
+     */
+    private static void buildAliasTable(double[] weights, double total, double[] probabilities, int[] aliases) {
+        final int count = weights.length;
+        final int[] small = new int[count];
+        final int[] large = new int[count];
+        int smallCount = 0;
+        int largeCount = 0;
+        for (int i = 0; i < count; ++i) {
+            probabilities[i] = weights[i] * count / total;
+            aliases[i] = i;
+            if (probabilities[i] < 1.0) {
+                small[smallCount++] = i;
+            } else {
+                large[largeCount++] = i;
+            }
+        }
+
+        while (smallCount > 0 && largeCount > 0) {
+            final int less = small[--smallCount];
+            final int more = large[--largeCount];
+            aliases[less] = more;
+            probabilities[more] -= 1.0 - probabilities[less];
+            if (probabilities[more] < 1.0) {
+                small[smallCount++] = more;
+            } else {
+                large[largeCount++] = more;
+            }
+        }
+
+        // the columns left are full up to the rounding error
+        while (largeCount > 0) {
+            probabilities[large[--largeCount]] = 1.0;
+        }
+        while (smallCount > 0) {
+            probabilities[small[--smallCount]] = 1.0;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2012 Alexander Shabanov - http://alexshabanov.com.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alexshabanov.poker.model.util;
+
+/**
+ * Evaluates the hands one by one, see {@link HandSummary#reset(long)}.
+ */
+final class ScalarStrengthKernel implements StrengthKernel {
+
+    @Override
+    public int getLaneCount() {
+        return 1;
+    }
+
+    @Override
+    public void evaluate(long[] cardMasks, int[] strengths, int fromIndex, int toIndex) {
+        final HandSummary summary = new HandSummary();
+        for (int i = fromIndex; i < toIndex; ++i) {
+            summary.reset(cardMasks[i]);
+            strengths[i] = HandEvaluator.strengthOf(summary);
+        }
+    }
+}
@@ -0,0 +1,338 @@
+/*
+ * Copyright 2012 Alexander Shabanov - http://alexshabanov.com.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alexshabanov.poker.model.util;
+
+import com.alexshabanov.cards.model.DefaultCard;
+import com.alexshabanov.cards.model.Rank;
+import com.alexshabanov.cards.model.Suit;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Incremental 7-card hand evaluator, that walks the precomputed state graph one card at a time.
+ * <p>
+ * Each state is a row of {@link DefaultCard#MAX_CARD_CODE} transitions, indexed by card code, so that adding a card
+ * is a single table access: {@code state = next(state, cardCode)}.
+ * Adding the seventh card yields the packed hand value in the {@link LookupHandEvaluator} format instead of the state.
+ * The state only knows the ranks of the cards and the ranks of the suits that still might form a flush,
+ * that is why the state reached after the player's cards and the flop can be reused for every turn and river card.
+ * </p>
+ * <p>
+ * The table is generated once by {@link #generate(File)} and then mapped into memory by {@link #map(File)},
+ * so it is not copied onto the heap and is shared by all the processes that map the same file.
+ * </p>
+ */
+public final class StateMachineHandEvaluator {
+
+    /**
+     * The state that corresponds to no cards.
+     */
+    public static final int INITIAL_STATE = 0;
+
+    /**
+     * Marks transition that can not happen, e.g. adding the card that is already in the state.
+     * Note, that duplicates are detected only for the cards of the suits that still might form a flush.
+     */
+    public static final int INVALID_STATE = -1;
+
+    /**
+     * Count of cards, after which the state machine yields the hand value.
+     */
+    public static final int HAND_SIZE = LookupHandEvaluator.HAND_SIZE;
+
+    private static final int MAGIC = 0x47534b50; // "PKSG"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    private static final int TRANSITIONS = DefaultCard.MAX_CARD_CODE;
+    private static final int RANKS = Rank.values().length;
+    private static final int SUITS = Suit.values().length;
+    private static final long SUIT_MASK = (1L << RANKS) - 1;
+    private static final int COUNT_BITS = 3;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+    private static final int FLUSH_HAND_SIZE = HandEvaluator.FLUSH_HAND_SIZE;
+
+    private final IntBuffer table;
+    private final int stateCount;
+
+    private StateMachineHandEvaluator(IntBuffer table, int stateCount) {
+        this.table = table;
+        this.stateCount = stateCount;
+    }
+
+    /**
+     * @return Count of states in the graph.
+     */
+    public int getStateCount() {
+        return stateCount;
+    }
+
+    /**
+     * Adds the card to the given state.
+     *
+     * @param state     State, {@link #INITIAL_STATE} or the one returned by the previous call.
+     * @param cardCode  Code of the added card.
+     * @return New state or, if this is the seventh card, the packed hand value. Note, that high card value has no
+     *         rating, since the state does not know the player's cards, see
+     *         {@link LookupHandEvaluator#withPlayerCards(int, int, int)}.
+     */
+    public int next(int state, int cardCode) {
+        return table.get(state + cardCode);
+    }
+
+    /**
+     * Evaluates the best hand for the seven given cards.
+     * First two cards are considered to be the player's cards.
+     *
+     * @param c0 Card code.
+     * @param c1 Card code.
+     * @param c2 Card code.
+     * @param c3 Card code.
+     * @param c4 Card code.
+     * @param c5 Card code.
+     * @param c6 Card code.
+     * @return Packed hand value, same as {@link LookupHandEvaluator#evaluate(int, int, int, int, int, int, int)}.
+     */
+    public int evaluate(int c0, int c1, int c2, int c3, int c4, int c5, int c6) {
+        final IntBuffer t = table;
+        final int value = t.get(t.get(t.get(t.get(t.get(t.get(t.get(INITIAL_STATE + c0) + c1) + c2) + c3) + c4) +
+                c5) + c6);
+        return LookupHandEvaluator.withPlayerCards(value, c0, c1);
+    }
+
+    /**
+     * Maps the table, previously generated by {@link #generate(File)}, into memory.
+     *
+     * @param file Table file.
+     * @return Evaluator instance, backed by the mapped table.
+     * @throws IOException On I/O error or if the given file does not contain the valid table.
+     */
+    public static StateMachineHandEvaluator map(File file) throws IOException {
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            final FileChannel channel = randomAccessFile.getChannel();
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(BYTE_ORDER);
+
+            if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+                throw new IOException("File " + file + " does not contain the hand evaluator state table");
+            }
+
+            final int version = buffer.getInt(4);
+            if (version != VERSION) {
+                throw new IOException("Unsupported state table version " + version + ", expected " + VERSION);
+            }
+
+            final int stateCount = buffer.getInt(8);
+            buffer.position(HEADER_SIZE);
+            final IntBuffer table = buffer.slice().order(BYTE_ORDER).asIntBuffer();
+            if (table.capacity() != (long) stateCount * TRANSITIONS) {
+                throw new IOException("State table in " + file + " is truncated");
+            }
+
+            return new StateMachineHandEvaluator(table, stateCount);
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    /**
+     * Generates the state table and writes it to the given file.
+     * The table takes about 128 megabytes.
+     *
+     * @param file Target file, overwritten if exists.
+     * @throws IOException On I/O error.
+     */
+    public static void generate(File file) throws IOException {
+        final Generator generator = new Generator();
+        generator.discoverStates();
+
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            final long size = HEADER_SIZE + (long) generator.stateCount * TRANSITIONS * 4;
+            randomAccessFile.setLength(size);
+
+            final FileChannel channel = randomAccessFile.getChannel();
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.order(BYTE_ORDER);
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(8, generator.stateCount);
+            buffer.putInt(12, 0); // reserved
+
+            buffer.position(HEADER_SIZE);
+            generator.writeTransitions(buffer.slice().order(BYTE_ORDER).asIntBuffer());
+            buffer.force();
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    /**
+     * Key of the state: ranks of the cards seen and the cards of the suits that still might form a flush.
+     */
+    private static final class StateKey {
+        final long flushCards;
+        final long rankCounts;
+
+        StateKey(long flushCards, long rankCounts) {
+            this.flushCards = flushCards;
+            this.rankCounts = rankCounts;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            final StateKey other = (StateKey) o;
+            return flushCards == other.flushCards && rankCounts == other.rankCounts;
+        }
+
+        @Override
+        public int hashCode() {
+            final long h = flushCards * 31 + rankCounts * 0x9e3779b97f4a7c15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+
+    /**
+     * Builds the state graph in the breadth-first order, so that each state is reachable only from the states
+     * with the fewer count of cards.
+     */
+    private static final class Generator {
+        final Map<StateKey, Integer> stateIndexes = new HashMap<StateKey, Integer>();
+        final long[] next = new long[2];
+        long[] flushCards = new long[1 << 16];
+        long[] rankCounts = new long[1 << 16];
+        int[] cardCounts = new int[1 << 16];
+        int stateCount;
+
+        void discoverStates() {
+            addState(new StateKey(0L, 0L), 0);
+
+            for (int i = 0; i < stateCount; ++i) {
+                final int cardsSeen = cardCounts[i];
+                if (cardsSeen == HAND_SIZE - 1) {
+                    continue; // the next card yields the hand value
+                }
+
+                for (int code = 0; code < TRANSITIONS; ++code) {
+                    if (!step(flushCards[i], rankCounts[i], cardsSeen, code, next)) {
+                        continue;
+                    }
+
+                    final StateKey key = new StateKey(next[0], next[1]);
+                    if (!stateIndexes.containsKey(key)) {
+                        addState(key, cardsSeen + 1);
+                    }
+                }
+            }
+        }
+
+        void writeTransitions(IntBuffer table) {
+            for (int i = 0; i < stateCount; ++i) {
+                final int cardsSeen = cardCounts[i];
+                for (int code = 0; code < TRANSITIONS; ++code) {
+                    final int transition;
+                    if (!step(flushCards[i], rankCounts[i], cardsSeen, code, next)) {
+                        transition = INVALID_STATE;
+                    } else if (cardsSeen == HAND_SIZE - 1) {
+                        transition = handValue(next[0], next[1]);
+                    } else {
+                        transition = stateIndexes.get(new StateKey(next[0], next[1])) * TRANSITIONS;
+                    }
+
+                    table.put(i * TRANSITIONS + code, transition);
+                }
+            }
+        }
+
+        private void addState(StateKey key, int cardsSeen) {
+            if (stateCount == flushCards.length) {
+                final int newLength = stateCount * 2;
+                flushCards = copyOf(flushCards, newLength);
+                rankCounts = copyOf(rankCounts, newLength);
+                final int[] newCardCounts = new int[newLength];
+                System.arraycopy(cardCounts, 0, newCardCounts, 0, stateCount);
+                cardCounts = newCardCounts;
+            }
+
+            flushCards[stateCount] = key.flushCards;
+            rankCounts[stateCount] = key.rankCounts;
+            cardCounts[stateCount] = cardsSeen;
+            stateIndexes.put(key, stateCount);
+            ++stateCount;
+        }
+
+        private static long[] copyOf(long[] source, int newLength) {
+            final long[] result = new long[newLength];
+            System.arraycopy(source, 0, result, 0, source.length);
+            return result;
+        }
+
+        /**
+         * Computes the key of the state that follows the given one when the given card is added.
+         *
+         * @return False, if the transition is not possible.
+         */
+        private static boolean step(long flushCards, long rankCounts, int cardsSeen, int code, long[] next) {
+            final int suit = code / RANKS;
+            final int rankShift = (code - suit * RANKS) * COUNT_BITS;
+            final long cardBit = 1L << code;
+            if (((rankCounts >>> rankShift) & COUNT_MASK) == SUITS || (flushCards & cardBit) != 0) {
+                return false; // card has already been seen
+            }
+
+            long newFlushCards = flushCards | cardBit;
+            final int cardsLeft = HAND_SIZE - cardsSeen - 1;
+            for (int s = 0; s < SUITS; ++s) {
+                final long suitMask = SUIT_MASK << (s * RANKS);
+                if (Long.bitCount(newFlushCards & suitMask) + cardsLeft < FLUSH_HAND_SIZE) {
+                    newFlushCards &= ~suitMask; // this suit can no longer form a flush
+                }
+            }
+
+            next[0] = newFlushCards;
+            next[1] = rankCounts + (1L << rankShift);
+            return true;
+        }
+
+        private static int handValue(long flushCards, long rankCounts) {
+            for (int s = 0; s < SUITS; ++s) {
+                final int ordinalMask = (int) ((flushCards >>> (s * RANKS)) & SUIT_MASK);
+                if (Integer.bitCount(ordinalMask) >= FLUSH_HAND_SIZE) {
+                    // rating flags start from TWO, ACE is the highest one
+                    return LookupHandEvaluator.flushValue((ordinalMask >>> 1) | ((ordinalMask & 1) << (RANKS - 1)));
+                }
+            }
+
+            int rankKeySum = 0;
+            for (int rank = 0; rank < RANKS; ++rank) {
+                rankKeySum += ((rankCounts >>> (rank * COUNT_BITS)) & COUNT_MASK) * LookupHandEvaluator.rankKey(rank);
+            }
+            return LookupHandEvaluator.rankValue(rankKeySum);
+        }
+    }
+}
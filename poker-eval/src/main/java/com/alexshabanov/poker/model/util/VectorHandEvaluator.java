@@ -0,0 +1,144 @@
+/*
+ * Copyright 2012 Alexander Shabanov - http://alexshabanov.com.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alexshabanov.poker.model.util;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Batch hand evaluator that computes the strengths of several hands at once with the SIMD instructions
+ * by using the JDK Vector API ({@code jdk.incubator.vector} module).
+ * <p>
+ * The vectorized kernel is compiled only by the JDK 17+ build and is available if the module is present at run time
+ * (e.g. the JVM is started with {@code --add-modules jdk.incubator.vector}).
+ * It is not faster than the scalar evaluation on every CPU (e.g. it is slower on AVX2 ones), so
+ * {@link #evaluate(long[], int[], byte[], int, int)} uses it only if the {@value #VECTOR_PROPERTY} system property
+ * is true, otherwise the hands are evaluated one by one as {@link BatchHandEvaluator} does.
+ * {@link #evaluateVectorized(long[], int[], byte[], int, int)} always uses it, so that the calibration
+ * of the hand evaluator engines picks it only where it wins.
+ * Results are the same in both cases and are the same as {@link BatchHandEvaluator} ones.
+ * </p>
+ */
+public final class VectorHandEvaluator {
+    private VectorHandEvaluator() {}
+
+    /**
+     * System property that turns on the vectorized kernel for {@link #evaluate(long[], int[], byte[], int, int)}.
+     */
+    public static final String VECTOR_PROPERTY = "com.alexshabanov.poker.vector";
+
+    private static final String VECTOR_KERNEL_CLASS = "com.alexshabanov.poker.model.util.VectorStrengthKernel";
+
+    /**
+     * Vectorized kernel or null if it is not available.
+     */
+    private static final StrengthKernel VECTOR_KERNEL = createVectorKernel();
+
+    private static final StrengthKernel KERNEL = VECTOR_KERNEL != null && Boolean.getBoolean(VECTOR_PROPERTY) ?
+            VECTOR_KERNEL : new ScalarStrengthKernel();
+
+    private static StrengthKernel createVectorKernel() {
+        try {
+            return (StrengthKernel) Class.forName(VECTOR_KERNEL_CLASS).getDeclaredConstructor().newInstance();
+        } catch (Exception e) {
+            Logger.getLogger(VectorHandEvaluator.class.getName()).log(Level.FINE,
+                    "Vector kernel is not compiled, hands are evaluated one by one", e);
+        } catch (LinkageError e) {
+            Logger.getLogger(VectorHandEvaluator.class.getName()).log(Level.FINE,
+                    "Vector API is not available, hands are evaluated one by one", e);
+        }
+        return null;
+    }
+
+    /**
+     * @return True, if the hands are evaluated by the vectorized kernel.
+     */
+    public static boolean isVectorized() {
+        return KERNEL == VECTOR_KERNEL;
+    }
+
+    /**
+     * @return True, if the vectorized kernel is available, even if it is not used by default.
+     */
+    public static boolean isVectorAvailable() {
+        return VECTOR_KERNEL != null;
+    }
+
+    /**
+     * @return Count of hands processed at once, one if the hands are evaluated one by one.
+     */
+    public static int getLaneCount() {
+        return KERNEL.getLaneCount();
+    }
+
+    /**
+     * @return Count of hands processed at once by the vectorized kernel, one if it is not available.
+     */
+    public static int getVectorLaneCount() {
+        return isVectorAvailable() ? VECTOR_KERNEL.getLaneCount() : 1;
+    }
+
+    public static void evaluate(long[] cardMasks, int[] strengths) {
+        evaluate(cardMasks, strengths, null, 0, cardMasks.length);
+    }
+
+    public static void evaluate(long[] cardMasks, int[] strengths, byte[] ranks) {
+        evaluate(cardMasks, strengths, ranks, 0, cardMasks.length);
+    }
+
+    /**
+     * Evaluates the range of the hands.
+     *
+     * @param cardMasks Card masks of the hands, see {@link com.alexshabanov.cards.model.CardMask}.
+     * @param strengths Target strengths, see {@link HandEvaluator#getStrength(java.util.List)}.
+     * @param ranks     Target {@link com.alexshabanov.poker.model.HandRank} ordinals, might be null.
+     * @param fromIndex Index of the first hand, inclusive.
+     * @param toIndex   Index of the last hand, exclusive.
+     * @see BatchHandEvaluator#evaluate(long[], int[], byte[], int, int)
+     */
+    public static void evaluate(long[] cardMasks, int[] strengths, byte[] ranks, int fromIndex, int toIndex) {
+        BatchHandEvaluator.checkRange(cardMasks.length, strengths, ranks, fromIndex, toIndex);
+
+        KERNEL.evaluate(cardMasks, strengths, fromIndex, toIndex);
+
+        if (ranks != null) {
+            BatchHandEvaluator.fillRanks(strengths, ranks, fromIndex, toIndex);
+        }
+    }
+
+    /**
+     * Evaluates the range of the hands by the vectorized kernel, regardless of the {@value #VECTOR_PROPERTY}.
+     *
+     * @param cardMasks Card masks of the hands, see {@link com.alexshabanov.cards.model.CardMask}.
+     * @param strengths Target strengths, see {@link HandEvaluator#getStrength(java.util.List)}.
+     * @param ranks     Target {@link com.alexshabanov.poker.model.HandRank} ordinals, might be null.
+     * @param fromIndex Index of the first hand, inclusive.
+     * @param toIndex   Index of the last hand, exclusive.
+     * @throws IllegalStateException If the vectorized kernel is not available, see {@link #isVectorAvailable()}.
+     */
+    public static void evaluateVectorized(long[] cardMasks, int[] strengths, byte[] ranks,
+                                          int fromIndex, int toIndex) {
+        if (!isVectorAvailable()) {
+            throw new IllegalStateException("Vectorized kernel is not available");
+        }
+        BatchHandEvaluator.checkRange(cardMasks.length, strengths, ranks, fromIndex, toIndex);
+
+        VECTOR_KERNEL.evaluate(cardMasks, strengths, fromIndex, toIndex);
+
+        if (ranks != null) {
+            BatchHandEvaluator.fillRanks(strengths, ranks, fromIndex, toIndex);
+        }
+    }
+}
@@ -15,6 +15,7 @@
 package com.alexshabanov.poker.service;
 
 import com.alexshabanov.cards.model.Card;
+import com.alexshabanov.cards.util.EncodeUtil;
 
 import java.util.List;
 
@@ -27,4 +28,13 @@ public interface DealerService {
      * @return Unmodifiable, non-null dealt cards.
      */
     List<Card> deal();
+
+    /**
+     * @return Dealt card codes, see {@link com.alexshabanov.cards.model.DefaultCard#valueOf(int)}.
+     *         The default implementation encodes the cards returned by {@link #deal()}, implementations that
+     *         shuffle the codes should override it.
+     */
+    default int[] dealCodes() {
+        return EncodeUtil.toCodeArray(deal());
+    }
 }
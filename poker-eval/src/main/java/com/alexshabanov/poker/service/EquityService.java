@@ -0,0 +1,51 @@
+/*
+ * Copyright 2012 Alexander Shabanov - http://alexshabanov.com.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alexshabanov.poker.service;
+
+import com.alexshabanov.poker.model.EquityResult;
+
+/**
+ * Calculates the all-in equities of the Texas Hold'em players with the known hole cards.
+ * <p>
+ * Cards are given by the card masks, see {@link com.alexshabanov.cards.model.CardMask}.
+ * Missing board cards are taken from the cards that are neither in the players' hands, nor on the board,
+ * nor dead (e.g. folded or exposed cards).
+ * </p>
+ */
+public interface EquityService {
+
+    /**
+     * Estimates the equities by sampling the runouts at random.
+     *
+     * @param holeMasks   Hole cards of each player, two cards each, at least two players.
+     * @param boardMask   Known board cards, up to five.
+     * @param deadMask    Dead cards.
+     * @param runoutCount Count of the runouts to sample.
+     * @return Equities of the players, in the order of the given hole cards.
+     * @throws IllegalArgumentException If the counts of cards are wrong or the cards overlap.
+     */
+    EquityResult simulate(long[] holeMasks, long boardMask, long deadMask, long runoutCount);
+
+    /**
+     * Calculates the exact equities by evaluating every runout, e.g. C(48, 5) boards for the heads-up preflop all-in.
+     *
+     * @param holeMasks Hole cards of each player, two cards each, at least two players.
+     * @param boardMask Known board cards, up to five.
+     * @param deadMask  Dead cards.
+     * @return Equities of the players, in the order of the given hole cards.
+     * @throws IllegalArgumentException If the counts of cards are wrong or the cards overlap.
+     */
+    EquityResult enumerate(long[] holeMasks, long boardMask, long deadMask);
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2012 Alexander Shabanov - http://alexshabanov.com.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alexshabanov.poker.service;
+
+/**
+ * Engine that computes the hand strengths,
+ * see {@link com.alexshabanov.poker.model.util.HandEvaluator#getStrength(java.util.List)}.
+ * <p>
+ * Engines are discovered by {@link java.util.ServiceLoader}, so that the faster engines might be plugged in
+ * by adding them to the class path, see {@link com.alexshabanov.poker.service.support.EngineUtil}.
+ * All the engines give the same strengths, implementations should be safe to use by any count of threads.
+ * </p>
+ */
+public interface HandEvaluatorEngine {
+
+    /**
+     * @return Short unique name of the engine, e.g. to select it by the system property.
+     */
+    String getName();
+
+    /**
+     * @return True, if the engine might be used in the current JVM (e.g. the required module is present).
+     */
+    boolean isAvailable();
+
+    /**
+     * @param cardMask Card mask, at least two cards, see {@link com.alexshabanov.cards.model.CardMask}.
+     * @return Hand strength.
+     */
+    int getStrength(long cardMask);
+
+    /**
+     * Evaluates the range of the hands, the strength of the hand number N is written to the element number N.
+     *
+     * @param cardMasks Card masks of the hands.
+     * @param strengths Target strengths.
+     * @param fromIndex Index of the first hand, inclusive.
+     * @param toIndex   Index of the last hand, exclusive.
+     */
+    void evaluate(long[] cardMasks, int[] strengths, int fromIndex, int toIndex);
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2012 Alexander Shabanov - http://alexshabanov.com.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alexshabanov.poker.service;
+
+import com.alexshabanov.poker.model.EquityResult;
+import com.alexshabanov.poker.model.HandRange;
+import com.alexshabanov.poker.model.RangeEquityResult;
+
+/**
+ * Calculates the all-in equities of the Texas Hold'em hand ranges against each other.
+ * <p>
+ * A range is given by the card masks of its hole-card combos (see {@link com.alexshabanov.cards.model.CardMask})
+ * and their weights, e.g. the frequencies the player holds the combos with. Combos that share cards with the board,
+ * the dead cards, the runout or the opponent's combo are skipped.
+ * </p>
+ */
+public interface RangeEquityService {
+
+    /**
+     * Calculates the exact equities by evaluating every runout for every pair of the combos.
+     *
+     * @param comboMasks         Combos of the first range, two cards each, distinct.
+     * @param weights            Non-negative weights of the combos of the first range.
+     * @param opponentComboMasks Combos of the opponent's range, two cards each, distinct.
+     * @param opponentWeights    Non-negative weights of the combos of the opponent's range.
+     * @param boardMask          Known board cards, up to five.
+     * @param deadMask           Dead cards.
+     * @return Equities of both ranges and of each of their combos.
+     * @throws IllegalArgumentException If the counts of cards or weights are wrong or the board is dead.
+     */
+    RangeEquityResult enumerate(long[] comboMasks, double[] weights, long[] opponentComboMasks,
+                                double[] opponentWeights, long boardMask, long deadMask);
+
+    /**
+     * Estimates the equities of the ranges by sampling the combos of the players and the runouts at random.
+     * A known hand is the range of the single combo. Deals, where the preceding players block the whole range
+     * of a player, have no weight and are not counted.
+     *
+     * @param ranges      Ranges of the players, at least two.
+     * @param boardMask   Known board cards, up to five.
+     * @param deadMask    Dead cards.
+     * @param runoutCount Count of the deals to sample.
+     * @return Weighted equities of the players, in the order of the given ranges.
+     * @throws IllegalArgumentException If the counts of cards are wrong or any range is blocked by the known cards.
+     */
+    EquityResult simulate(HandRange[] ranges, long boardMask, long deadMask, long runoutCount);
+}
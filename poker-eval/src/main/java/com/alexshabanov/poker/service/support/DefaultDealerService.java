@@ -16,6 +16,7 @@ package com.alexshabanov.poker.service.support;
 
 import com.alexshabanov.cards.model.Card;
 import com.alexshabanov.cards.model.DefaultCard;
+import com.alexshabanov.cards.util.EncodeUtil;
 import com.alexshabanov.poker.service.DealerService;
 
 import java.security.SecureRandom;
@@ -43,18 +44,28 @@ public final class DefaultDealerService implements DealerService {
 
     @Override
     public List<Card> deal() {
-        // create new copy of unsorted deck
-        final List<Card> deck = new ArrayList<Card>(DefaultCard.deck());
+        return EncodeUtil.asCards(dealCodes());
+    }
+
+    @Override
+    public int[] dealCodes() {
+        // create new unsorted deck, card codes follow the order of DefaultCard.deck()
+        final int[] deck = new int[DefaultCard.MAX_CARD_CODE];
+        for (int i = 0; i < deck.length; ++i) {
+            deck[i] = i;
+        }
 
         // shuffle
         for (int shuffle = 0; shuffle < maxShuffles; ++shuffle) {
-            for (int i = 0; i < deck.size(); ++i) {
-                final int newPos = random.nextInt(deck.size());
+            for (int i = 0; i < deck.length; ++i) {
+                final int newPos = random.nextInt(deck.length);
 
-                Collections.swap(deck, i, newPos);
+                final int code = deck[i];
+                deck[i] = deck[newPos];
+                deck[newPos] = code;
             }
         }
 
-        return Collections.unmodifiableList(deck);
+        return deck;
     }
 }
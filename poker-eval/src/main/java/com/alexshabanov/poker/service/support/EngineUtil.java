@@ -0,0 +1,239 @@
+/*
+ * Copyright 2012 Alexander Shabanov - http://alexshabanov.com.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alexshabanov.poker.service.support;
+
+import com.alexshabanov.cards.model.CardMask;
+import com.alexshabanov.cards.model.DefaultCard;
+import com.alexshabanov.poker.model.util.HandEvaluator;
+import com.alexshabanov.poker.service.HandEvaluatorEngine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Discovers the {@link HandEvaluatorEngine} implementations and selects the one to use.
+ * <p>
+ * The engine is selected once, when {@link #getEngine()} is called for the first time:
+ * <ul>
+ *     <li>the engine, named by the {@value #ENGINE_PROPERTY} system property, if it is available;</li>
+ *     <li>the fastest engine on the current machine, if the {@value #CALIBRATE_PROPERTY} system property is true,
+ *     see {@link #calibrate(List, int, long)};</li>
+ *     <li>the first available engine, listed in the service configuration files, otherwise.</li>
+ * </ul>
+ * </p>
+ */
+public final class EngineUtil {
+    private EngineUtil() {}
+
+    /**
+     * System property, that names the engine to use.
+     */
+    public static final String ENGINE_PROPERTY = "com.alexshabanov.poker.engine";
+
+    /**
+     * System property, that turns on the calibration at startup.
+     */
+    public static final String CALIBRATE_PROPERTY = "com.alexshabanov.poker.engine.calibrate";
+
+    /**
+     * Count of hands, each engine evaluates during the calibration.
+     */
+    public static final int DEFAULT_CALIBRATION_HANDS = 1 << 16;
+
+    private static final int CALIBRATION_HAND_SIZE = 7;
+
+    /**
+     * Before it is timed, each engine evaluates the given count of small batches of hands, so that the JIT compiler
+     * gets to its optimizing tier, the count is high enough for the vector engine, that is slow until then.
+     */
+    private static final int WARM_UP_INVOCATIONS = 10000;
+    private static final int WARM_UP_HANDS = 256;
+
+    /**
+     * Each engine runs until its best time does not improve for the given count of rounds in a row
+     * (i.e. the JIT compiler is done with it) and the min time passes, but no longer than the max time.
+     * A round of {@link #DEFAULT_CALIBRATION_HANDS} takes a few milliseconds once the engine is warmed up,
+     * so the best time settles well within the max time.
+     */
+    private static final int STABLE_ROUNDS = 20;
+    private static final long MIN_CALIBRATION_NANOS = 100000000L;
+    private static final long MAX_CALIBRATION_NANOS = 300000000L;
+
+    private static final Logger LOG = Logger.getLogger(EngineUtil.class.getName());
+
+    private static final class EngineHolder {
+        static final HandEvaluatorEngine ENGINE = select(loadEngines(), System.getProperty(ENGINE_PROPERTY),
+                Boolean.getBoolean(CALIBRATE_PROPERTY));
+    }
+
+    /**
+     * @return Engine, selected for this JVM.
+     */
+    public static HandEvaluatorEngine getEngine() {
+        return EngineHolder.ENGINE;
+    }
+
+    /**
+     * @return Available engines in the order of the service configuration files, at least the scalar one.
+     */
+    public static List<HandEvaluatorEngine> loadEngines() {
+        final List<HandEvaluatorEngine> result = new ArrayList<HandEvaluatorEngine>();
+        try {
+            for (final HandEvaluatorEngine engine : ServiceLoader.load(HandEvaluatorEngine.class)) {
+                if (engine.isAvailable()) {
+                    result.add(engine);
+                } else {
+                    LOG.log(Level.FINE, "Engine {0} is not available", engine.getName());
+                }
+            }
+        } catch (ServiceConfigurationError e) {
+            LOG.log(Level.WARNING, "Failed to load hand evaluator engines", e);
+        }
+
+        if (result.isEmpty()) {
+            result.add(new ScalarHandEvaluatorEngine());
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    static HandEvaluatorEngine select(List<HandEvaluatorEngine> engines, String name, boolean calibrate) {
+        if (name != null) {
+            for (final HandEvaluatorEngine engine : engines) {
+                if (engine.getName().equals(name)) {
+                    LOG.log(Level.INFO, "Using hand evaluator engine {0}", engine);
+                    return engine;
+                }
+            }
+            LOG.log(Level.WARNING, "Hand evaluator engine {0} is not available, one of {1} is used instead",
+                    new Object[] {name, engines});
+        }
+
+        final HandEvaluatorEngine result = calibrate ?
+                calibrate(engines, DEFAULT_CALIBRATION_HANDS, System.nanoTime()) : engines.get(0);
+        LOG.log(Level.INFO, "Using hand evaluator engine {0}", result);
+        return result;
+    }
+
+    /**
+     * Measures the throughput of each engine on the random hands and picks the fastest one,
+     * engines that give wrong strengths are skipped.
+     * Since the hands are random, the measured throughput depends on the size of the CPU cache (e.g. whether
+     * the large lookup tables win over the compact ones), so the engines should be calibrated on the target machine.
+     * Each engine is warmed up first, which takes up to ~2.5 s for the vector engine in the cold JVM,
+     * then it is measured for 0.1 to 0.3 s, not counting the time its tables take to load.
+     *
+     * @param engines   Engines to choose from, the first one is used if none of them gives the right strengths.
+     * @param handCount Count of hands to evaluate in each round.
+     * @param seed      Seed of the random hands.
+     * @return Fastest engine.
+     */
+    public static HandEvaluatorEngine calibrate(List<HandEvaluatorEngine> engines, int handCount, long seed) {
+        return calibrate(engines, handCount, seed, WARM_UP_INVOCATIONS, MIN_CALIBRATION_NANOS, MAX_CALIBRATION_NANOS);
+    }
+
+    static HandEvaluatorEngine calibrate(List<HandEvaluatorEngine> engines, int handCount, long seed,
+                                         int warmUpInvocations, long minNanos, long maxNanos) {
+        final Random random = new Random(seed);
+        final long[] cardMasks = new long[handCount];
+        final int[] expected = new int[handCount];
+        for (int i = 0; i < handCount; ++i) {
+            long cardMask = 0;
+            while (CardMask.size(cardMask) < CALIBRATION_HAND_SIZE) {
+                cardMask |= CardMask.maskOf(random.nextInt(DefaultCard.MAX_CARD_CODE));
+            }
+            cardMasks[i] = cardMask;
+            expected[i] = HandEvaluator.getStrength(cardMask);
+        }
+
+        final int[] strengths = new int[handCount];
+        HandEvaluatorEngine result = null;
+        long bestTime = Long.MAX_VALUE;
+        for (final HandEvaluatorEngine engine : engines) {
+            if (!crossCheck(engine, cardMasks, expected, strengths)) {
+                LOG.log(Level.WARNING, "Engine {0} gives wrong strengths and is skipped", engine);
+                continue;
+            }
+
+            warmUp(engine, cardMasks, strengths, warmUpInvocations);
+            final long time = measure(engine, cardMasks, strengths, minNanos, maxNanos);
+
+            LOG.log(Level.INFO, "Engine {0}: {1} hands/s", new Object[] {engine,
+                    String.format("%.1fM", handCount * 1000.0 / Math.max(time, 1))});
+            if (time < bestTime) {
+                bestTime = time;
+                result = engine;
+            }
+        }
+
+        return result != null ? result : engines.get(0);
+    }
+
+    private static void warmUp(HandEvaluatorEngine engine, long[] cardMasks, int[] strengths, int invocations) {
+        final int batchSize = Math.min(WARM_UP_HANDS, cardMasks.length);
+        for (int i = 0, fromIndex = 0; i < invocations; ++i) {
+            if (fromIndex + batchSize > cardMasks.length) {
+                fromIndex = 0;
+            }
+            engine.evaluate(cardMasks, strengths, fromIndex, fromIndex + batchSize);
+            fromIndex += batchSize;
+        }
+    }
+
+    /**
+     * @return Best time of the evaluation of all the given hands.
+     */
+    private static long measure(HandEvaluatorEngine engine, long[] cardMasks, int[] strengths,
+                                long minNanos, long maxNanos) {
+        final long calibrationStart = System.nanoTime();
+        long result = Long.MAX_VALUE;
+        for (int stableRounds = 0; ; ++stableRounds) {
+            final long elapsed = System.nanoTime() - calibrationStart;
+            if (elapsed > maxNanos || (stableRounds >= STABLE_ROUNDS && elapsed > minNanos)) {
+                return result;
+            }
+
+            final long start = System.nanoTime();
+            engine.evaluate(cardMasks, strengths, 0, cardMasks.length);
+            final long time = System.nanoTime() - start;
+
+            // improvements within the noise do not count
+            if (time < result - result / 50) {
+                stableRounds = 0;
+            }
+            result = Math.min(result, time);
+        }
+    }
+
+    private static boolean crossCheck(HandEvaluatorEngine engine, long[] cardMasks, int[] expected, int[] strengths) {
+        try {
+            engine.evaluate(cardMasks, strengths, 0, cardMasks.length);
+            for (int i = 0; i < cardMasks.length; ++i) {
+                if (strengths[i] != expected[i] || engine.getStrength(cardMasks[i]) != expected[i]) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (RuntimeException e) {
+            LOG.log(Level.WARNING, "Engine " + engine + " failed", e);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2012 Alexander Shabanov - http://alexshabanov.com.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alexshabanov.poker.service.support;
+
+import com.alexshabanov.poker.model.EquityResult;
+
+/**
+ * Mutable win, tie and loss counters, owned by a single task and merged once the task is done.
+ */
+final class EquityCounters {
+
+    final long[] wins;
+    final long[] ties;
+    final long[] losses;
+    final double[] winWeights;
+    final double[] tieWeights;
+    final double[] tieShares;
+    long runoutCount;
+    double totalWeight;
+
+    /**
+     * Scratch strengths of the current runout, indexed by player.
+     */
+    final int[] strengths;
+
+    EquityCounters(int playerCount) {
+        this.wins = new long[playerCount];
+        this.ties = new long[playerCount];
+        this.losses = new long[playerCount];
+        this.winWeights = new double[playerCount];
+        this.tieWeights = new double[playerCount];
+        this.tieShares = new double[playerCount];
+        this.strengths = new int[playerCount];
+    }
+
+    /**
+     * Records the outcome of the runout, whose strengths are in {@link #strengths}.
+     *
+     * @param best      The greatest strength.
+     * @param bestCount Count of the players that have the greatest strength.
+     * @param count     Count of the runouts with this outcome.
+     * @param weight    Weight of these runouts, equal to the count unless the runouts are weighted.
+     */
+    void record(int best, int bestCount, long count, double weight) {
+        runoutCount += count;
+        totalWeight += weight;
+        for (int player = 0; player < strengths.length; ++player) {
+            if (strengths[player] != best) {
+                losses[player] += count;
+            } else if (bestCount == 1) {
+                wins[player] += count;
+                winWeights[player] += weight;
+            } else {
+                ties[player] += count;
+                tieWeights[player] += weight;
+                tieShares[player] += weight / bestCount;
+            }
+        }
+    }
+
+    /**
+     * Adds the given counters to this ones.
+     *
+     * @param other Counters of the same players.
+     * @return This counters.
+     */
+    EquityCounters merge(EquityCounters other) {
+        runoutCount += other.runoutCount;
+        totalWeight += other.totalWeight;
+        for (int player = 0; player < wins.length; ++player) {
+            wins[player] += other.wins[player];
+            ties[player] += other.ties[player];
+            losses[player] += other.losses[player];
+            winWeights[player] += other.winWeights[player];
+            tieWeights[player] += other.tieWeights[player];
+            tieShares[player] += other.tieShares[player];
+        }
+        return this;
+    }
+
+    EquityResult toResult() {
+        return new EquityResult(runoutCount, wins, ties, losses, totalWeight, winWeights, tieWeights, tieShares);
+    }
+}
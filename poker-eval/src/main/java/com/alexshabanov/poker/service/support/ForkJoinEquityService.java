@@ -0,0 +1,360 @@
+/*
+ * Copyright 2012 Alexander Shabanov - http://alexshabanov.com.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alexshabanov.poker.service.support;
+
+import com.alexshabanov.cards.model.CardMask;
+import com.alexshabanov.poker.model.Constants;
+import com.alexshabanov.poker.model.EquityResult;
+import com.alexshabanov.poker.model.HandRange;
+import com.alexshabanov.poker.model.RangeEquityResult;
+import com.alexshabanov.poker.model.util.CardCombinator;
+import com.alexshabanov.poker.model.util.CardMaskCombinationCallback;
+import com.alexshabanov.poker.model.util.CombinationUtil;
+import com.alexshabanov.poker.model.util.RangeSampler;
+import com.alexshabanov.poker.service.EquityService;
+import com.alexshabanov.poker.service.HandEvaluatorEngine;
+import com.alexshabanov.poker.service.RangeEquityService;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Implementation of {@link EquityService} and {@link RangeEquityService}, that splits the runouts into the chunks
+ * evaluated by the {@link ForkJoinPool} workers.
+ * <p>
+ * Exact enumeration splits the range of the runout indexes (see {@link CombinationUtil}) in halves, each chunk
+ * is iterated by {@link CardCombinator} independently, so the chunks need neither coordination nor ordering.
+ * Range enumeration evaluates every combo of both ranges per runout, so its chunks take proportionally
+ * fewer runouts. Range simulation draws the combos by the shared {@link RangeSampler} and weighs each deal
+ * with the importance weight of its combos.
+ * </p>
+ * <p>
+ * Each task owns its {@link SplittableRandom}, split from the parent task's one before the task is forked,
+ * and its counters, that are merged when the task is joined, so the workers share nothing but the immutable
+ * showdown. The split tree does not depend on the scheduling, so the service created with the given seed
+ * gives the same results for the same sequence of calls.
+ * </p>
+ */
+public final class ForkJoinEquityService implements EquityService, RangeEquityService {
+
+    /**
+     * Default count of the runouts evaluated by a single task, the count of the combos for the range enumeration.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 14;
+
+    private final ForkJoinPool pool;
+    private final HandEvaluatorEngine engine;
+    private final int chunkSize;
+
+    /**
+     * Source of the random generators of the calls, guarded by itself.
+     */
+    private final SplittableRandom random;
+
+    public ForkJoinEquityService(ForkJoinPool pool, HandEvaluatorEngine engine, int chunkSize, long seed) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size should be positive, got " + chunkSize);
+        }
+
+        this.pool = pool;
+        this.engine = engine;
+        this.chunkSize = chunkSize;
+        this.random = new SplittableRandom(seed);
+    }
+
+    public ForkJoinEquityService() {
+        this(ForkJoinPool.commonPool(), EngineUtil.getEngine(), DEFAULT_CHUNK_SIZE, System.nanoTime());
+    }
+
+    @Override
+    public EquityResult simulate(long[] holeMasks, long boardMask, long deadMask, long runoutCount) {
+        if (runoutCount < 0) {
+            throw new IllegalArgumentException("Runout count should not be negative, got " + runoutCount);
+        }
+
+        final Showdown showdown = new Showdown(holeMasks, boardMask, deadMask, engine);
+        final SplittableRandom callRandom;
+        synchronized (random) {
+            callRandom = random.split();
+        }
+        return pool.invoke(new SimulationTask(showdown, runoutCount, callRandom)).toResult();
+    }
+
+    @Override
+    public EquityResult enumerate(long[] holeMasks, long boardMask, long deadMask) {
+        final Showdown showdown = new Showdown(holeMasks, boardMask, deadMask, engine);
+        return pool.invoke(new EnumerationTask(showdown, 0, showdown.getRunoutCount())).toResult();
+    }
+
+    @Override
+    public RangeEquityResult enumerate(long[] comboMasks, double[] weights, long[] opponentComboMasks,
+                                       double[] opponentWeights, long boardMask, long deadMask) {
+        final RangeShowdown showdown = new RangeShowdown(comboMasks, weights, opponentComboMasks, opponentWeights,
+                boardMask, deadMask, engine);
+        final int comboCount = comboMasks.length + opponentComboMasks.length;
+        final long runoutChunkSize = Math.max(1, chunkSize / Math.max(1, comboCount));
+        return pool.invoke(new RangeEnumerationTask(showdown, 0, showdown.getRunoutCount(), runoutChunkSize))
+                .toResult();
+    }
+
+    @Override
+    public EquityResult simulate(HandRange[] ranges, long boardMask, long deadMask, long runoutCount) {
+        if (runoutCount < 0) {
+            throw new IllegalArgumentException("Runout count should not be negative, got " + runoutCount);
+        }
+        if (ranges.length < 2) {
+            throw new IllegalArgumentException("At least two players expected, got " + ranges.length);
+        }
+        if (Long.bitCount(boardMask) > Showdown.BOARD_SIZE) {
+            throw new IllegalArgumentException("At most " + Showdown.BOARD_SIZE + " board cards expected, got " +
+                    CardMask.valueOf(boardMask));
+        }
+        if ((boardMask & deadMask) != 0) {
+            throw new IllegalArgumentException("Cards " + CardMask.valueOf(boardMask & deadMask) + " are dead");
+        }
+
+        final int[] stubCodes = CardMask.toCodes(CardMask.DECK_MASK & ~(boardMask | deadMask));
+        final int missingCount = Showdown.BOARD_SIZE - Long.bitCount(boardMask);
+        if (stubCodes.length - ranges.length * Constants.CARDS_PER_PLAYER < missingCount) {
+            throw new IllegalArgumentException("Only " + stubCodes.length + " cards left for " + ranges.length +
+                    " players and " + missingCount + " board cards");
+        }
+
+        final RangeSampler sampler = new RangeSampler(ranges, boardMask | deadMask);
+        final SplittableRandom callRandom;
+        synchronized (random) {
+            callRandom = random.split();
+        }
+        return pool.invoke(new RangeSimulationTask(sampler, boardMask, stubCodes, runoutCount, callRandom))
+                .toResult();
+    }
+
+    /**
+     * Evaluates the runouts of the given index range, splitting it in halves until it fits into a chunk.
+     */
+    private final class EnumerationTask extends RecursiveTask<EquityCounters> {
+        private static final long serialVersionUID = 1L;
+
+        private final Showdown showdown;
+        private final long fromIndex;
+        private final long toIndex;
+
+        EnumerationTask(Showdown showdown, long fromIndex, long toIndex) {
+            this.showdown = showdown;
+            this.fromIndex = fromIndex;
+            this.toIndex = toIndex;
+        }
+
+        @Override
+        protected EquityCounters compute() {
+            if (toIndex - fromIndex <= chunkSize) {
+                return enumerate();
+            }
+
+            final long middle = fromIndex + (toIndex - fromIndex) / 2;
+            final EnumerationTask left = new EnumerationTask(showdown, fromIndex, middle);
+            left.fork();
+            final EquityCounters counters = new EnumerationTask(showdown, middle, toIndex).compute();
+            return counters.merge(left.join());
+        }
+
+        private EquityCounters enumerate() {
+            final EquityCounters counters = new EquityCounters(showdown.getPlayerCount());
+            final long boardMask = showdown.boardMask;
+            CardCombinator.iterate(showdown.stubMask, new CardMaskCombinationCallback() {
+                @Override
+                public boolean process(long runoutMask) {
+                    showdown.showdown(boardMask | runoutMask, counters, 1);
+                    return false;
+                }
+            }, showdown.missingCount, fromIndex, toIndex);
+            return counters;
+        }
+    }
+
+    /**
+     * Evaluates both ranges on the runouts of the given index range, splitting it in halves until it fits
+     * into a chunk.
+     */
+    private static final class RangeEnumerationTask extends RecursiveTask<RangeCounters> {
+        private static final long serialVersionUID = 1L;
+
+        private final RangeShowdown showdown;
+        private final long fromIndex;
+        private final long toIndex;
+        private final long runoutChunkSize;
+
+        RangeEnumerationTask(RangeShowdown showdown, long fromIndex, long toIndex, long runoutChunkSize) {
+            this.showdown = showdown;
+            this.fromIndex = fromIndex;
+            this.toIndex = toIndex;
+            this.runoutChunkSize = runoutChunkSize;
+        }
+
+        @Override
+        protected RangeCounters compute() {
+            if (toIndex - fromIndex <= runoutChunkSize) {
+                return enumerate();
+            }
+
+            final long middle = fromIndex + (toIndex - fromIndex) / 2;
+            final RangeEnumerationTask left = new RangeEnumerationTask(showdown, fromIndex, middle, runoutChunkSize);
+            left.fork();
+            final RangeCounters counters = new RangeEnumerationTask(showdown, middle, toIndex, runoutChunkSize)
+                    .compute();
+            return counters.merge(left.join());
+        }
+
+        private RangeCounters enumerate() {
+            final RangeCounters counters = new RangeCounters(showdown);
+            final long boardMask = showdown.boardMask;
+            CardCombinator.iterate(showdown.stubMask, new CardMaskCombinationCallback() {
+                @Override
+                public boolean process(long runoutMask) {
+                    showdown.showdown(boardMask | runoutMask, counters);
+                    return false;
+                }
+            }, showdown.missingCount, fromIndex, toIndex);
+            return counters;
+        }
+    }
+
+    /**
+     * Samples the given count of deals, splitting them in halves until they fit into a chunk.
+     */
+    private final class RangeSimulationTask extends RecursiveTask<EquityCounters> {
+        private static final long serialVersionUID = 1L;
+
+        private final RangeSampler sampler;
+        private final long boardMask;
+        private final int[] stubCodes;
+        private final long runoutCount;
+        private final SplittableRandom random;
+
+        RangeSimulationTask(RangeSampler sampler, long boardMask, int[] stubCodes, long runoutCount,
+                            SplittableRandom random) {
+            this.sampler = sampler;
+            this.boardMask = boardMask;
+            this.stubCodes = stubCodes;
+            this.runoutCount = runoutCount;
+            this.random = random;
+        }
+
+        @Override
+        protected EquityCounters compute() {
+            if (runoutCount <= chunkSize) {
+                return simulate();
+            }
+
+            final long half = runoutCount / 2;
+            final RangeSimulationTask left = new RangeSimulationTask(sampler, boardMask, stubCodes, half,
+                    random.split());
+            left.fork();
+            final EquityCounters counters = new RangeSimulationTask(sampler, boardMask, stubCodes,
+                    runoutCount - half, random).compute();
+            return counters.merge(left.join());
+        }
+
+        private EquityCounters simulate() {
+            final int playerCount = sampler.getPlayerCount();
+            final EquityCounters counters = new EquityCounters(playerCount);
+            final long[] holeMasks = new long[playerCount];
+            final int[] stub = stubCodes.clone();
+            final int missingCount = Showdown.BOARD_SIZE - Long.bitCount(boardMask);
+            final SplittableRandom r = random;
+
+            for (long n = 0; n < runoutCount; ++n) {
+                final double weight = sampler.sample(r, holeMasks);
+                if (weight == 0.0) {
+                    // the ranges block each other, the deal has no weight
+                    continue;
+                }
+
+                long dealtMask = 0;
+                for (final long holeMask : holeMasks) {
+                    dealtMask |= holeMask;
+                }
+
+                // partial shuffle, the cards of the players are redrawn
+                long fullBoardMask = boardMask;
+                for (int i = 0; i < missingCount;) {
+                    final int j = i + r.nextInt(stub.length - i);
+                    final int code = stub[j];
+                    stub[j] = stub[i];
+                    stub[i] = code;
+                    if ((dealtMask & (1L << code)) == 0) {
+                        fullBoardMask |= 1L << code;
+                        ++i;
+                    }
+                }
+                Showdown.showdown(engine, holeMasks, fullBoardMask, counters, 1, weight);
+            }
+            return counters;
+        }
+    }
+
+    /**
+     * Samples the given count of runouts, splitting them in halves until they fit into a chunk.
+     */
+    private final class SimulationTask extends RecursiveTask<EquityCounters> {
+        private static final long serialVersionUID = 1L;
+
+        private final Showdown showdown;
+        private final long runoutCount;
+        private final SplittableRandom random;
+
+        SimulationTask(Showdown showdown, long runoutCount, SplittableRandom random) {
+            this.showdown = showdown;
+            this.runoutCount = runoutCount;
+            this.random = random;
+        }
+
+        @Override
+        protected EquityCounters compute() {
+            if (runoutCount <= chunkSize) {
+                return simulate();
+            }
+
+            final long half = runoutCount / 2;
+            final SimulationTask left = new SimulationTask(showdown, half, random.split());
+            left.fork();
+            final EquityCounters counters = new SimulationTask(showdown, runoutCount - half, random).compute();
+            return counters.merge(left.join());
+        }
+
+        private EquityCounters simulate() {
+            final EquityCounters counters = new EquityCounters(showdown.getPlayerCount());
+            final int[] stub = showdown.stubCodes.clone();
+            final int missingCount = showdown.missingCount;
+            final long boardMask = showdown.boardMask;
+            final SplittableRandom r = random;
+
+            for (long n = 0; n < runoutCount; ++n) {
+                // partial shuffle, the stub keeps the previous permutation that is as random as the initial one
+                long fullBoardMask = boardMask;
+                for (int i = 0; i < missingCount; ++i) {
+                    final int j = i + r.nextInt(stub.length - i);
+                    final int code = stub[j];
+                    stub[j] = stub[i];
+                    stub[i] = code;
+                    fullBoardMask |= 1L << code;
+                }
+                showdown.showdown(fullBoardMask, counters, 1);
+            }
+            return counters;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2012 Alexander Shabanov - http://alexshabanov.com.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alexshabanov.poker.service.support;
+
+import com.alexshabanov.poker.model.util.LookupHandEvaluator;
+import com.alexshabanov.poker.service.HandEvaluatorEngine;
+
+/**
+ * Engine that evaluates the hands by the directly indexed strength tables of {@link LookupHandEvaluator},
+ * which take ~41 MB of heap, i.e. the large-table counterpart of the {@link CompactHandEvaluatorEngine}.
+ * Always available.
+ */
+public final class LookupHandEvaluatorEngine implements HandEvaluatorEngine {
+
+    public static final String NAME = "lookup";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return true;
+    }
+
+    @Override
+    public int getStrength(long cardMask) {
+        return LookupHandEvaluator.getStrength(cardMask);
+    }
+
+    @Override
+    public void evaluate(long[] cardMasks, int[] strengths, int fromIndex, int toIndex) {
+        for (int i = fromIndex; i < toIndex; ++i) {
+            strengths[i] = LookupHandEvaluator.getStrength(cardMasks[i]);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return NAME;
+    }
+}
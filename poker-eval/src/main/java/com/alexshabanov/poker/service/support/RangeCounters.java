@@ -0,0 +1,91 @@
+/*
+ * Copyright 2012 Alexander Shabanov - http://alexshabanov.com.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alexshabanov.poker.service.support;
+
+import com.alexshabanov.cards.model.DefaultCard;
+import com.alexshabanov.poker.model.RangeEquityResult;
+
+/**
+ * Mutable per-combo counters of both ranges and the scratch arrays of the runout,
+ * owned by a single task and merged once the task is done.
+ */
+final class RangeCounters {
+
+    final double[][] weights;
+    final double[][] equityWeights;
+    final double[][] matchupWeights;
+    long runoutCount;
+
+    /**
+     * Scratch sort keys, card masks and strengths of the live combos of the current runout, indexed by range.
+     */
+    final long[][] keys;
+    final long[][] masks;
+    final int[][] strengths;
+    final int[] liveCounts;
+
+    /**
+     * Scratch weights of the live combos of each range, summed per card, the last element is the total weight.
+     */
+    final double[][] cardWeights;
+
+    /**
+     * Scratch weights of the weaker and the equally strong opponent's combos, summed per card.
+     */
+    final double[] lessCardWeights = new double[DefaultCard.MAX_CARD_CODE];
+    final double[] equalCardWeights = new double[DefaultCard.MAX_CARD_CODE];
+
+    RangeCounters(RangeShowdown showdown) {
+        final int rangeCount = showdown.ranges.length;
+        this.weights = new double[rangeCount][];
+        this.equityWeights = new double[rangeCount][];
+        this.matchupWeights = new double[rangeCount][];
+        this.keys = new long[rangeCount][];
+        this.masks = new long[rangeCount][];
+        this.strengths = new int[rangeCount][];
+        this.liveCounts = new int[rangeCount];
+        this.cardWeights = new double[rangeCount][DefaultCard.MAX_CARD_CODE + 1];
+        for (int r = 0; r < rangeCount; ++r) {
+            final int comboCount = showdown.ranges[r].getComboCount();
+            weights[r] = showdown.ranges[r].weights;
+            equityWeights[r] = new double[comboCount];
+            matchupWeights[r] = new double[comboCount];
+            keys[r] = new long[comboCount];
+            masks[r] = new long[comboCount];
+            strengths[r] = new int[comboCount];
+        }
+    }
+
+    /**
+     * Adds the given counters to this ones.
+     *
+     * @param other Counters of the same ranges.
+     * @return This counters.
+     */
+    RangeCounters merge(RangeCounters other) {
+        runoutCount += other.runoutCount;
+        for (int r = 0; r < equityWeights.length; ++r) {
+            for (int i = 0; i < equityWeights[r].length; ++i) {
+                equityWeights[r][i] += other.equityWeights[r][i];
+                matchupWeights[r][i] += other.matchupWeights[r][i];
+            }
+        }
+        return this;
+    }
+
+    RangeEquityResult toResult() {
+        return new RangeEquityResult(runoutCount, weights, equityWeights, matchupWeights);
+    }
+}
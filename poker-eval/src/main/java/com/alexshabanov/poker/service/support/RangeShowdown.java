@@ -0,0 +1,259 @@
+/*
+ * Copyright 2012 Alexander Shabanov - http://alexshabanov.com.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alexshabanov.poker.service.support;
+
+import com.alexshabanov.cards.model.CardMask;
+import com.alexshabanov.cards.model.DefaultCard;
+import com.alexshabanov.poker.model.Constants;
+import com.alexshabanov.poker.model.HandRange;
+import com.alexshabanov.poker.model.RangeEquityResult;
+import com.alexshabanov.poker.model.util.CombinationUtil;
+import com.alexshabanov.poker.service.HandEvaluatorEngine;
+
+import java.util.Arrays;
+
+/**
+ * Two ranges and the known cards of the all-in, validated once and shared by all the runouts.
+ * <p>
+ * Each runout evaluates every live combo of both ranges once, sorts the combos of each range by strength
+ * and sweeps both ranges in the order of strength. The sweep keeps the total weight of the weaker and the equal
+ * opponent's combos and the same weights per card, so the weight of the opponent's combos that share no cards with
+ * the given combo is found by subtracting the weights of its two cards and adding back the weight of the very same
+ * combo, that is subtracted twice. Thus a runout costs the evaluations and the sorts of the ranges rather than
+ * the comparisons of every pair of the combos.
+ * </p>
+ */
+final class RangeShowdown {
+
+    /**
+     * Sort keys keep the strength in the high half and the combo index in the low one.
+     */
+    private static final int INDEX_BITS = 32;
+
+    /**
+     * Combos of a range and their cards, indexed by the combo index in the range.
+     */
+    static final class Range {
+        final long[] comboMasks;
+        final double[] weights;
+        final int[] lowCards;
+        final int[] highCards;
+        final int[] comboIndexes;
+
+        /**
+         * Weights of the live combos, indexed by {@link HandRange#comboIndex(int, int)}.
+         */
+        final double[] liveWeights = new double[HandRange.COMBO_COUNT];
+
+        Range(long[] comboMasks, double[] weights, long blockedMask) {
+            if (comboMasks.length != weights.length) {
+                throw new IllegalArgumentException("Got " + comboMasks.length + " combos and " + weights.length +
+                        " weights");
+            }
+
+            this.comboMasks = comboMasks.clone();
+            this.weights = weights.clone();
+            this.lowCards = new int[comboMasks.length];
+            this.highCards = new int[comboMasks.length];
+            this.comboIndexes = new int[comboMasks.length];
+
+            final boolean[] seen = new boolean[HandRange.COMBO_COUNT];
+            for (int i = 0; i < comboMasks.length; ++i) {
+                final long comboMask = comboMasks[i];
+                if (Long.bitCount(comboMask) != Constants.CARDS_PER_PLAYER) {
+                    throw new IllegalArgumentException("Each combo should have " + Constants.CARDS_PER_PLAYER +
+                            " cards, got " + CardMask.valueOf(comboMask));
+                }
+                if (!(weights[i] >= 0.0) || Double.isInfinite(weights[i])) {
+                    throw new IllegalArgumentException("Weight should be finite and non-negative, got " +
+                            weights[i]);
+                }
+
+                lowCards[i] = Long.numberOfTrailingZeros(comboMask);
+                highCards[i] = Long.SIZE - 1 - Long.numberOfLeadingZeros(comboMask);
+                comboIndexes[i] = HandRange.comboIndex(lowCards[i], highCards[i]);
+                if (seen[comboIndexes[i]]) {
+                    throw new IllegalArgumentException("Combo " + CardMask.valueOf(comboMask) + " is given twice");
+                }
+                seen[comboIndexes[i]] = true;
+                if ((comboMask & blockedMask) == 0) {
+                    liveWeights[comboIndexes[i]] = weights[i];
+                }
+            }
+        }
+
+        int getComboCount() {
+            return comboMasks.length;
+        }
+    }
+
+    final Range[] ranges = new Range[RangeEquityResult.RANGE_COUNT];
+    final long boardMask;
+    final long stubMask;
+    final int missingCount;
+
+    private final long deadMask;
+    private final HandEvaluatorEngine engine;
+
+    RangeShowdown(long[] comboMasks, double[] weights, long[] opponentComboMasks, double[] opponentWeights,
+                  long boardMask, long deadMask, HandEvaluatorEngine engine) {
+        if (Long.bitCount(boardMask) > Showdown.BOARD_SIZE) {
+            throw new IllegalArgumentException("At most " + Showdown.BOARD_SIZE + " board cards expected, got " +
+                    CardMask.valueOf(boardMask));
+        }
+        if ((boardMask & deadMask) != 0) {
+            throw new IllegalArgumentException("Cards " + CardMask.valueOf(boardMask & deadMask) + " are dead");
+        }
+
+        this.ranges[0] = new Range(comboMasks, weights, boardMask | deadMask);
+        this.ranges[1] = new Range(opponentComboMasks, opponentWeights, boardMask | deadMask);
+        this.boardMask = boardMask;
+        this.deadMask = deadMask;
+        this.stubMask = CardMask.DECK_MASK & ~(boardMask | deadMask);
+        this.missingCount = Showdown.BOARD_SIZE - Long.bitCount(boardMask);
+        this.engine = engine;
+
+        if (Long.bitCount(stubMask) < missingCount) {
+            throw new IllegalArgumentException("Only " + Long.bitCount(stubMask) + " cards left for " +
+                    missingCount + " board cards");
+        }
+    }
+
+    /**
+     * @return Count of the distinct runouts.
+     */
+    long getRunoutCount() {
+        return CombinationUtil.binomial(Long.bitCount(stubMask), missingCount);
+    }
+
+    /**
+     * Evaluates the combos of both ranges on the given board and records the outcomes of every pair of them.
+     *
+     * @param fullBoardMask All five board cards.
+     * @param counters      Target counters.
+     */
+    void showdown(long fullBoardMask, RangeCounters counters) {
+        ++counters.runoutCount;
+        final long blockedMask = fullBoardMask | deadMask;
+        for (int r = 0; r < ranges.length; ++r) {
+            counters.liveCounts[r] = prepare(ranges[r], fullBoardMask, blockedMask, counters.keys[r],
+                    counters.masks[r], counters.strengths[r], counters.cardWeights[r]);
+        }
+
+        for (int r = 0; r < ranges.length; ++r) {
+            final int o = 1 - r;
+            compare(ranges[r], counters.keys[r], counters.liveCounts[r], ranges[o], counters.keys[o],
+                    counters.liveCounts[o], counters.cardWeights[o], counters, counters.equityWeights[r],
+                    counters.matchupWeights[r]);
+        }
+    }
+
+    /**
+     * Evaluates the live combos of the range, sorts them by strength and sums their weights per card.
+     *
+     * @return Count of the live combos, whose sort keys are written to the given keys.
+     */
+    private int prepare(Range range, long fullBoardMask, long blockedMask, long[] keys, long[] masks,
+                        int[] strengths, double[] cardWeights) {
+        final long[] comboMasks = range.comboMasks;
+        Arrays.fill(cardWeights, 0.0);
+
+        int count = 0;
+        for (int i = 0; i < comboMasks.length; ++i) {
+            if ((comboMasks[i] & blockedMask) == 0) {
+                keys[count] = i;
+                masks[count] = comboMasks[i] | fullBoardMask;
+                ++count;
+            }
+        }
+
+        engine.evaluate(masks, strengths, 0, count);
+        double total = 0.0;
+        for (int k = 0; k < count; ++k) {
+            final int i = (int) keys[k];
+            final double weight = range.weights[i];
+            keys[k] |= (long) strengths[k] << INDEX_BITS;
+            cardWeights[range.lowCards[i]] += weight;
+            cardWeights[range.highCards[i]] += weight;
+            total += weight;
+        }
+        cardWeights[DefaultCard.MAX_CARD_CODE] = total;
+
+        Arrays.sort(keys, 0, count);
+        return count;
+    }
+
+    /**
+     * Records the outcomes of the live combos of the given range against the live combos of the opponent's one.
+     */
+    private static void compare(Range range, long[] keys, int count, Range opponent, long[] opponentKeys,
+                                int opponentCount, double[] opponentCardWeights, RangeCounters counters,
+                                double[] equityWeights, double[] matchupWeights) {
+        final double[] less = counters.lessCardWeights;
+        final double[] equal = counters.equalCardWeights;
+        Arrays.fill(less, 0.0);
+        Arrays.fill(equal, 0.0);
+        final double opponentTotal = opponentCardWeights[DefaultCard.MAX_CARD_CODE];
+        final double[] opponentWeights = opponent.weights;
+        final int[] opponentLowCards = opponent.lowCards;
+        final int[] opponentHighCards = opponent.highCards;
+
+        double lessTotal = 0.0;
+        int o = 0;
+        for (int k = 0; k < count;) {
+            final long strength = keys[k] >>> INDEX_BITS;
+            for (; o < opponentCount && (opponentKeys[o] >>> INDEX_BITS) < strength; ++o) {
+                final int i = (int) opponentKeys[o];
+                final double weight = opponentWeights[i];
+                less[opponentLowCards[i]] += weight;
+                less[opponentHighCards[i]] += weight;
+                lessTotal += weight;
+            }
+
+            double equalTotal = 0.0;
+            int end = o;
+            for (; end < opponentCount && (opponentKeys[end] >>> INDEX_BITS) == strength; ++end) {
+                final int i = (int) opponentKeys[end];
+                final double weight = opponentWeights[i];
+                equal[opponentLowCards[i]] += weight;
+                equal[opponentHighCards[i]] += weight;
+                equalTotal += weight;
+            }
+
+            for (; k < count && (keys[k] >>> INDEX_BITS) == strength; ++k) {
+                final int i = (int) keys[k];
+                final int low = range.lowCards[i];
+                final int high = range.highCards[i];
+                // the very same combo is live and ties, it is subtracted once per card
+                final double same = opponent.liveWeights[range.comboIndexes[i]];
+                final double win = lessTotal - less[low] - less[high];
+                final double tie = equalTotal - equal[low] - equal[high] + same;
+                equityWeights[i] += win + tie * 0.5;
+                matchupWeights[i] += opponentTotal - opponentCardWeights[low] - opponentCardWeights[high] + same;
+            }
+
+            // the equal combos are weaker than the next strength
+            for (; o < end; ++o) {
+                final int i = (int) opponentKeys[o];
+                final double weight = opponentWeights[i];
+                less[opponentLowCards[i]] += weight;
+                less[opponentHighCards[i]] += weight;
+                lessTotal += weight;
+                equal[opponentLowCards[i]] = 0.0;
+                equal[opponentHighCards[i]] = 0.0;
+            }
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2012 Alexander Shabanov - http://alexshabanov.com.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alexshabanov.poker.service.support;
+
+import com.alexshabanov.cards.model.CardMask;
+import com.alexshabanov.poker.model.Constants;
+import com.alexshabanov.poker.model.util.CombinationUtil;
+import com.alexshabanov.poker.service.HandEvaluatorEngine;
+
+/**
+ * Players' hole cards and the known cards of the all-in, validated once and shared by all the runouts.
+ */
+final class Showdown {
+
+    static final int BOARD_SIZE = Constants.FLOP_CARDS + Constants.AFTERFLOP_CARDS;
+
+    final long[] holeMasks;
+    final long boardMask;
+
+    /**
+     * Mask and codes of the cards the missing board cards are taken from.
+     */
+    final long stubMask;
+    final int[] stubCodes;
+
+    /**
+     * Count of the board cards to be dealt.
+     */
+    final int missingCount;
+
+    private final HandEvaluatorEngine engine;
+
+    Showdown(long[] holeMasks, long boardMask, long deadMask, HandEvaluatorEngine engine) {
+        if (holeMasks.length < 2) {
+            throw new IllegalArgumentException("At least two players expected, got " + holeMasks.length);
+        }
+
+        long usedMask = boardMask;
+        for (final long holeMask : holeMasks) {
+            if (Long.bitCount(holeMask) != Constants.CARDS_PER_PLAYER) {
+                throw new IllegalArgumentException("Each player should have " + Constants.CARDS_PER_PLAYER +
+                        " cards, got " + CardMask.valueOf(holeMask));
+            }
+            if ((usedMask & holeMask) != 0) {
+                throw new IllegalArgumentException("Cards " + CardMask.valueOf(usedMask & holeMask) +
+                        " are dealt twice");
+            }
+            usedMask |= holeMask;
+        }
+
+        if (Long.bitCount(boardMask) > BOARD_SIZE) {
+            throw new IllegalArgumentException("At most " + BOARD_SIZE + " board cards expected, got " +
+                    CardMask.valueOf(boardMask));
+        }
+        if ((usedMask & deadMask) != 0) {
+            throw new IllegalArgumentException("Cards " + CardMask.valueOf(usedMask & deadMask) + " are dead");
+        }
+        usedMask |= deadMask;
+
+        this.holeMasks = holeMasks.clone();
+        this.boardMask = boardMask;
+        this.stubMask = CardMask.DECK_MASK & ~usedMask;
+        this.stubCodes = CardMask.toCodes(stubMask);
+        this.missingCount = BOARD_SIZE - Long.bitCount(boardMask);
+        this.engine = engine;
+
+        if (stubCodes.length < missingCount) {
+            throw new IllegalArgumentException("Only " + stubCodes.length + " cards left for " + missingCount +
+                    " board cards");
+        }
+    }
+
+    int getPlayerCount() {
+        return holeMasks.length;
+    }
+
+    /**
+     * @return Count of the distinct runouts.
+     */
+    long getRunoutCount() {
+        return CombinationUtil.binomial(stubCodes.length, missingCount);
+    }
+
+    /**
+     * Evaluates the hands of all the players on the given board and records the outcome.
+     *
+     * @param fullBoardMask All five board cards.
+     * @param counters      Target counters.
+     * @param count         Count of the runouts this board stands for.
+     */
+    void showdown(long fullBoardMask, EquityCounters counters, long count) {
+        showdown(engine, holeMasks, fullBoardMask, counters, count, count);
+    }
+
+    /**
+     * Evaluates the hands of the given players on the given board and records the outcome.
+     *
+     * @param engine        Evaluator engine.
+     * @param masks         Hole cards of each player.
+     * @param fullBoardMask All five board cards.
+     * @param counters      Target counters.
+     * @param count         Count of the runouts this board stands for.
+     * @param weight        Weight of the runouts.
+     */
+    static void showdown(HandEvaluatorEngine engine, long[] masks, long fullBoardMask, EquityCounters counters,
+                         long count, double weight) {
+        final int[] strengths = counters.strengths;
+        int best = -1;
+        int bestCount = 0;
+        for (int player = 0; player < masks.length; ++player) {
+            final int strength = engine.getStrength(masks[player] | fullBoardMask);
+            strengths[player] = strength;
+            if (strength > best) {
+                best = strength;
+                bestCount = 1;
+            } else if (strength == best) {
+                ++bestCount;
+            }
+        }
+        counters.record(best, bestCount, count, weight);
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2012 Alexander Shabanov - http://alexshabanov.com.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alexshabanov.poker.service.support;
+
+import com.alexshabanov.poker.model.util.HandEvaluator;
+import com.alexshabanov.poker.model.util.VectorHandEvaluator;
+import com.alexshabanov.poker.service.HandEvaluatorEngine;
+
+/**
+ * Engine that evaluates the batches of hands with the SIMD instructions, see {@link VectorHandEvaluator}.
+ * Available if the vectorized kernel is available, even if it is not used by default.
+ */
+public final class VectorHandEvaluatorEngine implements HandEvaluatorEngine {
+
+    public static final String NAME = "vector";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return VectorHandEvaluator.isVectorAvailable();
+    }
+
+    @Override
+    public int getStrength(long cardMask) {
+        return HandEvaluator.getStrength(cardMask);
+    }
+
+    @Override
+    public void evaluate(long[] cardMasks, int[] strengths, int fromIndex, int toIndex) {
+        VectorHandEvaluator.evaluateVectorized(cardMasks, strengths, null, fromIndex, toIndex);
+    }
+
+    @Override
+    public String toString() {
+        return NAME + '(' + VectorHandEvaluator.getVectorLaneCount() + " lanes)";
+    }
+}
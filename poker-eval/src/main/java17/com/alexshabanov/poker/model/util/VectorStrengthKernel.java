@@ -0,0 +1,286 @@
+/*
+ * Copyright 2012 Alexander Shabanov - http://alexshabanov.com.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alexshabanov.poker.model.util;
+
+import com.alexshabanov.poker.model.HandRank;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Evaluates the several hands at once with the JDK Vector API, one hand per lane.
+ * <p>
+ * The lanes compute the same masks as {@link HandSummary#reset(long)} does, then the strength of every category
+ * is computed from the table indexed by the 13-bit rank masks (see {@link #RANK_MASK_TABLE}) and the max strength
+ * of the categories present is taken, so there are no branches per hand.
+ * The result is the same as {@link HandEvaluator#strengthOf(HandSummary)} returns.
+ * </p>
+ * <p>
+ * Compiled only by the JDK 17+ build, instantiated by {@link VectorHandEvaluator} via reflection.
+ * </p>
+ */
+final class VectorStrengthKernel implements StrengthKernel {
+
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+    /**
+     * Count of hands, whose summaries are kept in the scratch arrays at once.
+     */
+    private static final int BLOCK_SIZE = 1024;
+
+    private static final int RANKS = HandSummary.RANKS;
+    private static final int KICKER_BITS = HandEvaluator.STRENGTH_KICKER_BITS;
+    private static final int KICKERS_MASK = (1 << HandEvaluator.STRENGTH_CATEGORY_SHIFT) - 1;
+    private static final int KICKER_MASK = (1 << KICKER_BITS) - 1;
+    private static final int TOP_KICKER_SHIFT = HandEvaluator.STRENGTH_CATEGORY_SHIFT - KICKER_BITS;
+    private static final int STRAIGHT_SHIFT = HandEvaluator.STRENGTH_CATEGORY_SHIFT;
+
+    /**
+     * Indexed by the 13-bit rank mask: packed kickers of the five highest ranks in the lower 20 bits
+     * (see {@link HandEvaluator#highestKickers(int)}) and the value of the top card of the highest straight
+     * (zero if there is no straight) in the next 4 bits.
+     */
+    private static final int[] RANK_MASK_TABLE = new int[1 << RANKS];
+
+    static {
+        for (int mask = 0; mask < RANK_MASK_TABLE.length; ++mask) {
+            final int straightTop = HandSummary.straightTop(mask);
+            final int straightValue = straightTop < 0 ? 0 : straightTop + HandEvaluator.STRENGTH_TWO_VALUE;
+            RANK_MASK_TABLE[mask] = (straightValue << STRAIGHT_SHIFT) | HandEvaluator.highestKickers(mask);
+        }
+    }
+
+    private static int category(HandRank rank) {
+        return HandEvaluator.categoryOf(rank) << HandEvaluator.STRENGTH_CATEGORY_SHIFT;
+    }
+
+    private static final int STRAIGHT_FLUSH = category(HandRank.STRAIGHT_FLUSH);
+    private static final int FOUR_OF_A_KIND = category(HandRank.FOUR_OF_A_KIND);
+    private static final int FULL_HOUSE = category(HandRank.FULL_HOUSE);
+    private static final int FLUSH = category(HandRank.FLUSH);
+    private static final int STRAIGHT = category(HandRank.STRAIGHT);
+    private static final int THREE_OF_A_KIND = category(HandRank.THREE_OF_A_KIND);
+    private static final int TWO_PAIRS = category(HandRank.TWO_PAIRS);
+    private static final int PAIR = category(HandRank.PAIR);
+
+    @Override
+    public int getLaneCount() {
+        return SPECIES.length();
+    }
+
+    @Override
+    public void evaluate(long[] cardMasks, int[] strengths, int fromIndex, int toIndex) {
+        final Block block = new Block();
+        final HandSummary summary = new HandSummary();
+
+        for (int start = fromIndex; start < toIndex; start += BLOCK_SIZE) {
+            final int count = Math.min(BLOCK_SIZE, toIndex - start);
+            final int vectorCount = SPECIES.loopBound(count);
+
+            block.summarize(cardMasks, start, vectorCount);
+            block.straightsAndFlushes(strengths, start, vectorCount);
+            block.fullHousesAndTrips(strengths, start, vectorCount);
+            block.pairs(strengths, start, vectorCount);
+
+            // the rest of hands that do not fill the whole vector
+            for (int i = vectorCount; i < count; ++i) {
+                summary.reset(cardMasks[start + i]);
+                strengths[start + i] = HandEvaluator.strengthOf(summary);
+            }
+        }
+    }
+
+    /**
+     * Summaries of the block of hands, the same masks as {@link HandSummary} has, one array per mask.
+     * <p>
+     * Strength of the hand is the max strength of the categories present in the hand, so each pass over the block
+     * computes the strengths of a few categories and keeps the max one. Each pass is kept small, so that
+     * the JIT compiler inlines all the vector operations.
+     * </p>
+     */
+    private static final class Block {
+        final int[][] suitMasks = new int[HandSummary.SUITS][BLOCK_SIZE];
+        final int[] rankMasks = new int[BLOCK_SIZE];
+        final int[] pairMasks = new int[BLOCK_SIZE];
+        final int[] tripsMasks = new int[BLOCK_SIZE];
+        final int[] quadsMasks = new int[BLOCK_SIZE];
+        final int[] indexes = new int[SPECIES.length()];
+
+        void summarize(long[] cardMasks, int start, int count) {
+            for (int i = 0; i < count; ++i) {
+                final long cardMask = cardMasks[start + i];
+                for (int suit = 0; suit < HandSummary.SUITS; ++suit) {
+                    suitMasks[suit][i] = (int) (cardMask >>> (suit * RANKS)) & HandSummary.ALL_RANKS_MASK;
+                }
+            }
+
+            for (int i = 0; i < count; i += SPECIES.length()) {
+                final IntVector a = ratingMask(suitMasks[0], i);
+                final IntVector b = ratingMask(suitMasks[1], i);
+                final IntVector c = ratingMask(suitMasks[2], i);
+                final IntVector d = ratingMask(suitMasks[3], i);
+                final IntVector cd = c.or(d);
+                a.intoArray(suitMasks[0], i);
+                b.intoArray(suitMasks[1], i);
+                c.intoArray(suitMasks[2], i);
+                d.intoArray(suitMasks[3], i);
+                a.or(b).or(cd).intoArray(rankMasks, i);
+                a.and(b.or(cd)).or(b.and(cd)).or(c.and(d)).intoArray(pairMasks, i);
+                a.and(b).and(cd).or(c.and(d).and(a.or(b))).intoArray(tripsMasks, i);
+                a.and(b).and(c).and(d).intoArray(quadsMasks, i);
+            }
+        }
+
+        /**
+         * High card, straight, flush and straight flush, overwrites the strengths.
+         */
+        void straightsAndFlushes(int[] strengths, int start, int count) {
+            for (int i = 0; i < count; i += SPECIES.length()) {
+                final IntVector rankEntry = lookup(IntVector.fromArray(SPECIES, rankMasks, i), indexes);
+                final IntVector entryA = lookup(IntVector.fromArray(SPECIES, suitMasks[0], i), indexes);
+                final IntVector entryB = lookup(IntVector.fromArray(SPECIES, suitMasks[1], i), indexes);
+                final IntVector entryC = lookup(IntVector.fromArray(SPECIES, suitMasks[2], i), indexes);
+                final IntVector entryD = lookup(IntVector.fromArray(SPECIES, suitMasks[3], i), indexes);
+
+                final IntVector highCard = rankEntry.and(KICKERS_MASK);
+                final IntVector straight = straight(rankEntry.lanewise(VectorOperators.LSHR, STRAIGHT_SHIFT), STRAIGHT);
+                final IntVector flushKickers = flushKickers(entryA).max(flushKickers(entryB))
+                        .max(flushKickers(entryC)).max(flushKickers(entryD));
+                final IntVector flush = flushKickers.or(FLUSH).blend(0, isZero(flushKickers));
+                final IntVector straightFlush = straight(entryA.max(entryB).max(entryC).max(entryD)
+                        .lanewise(VectorOperators.LSHR, STRAIGHT_SHIFT), STRAIGHT_FLUSH);
+
+                highCard.max(straight).max(flush).max(straightFlush).intoArray(strengths, start + i);
+            }
+        }
+
+        /**
+         * Four of a kind, full house and three of a kind.
+         */
+        void fullHousesAndTrips(int[] strengths, int start, int count) {
+            for (int i = 0; i < count; i += SPECIES.length()) {
+                final IntVector rankMask = IntVector.fromArray(SPECIES, rankMasks, i);
+
+                final IntVector quadsValue = topKicker(lookup(IntVector.fromArray(SPECIES, quadsMasks, i), indexes));
+                final IntVector quadsKicker = topKicker(lookup(rankMask.and(flagOf(quadsValue).not()), indexes));
+                final IntVector fourOfAKind = quadsValue.lanewise(VectorOperators.LSHL, TOP_KICKER_SHIFT)
+                        .or(quadsKicker.lanewise(VectorOperators.LSHL, TOP_KICKER_SHIFT - KICKER_BITS))
+                        .or(FOUR_OF_A_KIND).blend(0, isZero(quadsValue));
+
+                final IntVector tripsValue = topKicker(lookup(IntVector.fromArray(SPECIES, tripsMasks, i), indexes));
+                final IntVector tripsFlag = flagOf(tripsValue);
+                final IntVector pairValue = topKicker(lookup(
+                        IntVector.fromArray(SPECIES, pairMasks, i).and(tripsFlag.not()), indexes));
+                final IntVector fullHouse = tripsValue.lanewise(VectorOperators.LSHL, TOP_KICKER_SHIFT)
+                        .or(pairValue.lanewise(VectorOperators.LSHL, TOP_KICKER_SHIFT - KICKER_BITS))
+                        .or(FULL_HOUSE).blend(0, isZero(pairValue).or(isZero(tripsValue)));
+
+                final IntVector tripsKickers = lookup(rankMask.and(tripsFlag.not()), indexes).and(KICKERS_MASK);
+                final IntVector threeOfAKind = tripsValue.lanewise(VectorOperators.LSHL, TOP_KICKER_SHIFT)
+                        .or(tripsKickers.lanewise(VectorOperators.LSHR, 3 * KICKER_BITS)
+                                .lanewise(VectorOperators.LSHL, 2 * KICKER_BITS))
+                        .or(THREE_OF_A_KIND).blend(0, isZero(tripsValue));
+
+                IntVector.fromArray(SPECIES, strengths, start + i).max(fourOfAKind).max(fullHouse).max(threeOfAKind)
+                        .intoArray(strengths, start + i);
+            }
+        }
+
+        /**
+         * Two pairs and pair.
+         */
+        void pairs(int[] strengths, int start, int count) {
+            for (int i = 0; i < count; i += SPECIES.length()) {
+                final IntVector rankMask = IntVector.fromArray(SPECIES, rankMasks, i);
+                final IntVector pairEntry = lookup(IntVector.fromArray(SPECIES, pairMasks, i), indexes);
+                final IntVector highPairValue = topKicker(pairEntry);
+                final IntVector lowPairValue = pairEntry.lanewise(VectorOperators.LSHR, TOP_KICKER_SHIFT - KICKER_BITS)
+                        .and(KICKER_MASK);
+                final IntVector highPairFlag = flagOf(highPairValue);
+
+                final IntVector twoPairsKicker = topKicker(lookup(
+                        rankMask.and(highPairFlag.or(flagOf(lowPairValue)).not()), indexes));
+                final IntVector twoPairs = pairEntry.and(KICKERS_MASK)
+                        .lanewise(VectorOperators.LSHR, 3 * KICKER_BITS).lanewise(VectorOperators.LSHL, 3 * KICKER_BITS)
+                        .or(twoPairsKicker.lanewise(VectorOperators.LSHL, 2 * KICKER_BITS))
+                        .or(TWO_PAIRS).blend(0, isZero(lowPairValue));
+
+                final IntVector pairKickers = lookup(rankMask.and(highPairFlag.not()), indexes).and(KICKERS_MASK);
+                final IntVector pair = highPairValue.lanewise(VectorOperators.LSHL, TOP_KICKER_SHIFT)
+                        .or(pairKickers.lanewise(VectorOperators.LSHR, 2 * KICKER_BITS)
+                                .lanewise(VectorOperators.LSHL, KICKER_BITS))
+                        .or(PAIR).blend(0, isZero(highPairValue));
+
+                IntVector.fromArray(SPECIES, strengths, start + i).max(twoPairs).max(pair)
+                        .intoArray(strengths, start + i);
+            }
+        }
+    }
+
+    /**
+     * @return Strength of the straight of the given category or zero if there is no straight.
+     */
+    private static IntVector straight(IntVector topValue, int category) {
+        return topValue.lanewise(VectorOperators.LSHL, TOP_KICKER_SHIFT).or(category).blend(0, isZero(topValue));
+    }
+
+    /**
+     * @return Kickers of the suit if there are five cards of the suit (i.e. the fifth kicker is present), zero otherwise.
+     */
+    private static IntVector flushKickers(IntVector entry) {
+        return entry.and(KICKERS_MASK).blend(0, entry.and(KICKER_MASK).compare(VectorOperators.EQ, 0));
+    }
+
+    /**
+     * Loads the suit masks and moves ACE from the lowest bit (rank ordinal order) to the highest one.
+     */
+    private static IntVector ratingMask(int[] suitMasks, int offset) {
+        final IntVector ordinalMask = IntVector.fromArray(SPECIES, suitMasks, offset);
+        return ordinalMask.lanewise(VectorOperators.LSHR, 1)
+                .or(ordinalMask.and(1).lanewise(VectorOperators.LSHL, HandSummary.ACE_INDEX));
+    }
+
+    /**
+     * Looks up the table entries of the lanes one by one: the gather form of {@code IntVector.fromArray} is not
+     * faster here and C2 of JDK 17 was seen to miscompile it in these loops.
+     */
+    private static IntVector lookup(IntVector rankMask, int[] indexes) {
+        rankMask.intoArray(indexes, 0);
+        for (int i = 0; i < indexes.length; ++i) {
+            indexes[i] = RANK_MASK_TABLE[indexes[i]];
+        }
+        return IntVector.fromArray(SPECIES, indexes, 0);
+    }
+
+    /**
+     * @return Value of the highest rank of the table entry, zero if the rank mask is empty.
+     */
+    private static IntVector topKicker(IntVector entry) {
+        return entry.lanewise(VectorOperators.LSHR, TOP_KICKER_SHIFT).and(KICKER_MASK);
+    }
+
+    /**
+     * @return Rank mask of the given kicker value, garbage if there is no kicker, such lanes are not selected.
+     */
+    private static IntVector flagOf(IntVector value) {
+        return IntVector.broadcast(SPECIES, 1).lanewise(VectorOperators.LSHL,
+                value.sub(HandEvaluator.STRENGTH_TWO_VALUE).and(Integer.SIZE - 1));
+    }
+
+    private static VectorMask<Integer> isZero(IntVector vector) {
+        return vector.compare(VectorOperators.EQ, 0);
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2012 Alexander Shabanov - http://alexshabanov.com.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alexshabanov.cards.model;
+
+import com.alexshabanov.cards.util.ReaderUtil;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public final class CardMaskTest {
+
+    @Test
+    public void testRawMask() {
+        final long mask = CardMask.maskOf(new int[] {51, 0, 13});
+        assertEquals(3, CardMask.size(mask));
+        assertTrue(CardMask.contains(mask, 13));
+        assertFalse(CardMask.contains(mask, 14));
+        assertEquals(0, CardMask.lowestCode(mask));
+        assertEquals(-1, CardMask.lowestCode(0L));
+        assertArrayEquals(new int[] {0, 13, 51}, CardMask.toCodes(mask));
+        assertEquals(ReaderUtil.cardsFromLatin1("As Ah Kc"), CardMask.toCards(mask));
+    }
+
+    @Test
+    public void testSetOperations() {
+        final CardMask a = CardMask.of(ReaderUtil.cardsFromLatin1("As Kd 7h"));
+        final CardMask b = CardMask.of(ReaderUtil.cardsFromLatin1("7h 2c"));
+
+        assertEquals(CardMask.of(ReaderUtil.cardsFromLatin1("As Kd 7h 2c")), a.union(b));
+        assertEquals(CardMask.of(ReaderUtil.cardsFromLatin1("7h")), a.intersection(b));
+        assertEquals(CardMask.of(ReaderUtil.cardsFromLatin1("As Kd")), a.without(b));
+        assertEquals(a, a.without(b).with(ReaderUtil.cardFromLatin1("7h")));
+        assertEquals(a.without(b), a.without(ReaderUtil.cardFromLatin1("7h")));
+        assertTrue(a.union(b).containsAll(b));
+        assertFalse(a.containsAll(b));
+        assertTrue(CardMask.DECK.without(CardMask.DECK).isEmpty());
+        assertEquals(DefaultCard.MAX_CARD_CODE, CardMask.DECK.size());
+    }
+
+    @Test
+    public void testIteration() {
+        final List<Card> cards = new ArrayList<Card>();
+        for (final Card card : CardMask.DECK) {
+            cards.add(card);
+        }
+
+        assertEquals(DefaultCard.deck(), cards);
+        assertEquals(cards, CardMask.DECK.toCards());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidMask() {
+        CardMask.valueOf(1L << DefaultCard.MAX_CARD_CODE);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidCode() {
+        CardMask.of(DefaultCard.MAX_CARD_CODE);
+    }
+}
@@ -14,12 +14,15 @@
 
 package com.alexshabanov.cards.util;
 
+import com.alexshabanov.cards.model.Card;
 import com.alexshabanov.cards.model.DefaultCard;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
 public final class EncodeUtilTest {
@@ -33,4 +36,17 @@ public final class EncodeUtilTest {
 
         assertEquals(cardCodes, EncodeUtil.toCodes(EncodeUtil.fromCodes(cardCodes)));
     }
+
+    @Test
+    public void testArrayEncoding() {
+        final int[] codes = {5, 51, 0, 17};
+        final List<Card> cards = EncodeUtil.asCards(codes);
+        assertEquals(EncodeUtil.fromCodes(Arrays.asList(5, 51, 0, 17)), cards);
+        assertArrayEquals(codes, EncodeUtil.toCodeArray(cards));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidArray() {
+        EncodeUtil.asCards(new int[] {1, DefaultCard.MAX_CARD_CODE});
+    }
 }
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2012 Alexander Shabanov - http://alexshabanov.com.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alexshabanov.cards.util;
+
+import com.alexshabanov.cards.model.DefaultCard;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public final class IsomorphicIndexerTest {
+
+    private static final int RANKS = 13;
+
+    private static int[] randomCodes(Random random, int count) {
+        final int[] result = new int[count];
+        long used = 0;
+        for (int i = 0; i < count; ++i) {
+            int code;
+            do {
+                code = random.nextInt(DefaultCard.MAX_CARD_CODE);
+            } while ((used & (1L << code)) != 0);
+            used |= 1L << code;
+            result[i] = code;
+        }
+        return result;
+    }
+
+    private static int[] permuteSuits(int[] codes, int[] suitPermutation) {
+        final int[] result = new int[codes.length];
+        for (int i = 0; i < codes.length; ++i) {
+            result[i] = suitPermutation[codes[i] / RANKS] * RANKS + codes[i] % RANKS;
+        }
+        return result;
+    }
+
+    @Test
+    public void testSizes() {
+        assertEquals(169, IsomorphicIndexer.PREFLOP.getSize());
+        assertEquals(1286792, IsomorphicIndexer.FLOP.getSize());
+        assertEquals(13960050, IsomorphicIndexer.TURN.getSize());
+        assertEquals(123156254, IsomorphicIndexer.RIVER.getSize());
+        assertEquals(7, IsomorphicIndexer.RIVER.getCardCount());
+        assertEquals(2, IsomorphicIndexer.RIVER.getRoundCount());
+    }
+
+    @Test
+    public void testIsomorphicHands() {
+        final IsomorphicIndexer indexer = IsomorphicIndexer.FLOP;
+        assertEquals(indexer.indexOf(ReaderUtil.codesFromLatin1("As Ks 2h 3h 4d")),
+                indexer.indexOf(ReaderUtil.codesFromLatin1("Ah Kh 2s 3s 4d")));
+        assertEquals(indexer.indexOf(ReaderUtil.codesFromLatin1("As Ks 2h 3h 4d")),
+                indexer.indexOf(ReaderUtil.codesFromLatin1("Kc Ac 4s 2d 3d")));
+        assertFalse(indexer.indexOf(ReaderUtil.codesFromLatin1("As Ks 2h 3h 4d")) ==
+                indexer.indexOf(ReaderUtil.codesFromLatin1("As Kh 2h 3h 4d")));
+        // hole cards are not mixed with the board ones
+        assertFalse(indexer.indexOf(ReaderUtil.codesFromLatin1("As Ks 2h 3h 4d")) ==
+                indexer.indexOf(ReaderUtil.codesFromLatin1("2h 3h As Ks 4d")));
+    }
+
+    @Test
+    public void testPreflopClasses() {
+        final IsomorphicIndexer indexer = IsomorphicIndexer.PREFLOP;
+        final BitSet seen = new BitSet();
+        for (int first = 0; first < DefaultCard.MAX_CARD_CODE; ++first) {
+            for (int second = first + 1; second < DefaultCard.MAX_CARD_CODE; ++second) {
+                final int index = indexer.indexOf(new int[] {first, second});
+                assertEquals(index, indexer.indexOf(new int[] {second, first}));
+                seen.set(index);
+            }
+        }
+        assertEquals(169, seen.cardinality());
+
+        final int[] codes = new int[2];
+        for (int index = 0; index < indexer.getSize(); ++index) {
+            indexer.unindex(index, codes);
+            assertEquals(index, indexer.indexOf(codes));
+        }
+    }
+
+    @Test
+    public void testRoundTrip() {
+        final Random random = new Random(8000L);
+        for (final IsomorphicIndexer indexer : new IsomorphicIndexer[] {
+                IsomorphicIndexer.FLOP, IsomorphicIndexer.TURN, IsomorphicIndexer.RIVER,
+                new IsomorphicIndexer(2, 3, 1), new IsomorphicIndexer(4, 3)}) {
+            final int[] codes = new int[indexer.getCardCount()];
+            for (int i = 0; i < 20000; ++i) {
+                final int index = random.nextInt(indexer.getSize());
+                indexer.unindex(index, codes);
+                assertEquals(index, indexer.indexOf(codes));
+            }
+        }
+    }
+
+    @Test
+    public void testCanonicalForm() {
+        final IsomorphicIndexer indexer = IsomorphicIndexer.RIVER;
+        final int[] suitPermutation = {0, 1, 2, 3};
+        final Random random = new Random(9000L);
+        for (int i = 0; i < 20000; ++i) {
+            final int[] codes = randomCodes(random, indexer.getCardCount());
+            final int[] canonical = indexer.canonize(codes);
+
+            for (int j = suitPermutation.length - 1; j > 0; --j) {
+                final int k = random.nextInt(j + 1);
+                final int tmp = suitPermutation[j];
+                suitPermutation[j] = suitPermutation[k];
+                suitPermutation[k] = tmp;
+            }
+            final int[] permuted = permuteSuits(codes, suitPermutation);
+            assertEquals(indexer.indexOf(codes), indexer.indexOf(permuted));
+            assertArrayEquals(canonical, indexer.canonize(permuted));
+
+            // canonical form keeps the ranks of each round
+            Arrays.sort(codes, 0, 2);
+            assertTrue(sameRanks(codes, canonical, 0, 2));
+            assertTrue(sameRanks(codes, canonical, 2, 7));
+        }
+    }
+
+    private static boolean sameRanks(int[] first, int[] second, int fromIndex, int toIndex) {
+        final int[] firstRanks = new int[RANKS];
+        for (int i = fromIndex; i < toIndex; ++i) {
+            ++firstRanks[first[i] % RANKS];
+            --firstRanks[second[i] % RANKS];
+        }
+        for (final int count : firstRanks) {
+            if (count != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDuplicateCard() {
+        IsomorphicIndexer.FLOP.indexOf(new int[] {1, 2, 3, 4, 1});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWrongCardCount() {
+        IsomorphicIndexer.FLOP.indexOf(new int[] {1, 2, 3, 4});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIndexOutOfRange() {
+        IsomorphicIndexer.PREFLOP.unindex(169, new int[2]);
+    }
+}
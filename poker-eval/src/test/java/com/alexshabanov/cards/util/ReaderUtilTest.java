@@ -21,6 +21,7 @@ import org.junit.Test;
 
 import java.util.Arrays;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
 public final class ReaderUtilTest {
@@ -38,4 +39,12 @@ public final class ReaderUtilTest {
                 DefaultCard.valueOf(Suit.DIAMONDS, Rank.ACE)),
                 ReaderUtil.cardsFromLatin1("2h 3c Qs Jd Ad"));
     }
+
+    @Test
+    public void testReadCodes() {
+        final int aceOfClubs = DefaultCard.valueOf(Suit.CLUBS, Rank.ACE).getCode();
+        final int tenOfDiamonds = DefaultCard.valueOf(Suit.DIAMONDS, Rank.TEN).getCode();
+        assertArrayEquals(new int[] {aceOfClubs, tenOfDiamonds}, ReaderUtil.codesFromLatin1("Ac Td"));
+        assertEquals((1L << aceOfClubs) | (1L << tenOfDiamonds), ReaderUtil.maskFromLatin1("Td Ac"));
+    }
 }
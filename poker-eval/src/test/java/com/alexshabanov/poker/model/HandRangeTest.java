@@ -0,0 +1,152 @@
+/*
+ * Copyright 2012 Alexander Shabanov - http://alexshabanov.com.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alexshabanov.poker.model;
+
+import com.alexshabanov.cards.model.CardMask;
+import com.alexshabanov.cards.util.ReaderUtil;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public final class HandRangeTest {
+
+    private static double weightOf(HandRange range, String combo) {
+        return range.getWeight(HandRange.comboIndex(ReaderUtil.maskFromLatin1(combo)));
+    }
+
+    @Test
+    public void testComboIndexes() {
+        final boolean[] seen = new boolean[HandRange.COMBO_COUNT];
+        for (int high = 1; high < 52; ++high) {
+            for (int low = 0; low < high; ++low) {
+                final int index = HandRange.comboIndex(low, high);
+                assertEquals(false, seen[index]);
+                seen[index] = true;
+                assertEquals((1L << low) | (1L << high), HandRange.comboMask(index));
+                assertEquals(index, HandRange.comboIndex(HandRange.comboMask(index)));
+            }
+        }
+    }
+
+    @Test
+    public void testParsePairs() {
+        assertEquals(6, HandRange.parse("TT").getComboCount());
+        assertEquals(30, HandRange.parse("TT+").getComboCount());
+        assertEquals(6, HandRange.parse("AA+").getComboCount());
+        assertEquals(18, HandRange.parse("22-44").getComboCount());
+        assertEquals(30, HandRange.parse("TT-66").getComboCount());
+        assertEquals(0.0, weightOf(HandRange.parse("TT-66"), "5h 5d"), 0.0);
+        assertEquals(1.0, weightOf(HandRange.parse("TT-66"), "6h 6d"), 0.0);
+    }
+
+    @Test
+    public void testParseNonPairs() {
+        assertEquals(4, HandRange.parse("AKs").getComboCount());
+        assertEquals(12, HandRange.parse("KJo").getComboCount());
+        assertEquals(16, HandRange.parse("AK").getComboCount());
+        assertEquals(8, HandRange.parse("AQs+").getComboCount());
+        assertEquals(44, HandRange.parse("K2s+").getComboCount());
+        assertEquals(48, HandRange.parse("K9o-K6o").getComboCount());
+        assertEquals(12, HandRange.parse("76s-54s").getComboCount());
+
+        final HandRange connectors = HandRange.parse("76s-54s");
+        assertEquals(1.0, weightOf(connectors, "6h 5h"), 0.0);
+        assertEquals(0.0, weightOf(connectors, "6h 4h"), 0.0);
+        assertEquals(0.0, weightOf(connectors, "7h 6d"), 0.0);
+        assertEquals(1.0, weightOf(HandRange.parse("KJo"), "Jh Kd"), 0.0);
+        assertEquals(0.0, weightOf(HandRange.parse("KJo"), "Jh Kh"), 0.0);
+    }
+
+    @Test
+    public void testParseList() {
+        final HandRange range = HandRange.parse(" TT+, AQs+,KJo ,  76s-54s ");
+        assertEquals(30 + 8 + 12 + 12, range.getComboCount());
+        assertTrue(HandRange.parse("").isEmpty());
+    }
+
+    @Test
+    public void testParseExactCombosAndWeights() {
+        final HandRange range = HandRange.parse("AhKd, QQ:0.25, AKs:.5, QhQd");
+        assertEquals(1.0, weightOf(range, "Ah Kd"), 0.0);
+        assertEquals(0.25, weightOf(range, "Qs Qc"), 0.0);
+        assertEquals(0.5, weightOf(range, "As Ks"), 0.0);
+
+        // later items override the earlier ones
+        assertEquals(1.0, weightOf(range, "Qh Qd"), 0.0);
+        assertEquals(1 + 6 + 4, range.getComboCount());
+        assertEquals(1.0 + 5 * 0.25 + 1.0 + 4 * 0.5, range.getTotalWeight(), 1e-12);
+    }
+
+    @Test
+    public void testParseWeights() {
+        for (final String weight : new String[] {"0", "1", "0.3", ".1", "7.", "0.123456789", "12345.6789"}) {
+            assertEquals(weight, Double.parseDouble(weight),
+                    weightOf(HandRange.parse("AhKd:" + weight), "Ah Kd"), 0.0);
+        }
+    }
+
+    @Test
+    public void testMalformedNotation() {
+        final String[] malformed = {"A", "AKx", "AKs,", "AAs", "TT-99s", "76s-54o", "A2s-K2s", "AK:", "AhAh",
+                "AhKx", "QQ-AK", "T9s,,88", "AK:.", "AK:0.5.5", "AK:1234567890.123456"};
+        for (final String notation : malformed) {
+            try {
+                HandRange.parse(notation);
+                throw new AssertionError("Notation " + notation + " should be rejected");
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testSetOperations() {
+        final HandRange range = HandRange.parse("AA, KK:0.5");
+        range.union(HandRange.parse("KK, QQ:0.25"));
+        assertEquals(18, range.getComboCount());
+        assertEquals(1.0, weightOf(range, "Ks Kc"), 0.0);
+
+        range.intersection(HandRange.parse("KK+:0.75"));
+        assertEquals(12, range.getComboCount());
+        assertEquals(0.75, weightOf(range, "As Ac"), 0.0);
+
+        range.removeBlocked(ReaderUtil.maskFromLatin1("Ah Kd"));
+        assertEquals(6, range.getComboCount());
+        assertEquals(0.0, weightOf(range, "Ah As"), 0.0);
+
+        range.normalize();
+        assertEquals(1.0, range.getTotalWeight(), 1e-12);
+        assertEquals(1.0 / 6, weightOf(range, "Kh Kc"), 1e-12);
+
+        final HandRange copy = new HandRange(range);
+        range.clear();
+        assertTrue(range.isEmpty());
+        assertEquals(6, copy.getComboCount());
+    }
+
+    @Test
+    public void testRemoveBlockedByDeck() {
+        final HandRange range = HandRange.parse("22+, A2+, K2+, Q2+, J2+, T2+, 92+, 82+, 72+, 62+, 52+, 42+, 32");
+        assertEquals(HandRange.COMBO_COUNT, range.getComboCount());
+        range.removeBlocked(CardMask.DECK_MASK);
+        assertTrue(range.isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeWeight() {
+        new HandRange().setWeight(0, -0.5);
+    }
+}
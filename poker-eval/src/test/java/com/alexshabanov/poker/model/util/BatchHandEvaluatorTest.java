@@ -0,0 +1,145 @@
+/*
+ * Copyright 2012 Alexander Shabanov - http://alexshabanov.com.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alexshabanov.poker.model.util;
+
+import com.alexshabanov.cards.model.CardMask;
+import com.alexshabanov.cards.util.EncodeUtil;
+import com.alexshabanov.cards.util.ReaderUtil;
+import com.alexshabanov.poker.model.Hand;
+import com.alexshabanov.poker.model.HandRank;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public final class BatchHandEvaluatorTest {
+
+    private static int[] randomCodes(Random random, int handCount, int handSize) {
+        final int[] codes = new int[handCount * handSize];
+        for (int i = 0; i < handCount; ++i) {
+            long used = 0;
+            for (int j = 0; j < handSize; ++j) {
+                int code;
+                do {
+                    code = random.nextInt(Long.bitCount(CardMask.DECK_MASK));
+                } while ((used & (1L << code)) != 0);
+                used |= 1L << code;
+                codes[i * handSize + j] = code;
+            }
+        }
+        return codes;
+    }
+
+    @Test
+    public void testSameAsHandEvaluator() {
+        final int handCount = 20000;
+        final int[] codes = randomCodes(new Random(4000L), handCount, 7);
+        final long[] masks = new long[handCount];
+        for (int i = 0; i < handCount; ++i) {
+            final int[] hand = new int[7];
+            System.arraycopy(codes, i * 7, hand, 0, 7);
+            masks[i] = CardMask.maskOf(hand);
+        }
+
+        final int[] maskStrengths = new int[handCount];
+        final byte[] maskRanks = new byte[handCount];
+        BatchHandEvaluator.evaluate(masks, maskStrengths, maskRanks);
+
+        final int[] codeStrengths = new int[handCount];
+        BatchHandEvaluator.evaluate(codes, 7, codeStrengths, null);
+
+        for (int i = 0; i < handCount; ++i) {
+            final Hand hand = HandEvaluator.evaluate(EncodeUtil.asCards(CardMask.toCodes(masks[i])));
+            assertEquals(hand.getStrength(), maskStrengths[i]);
+            assertEquals(hand.getStrength(), codeStrengths[i]);
+            assertEquals(hand.getRank().ordinal(), maskRanks[i]);
+        }
+    }
+
+    @Test
+    public void testRange() {
+        final long[] masks = {
+                ReaderUtil.maskFromLatin1("Ah Kh Qh Jh Th"),
+                ReaderUtil.maskFromLatin1("2c 2d 2h 2s 3c"),
+                ReaderUtil.maskFromLatin1("2c 5d 7h 9s Jc")
+        };
+        final int[] strengths = new int[masks.length];
+        final byte[] ranks = new byte[masks.length];
+        BatchHandEvaluator.evaluate(masks, strengths, ranks, 1, 3);
+
+        assertEquals(0, strengths[0]);
+        assertEquals(HandRank.FOUR_OF_A_KIND.ordinal(), ranks[1]);
+        assertEquals(HandRank.HIGH_CARD.ordinal(), ranks[2]);
+        assertEquals(HandEvaluator.getStrength(masks[2]), strengths[2]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testShortResultArray() {
+        BatchHandEvaluator.evaluate(new long[3], new int[2]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidHandSize() {
+        BatchHandEvaluator.evaluate(new int[10], 7, new int[2], null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDuplicateCodes() {
+        BatchHandEvaluator.evaluate(new int[] { 0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 7 }, 7, new int[2], null);
+    }
+
+    @Test
+    public void testClassify() {
+        final int handCount = 20000;
+        final Random random = new Random(4500L);
+        final long[] masks = new long[handCount];
+        for (int i = 0; i < handCount; ++i) {
+            masks[i] = CardMask.maskOf(randomCodes(random, 1, 5 + i % 5));
+        }
+
+        final byte[] ranks = new byte[handCount];
+        BatchHandEvaluator.classify(masks, ranks);
+        final long[] counts = BatchHandEvaluator.countRanks(masks);
+        final long[] expectedCounts = new long[counts.length];
+        for (int i = 0; i < handCount; ++i) {
+            assertEquals(HandEvaluator.getStrengthRank(HandEvaluator.getStrength(masks[i])).ordinal(), ranks[i]);
+            ++expectedCounts[ranks[i]];
+        }
+        assertArrayEquals(expectedCounts, counts);
+    }
+
+    @Test
+    public void testFiveCardFrequencies() {
+        final List<Long> masks = new ArrayList<Long>();
+        CardCombinator.iterate(CardMask.DECK_MASK, new CardMaskCombinationCallback() {
+            @Override
+            public boolean process(long cardMask) {
+                masks.add(cardMask);
+                return false;
+            }
+        }, 5);
+        final long[] maskArray = new long[masks.size()];
+        for (int i = 0; i < maskArray.length; ++i) {
+            maskArray[i] = masks.get(i);
+        }
+
+        assertArrayEquals(new long[] {40, 624, 3744, 5108, 10200, 54912, 123552, 1098240, 1302540},
+                BatchHandEvaluator.countRanks(maskArray));
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2012 Alexander Shabanov - http://alexshabanov.com.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alexshabanov.poker.model.util;
+
+import com.alexshabanov.cards.model.Card;
+import com.alexshabanov.cards.model.DefaultCard;
+import com.alexshabanov.cards.util.ReaderUtil;
+import com.alexshabanov.poker.model.Hand;
+import com.alexshabanov.poker.model.HandRank;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public final class BoardContextTest {
+
+    @Test
+    public void testSameAsHandEvaluator() {
+        final List<Card> deck = new ArrayList<Card>();
+        for (int code = 0; code < DefaultCard.MAX_CARD_CODE; ++code) {
+            deck.add(DefaultCard.valueOf(code));
+        }
+
+        final Random random = new Random(9000L);
+        for (int n = 0; n < 1000; ++n) {
+            Collections.shuffle(deck, random);
+            final BoardContext context = new BoardContext(deck.subList(0, 5));
+
+            for (int player = 0; player < 9; ++player) {
+                final Card card0 = deck.get(5 + player * 2);
+                final Card card1 = deck.get(6 + player * 2);
+                final List<Card> cards = new ArrayList<Card>();
+                cards.add(card0);
+                cards.add(card1);
+                cards.addAll(deck.subList(0, 5));
+
+                final Hand expected = HandEvaluator.evaluate(cards);
+                assertEquals(expected, context.evaluate(card0, card1));
+                assertEquals(expected, context.evaluate(card0.getCode(), card1.getCode()));
+                assertEquals(expected.getStrength(), context.getStrength(card0.getCode(), card1.getCode()));
+            }
+        }
+    }
+
+    @Test
+    public void testFlushesOnBoardsOfEachSize() {
+        // cards of two suits only, so that most of the boards have a flush suit and some boards have two
+        final List<Integer> deck = new ArrayList<Integer>();
+        for (int code = 0; code < 2 * HandSummary.RANKS; ++code) {
+            deck.add(code);
+        }
+
+        final Random random = new Random(9001L);
+        for (int n = 0; n < 1000; ++n) {
+            Collections.shuffle(deck, random);
+            final int boardSize = 3 + n % 4;
+            final int[] boardCodes = new int[boardSize];
+            for (int i = 0; i < boardSize; ++i) {
+                boardCodes[i] = deck.get(i);
+            }
+            final BoardContext context = new BoardContext(boardCodes);
+
+            for (int player = 0; player < 5; ++player) {
+                final int[] codes = new int[boardSize + 2];
+                codes[0] = deck.get(boardSize + player * 2);
+                codes[1] = deck.get(boardSize + player * 2 + 1);
+                System.arraycopy(boardCodes, 0, codes, 2, boardSize);
+
+                assertEquals(HandEvaluator.getStrength(codes), context.getStrength(codes[0], codes[1]));
+            }
+        }
+    }
+
+    @Test
+    public void testBoardIsNotChanged() {
+        final BoardContext context = new BoardContext(ReaderUtil.codesFromLatin1("Ah Kh Qh 7c 2d"));
+
+        assertEquals(HandRank.STRAIGHT_FLUSH, context.evaluate(ReaderUtil.cardFromLatin1("Jh"),
+                ReaderUtil.cardFromLatin1("Th")).getRank());
+        assertEquals(HandRank.HIGH_CARD, context.evaluate(ReaderUtil.cardFromLatin1("3s"),
+                ReaderUtil.cardFromLatin1("4s")).getRank());
+        assertEquals(ReaderUtil.cardsFromLatin1("Ah Kh Qh 7c 2d"), context.getBoardCards());
+    }
+}
@@ -18,12 +18,18 @@ import com.alexshabanov.cards.model.Card;
 import com.alexshabanov.cards.model.DefaultCard;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.function.LongBinaryOperator;
+import java.util.function.LongUnaryOperator;
+import java.util.stream.StreamSupport;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 public final class CardCombinatorTest {
@@ -123,4 +129,205 @@ public final class CardCombinatorTest {
             add(Arrays.asList(c2));
         }}, actualCombinations);
     }
+
+    private static long binomial(int n, int k) {
+        long result = 1;
+        for (int i = 1; i <= k; ++i) {
+            result = result * (n - k + i) / i;
+        }
+        return result;
+    }
+
+    @Test
+    public void testCodeIteration() {
+        final int[] codes = {0, 1, 2, 3};
+        for (int length = 1; length <= codes.length; ++length) {
+            final Set<List<Card>> expected = new HashSet<List<Card>>();
+            CardCombinator.iterate(cards, new CardCombinationCallback() {
+                @Override
+                public boolean process(List<Card> cards) {
+                    expected.add(cards);
+                    return false;
+                }
+            }, length);
+
+            final Set<List<Card>> actual = new HashSet<List<Card>>();
+            CardCombinator.iterate(codes, new CardCodeCombinationCallback() {
+                @Override
+                public boolean process(int[] codes) {
+                    final List<Card> combination = new ArrayList<Card>(codes.length);
+                    for (final int code : codes) {
+                        combination.add(DefaultCard.valueOf(code));
+                    }
+                    assertTrue(actual.add(combination));
+                    return false;
+                }
+            }, length);
+
+            assertEquals(expected, actual);
+        }
+    }
+
+    @Test
+    public void testCodeStop() {
+        final int[] count = new int[1];
+        assertTrue(CardCombinator.iterate(new int[] {5, 6, 7, 8, 9}, new CardCodeCombinationCallback() {
+            @Override
+            public boolean process(int[] codes) {
+                return ++count[0] == 3;
+            }
+        }, 2));
+        assertEquals(3, count[0]);
+    }
+
+    @Test
+    public void testMaskIterationOverDeck() {
+        final long deckMask = (1L << DefaultCard.MAX_CARD_CODE) - 1;
+        final long[] counters = new long[2]; // count and previous mask
+        assertFalse(CardCombinator.iterate(deckMask, new CardMaskCombinationCallback() {
+            @Override
+            public boolean process(long cardMask) {
+                assertEquals(5, Long.bitCount(cardMask));
+                assertTrue(cardMask > counters[1]);
+                assertEquals(0, cardMask & ~deckMask);
+                counters[1] = cardMask;
+                ++counters[0];
+                return false;
+            }
+        }, 5));
+
+        assertEquals(binomial(DefaultCard.MAX_CARD_CODE, 5), counters[0]);
+    }
+
+    @Test
+    public void testMaskIterationOverSparseMask() {
+        final long sourceMask = 0x5A00A5005A5L;
+        for (int length = 0; length <= Long.bitCount(sourceMask); ++length) {
+            final int combinationLength = length;
+            final Set<Long> masks = new HashSet<Long>();
+            CardCombinator.iterate(sourceMask, new CardMaskCombinationCallback() {
+                @Override
+                public boolean process(long cardMask) {
+                    assertEquals(combinationLength, Long.bitCount(cardMask));
+                    assertEquals(0, cardMask & ~sourceMask);
+                    assertTrue(masks.add(cardMask));
+                    return false;
+                }
+            }, length);
+
+            assertEquals(binomial(Long.bitCount(sourceMask), length), masks.size());
+        }
+    }
+
+    @Test
+    public void testMaskStop() {
+        final int[] count = new int[1];
+        assertTrue(CardCombinator.iterate(0xFFL, new CardMaskCombinationCallback() {
+            @Override
+            public boolean process(long cardMask) {
+                return ++count[0] == 10;
+            }
+        }, 3));
+        assertEquals(10, count[0]);
+    }
+
+    @Test
+    public void testCodeRangeIteration() {
+        final int[] codes = new int[10];
+        for (int i = 0; i < codes.length; ++i) {
+            codes[i] = 40 + i;
+        }
+
+        final long fromIndex = 17;
+        final long[] index = {fromIndex};
+        CardCombinator.iterate(codes, new CardCodeCombinationCallback() {
+            @Override
+            public boolean process(int[] combination) {
+                final int[] positions = new int[combination.length];
+                for (int i = 0; i < combination.length; ++i) {
+                    positions[i] = combination[i] - 40;
+                }
+                assertEquals(index[0]++, CombinationUtil.rank(positions));
+                return false;
+            }
+        }, 4, fromIndex, 150);
+
+        assertEquals(150, index[0]);
+    }
+
+    @Test
+    public void testMaskRangeIteration() {
+        final long sourceMask = 0xF0F0F0F0F0L;
+        final long[] cards = CombinationUtil.elementsOf(sourceMask);
+        final long[] index = {100};
+        CardCombinator.iterate(sourceMask, new CardMaskCombinationCallback() {
+            @Override
+            public boolean process(long cardMask) {
+                assertEquals(CombinationUtil.expand(CombinationUtil.unrank(index[0]++, 5), cards), cardMask);
+                return false;
+            }
+        }, 5, 100, 2000);
+
+        assertEquals(2000, index[0]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidRange() {
+        CardCombinator.iterate(new int[] {1, 2, 3}, new CardCodeCombinationCallback() {
+            @Override
+            public boolean process(int[] codes) {
+                return false;
+            }
+        }, 2, 0, 4);
+    }
+
+    @Test
+    public void testParallelSpliterator() {
+        final long deckMask = (1L << DefaultCard.MAX_CARD_CODE) - 1;
+
+        final long[] sequential = new long[2]; // count and xor of the masks
+        CardCombinator.iterate(deckMask, new CardMaskCombinationCallback() {
+            @Override
+            public boolean process(long cardMask) {
+                ++sequential[0];
+                sequential[1] ^= cardMask * 0x9E3779B97F4A7C15L;
+                return false;
+            }
+        }, 5);
+
+        final long count = StreamSupport.longStream(CardCombinator.spliterator(deckMask, 5), true).count();
+        final long hash = StreamSupport.longStream(CardCombinator.spliterator(deckMask, 5), true)
+                .map(new LongUnaryOperator() {
+                    @Override
+                    public long applyAsLong(long cardMask) {
+                        return cardMask * 0x9E3779B97F4A7C15L;
+                    }
+                })
+                .reduce(0, new LongBinaryOperator() {
+                    @Override
+                    public long applyAsLong(long left, long right) {
+                        return left ^ right;
+                    }
+                });
+
+        assertEquals(sequential[0], count);
+        assertEquals(sequential[1], hash);
+    }
+
+    @Test
+    public void testSpliteratorOrder() {
+        final long sourceMask = 0xFFFFF0L;
+        final long[] expected = new long[(int) CombinationUtil.binomial(20, 4)];
+        final int[] count = new int[1];
+        CardCombinator.iterate(sourceMask, new CardMaskCombinationCallback() {
+            @Override
+            public boolean process(long cardMask) {
+                expected[count[0]++] = cardMask;
+                return false;
+            }
+        }, 4);
+
+        assertArrayEquals(expected,
+                StreamSupport.longStream(CardCombinator.spliterator(sourceMask, 4), true).toArray());
+    }
 }
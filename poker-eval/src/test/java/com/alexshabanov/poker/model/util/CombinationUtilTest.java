@@ -0,0 +1,71 @@
+/*
+ * Copyright 2012 Alexander Shabanov - http://alexshabanov.com.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alexshabanov.poker.model.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public final class CombinationUtilTest {
+
+    @Test
+    public void testBinomial() {
+        assertEquals(2598960L, CombinationUtil.binomial(52, 5));
+        assertEquals(133784560L, CombinationUtil.binomial(52, 7));
+        assertEquals(1L, CombinationUtil.binomial(52, 0));
+        assertEquals(0L, CombinationUtil.binomial(4, 5));
+        assertEquals(1832624140942590534L, CombinationUtil.binomial(64, 32));
+    }
+
+    @Test
+    public void testRankFollowsMaskOrder() {
+        long mask = 0x1FL;
+        for (long index = 0; index < CombinationUtil.binomial(20, 5); ++index) {
+            assertEquals(index, CombinationUtil.rank(mask));
+            assertEquals(mask, CombinationUtil.unrank(index, 5));
+            mask = CombinationUtil.next(mask);
+        }
+        assertEquals(1L << 20, mask & (1L << 20)); // all the combinations of 20 elements are passed
+    }
+
+    @Test
+    public void testRankPositions() {
+        final int[] positions = {3, 17, 30, 44, 51};
+        final long index = CombinationUtil.rank(positions);
+        assertEquals(CombinationUtil.rank((1L << 3) | (1L << 17) | (1L << 30) | (1L << 44) | (1L << 51)), index);
+
+        final int[] actual = new int[positions.length];
+        CombinationUtil.unrank(index, actual);
+        assertArrayEquals(positions, actual);
+    }
+
+    @Test
+    public void testLastCombination() {
+        final long last = CombinationUtil.binomial(52, 7) - 1;
+        assertEquals(0x7FL << 45, CombinationUtil.unrank(last, 7));
+        assertEquals(last, CombinationUtil.rank(0x7FL << 45));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnrankOutOfRange() {
+        CombinationUtil.unrank(-1, 5);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRankUnorderedPositions() {
+        CombinationUtil.rank(new int[] {5, 3});
+    }
+}
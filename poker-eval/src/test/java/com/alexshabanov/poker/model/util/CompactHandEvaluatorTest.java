@@ -0,0 +1,97 @@
+/*
+ * Copyright 2012 Alexander Shabanov - http://alexshabanov.com.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alexshabanov.poker.model.util;
+
+import com.alexshabanov.cards.model.Card;
+import com.alexshabanov.cards.model.CardMask;
+import com.alexshabanov.cards.model.DefaultCard;
+import com.alexshabanov.cards.util.ReaderUtil;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public final class CompactHandEvaluatorTest {
+
+    private static int[] toCodes(List<Card> cards) {
+        final int[] codes = new int[cards.size()];
+        for (int i = 0; i < codes.length; ++i) {
+            codes[i] = cards.get(i).getCode();
+        }
+        return codes;
+    }
+
+    private static void assertSameAsLookupEvaluator(List<Card> cards) {
+        final int[] codes = toCodes(cards);
+        assertEquals(cards.toString(), LookupHandEvaluator.evaluate(codes), CompactHandEvaluator.evaluate(codes));
+    }
+
+    @Test
+    public void testKnownHands() {
+        assertSameAsLookupEvaluator(ReaderUtil.cardsFromLatin1("Th 5d Jh 7s Qh Kh Ah"));
+        assertSameAsLookupEvaluator(ReaderUtil.cardsFromLatin1("2d 3h 9d 2h Jc 2c 2s"));
+        assertSameAsLookupEvaluator(ReaderUtil.cardsFromLatin1("Kh Kd Kc 7s As Ah Ac"));
+        assertSameAsLookupEvaluator(ReaderUtil.cardsFromLatin1("9c Ts Jc Qc Kc As Ac"));
+        assertSameAsLookupEvaluator(ReaderUtil.cardsFromLatin1("As Ac Ad 2s 3s 4h 5c"));
+        assertSameAsLookupEvaluator(ReaderUtil.cardsFromLatin1("3h Ad 2s 7d 8c 9c Qh"));
+    }
+
+    @Test
+    public void testRandomHands() {
+        final Random random = new Random(4000L);
+        final List<Card> deck = new ArrayList<Card>(DefaultCard.deck());
+        for (int i = 0; i < 200000; ++i) {
+            Collections.shuffle(deck, random);
+            assertSameAsLookupEvaluator(deck.subList(0, CompactHandEvaluator.HAND_SIZE));
+        }
+    }
+
+    @Test
+    public void testStrengths() {
+        final Random random = new Random(4001L);
+        final List<Card> deck = new ArrayList<Card>(DefaultCard.deck());
+        for (int i = 0; i < 100000; ++i) {
+            Collections.shuffle(deck, random);
+            // hands of five and six cards are delegated to the HandEvaluator
+            final long cardMask = CardMask.maskOf(deck.subList(0, CompactHandEvaluator.HAND_SIZE - i % 3));
+            assertEquals(HandEvaluator.getStrength(cardMask), CompactHandEvaluator.getStrength(cardMask));
+        }
+
+        final long straightFlush = ReaderUtil.maskFromLatin1("Th 5d Jh 7s Qh Kh Ah");
+        assertEquals(HandEvaluator.getStrength(straightFlush), CompactHandEvaluator.getStrength(straightFlush));
+        final long wheel = ReaderUtil.maskFromLatin1("As 2s 3s 4s 5s Ks Kh");
+        assertEquals(HandEvaluator.getStrength(wheel), CompactHandEvaluator.getStrength(wheel));
+    }
+
+    @Test
+    public void testMemoryFootprint() {
+        assertTrue(CompactHandEvaluator.getMemoryFootprint() < 100 * 1024);
+    }
+
+    @Test
+    public void testLoadNanos() {
+        assertTrue(CompactHandEvaluator.getLoadNanos() > 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIllegalCardCount() {
+        CompactHandEvaluator.evaluate(new int[] { 1, 2, 3, 4, 5, 6, 7, 8 });
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2012 Alexander Shabanov - http://alexshabanov.com.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alexshabanov.poker.model.util;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+public final class CompactTablesTest {
+
+    private static CompactTables tables;
+    private static File tableFile;
+
+    @BeforeClass
+    public static void buildTables() throws IOException {
+        tables = CompactTables.build();
+        tableFile = File.createTempFile("poker-compact-tables", ".bin");
+        tables.write(tableFile);
+    }
+
+    @AfterClass
+    public static void deleteTables() {
+        tables = null;
+        if (!tableFile.delete()) {
+            tableFile.deleteOnExit();
+        }
+    }
+
+    private static ByteBuffer readFile(File file) throws IOException {
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            final byte[] bytes = new byte[(int) randomAccessFile.length()];
+            randomAccessFile.readFully(bytes);
+            return ByteBuffer.wrap(bytes);
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    private static void assertSameTables(CompactTables expected, CompactTables actual) {
+        assertArrayEquals(expected.rankClasses, actual.rankClasses);
+        assertArrayEquals(expected.flushClasses, actual.flushClasses);
+        assertArrayEquals(expected.classValues, actual.classValues);
+    }
+
+    @Test
+    public void testRankTableSize() {
+        assertEquals(CompactTables.RANK_TABLE_SIZE, tables.rankClasses.length);
+        assertEquals(1, CompactTables.multisetCount(0, 0));
+        assertEquals(0, CompactTables.multisetCount(1, 5));
+        assertEquals(13, CompactTables.multisetCount(13, 1));
+    }
+
+    @Test
+    public void testWriteRead() throws IOException {
+        assertSameTables(tables, CompactTables.read(readFile(tableFile)));
+    }
+
+    @Test
+    public void testGeneratedResource() {
+        assertNotNull("Tables are expected to be generated by the build",
+                CompactTables.class.getResource(CompactTables.RESOURCE_NAME));
+        assertSameTables(tables, CompactTables.load());
+    }
+
+    @Test
+    public void testGeneratedStrengthResource() {
+        assertNotNull("Tables are expected to be generated by the build",
+                CompactTables.class.getResource(CompactTables.STRENGTH_RESOURCE_NAME));
+        final CompactTables strengths = CompactTables.buildStrengths();
+        assertEquals(CompactTables.RANK_TABLE_SIZE, strengths.rankClasses.length);
+        assertSameTables(strengths, CompactTables.loadStrengths());
+    }
+
+    @Test(expected = IOException.class)
+    public void testChecksumMismatch() throws IOException {
+        final ByteBuffer buffer = readFile(tableFile);
+        final int position = CompactTables.HEADER_SIZE + 1000;
+        buffer.put(position, (byte) (buffer.get(position) ^ 1));
+        CompactTables.read(buffer);
+    }
+
+    @Test(expected = IOException.class)
+    public void testUnsupportedVersion() throws IOException {
+        final ByteBuffer buffer = readFile(tableFile);
+        buffer.put(4, (byte) (CompactTables.VERSION + 1));
+        CompactTables.read(buffer);
+    }
+
+    @Test(expected = IOException.class)
+    public void testTruncated() throws IOException {
+        final ByteBuffer buffer = readFile(tableFile);
+        buffer.limit(buffer.capacity() - 2);
+        CompactTables.read(buffer);
+    }
+}
@@ -15,13 +15,18 @@
 package com.alexshabanov.poker.model.util;
 
 import com.alexshabanov.cards.model.Card;
+import com.alexshabanov.cards.model.CardMask;
+import com.alexshabanov.cards.model.DefaultCard;
+import com.alexshabanov.cards.util.EncodeUtil;
 import com.alexshabanov.cards.util.ReaderUtil;
 import com.alexshabanov.poker.model.Hand;
 import com.alexshabanov.poker.model.HandRank;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -317,4 +322,269 @@ public final class HandEvaluatorTest {
 
         assertTrue(hand3.getRating() > hand2.getRating() && hand2.getRating() > hand1.getRating());
     }
+
+    @Test
+    public void testStrengthKickers() {
+        // same pair, the third kicker decides
+        assertTrue(evalHand("Qd Qc As Kd 9h 4c 2s").getStrength() > evalHand("Qh Qs Ac Kh 8h 4d 2c").getStrength());
+        // same two pairs, the kicker decides
+        assertTrue(evalHand("Jd Jc 5s 5d Kh 4c 2s").getStrength() > evalHand("Jh Js 5h 5c Qh 4d 2c").getStrength());
+        // five high cards on the table, the hole cards do not play
+        assertEquals(evalHand("2d 3c As Kd Qh 9c 7s").getStrength(), evalHand("3h 2s Ac Kh Qd 9s 7d").getStrength());
+        // high card beats the lower one by the fifth kicker
+        assertTrue(evalHand("8d 3c As Kd Qh 9c 6s").getStrength() > evalHand("7h 3s Ac Kh Qd 9s 6d").getStrength());
+    }
+
+    @Test
+    public void testStrengthCategories() {
+        final String[] hands = {
+                "2d 4c 6s 8d Th Qc As", // high card
+                "2d 2c 6s 8d Th Qc Ks", // pair
+                "2d 2c 6s 6d Th Qc Ks", // two pairs
+                "2d 2c 2s 6d Th Qc Ks", // three of a kind
+                "Ad 2c 3s 4d 5h Qc Ks", // wheel
+                "2d 3c 4s 5d 6h Qc Ks", // straight
+                "2d 4d 6d 8d 9d Qc Ks", // flush
+                "2d 2c 2s 6d 6h Qc Ks", // full house
+                "2d 2c 2s 2h 6h Qc Ks", // four of a kind
+                "Ad 2d 3d 4d 5d Qc Ks", // straight flush
+                "Td Jd Qd Kd Ad Qc Ks"  // royal flush
+        };
+
+        for (int i = 1; i < hands.length; ++i) {
+            assertTrue(hands[i], evalHand(hands[i]).getStrength() > evalHand(hands[i - 1]).getStrength());
+        }
+
+        final Hand hand = evalHand("Kd Kc Ks 6d 6h Qc Qs");
+        assertEquals(HandRank.FULL_HOUSE, HandEvaluator.getStrengthRank(hand.getStrength()));
+        assertEquals(HandRank.HIGH_CARD, HandEvaluator.getStrengthRank(evalHand("2d 4c 6s 8d Th Qc As").getStrength()));
+    }
+
+    @Test
+    public void testPrimitiveOverloads() {
+        final String source = "Qd 3h 9d 5h Jc Qc 5c";
+        final int[] codes = ReaderUtil.codesFromLatin1(source);
+        final Hand hand = evalHand(source);
+
+        assertEquals(hand, HandEvaluator.evaluate(codes));
+        assertEquals(hand.getStrength(), HandEvaluator.getStrength(codes));
+        assertEquals(hand.getStrength(), HandEvaluator.getStrength(ReaderUtil.maskFromLatin1(source)));
+
+        final List<Hand> hands = new ArrayList<Hand>();
+        assertTrue(HandEvaluator.maybeTwoPairs(codes, new SimpleHandCombinationSink() {
+            @Override
+            public void setBestHand(Hand hand) {
+                hands.add(hand);
+            }
+        }));
+        assertEquals(ReaderUtil.cardsFromLatin1("5h 5c Qd Qc"), hands.get(0).getCards());
+    }
+
+    @Test
+    public void testStrengthIsBestFiveCardStrength() {
+        final List<Card> deck = new ArrayList<Card>();
+        for (int code = 0; code < DefaultCard.MAX_CARD_CODE; ++code) {
+            deck.add(DefaultCard.valueOf(code));
+        }
+
+        final Random random = new Random(5000L);
+        for (int n = 0; n < 2000; ++n) {
+            Collections.shuffle(deck, random);
+            final List<Card> cards = deck.subList(0, 7);
+
+            int bestStrength = 0;
+            for (int i = 0; i < 7; ++i) {
+                for (int j = i + 1; j < 7; ++j) {
+                    final List<Card> fiveCards = new ArrayList<Card>(cards);
+                    fiveCards.remove(j);
+                    fiveCards.remove(i);
+                    bestStrength = Math.max(bestStrength, HandEvaluator.getStrength(fiveCards));
+                }
+            }
+
+            final Hand hand = HandEvaluator.evaluate(cards);
+            assertEquals(cards.toString(), bestStrength, hand.getStrength());
+            assertEquals(cards.toString(), bestStrength, HandEvaluator.getStrength(cards));
+            assertEquals(hand.getRank(), HandEvaluator.getStrengthRank(hand.getStrength()));
+        }
+    }
+
+    @Test
+    public void testSameAsCombinationSearch() {
+        final List<Card> deck = new ArrayList<Card>();
+        for (int code = 0; code < DefaultCard.MAX_CARD_CODE; ++code) {
+            deck.add(DefaultCard.valueOf(code));
+        }
+
+        final Random random = new Random(6000L);
+        for (int n = 0; n < 20000; ++n) {
+            Collections.shuffle(deck, random);
+            final List<Card> cards = new ArrayList<Card>(deck.subList(0, 5 + n % 6));
+
+            final List<Hand> hands = new ArrayList<Hand>();
+            final HandCombinationSink sink = new SimpleHandCombinationSink() {
+                @Override
+                public void setBestHand(Hand hand) {
+                    hands.add(hand);
+                }
+            };
+            if (!HandEvaluator.maybeStraightFlush(cards, sink) && !HandEvaluator.maybeFourOfAKind(cards, sink) &&
+                    !HandEvaluator.maybeFullHouse(cards, sink) && !HandEvaluator.maybeFlush(cards, sink) &&
+                    !HandEvaluator.maybeStraight(cards, sink) && !HandEvaluator.maybeThreeOfAKind(cards, sink) &&
+                    !HandEvaluator.maybeTwoPairs(cards, sink) && !HandEvaluator.maybePair(cards, sink)) {
+                HandEvaluator.highCard(cards, sink);
+            }
+
+            final Hand expected = hands.get(0);
+            final Hand hand = HandEvaluator.evaluate(cards);
+            assertEquals(cards.toString(), expected.getRank(), hand.getRank());
+            assertEquals(cards.toString(), expected.getRating(), hand.getRating());
+            assertEquals(cards.toString(), expected.getStrength(), hand.getStrength());
+            assertEquals(cards.toString(), expected.getCards(), hand.getCards());
+        }
+    }
+
+    @Test
+    public void testValue() {
+        final List<Card> cards = ReaderUtil.cardsFromLatin1("Kd Kc Ks 6d 6h Qc Qs");
+        final HandValue value = HandEvaluator.getValue(cards);
+        assertEquals(HandRank.FULL_HOUSE, value.getRank());
+        assertEquals(HandEvaluator.getStrength(cards), value.getStrength());
+        assertTrue(value == HandEvaluator.getValue(ReaderUtil.codesFromLatin1("Kh Kc Ks Qd Qh 2c 3s")));
+        assertTrue(value == HandEvaluator.getValue(ReaderUtil.maskFromLatin1("Kd Kc Ks 6d 6h Qc Qs")));
+    }
+
+    @Test
+    public void testCardsAreCopied() {
+        final List<Card> cards = ReaderUtil.cardsFromLatin1("Kd Kc 2s 6d 6h Qc Qs");
+        final Hand hand = HandEvaluator.evaluate(cards);
+        Collections.reverse(cards);
+        assertEquals(ReaderUtil.cardsFromLatin1("Qc Qs Kd Kc"), hand.getCards());
+    }
+
+    @Test
+    public void testClassify() {
+        assertEquals(HandRank.STRAIGHT_FLUSH,
+                HandEvaluator.classify(ReaderUtil.codesFromLatin1("Ah 2h 3h 4h 5h Kd Kc")));
+        assertEquals(HandRank.FULL_HOUSE, HandEvaluator.classify(ReaderUtil.cardsFromLatin1("Kd Kc Ks 6d 6h Qc Qs")));
+        assertEquals(HandRank.STRAIGHT, HandEvaluator.classify(ReaderUtil.maskFromLatin1("Th Jd Qc Ks Ad 2c 2d")));
+        assertEquals(HandRank.PAIR, HandEvaluator.classify(ReaderUtil.maskFromLatin1("Ac Ad")));
+
+        final Random random = new Random(7000L);
+        for (int n = 0; n < 100000; ++n) {
+            long mask = 0;
+            final int count = 2 + n % 11;
+            while (Long.bitCount(mask) < count) {
+                mask |= 1L << random.nextInt(DefaultCard.MAX_CARD_CODE);
+            }
+            assertEquals(HandEvaluator.getStrengthRank(HandEvaluator.getStrength(mask)), HandEvaluator.classify(mask));
+        }
+    }
+
+    @Test
+    public void testBestCards() {
+        assertEquals(ReaderUtil.cardsFromLatin1("2c 2d Ah Kd Jc"),
+                HandEvaluator.getBestCards(ReaderUtil.cardsFromLatin1("Ah Kd 2c 2d 7s 9h Jc 3d")));
+        assertEquals(ReaderUtil.cardsFromLatin1("Ah Kd Jc 9h 7s"),
+                HandEvaluator.getBestCards(ReaderUtil.cardsFromLatin1("2c Ah 3d Kd 7s 9h Jc 4s")));
+        assertEquals(ReaderUtil.cardsFromLatin1("9h 9s 9d 9c Ah"),
+                HandEvaluator.getBestCards(ReaderUtil.cardsFromLatin1("9h 9s 2c Ah 9d 3d 9c 2s Kh")));
+        assertEquals(ReaderUtil.cardsFromLatin1("Kd 5c"),
+                HandEvaluator.getBestCards(ReaderUtil.cardsFromLatin1("Kd 5c")));
+
+        final long bestOfDeck = HandEvaluator.getBestCards(CardMask.DECK_MASK);
+        assertEquals(HandEvaluator.STRAIGHT_FLUSH_HAND_SIZE, Long.bitCount(bestOfDeck));
+        assertEquals(HandEvaluator.getStrength(CardMask.DECK_MASK), HandEvaluator.getStrength(bestOfDeck));
+        assertEquals(HandRank.STRAIGHT_FLUSH, HandEvaluator.getStrengthRank(HandEvaluator.getStrength(bestOfDeck)));
+    }
+
+    @Test
+    public void testBestCardsOfLargePools() {
+        final List<Card> deck = new ArrayList<Card>(DefaultCard.deck());
+        final Random random = new Random(8000L);
+        for (int n = 0; n < 3000; ++n) {
+            Collections.shuffle(deck, random);
+            final List<Card> cards = deck.subList(0, 8 + n % 5);
+            final long cardMask = CardMask.maskOf(cards);
+
+            final int[] bestStrength = new int[1];
+            CardCombinator.iterate(cardMask, new CardMaskCombinationCallback() {
+                @Override
+                public boolean process(long fiveCardMask) {
+                    bestStrength[0] = Math.max(bestStrength[0], HandEvaluator.getStrength(fiveCardMask));
+                    return false;
+                }
+            }, 5);
+
+            final List<Card> bestCards = HandEvaluator.getBestCards(cards);
+            assertEquals(cards.toString(), 5, bestCards.size());
+            assertEquals(cards.toString(), 5, Long.bitCount(CardMask.maskOf(bestCards) & cardMask));
+            assertEquals(cards.toString(), bestStrength[0], HandEvaluator.getStrength(cards));
+            assertEquals(cards.toString(), bestStrength[0], HandEvaluator.getStrength(bestCards));
+            assertEquals(cards.toString(), CardMask.maskOf(bestCards),
+                    CardMask.maskOf(HandEvaluator.getBestCards(EncodeUtil.toCodeArray(cards))));
+            assertEquals(bestStrength[0], HandEvaluator.getStrength(HandEvaluator.getBestCards(cardMask)));
+        }
+
+        // the strength of the large pools is checked against the brute force above, several quads are common here
+        for (int n = 0; n < 20000; ++n) {
+            Collections.shuffle(deck, random);
+            final List<Card> cards = deck.subList(0, 13 + n % 22);
+            final List<Card> bestCards = HandEvaluator.getBestCards(cards);
+            assertEquals(cards.toString(), 5, bestCards.size());
+            assertEquals(cards.toString(), HandEvaluator.getStrength(cards), HandEvaluator.getStrength(bestCards));
+        }
+    }
+
+    @Test
+    public void testBestCardsOfTwoFoursOfAKind() {
+        final List<Card> cards = ReaderUtil.cardsFromLatin1("2c 2d 2h 2s Kc Kd Kh Ks");
+        final List<Card> bestCards = HandEvaluator.getBestCards(cards);
+        assertEquals(ReaderUtil.maskFromLatin1("Kc Kd Kh Ks 2c"), CardMask.maskOf(bestCards));
+        assertEquals(HandEvaluator.getStrength(cards), HandEvaluator.getStrength(bestCards));
+    }
+
+    /**
+     * Pins the rank, the rating and the order of the cards of the hands, that are known to be right,
+     * so that the optimizations of the evaluator do not change them.
+     */
+    @Test
+    public void testRegressionHands() {
+        // wheel straights and straight flushes
+        assertHand("5c 4d As 3h 2c", HandRank.STRAIGHT, 0xf, "As 2c 3h 4d 5c");
+        assertHand("Kc As 2d 3c 4h 5s 9d", HandRank.STRAIGHT, 0xf, "As 2d 3c 4h 5s");
+        assertHand("Ah 2h 3h 4h 5h Kd Qc", HandRank.STRAIGHT_FLUSH, 0xf, "Ah 2h 3h 4h 5h");
+        assertHand("6h 2h 3h 4h 5h Ah Kd", HandRank.STRAIGHT_FLUSH, 0x1f, "2h 3h 4h 5h 6h");
+        assertHand("Kc Jc As 9c 9s Tc Qc", HandRank.STRAIGHT_FLUSH, 0xf80, "9c Tc Jc Qc Kc");
+        assertHand("Th 5d Jh 7s Qh Kh Ah", HandRank.STRAIGHT_FLUSH, 0x1f00, "Th Jh Qh Kh Ah");
+        // two fours of a kind or two threes of a kind in the large pools, the first found four of a kind is taken
+        assertHand("2c 2d 2h 2s Kc Kd Kh Ks", HandRank.FOUR_OF_A_KIND, 0x1, "2c 2d 2h 2s");
+        assertHand("7c Ac 7d Ad 7h Ah 7s As 3c", HandRank.FOUR_OF_A_KIND, 0x20, "7c 7d 7h 7s");
+        assertHand("Jc Jd Jh 4c 4d 4h 9s 2c", HandRank.FULL_HOUSE, 0x200004, "4c 4d Jc Jd Jh");
+        assertHand("5s Qc Qd Qh 8c 8d 8h 5d 2c Ts", HandRank.FULL_HOUSE, 0x400040, "8c 8d Qc Qd Qh");
+        // the rating of the high card comes from the player's cards
+        assertHand("3h Ad 2s 7d 8c 9c Qh Kh", HandRank.HIGH_CARD, 0x1002, "3h Ad");
+        assertHand("2c 7d 9h Jc Kd", HandRank.HIGH_CARD, 0x21, "2c 7d");
+        // dealt by Collections.shuffle(DefaultCard.deck(), new Random(4000L)), 5 to 10 cards
+        assertHand("5c Th Qh Td 4c", HandRank.PAIR, 0x100, "Th Td");
+        assertHand("9c Jc 5d 4s Ks 6h", HandRank.HIGH_CARD, 0x280, "9c Jc");
+        assertHand("7h Td Qc Jd Ks Qh Ah", HandRank.STRAIGHT, 0x1f00, "Td Jd Qc Ks Ah");
+        assertHand("7h 5s 7d 3c 6s Kh As 4c", HandRank.STRAIGHT, 0x3e, "3c 4c 5s 6s 7h");
+        assertHand("As 8h 3h Ts 5d Js 9h Kh 6s", HandRank.HIGH_CARD, 0x1040, "As 8h");
+        assertHand("5s Td 8d 7h Jc Ad 3h 8h 6s 3s", HandRank.TWO_PAIRS, 0x42, "3h 3s 8d 8h");
+        assertHand("2d 9d 4d 2c Ac", HandRank.PAIR, 0x1, "2d 2c");
+        assertHand("Ts 4c Kc 5s Qh 7c", HandRank.HIGH_CARD, 0x104, "Ts 4c");
+        assertHand("Ah 7d 6d 7c 9s As 6c", HandRank.TWO_PAIRS, 0x1020, "Ah As 7d 7c");
+        assertHand("Qs 8h Tc 3d Ts 7s 2s Ah", HandRank.PAIR, 0x100, "Tc Ts");
+        assertHand("Kh 8d 3d Qc 4c Ts 4d Qh Kd", HandRank.TWO_PAIRS, 0xc00, "Qc Qh Kh Kd");
+        assertHand("8s 9d 6h 2c 3c Ac 5s Jd 2h 8c", HandRank.TWO_PAIRS, 0x41, "2c 2h 8s 8c");
+    }
+
+    private static void assertHand(String sourceCardsLatin1, HandRank expectedRank, int expectedRating,
+                                   String expectedCardsLatin1) {
+        final Hand hand = evalHand(sourceCardsLatin1);
+        assertEquals(sourceCardsLatin1, expectedRank, hand.getRank());
+        assertEquals(sourceCardsLatin1, expectedRating, hand.getRating());
+        assertEquals(sourceCardsLatin1, ReaderUtil.cardsFromLatin1(expectedCardsLatin1), hand.getCards());
+    }
 }
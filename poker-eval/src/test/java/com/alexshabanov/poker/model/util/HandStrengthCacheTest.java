@@ -0,0 +1,136 @@
+/*
+ * Copyright 2012 Alexander Shabanov - http://alexshabanov.com.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alexshabanov.poker.model.util;
+
+import com.alexshabanov.cards.model.CardMask;
+import com.alexshabanov.cards.util.ReaderUtil;
+import com.alexshabanov.poker.model.HandRank;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public final class HandStrengthCacheTest {
+
+    private static long randomMask(Random random, int cardCount) {
+        long result = 0;
+        while (Long.bitCount(result) < cardCount) {
+            result |= CardMask.maskOf(random.nextInt(Long.bitCount(CardMask.DECK_MASK)));
+        }
+        return result;
+    }
+
+    @Test
+    public void testSameAsHandEvaluator() {
+        final HandStrengthCache cache = new HandStrengthCache(1024);
+        final Random random = new Random(5000L);
+        final long[] masks = new long[2000];
+        for (int i = 0; i < masks.length; ++i) {
+            masks[i] = randomMask(random, 7);
+        }
+
+        for (int round = 0; round < 2; ++round) {
+            for (final long mask : masks) {
+                assertEquals(HandEvaluator.getStrength(mask), cache.getStrength(mask));
+            }
+        }
+
+        assertEquals(HandRank.FULL_HOUSE, cache.getRank(CardMask.maskOf(ReaderUtil.codesFromLatin1("Ac Ad Ah 2c 2d"))));
+        assertEquals(HandEvaluator.getStrength(ReaderUtil.codesFromLatin1("Ac Kc Qc Jc Tc")),
+                cache.getStrength(ReaderUtil.codesFromLatin1("Ac Kc Qc Jc Tc")));
+    }
+
+    @Test
+    public void testCounters() {
+        final HandStrengthCache cache = new HandStrengthCache(64, 1);
+        final long mask = CardMask.maskOf(ReaderUtil.codesFromLatin1("Ac Kd Qh 2c 3s 4d 5h"));
+
+        cache.getStrength(mask);
+        cache.getStrength(mask);
+        cache.getStrength(mask);
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(0, cache.getEvictionCount());
+        assertEquals(1, cache.getSize());
+
+        cache.clear();
+        assertEquals(0, cache.getSize());
+        cache.getStrength(mask);
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    public void testEviction() {
+        final HandStrengthCache cache = new HandStrengthCache(HandStrengthCache.WAYS, 1);
+        assertEquals(HandStrengthCache.WAYS, cache.getCapacity());
+
+        final Random random = new Random(6000L);
+        final long hot = randomMask(random, 7);
+        cache.getStrength(hot);
+        for (int i = 0; i < 100; ++i) {
+            cache.getStrength(hot);
+            cache.getStrength(randomMask(random, 7));
+        }
+
+        assertEquals(HandStrengthCache.WAYS, cache.getSize());
+        assertEquals(101 - HandStrengthCache.WAYS, cache.getEvictionCount());
+        // the entry, that is hit on each pass of the clock hand, is never evicted
+        assertEquals(101, cache.getMissCount());
+    }
+
+    @Test
+    public void testSharedByThreads() throws InterruptedException {
+        final HandStrengthCache cache = new HandStrengthCache(256, 4);
+        final long[] masks = new long[512];
+        final Random random = new Random(7000L);
+        for (int i = 0; i < masks.length; ++i) {
+            masks[i] = randomMask(random, 7);
+        }
+
+        final AtomicInteger mismatches = new AtomicInteger();
+        final Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; ++t) {
+            final int seed = t;
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    final Random threadRandom = new Random(seed);
+                    for (int i = 0; i < 50000; ++i) {
+                        final long mask = masks[threadRandom.nextInt(masks.length)];
+                        if (cache.getStrength(mask) != HandEvaluator.getStrength(mask)) {
+                            mismatches.incrementAndGet();
+                        }
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(0, mismatches.get());
+        assertEquals(threads.length * 50000L, cache.getHitCount() + cache.getMissCount());
+        assertTrue(cache.getSize() <= cache.getCapacity());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidCapacity() {
+        new HandStrengthCache(0);
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2012 Alexander Shabanov - http://alexshabanov.com.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alexshabanov.poker.model.util;
+
+import com.alexshabanov.cards.util.ReaderUtil;
+import com.alexshabanov.poker.model.HandRank;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public final class HandValueTest {
+
+    @Test
+    public void testClasses() {
+        assertEquals(HandRank.HIGH_CARD, HandValue.ofClass(0).getRank());
+        assertEquals(HandEvaluator.getStrength(ReaderUtil.codesFromLatin1("7c 5d 4h 3s 2c")),
+                HandValue.ofClass(0).getStrength());
+        assertEquals(HandEvaluator.getStrength(ReaderUtil.codesFromLatin1("Ac Kc Qc Jc Tc")),
+                HandValue.ofClass(HandValue.CLASS_COUNT - 1).getStrength());
+
+        final int[] rankCounts = new int[HandRank.values().length];
+        for (int i = 0; i < HandValue.CLASS_COUNT; ++i) {
+            final HandValue value = HandValue.ofClass(i);
+            assertEquals(i, value.getClassIndex());
+            assertSame(value, HandValue.valueOf(value.getStrength()));
+            if (i > 0) {
+                assertTrue(HandValue.ofClass(i - 1).compareTo(value) < 0);
+            }
+            ++rankCounts[value.getRank().ordinal()];
+        }
+
+        // straight flush, four of a kind, full house, flush, straight, three of a kind, two pairs, pair, high card
+        assertEquals(10, rankCounts[HandRank.STRAIGHT_FLUSH.ordinal()]);
+        assertEquals(156, rankCounts[HandRank.FOUR_OF_A_KIND.ordinal()]);
+        assertEquals(156, rankCounts[HandRank.FULL_HOUSE.ordinal()]);
+        assertEquals(1277, rankCounts[HandRank.FLUSH.ordinal()]);
+        assertEquals(10, rankCounts[HandRank.STRAIGHT.ordinal()]);
+        assertEquals(858, rankCounts[HandRank.THREE_OF_A_KIND.ordinal()]);
+        assertEquals(858, rankCounts[HandRank.TWO_PAIRS.ordinal()]);
+        assertEquals(2860, rankCounts[HandRank.PAIR.ordinal()]);
+        assertEquals(1277, rankCounts[HandRank.HIGH_CARD.ordinal()]);
+    }
+
+    @Test
+    public void testValueWithoutClass() {
+        final HandValue value = HandValue.valueOf(HandEvaluator.getStrength(ReaderUtil.codesFromLatin1("Ac Ad")));
+        assertEquals(HandRank.PAIR, value.getRank());
+        assertEquals(-1, value.getClassIndex());
+        assertEquals(value, HandValue.valueOf(value.getStrength()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidClassIndex() {
+        HandValue.ofClass(HandValue.CLASS_COUNT);
+    }
+}
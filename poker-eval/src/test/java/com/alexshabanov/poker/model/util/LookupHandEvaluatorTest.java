@@ -0,0 +1,145 @@
+/*
+ * Copyright 2012 Alexander Shabanov - http://alexshabanov.com.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alexshabanov.poker.model.util;
+
+import com.alexshabanov.cards.model.Card;
+import com.alexshabanov.cards.model.CardMask;
+import com.alexshabanov.cards.model.DefaultCard;
+import com.alexshabanov.cards.util.ReaderUtil;
+import com.alexshabanov.poker.model.Hand;
+import com.alexshabanov.poker.model.HandRank;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public final class LookupHandEvaluatorTest {
+
+    private static int evaluate(List<Card> cards) {
+        final int[] codes = new int[cards.size()];
+        for (int i = 0; i < codes.length; ++i) {
+            codes[i] = cards.get(i).getCode();
+        }
+        return LookupHandEvaluator.evaluate(codes);
+    }
+
+    private static void assertSameAsHandEvaluator(List<Card> cards) {
+        final Hand expected = HandEvaluator.evaluate(cards);
+        final int value = evaluate(cards);
+        assertEquals(cards.toString(), expected.getRank(), LookupHandEvaluator.getRank(value));
+        assertEquals(cards.toString(), expected.getRating(), LookupHandEvaluator.getRating(value));
+    }
+
+    @Test
+    public void testKnownHands() {
+        final int value = evaluate(ReaderUtil.cardsFromLatin1("Th 5d Jh 7s Qh Kh Ah"));
+        assertEquals(HandRank.STRAIGHT_FLUSH, LookupHandEvaluator.getRank(value));
+
+        assertSameAsHandEvaluator(ReaderUtil.cardsFromLatin1("3s 4s 5s 2s As Qs Ks"));
+        assertSameAsHandEvaluator(ReaderUtil.cardsFromLatin1("2d 3h 9d 2h Jc 2c 2s"));
+        assertSameAsHandEvaluator(ReaderUtil.cardsFromLatin1("Kh Kd Kc 7s As Ah Ac"));
+        assertSameAsHandEvaluator(ReaderUtil.cardsFromLatin1("9c Ts Jc Qc Kc As Ac"));
+        assertSameAsHandEvaluator(ReaderUtil.cardsFromLatin1("As Ac Ad 2s 3s 4h 5c"));
+        assertSameAsHandEvaluator(ReaderUtil.cardsFromLatin1("Qd 3h 9d 5h Jc Qc 5c"));
+        assertSameAsHandEvaluator(ReaderUtil.cardsFromLatin1("3h Ad 2s 7d 8c 9c Qh"));
+        assertSameAsHandEvaluator(ReaderUtil.cardsFromLatin1("Qh 9c 2s 7d 8c Ad 3h"));
+    }
+
+    @Test
+    public void testRandomHands() {
+        final Random random = new Random(1000L);
+        final List<Card> deck = new ArrayList<Card>(DefaultCard.deck());
+        for (int i = 0; i < 20000; ++i) {
+            Collections.shuffle(deck, random);
+            assertSameAsHandEvaluator(new ArrayList<Card>(deck.subList(0, LookupHandEvaluator.HAND_SIZE)));
+        }
+    }
+
+    @Test
+    public void testTablesMatchEvaluatedHands() {
+        for (int mask = 0; mask < 1 << 13; ++mask) {
+            if (Integer.bitCount(mask) >= HandEvaluator.FLUSH_HAND_SIZE) {
+                assertEquals(EvaluatorTableUtil.flushValue(mask), LookupHandEvaluator.flushValue(mask));
+            }
+        }
+        assertEquals(CompactTables.RANK_TABLE_SIZE, assertRankValues(new int[13], 0, 0, LookupHandEvaluator.HAND_SIZE));
+    }
+
+    private static int assertRankValues(int[] rankCounts, int rank, int key, int cardsLeft) {
+        if (rank == rankCounts.length) {
+            if (cardsLeft > 0) {
+                return 0;
+            }
+            assertEquals(EvaluatorTableUtil.rankCountsValue(rankCounts), LookupHandEvaluator.rankValue(key));
+            return 1;
+        }
+
+        int count = 0;
+        for (int i = 0; i <= Math.min(cardsLeft, 4); ++i) {
+            rankCounts[rank] = i;
+            count += assertRankValues(rankCounts, rank + 1, key + i * LookupHandEvaluator.rankKey(rank), cardsLeft - i);
+        }
+        rankCounts[rank] = 0;
+        return count;
+    }
+
+    @Test
+    public void testValuePacking() {
+        for (final HandRank rank : HandRank.values()) {
+            final int value = LookupHandEvaluator.valueOf(rank, 0x1000800);
+            assertEquals(rank, LookupHandEvaluator.getRank(value));
+            assertEquals(0x1000800, LookupHandEvaluator.getRating(value));
+        }
+    }
+
+    @Test
+    public void testStrengths() {
+        final Random random = new Random(1001L);
+        final List<Card> deck = new ArrayList<Card>(DefaultCard.deck());
+        for (int i = 0; i < 100000; ++i) {
+            Collections.shuffle(deck, random);
+            // hands of five and six cards are delegated to the HandEvaluator
+            final long cardMask = CardMask.maskOf(deck.subList(0, LookupHandEvaluator.HAND_SIZE - i % 3));
+            assertEquals(HandEvaluator.getStrength(cardMask), LookupHandEvaluator.getStrength(cardMask));
+        }
+
+        final long straightFlush = ReaderUtil.maskFromLatin1("Th 5d Jh 7s Qh Kh Ah");
+        assertEquals(HandEvaluator.getStrength(straightFlush), LookupHandEvaluator.getStrength(straightFlush));
+        final long wheel = ReaderUtil.maskFromLatin1("As 2s 3s 4s 5s Ks Kh");
+        assertEquals(HandEvaluator.getStrength(wheel), LookupHandEvaluator.getStrength(wheel));
+    }
+
+    @Test
+    public void testMemoryFootprint() {
+        // direct rank table of 7 * 1479181 + 1 entries
+        assertTrue(LookupHandEvaluator.getMemoryFootprint() > 41000000);
+        assertTrue(LookupHandEvaluator.getMemoryFootprint() < 42000000);
+    }
+
+    @Test
+    public void testLoadNanos() {
+        assertTrue(LookupHandEvaluator.getLoadNanos() > 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIllegalCardCount() {
+        LookupHandEvaluator.evaluate(new int[] { 1, 2, 3, 4, 5, 6 });
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2012 Alexander Shabanov - http://alexshabanov.com.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alexshabanov.poker.model.util;
+
+import com.alexshabanov.cards.model.DefaultCard;
+import com.alexshabanov.cards.model.Rank;
+import com.alexshabanov.cards.util.ReaderUtil;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public final class LowHandEvaluatorTest {
+
+    private static long randomMask(Random random, int count) {
+        long mask = 0;
+        while (Long.bitCount(mask) < count) {
+            mask |= 1L << random.nextInt(DefaultCard.MAX_CARD_CODE);
+        }
+        return mask;
+    }
+
+    /**
+     * Straightforward ace-to-five low of exactly five cards: groups of cards of the same rank ordered by size
+     * and then by rank, ACE counts as one.
+     */
+    private static int aceToFiveLowOfFive(long fiveCardMask, boolean eightOrBetter) {
+        final int[] counts = new int[Rank.values().length];
+        for (int code = 0; code < DefaultCard.MAX_CARD_CODE; ++code) {
+            if ((fiveCardMask & (1L << code)) != 0) {
+                ++counts[code % counts.length];
+            }
+        }
+
+        int value = 0;
+        int groups = 0;
+        int maxCount = 0;
+        for (int count = 4; count >= 1; --count) {
+            for (int rank = counts.length - 1; rank >= 0; --rank) {
+                if (counts[rank] == count) {
+                    if (eightOrBetter && (count > 1 || rank > Rank.EIGHT.ordinal())) {
+                        return LowHandEvaluator.NO_LOW;
+                    }
+                    value = (value << 4) | (rank + 1);
+                    ++groups;
+                    maxCount = Math.max(maxCount, count);
+                }
+            }
+        }
+
+        final int category;
+        switch (groups) {
+            case 5: category = 0; break;
+            case 4: category = 1; break;
+            case 3: category = maxCount == 2 ? 2 : 3; break;
+            default: category = maxCount == 3 ? 4 : 5;
+        }
+        return (1 << 24) - ((category << 20) | (value << ((5 - groups) * 4)));
+    }
+
+    private static int bestLow(long cardMask, final boolean eightOrBetter) {
+        final int[] best = new int[] { LowHandEvaluator.NO_LOW };
+        CardCombinator.iterate(cardMask, new CardMaskCombinationCallback() {
+            @Override
+            public boolean process(long fiveCardMask) {
+                best[0] = Math.max(best[0], aceToFiveLowOfFive(fiveCardMask, eightOrBetter));
+                return false;
+            }
+        }, LowHandEvaluator.LOW_HAND_SIZE);
+        return best[0];
+    }
+
+    @Test
+    public void testEightOrBetter() {
+        final int wheel = LowHandEvaluator.getEightOrBetterLow(ReaderUtil.codesFromLatin1("Ah 2d 3c 4s 5h Kd Kc"));
+        final int sevenLow = LowHandEvaluator.getEightOrBetterLow(ReaderUtil.codesFromLatin1("7h 6d 4c 3s 2h Kd"));
+        final int eightLow = LowHandEvaluator.getEightOrBetterLow(ReaderUtil.codesFromLatin1("8h 6d 4c 3s 2h Kd"));
+        assertTrue(wheel > sevenLow);
+        assertTrue(sevenLow > eightLow);
+        assertTrue(eightLow > LowHandEvaluator.NO_LOW);
+
+        // pairs and the ranks above EIGHT do not count
+        assertEquals(LowHandEvaluator.NO_LOW,
+                LowHandEvaluator.getEightOrBetterLow(ReaderUtil.codesFromLatin1("Ah 2d 3c 4s 9h Kd Kc")));
+        assertEquals(LowHandEvaluator.NO_LOW,
+                LowHandEvaluator.getEightOrBetterLow(ReaderUtil.codesFromLatin1("Ah Ad 3c 4s 5h Kd Kc")));
+        assertEquals(wheel, LowHandEvaluator.getEightOrBetterLow(ReaderUtil.codesFromLatin1("5c 4d 3h 2s Ac")));
+    }
+
+    @Test
+    public void testAceToFiveSameAsFiveCardHands() {
+        final Random random = new Random(10000L);
+        for (int n = 0; n < 20000; ++n) {
+            final long mask = randomMask(random, 5 + n % 4);
+            assertEquals(Long.toHexString(mask), bestLow(mask, false), LowHandEvaluator.getAceToFiveLow(mask));
+            assertEquals(Long.toHexString(mask), bestLow(mask, true), LowHandEvaluator.getEightOrBetterLow(mask));
+        }
+
+        // few ranks, so that most of the hands have pairs
+        for (int n = 0; n < 20000; ++n) {
+            long mask = 0;
+            final int count = 5 + n % 4;
+            while (Long.bitCount(mask) < count) {
+                final int rank = random.nextInt(4);
+                mask |= 1L << (random.nextInt(4) * Rank.values().length + rank);
+            }
+            assertEquals(Long.toHexString(mask), bestLow(mask, false), LowHandEvaluator.getAceToFiveLow(mask));
+        }
+
+        assertEquals(LowHandEvaluator.NO_LOW, LowHandEvaluator.getAceToFiveLow(ReaderUtil.maskFromLatin1("Ac 2d")));
+    }
+
+    @Test
+    public void testDeuceToSeven() {
+        final int best = LowHandEvaluator.getDeuceToSevenLow(ReaderUtil.codesFromLatin1("7h 5d 4c 3s 2h"));
+        final int kingHigh = LowHandEvaluator.getDeuceToSevenLow(ReaderUtil.codesFromLatin1("Kd Qc Js Th 8h"));
+        final int aceHigh = LowHandEvaluator.getDeuceToSevenLow(ReaderUtil.codesFromLatin1("As 2d 3c 4s 5h"));
+        final int straight = LowHandEvaluator.getDeuceToSevenLow(ReaderUtil.codesFromLatin1("6h 5d 4c 3s 2h"));
+        final int pair = LowHandEvaluator.getDeuceToSevenLow(ReaderUtil.codesFromLatin1("2h 2d 3c 4s 5h"));
+        final int flush = LowHandEvaluator.getDeuceToSevenLow(ReaderUtil.codesFromLatin1("7h 5h 4h 3h 2h"));
+        final int wheelFlush = LowHandEvaluator.getDeuceToSevenLow(ReaderUtil.codesFromLatin1("Ah 5h 4h 3h 2h"));
+        assertTrue(best > kingHigh);
+        assertTrue(kingHigh > aceHigh);
+        assertTrue(aceHigh > pair);
+        assertTrue(pair > straight);
+        assertTrue(straight > flush);
+        assertTrue(flush > wheelFlush);
+
+        final Random random = new Random(11000L);
+        for (int n = 0; n < 20000; ++n) {
+            final long mask = randomMask(random, 5);
+            if ((mask & ReaderUtil.maskFromLatin1("Ac Ad Ah As")) == 0) {
+                assertEquals((1 << 24) - HandEvaluator.getStrength(mask), LowHandEvaluator.getDeuceToSevenLow(mask));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDeuceToSevenCardCount() {
+        LowHandEvaluator.getDeuceToSevenLow(ReaderUtil.maskFromLatin1("7h 5d 4c 3s 2h 9c"));
+    }
+
+    @Test
+    public void testHiLo() {
+        final Random random = new Random(12000L);
+        for (int n = 0; n < 20000; ++n) {
+            final long mask = randomMask(random, 2 + n % 8);
+            final long hiLo = LowHandEvaluator.getHiLo(mask);
+            assertEquals(HandEvaluator.getStrength(mask), LowHandEvaluator.getHigh(hiLo));
+            assertEquals(LowHandEvaluator.getEightOrBetterLow(mask), LowHandEvaluator.getLow(hiLo));
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2012 Alexander Shabanov - http://alexshabanov.com.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alexshabanov.poker.model.util;
+
+import com.alexshabanov.cards.model.CardMask;
+import com.alexshabanov.cards.model.DefaultCard;
+import com.alexshabanov.cards.model.Rank;
+import com.alexshabanov.cards.util.ReaderUtil;
+import com.alexshabanov.poker.model.HandRank;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public final class OmahaHandEvaluatorTest {
+
+    private static int[] randomCards(Random random, int count) {
+        final int[] deck = new int[DefaultCard.MAX_CARD_CODE];
+        for (int i = 0; i < deck.length; ++i) {
+            deck[i] = i;
+        }
+
+        for (int i = 0; i < count; ++i) {
+            final int j = i + random.nextInt(deck.length - i);
+            final int tmp = deck[i];
+            deck[i] = deck[j];
+            deck[j] = tmp;
+        }
+
+        return Arrays.copyOf(deck, count);
+    }
+
+    /**
+     * Evaluates every hand of two hole cards and three board cards.
+     */
+    private static int bruteForceStrength(int[] hole, int[] board) {
+        int best = 0;
+        for (int i = 0; i < hole.length; ++i) {
+            for (int j = i + 1; j < hole.length; ++j) {
+                for (int a = 0; a < board.length; ++a) {
+                    for (int b = a + 1; b < board.length; ++b) {
+                        for (int c = b + 1; c < board.length; ++c) {
+                            best = Math.max(best, HandEvaluator.getStrength(
+                                    new int[] { hole[i], hole[j], board[a], board[b], board[c] }));
+                        }
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    @Test
+    public void testTwoPlusThreeRule() {
+        // four hearts on the board do not make a flush with a single heart in the hole
+        final OmahaHandEvaluator evaluator = new OmahaHandEvaluator(ReaderUtil.codesFromLatin1("Ah Kh Qh Jh 2c"));
+        assertEquals(HandRank.STRAIGHT,
+                HandEvaluator.getStrengthRank(evaluator.getStrength(ReaderUtil.codesFromLatin1("Th 9c 3c 4d"))));
+        assertEquals(HandRank.STRAIGHT_FLUSH,
+                evaluator.getValue(ReaderUtil.codesFromLatin1("Th 9h 3c 4d")).getRank());
+
+        // quads in the hole are just a pair
+        assertEquals(HandRank.PAIR, HandEvaluator.getStrengthRank(OmahaHandEvaluator.getStrength(
+                ReaderUtil.codesFromLatin1("7c 7d 7h 7s"), ReaderUtil.codesFromLatin1("Ac Kd 2h 4s 9c"))));
+    }
+
+    @Test
+    public void testSameAsBruteForce() {
+        final Random random = new Random(9000L);
+        for (int n = 0; n < 30000; ++n) {
+            final int holeCount = OmahaHandEvaluator.MIN_HOLE_CARDS + n % 3;
+            final int boardCount = OmahaHandEvaluator.MAX_BOARD_CARDS - (n / 3) % 3;
+            final int[] cards = randomCards(random, holeCount + boardCount);
+            final int[] hole = Arrays.copyOf(cards, holeCount);
+            final int[] board = Arrays.copyOfRange(cards, holeCount, cards.length);
+
+            assertEquals(Arrays.toString(cards), bruteForceStrength(hole, board),
+                    new OmahaHandEvaluator(board).getStrength(hole));
+        }
+    }
+
+    @Test
+    public void testHiLo() {
+        final OmahaHandEvaluator evaluator = new OmahaHandEvaluator(ReaderUtil.codesFromLatin1("Ah 2h 3c Kd Qs"));
+        // only two of the three low hole cards play
+        final long hiLo = evaluator.getHiLo(ReaderUtil.codesFromLatin1("4c 5d 6s Jh"));
+        assertEquals(LowHandEvaluator.getEightOrBetterLow(ReaderUtil.codesFromLatin1("Ah 2h 3c 4c 5d")),
+                LowHandEvaluator.getLow(hiLo));
+        // a single low hole card does not make the low
+        assertEquals(LowHandEvaluator.NO_LOW,
+                LowHandEvaluator.getLow(evaluator.getHiLo(ReaderUtil.codesFromLatin1("4c Td Js Jh"))));
+
+        final Random random = new Random(9200L);
+        for (int n = 0; n < 20000; ++n) {
+            final int holeCount = OmahaHandEvaluator.MIN_HOLE_CARDS + n % 3;
+            final int[] cards = randomCards(random, holeCount + OmahaHandEvaluator.MAX_BOARD_CARDS);
+            for (int i = 0; i < cards.length; ++i) {
+                // mostly low cards
+                if (cards[i] % Rank.values().length > Rank.TEN.ordinal()) {
+                    cards[i] -= 5;
+                }
+            }
+            if (CardMask.size(CardMask.maskOf(cards)) != cards.length) {
+                continue;
+            }
+
+            final int[] hole = Arrays.copyOf(cards, holeCount);
+            final int[] board = Arrays.copyOfRange(cards, holeCount, cards.length);
+            int bestLow = LowHandEvaluator.NO_LOW;
+            for (int i = 0; i < hole.length; ++i) {
+                for (int j = i + 1; j < hole.length; ++j) {
+                    for (int a = 0; a < board.length; ++a) {
+                        for (int b = a + 1; b < board.length; ++b) {
+                            for (int c = b + 1; c < board.length; ++c) {
+                                bestLow = Math.max(bestLow, LowHandEvaluator.getEightOrBetterLow(
+                                        new int[] { hole[i], hole[j], board[a], board[b], board[c] }));
+                            }
+                        }
+                    }
+                }
+            }
+
+            final long result = new OmahaHandEvaluator(board).getHiLo(hole);
+            assertEquals(Arrays.toString(cards), bruteForceStrength(hole, board), LowHandEvaluator.getHigh(result));
+            assertEquals(Arrays.toString(cards), bestLow, LowHandEvaluator.getLow(result));
+        }
+    }
+
+    @Test
+    public void testFlushes() {
+        // cards of two suits only, so most of the deals have flushes
+        final Random random = new Random(9100L);
+        for (int n = 0; n < 20000; ++n) {
+            final int[] cards = randomCards(random, 9);
+            for (int i = 0; i < cards.length; ++i) {
+                cards[i] %= 2 * Rank.values().length;
+            }
+
+            final int[] hole = Arrays.copyOf(cards, 4);
+            final int[] board = Arrays.copyOfRange(cards, 4, 9);
+            if (CardMask.size(CardMask.maskOf(cards)) == cards.length) {
+                assertEquals(bruteForceStrength(hole, board), OmahaHandEvaluator.getStrength(hole, board));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIllegalHoleCardCount() {
+        new OmahaHandEvaluator(ReaderUtil.codesFromLatin1("Ah Kh Qh")).getStrength(new int[] { 1, 2, 3 });
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIllegalBoardCardCount() {
+        new OmahaHandEvaluator(new int[] { 1, 2, 3, 4, 5, 6 });
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2012 Alexander Shabanov - http://alexshabanov.com.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alexshabanov.poker.model.util;
+
+import com.alexshabanov.cards.util.ReaderUtil;
+import com.alexshabanov.poker.model.HandRange;
+import org.junit.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public final class RangeSamplerTest {
+
+    private static final int SAMPLES = 200000;
+
+    @Test
+    public void testWeightedFrequencies() {
+        final RangeSampler sampler = new RangeSampler(new HandRange[] {HandRange.parse("AhAd:3, KhKd, QhQd:0")}, 0L);
+        final SplittableRandom random = new SplittableRandom(1L);
+        final long[] holes = new long[1];
+        final long aces = ReaderUtil.maskFromLatin1("Ah Ad");
+        int acesCount = 0;
+        for (int i = 0; i < SAMPLES; ++i) {
+            assertEquals(1.0, sampler.sample(random, holes), 0.0);
+            acesCount += holes[0] == aces ? 1 : 0;
+        }
+        assertEquals(0.75, (double) acesCount / SAMPLES, 0.01);
+    }
+
+    @Test
+    public void testDealsDoNotConflict() {
+        final HandRange range = HandRange.parse("22+, A2s+, K9o+");
+        final long deadMask = ReaderUtil.maskFromLatin1("As Kd 7c");
+        final RangeSampler sampler = new RangeSampler(new HandRange[] {range, range, range, range, range}, deadMask);
+        final SplittableRandom random = new SplittableRandom(2L);
+        final long[] holes = new long[sampler.getPlayerCount()];
+        for (int i = 0; i < SAMPLES / 10; ++i) {
+            final double weight = sampler.sample(random, holes);
+            assertTrue(weight > 0.0 && weight <= 1.0);
+            long dealtMask = deadMask;
+            for (final long hole : holes) {
+                assertEquals(0L, dealtMask & hole);
+                assertTrue(range.getWeight(HandRange.comboIndex(hole)) > 0.0);
+                dealtMask |= hole;
+            }
+        }
+    }
+
+    @Test
+    public void testImportanceWeights() {
+        // kings leave both combos to the second player, aces leave one, so the aces are dealt in a third of deals
+        final RangeSampler sampler = new RangeSampler(new HandRange[] {
+                HandRange.parse("AhAd, KdKc"), HandRange.parse("AhQs, QdQc")}, 0L);
+        final SplittableRandom random = new SplittableRandom(3L);
+        final long[] holes = new long[2];
+        final long aces = ReaderUtil.maskFromLatin1("Ah Ad");
+        double acesWeight = 0.0;
+        double totalWeight = 0.0;
+        for (int i = 0; i < SAMPLES; ++i) {
+            final double weight = sampler.sample(random, holes);
+            acesWeight += holes[0] == aces ? weight : 0.0;
+            totalWeight += weight;
+        }
+        assertEquals(1.0 / 3, acesWeight / totalWeight, 0.01);
+    }
+
+    @Test
+    public void testBlockedRange() {
+        final RangeSampler sampler = new RangeSampler(new HandRange[] {
+                HandRange.parse("AhAd"), HandRange.parse("AhKd, AdKh")}, 0L);
+        assertEquals(0.0, sampler.sample(new SplittableRandom(4L), new long[2]), 0.0);
+    }
+
+    @Test
+    public void testMostlyBlockedRange() {
+        // a single combo of the second range is live, so it is picked by the scan rather than the alias table
+        final RangeSampler sampler = new RangeSampler(new HandRange[] {
+                HandRange.parse("AhAd"), HandRange.parse("AhKh, AhKd, AhKc, AdKs, AdKc, QsQc")}, 0L);
+        final long[] holes = new long[2];
+        assertEquals(1.0 / 6, sampler.sample(new SplittableRandom(5L), holes), 1e-12);
+        assertEquals(ReaderUtil.maskFromLatin1("Qs Qc"), holes[1]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDeadRange() {
+        new RangeSampler(new HandRange[] {HandRange.parse("AhAd")}, ReaderUtil.maskFromLatin1("Ad"));
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2012 Alexander Shabanov - http://alexshabanov.com.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alexshabanov.poker.model.util;
+
+import com.alexshabanov.cards.model.DefaultCard;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public final class StateMachineHandEvaluatorTest {
+
+    private static File tableFile;
+    private static StateMachineHandEvaluator evaluator;
+
+    @BeforeClass
+    public static void generateTable() throws IOException {
+        tableFile = File.createTempFile("poker-states", ".bin");
+        StateMachineHandEvaluator.generate(tableFile);
+        evaluator = StateMachineHandEvaluator.map(tableFile);
+    }
+
+    @AfterClass
+    public static void deleteTable() {
+        evaluator = null;
+        if (!tableFile.delete()) {
+            tableFile.deleteOnExit(); // the file might still be mapped
+        }
+    }
+
+    private static int[] randomCards(Random random, int count) {
+        final int[] deck = new int[DefaultCard.MAX_CARD_CODE];
+        for (int i = 0; i < deck.length; ++i) {
+            deck[i] = i;
+        }
+
+        for (int i = 0; i < count; ++i) {
+            final int j = i + random.nextInt(deck.length - i);
+            final int tmp = deck[i];
+            deck[i] = deck[j];
+            deck[j] = tmp;
+        }
+
+        final int[] result = new int[count];
+        System.arraycopy(deck, 0, result, 0, count);
+        return result;
+    }
+
+    @Test
+    public void testSameAsLookupEvaluator() {
+        final Random random = new Random(2000L);
+        for (int i = 0; i < 200000; ++i) {
+            final int[] c = randomCards(random, StateMachineHandEvaluator.HAND_SIZE);
+            assertEquals(LookupHandEvaluator.evaluate(c),
+                    evaluator.evaluate(c[0], c[1], c[2], c[3], c[4], c[5], c[6]));
+        }
+    }
+
+    @Test
+    public void testFlopStateReuse() {
+        final int[] c = randomCards(new Random(3000L), 5);
+        int flopState = StateMachineHandEvaluator.INITIAL_STATE;
+        for (final int code : c) {
+            flopState = evaluator.next(flopState, code);
+        }
+
+        for (int turn = 0; turn < DefaultCard.MAX_CARD_CODE; ++turn) {
+            if (contains(c, turn)) {
+                continue;
+            }
+
+            final int turnState = evaluator.next(flopState, turn);
+            for (int river = turn + 1; river < DefaultCard.MAX_CARD_CODE; ++river) {
+                if (contains(c, river)) {
+                    continue;
+                }
+
+                final int value = LookupHandEvaluator.withPlayerCards(evaluator.next(turnState, river), c[0], c[1]);
+                assertEquals(LookupHandEvaluator.evaluate(c[0], c[1], c[2], c[3], c[4], turn, river), value);
+            }
+        }
+    }
+
+    private static boolean contains(int[] codes, int code) {
+        for (final int c : codes) {
+            if (c == code) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Test
+    public void testDuplicateCard() {
+        final int state = evaluator.next(StateMachineHandEvaluator.INITIAL_STATE, 10);
+        assertEquals(StateMachineHandEvaluator.INVALID_STATE, evaluator.next(state, 10));
+    }
+
+    @Test
+    public void testStateCount() {
+        assertEquals(612977, evaluator.getStateCount());
+    }
+
+    @Test(expected = IOException.class)
+    public void testMapInvalidFile() throws IOException {
+        final File file = File.createTempFile("poker-states-invalid", ".bin");
+        try {
+            final FileOutputStream stream = new FileOutputStream(file);
+            try {
+                stream.write(new byte[64]);
+            } finally {
+                stream.close();
+            }
+
+            StateMachineHandEvaluator.map(file);
+        } finally {
+            assertTrue(file.delete());
+        }
+    }
+}
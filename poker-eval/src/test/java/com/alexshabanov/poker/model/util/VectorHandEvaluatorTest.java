@@ -0,0 +1,92 @@
+/*
+ * Copyright 2012 Alexander Shabanov - http://alexshabanov.com.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alexshabanov.poker.model.util;
+
+import com.alexshabanov.cards.model.CardMask;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public final class VectorHandEvaluatorTest {
+
+    private static long[] randomMasks(Random random, int count, int handSize) {
+        final long[] masks = new long[count];
+        for (int i = 0; i < count; ++i) {
+            long mask = 0;
+            while (Long.bitCount(mask) < handSize) {
+                mask |= 1L << random.nextInt(Long.bitCount(CardMask.DECK_MASK));
+            }
+            masks[i] = mask;
+        }
+        return masks;
+    }
+
+    @Test
+    public void testSameAsBatchEvaluator() {
+        final Random random = new Random(6000L);
+        for (int handSize = 5; handSize <= 9; ++handSize) {
+            // odd count of hands, so that the last ones do not fill the whole vector
+            final long[] masks = randomMasks(random, 10001, handSize);
+
+            final int[] expectedStrengths = new int[masks.length];
+            final byte[] expectedRanks = new byte[masks.length];
+            BatchHandEvaluator.evaluate(masks, expectedStrengths, expectedRanks);
+
+            final int[] strengths = new int[masks.length];
+            final byte[] ranks = new byte[masks.length];
+            VectorHandEvaluator.evaluate(masks, strengths, ranks);
+
+            assertArrayEquals(expectedStrengths, strengths);
+            assertArrayEquals(expectedRanks, ranks);
+
+            if (VectorHandEvaluator.isVectorAvailable()) {
+                final int[] vectorStrengths = new int[masks.length];
+                final byte[] vectorRanks = new byte[masks.length];
+                VectorHandEvaluator.evaluateVectorized(masks, vectorStrengths, vectorRanks, 0, masks.length);
+
+                assertArrayEquals(expectedStrengths, vectorStrengths);
+                assertArrayEquals(expectedRanks, vectorRanks);
+            }
+        }
+    }
+
+    @Test
+    public void testRange() {
+        final long[] masks = randomMasks(new Random(7000L), 100, 7);
+        final int[] strengths = new int[masks.length];
+        VectorHandEvaluator.evaluate(masks, strengths, null, 3, 40);
+
+        for (int i = 0; i < masks.length; ++i) {
+            assertEquals(i >= 3 && i < 40 ? HandEvaluator.getStrength(masks[i]) : 0, strengths[i]);
+        }
+    }
+
+    @Test
+    public void testLaneCount() {
+        assertTrue(VectorHandEvaluator.getLaneCount() >= 1);
+        assertEquals(VectorHandEvaluator.isVectorized(), VectorHandEvaluator.getLaneCount() > 1);
+        assertEquals(VectorHandEvaluator.isVectorAvailable(), VectorHandEvaluator.getVectorLaneCount() > 1);
+    }
+
+    @Test
+    public void testScalarByDefault() {
+        // the vectorized kernel is used only if asked for, since it does not win on every CPU
+        assertEquals(Boolean.getBoolean(VectorHandEvaluator.VECTOR_PROPERTY), VectorHandEvaluator.isVectorized());
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2012 Alexander Shabanov - http://alexshabanov.com.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alexshabanov.poker.service.support;
+
+import com.alexshabanov.cards.util.ReaderUtil;
+import com.alexshabanov.poker.model.util.HandEvaluator;
+import com.alexshabanov.poker.service.HandEvaluatorEngine;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public final class EngineUtilTest {
+
+    /**
+     * Engine that is fast, but wrong.
+     */
+    private static final class BrokenEngine implements HandEvaluatorEngine {
+        @Override
+        public String getName() {
+            return "broken";
+        }
+
+        @Override
+        public boolean isAvailable() {
+            return true;
+        }
+
+        @Override
+        public int getStrength(long cardMask) {
+            return 0;
+        }
+
+        @Override
+        public void evaluate(long[] cardMasks, int[] strengths, int fromIndex, int toIndex) {
+            Arrays.fill(strengths, fromIndex, toIndex, 0);
+        }
+    }
+
+    @Test
+    public void testLoadEngines() {
+        final List<HandEvaluatorEngine> engines = EngineUtil.loadEngines();
+        assertEquals(ScalarHandEvaluatorEngine.NAME, engines.get(0).getName());
+        for (final HandEvaluatorEngine engine : engines) {
+            assertTrue(engine.isAvailable());
+            final long cardMask = ReaderUtil.maskFromLatin1("Ah Kh Qh Jh 2c 2d Th");
+            assertEquals(HandEvaluator.getStrength(cardMask), engine.getStrength(cardMask));
+        }
+        assertNotNull(EngineUtil.getEngine());
+    }
+
+    @Test
+    public void testTableEngines() {
+        final List<String> names = new ArrayList<String>();
+        for (final HandEvaluatorEngine engine : EngineUtil.loadEngines()) {
+            names.add(engine.getName());
+        }
+        assertTrue(names.contains(LookupHandEvaluatorEngine.NAME));
+        assertTrue(names.contains(CompactHandEvaluatorEngine.NAME));
+    }
+
+    @Test
+    public void testSelectByName() {
+        final HandEvaluatorEngine broken = new BrokenEngine();
+        final List<HandEvaluatorEngine> engines = Arrays.asList(new ScalarHandEvaluatorEngine(), broken);
+        assertSame(broken, EngineUtil.select(engines, "broken", false));
+        assertSame(engines.get(0), EngineUtil.select(engines, "unknown", false));
+        assertSame(engines.get(0), EngineUtil.select(engines, null, false));
+    }
+
+    @Test
+    public void testCalibrationSkipsWrongEngines() {
+        final List<HandEvaluatorEngine> engines = Arrays.asList(new BrokenEngine(), new ScalarHandEvaluatorEngine());
+        assertSame(engines.get(1), EngineUtil.calibrate(engines, 1000, 1L, 100, 0L, 100000000L));
+    }
+
+    @Test
+    public void testCalibration() {
+        final List<HandEvaluatorEngine> engines = EngineUtil.loadEngines();
+        assertTrue(engines.contains(EngineUtil.calibrate(engines, 1000, 2L, 100, 0L, 100000000L)));
+    }
+}
@@ -0,0 +1,320 @@
+/*
+ * Copyright 2012 Alexander Shabanov - http://alexshabanov.com.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alexshabanov.poker.service.support;
+
+import com.alexshabanov.cards.model.CardMask;
+import com.alexshabanov.cards.util.ReaderUtil;
+import com.alexshabanov.poker.model.EquityResult;
+import com.alexshabanov.poker.model.HandRange;
+import com.alexshabanov.poker.model.RangeEquityResult;
+import com.alexshabanov.poker.model.util.CardCombinator;
+import com.alexshabanov.poker.model.util.CardMaskCombinationCallback;
+import com.alexshabanov.poker.model.util.CombinationUtil;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+
+public final class ForkJoinEquityServiceTest {
+
+    private static ForkJoinPool pool;
+
+    @BeforeClass
+    public static void createPool() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterClass
+    public static void shutdownPool() {
+        pool.shutdown();
+    }
+
+    private static ForkJoinEquityService newService(long seed) {
+        return new ForkJoinEquityService(pool, new ScalarHandEvaluatorEngine(), 1000, seed);
+    }
+
+    private static long[] holes(String... holes) {
+        final long[] masks = new long[holes.length];
+        for (int i = 0; i < holes.length; ++i) {
+            masks[i] = ReaderUtil.maskFromLatin1(holes[i]);
+        }
+        return masks;
+    }
+
+    private static void assertConsistent(EquityResult result) {
+        double equity = 0.0;
+        for (int player = 0; player < result.getPlayerCount(); ++player) {
+            assertEquals(result.getRunoutCount(),
+                    result.getWins(player) + result.getTies(player) + result.getLosses(player));
+            equity += result.getEquity(player);
+        }
+        assertEquals(1.0, equity, 1e-9);
+    }
+
+    @Test
+    public void testPreflopPairs() {
+        // aces win about 82% against kings
+        final EquityResult result = newService(1L).simulate(holes("Ah Ad", "Ks Kc"), 0L, 0L, 200000);
+        assertEquals(200000, result.getRunoutCount());
+        assertEquals(0.82, result.getEquity(0), 0.01);
+        assertConsistent(result);
+    }
+
+    @Test
+    public void testMultiway() {
+        final EquityResult result = newService(2L).simulate(holes("Ah Kh", "Qs Qc", "7d 6d"),
+                ReaderUtil.maskFromLatin1("2h 9h Qd"), 0L, 50000);
+        assertEquals(3, result.getPlayerCount());
+        assertConsistent(result);
+    }
+
+    @Test
+    public void testCompleteBoard() {
+        final EquityResult result = newService(3L).simulate(holes("Ah Kd", "As Kc"),
+                ReaderUtil.maskFromLatin1("2h 7c 9d Js 3h"), 0L, 1000);
+        assertEquals(1000, result.getTies(0));
+        assertEquals(0.5, result.getEquity(1), 1e-9);
+    }
+
+    @Test
+    public void testDeadCards() {
+        // all the cards but the four of spades are dead, so the river completes the straight
+        final long board = ReaderUtil.maskFromLatin1("5h 6c 7d Ks");
+        final long[] holes = holes("8c 2d", "Kc Kh");
+        final long dead = CardMask.DECK_MASK & ~(board | holes[0] | holes[1] | ReaderUtil.maskFromLatin1("4s"));
+        final EquityResult result = newService(4L).simulate(holes, board, dead, 5000);
+        assertEquals(5000, result.getWins(0));
+        assertEquals(5000, result.getLosses(1));
+    }
+
+    @Test
+    public void testSameSeedSameResult() {
+        final long[] holes = holes("Ah Ad", "Ks Kc", "Jh Ts");
+        final EquityResult result1 = newService(5L).simulate(holes, 0L, 0L, 30000);
+        final EquityResult result2 = newService(5L).simulate(holes, 0L, 0L, 30000);
+        for (int player = 0; player < holes.length; ++player) {
+            assertEquals(result1.getWins(player), result2.getWins(player));
+            assertEquals(result1.getTies(player), result2.getTies(player));
+        }
+    }
+
+    @Test
+    public void testEnumeratePreflop() {
+        // aces without the suits of the kings win about 81.3% against them
+        final EquityResult result = newService(8L).enumerate(holes("Ah Ad", "Ks Kc"), 0L, 0L);
+        assertEquals(1712304, result.getRunoutCount());
+        assertEquals(0.8126, result.getEquity(0), 0.0001);
+        assertConsistent(result);
+    }
+
+    @Test
+    public void testEnumerateMatchesBruteForce() {
+        final long board = ReaderUtil.maskFromLatin1("2h 9h Qd");
+        final long[] holes = holes("Ah Kh", "Qs Qc", "7d 6d");
+        final long dead = ReaderUtil.maskFromLatin1("3h");
+        final EquityResult result = newService(9L).enumerate(holes, board, dead);
+        assertEquals(CombinationUtil.binomial(42, 2), result.getRunoutCount());
+        assertConsistent(result);
+
+        final ScalarHandEvaluatorEngine engine = new ScalarHandEvaluatorEngine();
+        final long[] wins = new long[holes.length];
+        final long[] ties = new long[holes.length];
+        final long stub = CardMask.DECK_MASK & ~(board | dead | holes[0] | holes[1] | holes[2]);
+        CardCombinator.iterate(stub, new CardMaskCombinationCallback() {
+            @Override
+            public boolean process(long runoutMask) {
+                final int[] strengths = new int[holes.length];
+                int best = Integer.MIN_VALUE;
+                for (int player = 0; player < holes.length; ++player) {
+                    strengths[player] = engine.getStrength(board | runoutMask | holes[player]);
+                    best = Math.max(best, strengths[player]);
+                }
+                int bestCount = 0;
+                for (final int strength : strengths) {
+                    bestCount += strength == best ? 1 : 0;
+                }
+                for (int player = 0; player < holes.length; ++player) {
+                    if (strengths[player] == best) {
+                        ++(bestCount == 1 ? wins : ties)[player];
+                    }
+                }
+                return false;
+            }
+        }, 2);
+
+        for (int player = 0; player < holes.length; ++player) {
+            assertEquals(wins[player], result.getWins(player));
+            assertEquals(ties[player], result.getTies(player));
+        }
+    }
+
+    @Test
+    public void testEnumerateCompleteBoard() {
+        final EquityResult result = newService(10L).enumerate(holes("Ah Kd", "Qs Qc"),
+                ReaderUtil.maskFromLatin1("2h 7c 9d Js 3h"), 0L);
+        assertEquals(1, result.getRunoutCount());
+        assertEquals(1, result.getWins(1));
+    }
+
+    @Test
+    public void testRangesOfSingleCombos() {
+        final long board = ReaderUtil.maskFromLatin1("2h 9h Qd");
+        final long[] holes = holes("Ah Kh", "Qs Qc");
+        final EquityResult expected = newService(11L).enumerate(holes, board, 0L);
+        final RangeEquityResult result = newService(11L).enumerate(new long[] {holes[0]}, new double[] {1.0},
+                new long[] {holes[1]}, new double[] {0.5}, board, 0L);
+        // the runouts that hit the combos are skipped rather than excluded from the stub
+        assertEquals(CombinationUtil.binomial(49, 2), result.getRunoutCount());
+        assertEquals(expected.getEquity(0), result.getComboEquity(0, 0), 1e-12);
+        assertEquals(expected.getEquity(1), result.getEquity(1), 1e-12);
+    }
+
+    @Test
+    public void testRangesMatchPairwiseEnumeration() {
+        final long board = ReaderUtil.maskFromLatin1("Jc 8d 3s");
+        final long dead = ReaderUtil.maskFromLatin1("2c");
+        final long[] combos = holes("Ah Ad", "Ah Kh", "Jh Td", "8c 8h", "3c 2c", "Qs Js");
+        final double[] weights = {1.0, 0.5, 0.25, 1.0, 1.0, 0.75};
+        final long[] opponentCombos = holes("Ah Ac", "Kd Kc", "Qh Th", "9s 7s", "Ad Jd", "Qs Js", "Jh Td");
+        final double[] opponentWeights = {0.5, 1.0, 0.2, 1.0, 0.8, 0.4, 1.0};
+        final ForkJoinEquityService service = newService(12L);
+        final RangeEquityResult result = service.enumerate(combos, weights, opponentCombos, opponentWeights,
+                board, dead);
+
+        double equityWeight = 0.0;
+        double matchupWeight = 0.0;
+        for (int i = 0; i < combos.length; ++i) {
+            double comboEquity = 0.0;
+            double comboWeight = 0.0;
+            for (int j = 0; j < opponentCombos.length; ++j) {
+                if ((combos[i] & (opponentCombos[j] | dead)) != 0 || (opponentCombos[j] & dead) != 0) {
+                    continue;
+                }
+                final EquityResult pair = service.enumerate(new long[] {combos[i], opponentCombos[j]}, board, dead);
+                comboEquity += opponentWeights[j] * pair.getEquity(0);
+                comboWeight += opponentWeights[j];
+            }
+
+            assertEquals(comboWeight == 0.0 ? 0.0 : comboEquity / comboWeight, result.getComboEquity(0, i), 1e-9);
+            equityWeight += weights[i] * comboEquity;
+            matchupWeight += weights[i] * comboWeight;
+        }
+        assertEquals(equityWeight / matchupWeight, result.getEquity(0), 1e-9);
+        assertEquals(1.0, result.getEquity(0) + result.getEquity(1), 1e-9);
+
+        // the combo with the dead card never meets the opponent
+        assertEquals(0.0, result.getMatchupWeight(0, 4), 0.0);
+        assertEquals(0.0, result.getComboEquity(0, 4), 0.0);
+    }
+
+    @Test
+    public void testRangesOnRiver() {
+        final long board = ReaderUtil.maskFromLatin1("Ah Kd 7c 7s 2h");
+        final RangeEquityResult result = newService(13L).enumerate(holes("As Ad", "Qh Jh"), new double[] {1.0, 1.0},
+                holes("7h 7d", "Ac Qc"), new double[] {1.0, 3.0}, board, 0L);
+        assertEquals(1, result.getRunoutCount());
+        assertEquals(0.75, result.getComboEquity(0, 0), 1e-12);
+        assertEquals(0.0, result.getComboEquity(0, 1), 1e-12);
+        assertEquals(1.0, result.getComboEquity(1, 0), 1e-12);
+        assertEquals(0.5, result.getComboEquity(1, 1), 1e-12);
+    }
+
+    @Test
+    public void testSimulateSingleComboRanges() {
+        final EquityResult result = newService(16L).simulate(
+                new HandRange[] {HandRange.parse("AhAd"), HandRange.parse("KsKc")}, 0L, 0L, 200000);
+        assertEquals(200000, result.getRunoutCount());
+        assertEquals(200000.0, result.getTotalWeight(), 0.0);
+        assertEquals(0.8126, result.getEquity(0), 0.01);
+        assertConsistent(result);
+    }
+
+    @Test
+    public void testSimulateRangesMatchEnumeration() {
+        final long board = ReaderUtil.maskFromLatin1("Jc 8d 3s");
+        final HandRange range = HandRange.parse("AA, KK:0.5, AJs, 88");
+        final HandRange opponentRange = HandRange.parse("AJ, JJ:0.2, T9s, 33");
+        final ForkJoinEquityService service = newService(17L);
+        final EquityResult result = service.simulate(new HandRange[] {range, opponentRange}, board, 0L, 300000);
+        assertConsistent(result);
+
+        final RangeEquityResult expected = service.enumerate(comboMasksOf(range), weightsOf(range),
+                comboMasksOf(opponentRange), weightsOf(opponentRange), board, 0L);
+        assertEquals(expected.getEquity(0), result.getEquity(0), 0.005);
+    }
+
+    @Test
+    public void testSimulateMultiwayRanges() {
+        final HandRange range = HandRange.parse("TT+, AQs+, KJo, 76s-54s");
+        final EquityResult result = newService(18L).simulate(new HandRange[] {range, range, range},
+                ReaderUtil.maskFromLatin1("Ah 7d 2c"), 0L, 100000);
+        assertEquals(3, result.getPlayerCount());
+        assertConsistent(result);
+        for (int player = 0; player < 3; ++player) {
+            assertEquals(1.0 / 3, result.getEquity(player), 0.01);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSimulateDeadRange() {
+        newService(19L).simulate(new HandRange[] {HandRange.parse("AhAd"), HandRange.parse("KK")},
+                ReaderUtil.maskFromLatin1("Ah 7d 2c"), 0L, 10);
+    }
+
+    private static long[] comboMasksOf(HandRange range) {
+        final long[] masks = new long[range.getComboCount()];
+        for (int index = 0, i = 0; index < HandRange.COMBO_COUNT; ++index) {
+            if (range.getWeight(index) != 0.0) {
+                masks[i++] = HandRange.comboMask(index);
+            }
+        }
+        return masks;
+    }
+
+    private static double[] weightsOf(HandRange range) {
+        final double[] weights = new double[range.getComboCount()];
+        for (int index = 0, i = 0; index < HandRange.COMBO_COUNT; ++index) {
+            if (range.getWeight(index) != 0.0) {
+                weights[i++] = range.getWeight(index);
+            }
+        }
+        return weights;
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDuplicateComboInRange() {
+        newService(14L).enumerate(holes("Ah Ad", "Ad Ah"), new double[] {1.0, 1.0}, holes("Ks Kc"),
+                new double[] {1.0}, 0L, 0L);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeComboWeight() {
+        newService(15L).enumerate(holes("Ah Ad"), new double[] {-1.0}, holes("Ks Kc"), new double[] {1.0}, 0L, 0L);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOverlappingCards() {
+        newService(6L).simulate(holes("Ah Ad", "Ah Kc"), 0L, 0L, 10);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDeadCardOnBoard() {
+        newService(7L).simulate(holes("Ah Ad", "Ks Kc"), ReaderUtil.maskFromLatin1("2c 3c 4c"),
+                ReaderUtil.maskFromLatin1("2c"), 10);
+    }
+}
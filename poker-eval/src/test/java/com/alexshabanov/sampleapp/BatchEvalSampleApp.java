@@ -0,0 +1,109 @@
+/*
+ * Copyright 2012 Alexander Shabanov - http://alexshabanov.com.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alexshabanov.sampleapp;
+
+import com.alexshabanov.cards.model.CardMask;
+import com.alexshabanov.cards.util.EncodeUtil;
+import com.alexshabanov.poker.model.util.BatchHandEvaluator;
+import com.alexshabanov.poker.model.util.HandEvaluator;
+import org.junit.Ignore;
+
+import java.util.Random;
+
+/**
+ * Compares the batch evaluation with the evaluation of the same hands one by one.
+ */
+@Ignore
+public final class BatchEvalSampleApp {
+
+    private static final int HAND_COUNT = 1 << 20;
+    private static final int HAND_SIZE = 7;
+    private static final int ROUNDS = 5;
+
+    private static long[] randomMasks(Random random) {
+        final long[] masks = new long[HAND_COUNT];
+        for (int i = 0; i < HAND_COUNT; ++i) {
+            long mask = 0;
+            while (Long.bitCount(mask) < HAND_SIZE) {
+                mask |= 1L << random.nextInt(Long.bitCount(CardMask.DECK_MASK));
+            }
+            masks[i] = mask;
+        }
+        return masks;
+    }
+
+    private static void report(String name, long nanos, long checksum) {
+        System.out.println(name + ": " + String.format("%.1f", HAND_COUNT * 1000.0 / nanos) + "M hands/s" +
+                " (checksum " + checksum + ")");
+    }
+
+    public static void main(String[] args) {
+        final long[] masks = randomMasks(new Random(1L));
+        final int[][] codes = new int[HAND_COUNT][];
+        for (int i = 0; i < HAND_COUNT; ++i) {
+            codes[i] = CardMask.toCodes(masks[i]);
+        }
+
+        final int[] strengths = new int[HAND_COUNT];
+        final byte[] ranks = new byte[HAND_COUNT];
+        for (int round = 0; round < ROUNDS; ++round) {
+            System.out.println("Round #" + round);
+
+            long start = System.nanoTime();
+            long checksum = 0;
+            for (int i = 0; i < HAND_COUNT; ++i) {
+                checksum += HandEvaluator.evaluate(EncodeUtil.asCards(codes[i])).getStrength();
+            }
+            report("\tevaluate in a loop", System.nanoTime() - start, checksum);
+
+            start = System.nanoTime();
+            checksum = 0;
+            for (int i = 0; i < HAND_COUNT; ++i) {
+                checksum += HandEvaluator.getStrength(masks[i]);
+            }
+            report("\tgetStrength in a loop", System.nanoTime() - start, checksum);
+
+            start = System.nanoTime();
+            checksum = 0;
+            for (int i = 0; i < HAND_COUNT; ++i) {
+                checksum += HandEvaluator.getValue(masks[i]).getStrength();
+            }
+            report("\tgetValue in a loop", System.nanoTime() - start, checksum);
+
+            start = System.nanoTime();
+            checksum = 0;
+            for (int i = 0; i < HAND_COUNT; ++i) {
+                checksum += HandEvaluator.classify(masks[i]).ordinal();
+            }
+            report("\tclassify in a loop", System.nanoTime() - start, checksum);
+
+            start = System.nanoTime();
+            BatchHandEvaluator.classify(masks, ranks);
+            checksum = 0;
+            for (final byte rank : ranks) {
+                checksum += rank;
+            }
+            report("\tbatch classify", System.nanoTime() - start, checksum);
+
+            start = System.nanoTime();
+            BatchHandEvaluator.evaluate(masks, strengths, ranks);
+            checksum = 0;
+            for (final int strength : strengths) {
+                checksum += strength;
+            }
+            report("\tbatch", System.nanoTime() - start, checksum);
+        }
+    }
+}
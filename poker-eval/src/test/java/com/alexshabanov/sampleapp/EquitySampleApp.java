@@ -0,0 +1,69 @@
+/*
+ * Copyright 2012 Alexander Shabanov - http://alexshabanov.com.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alexshabanov.sampleapp;
+
+import com.alexshabanov.cards.util.ReaderUtil;
+import com.alexshabanov.poker.model.EquityResult;
+import com.alexshabanov.poker.service.support.EngineUtil;
+import com.alexshabanov.poker.service.support.ForkJoinEquityService;
+import org.junit.Ignore;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Measures the Monte Carlo equity throughput and the exact heads-up preflop enumeration time
+ * for the growing count of threads.
+ */
+@Ignore
+public final class EquitySampleApp {
+
+    private static final long RUNOUT_COUNT = 10000000L;
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) {
+        final long[] holes = {
+                ReaderUtil.maskFromLatin1("Ah Kh"),
+                ReaderUtil.maskFromLatin1("Qs Qc"),
+                ReaderUtil.maskFromLatin1("7d 6d")
+        };
+
+        final long[] headsUp = {
+                ReaderUtil.maskFromLatin1("Ah Ad"),
+                ReaderUtil.maskFromLatin1("Ks Kc")
+        };
+
+        final int processors = Runtime.getRuntime().availableProcessors();
+        for (int parallelism = 1; parallelism <= processors; parallelism *= 2) {
+            final ForkJoinPool pool = new ForkJoinPool(parallelism);
+            final ForkJoinEquityService service = new ForkJoinEquityService(pool, EngineUtil.getEngine(),
+                    ForkJoinEquityService.DEFAULT_CHUNK_SIZE, 1L);
+            for (int round = 0; round < ROUNDS; ++round) {
+                final long start = System.nanoTime();
+                final EquityResult result = service.simulate(holes, 0L, 0L, RUNOUT_COUNT);
+                final long nanos = System.nanoTime() - start;
+                System.out.println(parallelism + " thread(s): " +
+                        String.format("%.1f", RUNOUT_COUNT * 1000.0 / nanos) + "M runouts/s, " + result);
+            }
+            for (int round = 0; round < ROUNDS; ++round) {
+                final long start = System.nanoTime();
+                final EquityResult result = service.enumerate(headsUp, 0L, 0L);
+                final long nanos = System.nanoTime() - start;
+                System.out.println(parallelism + " thread(s): enumerated in " +
+                        String.format("%.3f", nanos / 1e9) + "s, " + result);
+            }
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2012 Alexander Shabanov - http://alexshabanov.com.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alexshabanov.sampleapp;
+
+import com.alexshabanov.cards.model.DefaultCard;
+import com.alexshabanov.poker.model.util.HandEvaluator;
+import com.alexshabanov.poker.model.util.LowHandEvaluator;
+import com.alexshabanov.poker.model.util.OmahaHandEvaluator;
+import org.junit.Ignore;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Compares the Omaha evaluator with the evaluation of every two-plus-three hand.
+ */
+@Ignore
+public final class OmahaEvalSampleApp {
+
+    private static final int DEAL_COUNT = 1 << 18;
+    private static final int HOLE_CARDS = OmahaHandEvaluator.MIN_HOLE_CARDS;
+    private static final int BOARD_CARDS = OmahaHandEvaluator.MAX_BOARD_CARDS;
+    private static final int ROUNDS = 5;
+
+    private static int[][] randomDeals(Random random) {
+        final int[][] deals = new int[DEAL_COUNT][];
+        final int[] deck = new int[DefaultCard.MAX_CARD_CODE];
+        for (int i = 0; i < deck.length; ++i) {
+            deck[i] = i;
+        }
+
+        for (int n = 0; n < DEAL_COUNT; ++n) {
+            for (int i = 0; i < HOLE_CARDS + BOARD_CARDS; ++i) {
+                final int j = i + random.nextInt(deck.length - i);
+                final int tmp = deck[i];
+                deck[i] = deck[j];
+                deck[j] = tmp;
+            }
+            deals[n] = Arrays.copyOf(deck, HOLE_CARDS + BOARD_CARDS);
+        }
+        return deals;
+    }
+
+    private static void report(String name, long nanos, long checksum) {
+        System.out.println(name + ": " + String.format("%.2f", DEAL_COUNT * 1000.0 / nanos) + "M hands/s" +
+                " (checksum " + checksum + ")");
+    }
+
+    public static void main(String[] args) {
+        final int[][] deals = randomDeals(new Random(1L));
+        final int[][] holes = new int[DEAL_COUNT][];
+        final int[][] boards = new int[DEAL_COUNT][];
+        for (int n = 0; n < DEAL_COUNT; ++n) {
+            holes[n] = Arrays.copyOf(deals[n], HOLE_CARDS);
+            boards[n] = Arrays.copyOfRange(deals[n], HOLE_CARDS, HOLE_CARDS + BOARD_CARDS);
+        }
+
+        final int[] fiveCards = new int[5];
+        for (int round = 0; round < ROUNDS; ++round) {
+            System.out.println("Round #" + round);
+
+            long start = System.nanoTime();
+            long checksum = 0;
+            for (int n = 0; n < DEAL_COUNT; ++n) {
+                final int[] hole = holes[n];
+                final int[] board = boards[n];
+                int best = 0;
+                for (int i = 0; i < HOLE_CARDS; ++i) {
+                    for (int j = i + 1; j < HOLE_CARDS; ++j) {
+                        for (int a = 0; a < BOARD_CARDS; ++a) {
+                            for (int b = a + 1; b < BOARD_CARDS; ++b) {
+                                for (int c = b + 1; c < BOARD_CARDS; ++c) {
+                                    fiveCards[0] = hole[i];
+                                    fiveCards[1] = hole[j];
+                                    fiveCards[2] = board[a];
+                                    fiveCards[3] = board[b];
+                                    fiveCards[4] = board[c];
+                                    best = Math.max(best, HandEvaluator.getStrength(fiveCards));
+                                }
+                            }
+                        }
+                    }
+                }
+                checksum += best;
+            }
+            report("\t60 five-card hands", System.nanoTime() - start, checksum);
+
+            start = System.nanoTime();
+            checksum = 0;
+            for (int n = 0; n < DEAL_COUNT; ++n) {
+                checksum += OmahaHandEvaluator.getStrength(holes[n], boards[n]);
+            }
+            report("\tOmaha evaluator", System.nanoTime() - start, checksum);
+
+            // the board is summarized once for many players, e.g. in the equity enumeration
+            final OmahaHandEvaluator boardEvaluator = new OmahaHandEvaluator(boards[round]);
+            start = System.nanoTime();
+            checksum = 0;
+            for (int n = 0; n < DEAL_COUNT; ++n) {
+                checksum += boardEvaluator.getStrength(holes[n]);
+            }
+            report("\tOmaha evaluator, shared board", System.nanoTime() - start, checksum);
+
+            start = System.nanoTime();
+            checksum = 0;
+            for (int n = 0; n < DEAL_COUNT; ++n) {
+                final long hiLo = boardEvaluator.getHiLo(holes[n]);
+                checksum += LowHandEvaluator.getHigh(hiLo) + LowHandEvaluator.getLow(hiLo);
+            }
+            report("\tOmaha Hi/Lo evaluator, shared board", System.nanoTime() - start, checksum);
+        }
+    }
+}
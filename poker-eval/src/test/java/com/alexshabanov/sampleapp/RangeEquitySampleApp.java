@@ -0,0 +1,106 @@
+/*
+ * Copyright 2012 Alexander Shabanov - http://alexshabanov.com.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alexshabanov.sampleapp;
+
+import com.alexshabanov.cards.model.CardMask;
+import com.alexshabanov.cards.util.ReaderUtil;
+import com.alexshabanov.poker.model.EquityResult;
+import com.alexshabanov.poker.model.HandRange;
+import com.alexshabanov.poker.model.RangeEquityResult;
+import com.alexshabanov.poker.service.support.EngineUtil;
+import com.alexshabanov.poker.service.support.ForkJoinEquityService;
+import org.junit.Ignore;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Measures the time of the range versus range enumeration on the flop and the throughput of the three-way
+ * range simulation for the growing count of threads.
+ */
+@Ignore
+public final class RangeEquitySampleApp {
+
+    private static final int COMBO_COUNT = 1000;
+    private static final int ROUNDS = 3;
+    private static final long RUNOUT_COUNT = 2000000L;
+
+    public static void main(String[] args) {
+        final long board = ReaderUtil.maskFromLatin1("Jh 8d 3c");
+        final Random random = new Random(1L);
+        final long[] combos = randomCombos(board, random);
+        final long[] opponentCombos = randomCombos(board, random);
+        final double[] weights = randomWeights(random);
+        final double[] opponentWeights = randomWeights(random);
+        final HandRange[] ranges = {
+                HandRange.parse("TT+, AQs+, KJo, 76s-54s"),
+                HandRange.parse("22+, A2s+, KTo+, QJs:0.5"),
+                HandRange.parse("AhAd")
+        };
+
+        final int processors = Runtime.getRuntime().availableProcessors();
+        for (int parallelism = 1; parallelism <= processors; parallelism *= 2) {
+            final ForkJoinPool pool = new ForkJoinPool(parallelism);
+            final ForkJoinEquityService service = new ForkJoinEquityService(pool, EngineUtil.getEngine(),
+                    ForkJoinEquityService.DEFAULT_CHUNK_SIZE, 1L);
+            for (int round = 0; round < ROUNDS; ++round) {
+                final long start = System.nanoTime();
+                final RangeEquityResult result = service.enumerate(combos, weights, opponentCombos,
+                        opponentWeights, board, 0L);
+                final long nanos = System.nanoTime() - start;
+                System.out.println(parallelism + " thread(s): " + COMBO_COUNT + " vs " + COMBO_COUNT +
+                        " combos in " + String.format("%.3f", nanos / 1e9) + "s, " + result);
+            }
+            for (int round = 0; round < ROUNDS; ++round) {
+                final long start = System.nanoTime();
+                final EquityResult result = service.simulate(ranges, 0L, 0L, RUNOUT_COUNT);
+                final long nanos = System.nanoTime() - start;
+                System.out.println(parallelism + " thread(s): " +
+                        String.format("%.1f", RUNOUT_COUNT * 1000.0 / nanos) + "M range deals/s, " + result);
+            }
+            pool.shutdown();
+        }
+    }
+
+    private static long[] randomCombos(long board, Random random) {
+        final int[] codes = CardMask.toCodes(CardMask.DECK_MASK & ~board);
+        final long[] all = new long[codes.length * (codes.length - 1) / 2];
+        int count = 0;
+        for (int i = 0; i < codes.length; ++i) {
+            for (int j = i + 1; j < codes.length; ++j) {
+                all[count++] = (1L << codes[i]) | (1L << codes[j]);
+            }
+        }
+
+        // partial shuffle picks the distinct combos
+        final long[] result = new long[COMBO_COUNT];
+        for (int i = 0; i < COMBO_COUNT; ++i) {
+            final int j = i + random.nextInt(all.length - i);
+            final long combo = all[j];
+            all[j] = all[i];
+            all[i] = combo;
+            result[i] = combo;
+        }
+        return result;
+    }
+
+    private static double[] randomWeights(Random random) {
+        final double[] weights = new double[COMBO_COUNT];
+        for (int i = 0; i < COMBO_COUNT; ++i) {
+            weights[i] = random.nextDouble();
+        }
+        return weights;
+    }
+}
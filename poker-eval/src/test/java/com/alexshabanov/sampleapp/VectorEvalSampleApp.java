@@ -0,0 +1,75 @@
+/*
+ * Copyright 2012 Alexander Shabanov - http://alexshabanov.com.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alexshabanov.sampleapp;
+
+import com.alexshabanov.cards.model.CardMask;
+import com.alexshabanov.poker.model.util.BatchHandEvaluator;
+import com.alexshabanov.poker.model.util.VectorHandEvaluator;
+import org.junit.Ignore;
+
+import java.util.Random;
+
+/**
+ * Compares the vectorized batch evaluation with the scalar one.
+ * Run with {@code --add-modules jdk.incubator.vector} on JDK 17+, otherwise the vectorized kernel is not available.
+ */
+@Ignore
+public final class VectorEvalSampleApp {
+
+    private static final int HAND_COUNT = 1 << 20;
+    private static final int HAND_SIZE = 7;
+    private static final int ROUNDS = 15;
+
+    private static void report(String name, long nanos, int[] strengths) {
+        long checksum = 0;
+        for (final int strength : strengths) {
+            checksum += strength;
+        }
+        System.out.println(name + ": " + String.format("%.1f", HAND_COUNT * 1000.0 / nanos) + "M hands/s" +
+                " (checksum " + checksum + ")");
+    }
+
+    public static void main(String[] args) {
+        final Random random = new Random(1L);
+        final long[] masks = new long[HAND_COUNT];
+        for (int i = 0; i < HAND_COUNT; ++i) {
+            long mask = 0;
+            while (Long.bitCount(mask) < HAND_SIZE) {
+                mask |= 1L << random.nextInt(Long.bitCount(CardMask.DECK_MASK));
+            }
+            masks[i] = mask;
+        }
+
+        System.out.println("Vector kernel available: " + VectorHandEvaluator.isVectorAvailable() + ", " +
+                "lanes: " + VectorHandEvaluator.getVectorLaneCount() + ", " +
+                "used by default: " + VectorHandEvaluator.isVectorized());
+        if (!VectorHandEvaluator.isVectorAvailable()) {
+            return;
+        }
+
+        final int[] strengths = new int[HAND_COUNT];
+        for (int round = 0; round < ROUNDS; ++round) {
+            System.out.println("Round #" + round);
+
+            long start = System.nanoTime();
+            BatchHandEvaluator.evaluate(masks, strengths);
+            report("\tscalar", System.nanoTime() - start, strengths);
+
+            start = System.nanoTime();
+            VectorHandEvaluator.evaluateVectorized(masks, strengths, null, 0, HAND_COUNT);
+            report("\tvector", System.nanoTime() - start, strengths);
+        }
+    }
+}